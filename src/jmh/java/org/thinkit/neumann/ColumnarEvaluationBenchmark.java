@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.thinkit.neumann.catalog.ColumnarBackend;
+
+/**
+ * {@link CompiledExpression} の列単位の評価と一行ずつの評価のスループットを比較するベンチマークです。
+ * <p>
+ * {@link ColumnarBackend#VECTOR} を計測する場合は {@code --add-modules jdk.incubator.vector} を指定した JVM で実行してください。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ColumnarEvaluationBenchmark {
+
+    /**
+     * 評価する式
+     */
+    @Param({ "price * quantity * (1 + rate) - discount", "sqrt(x * x + y * y) / 4 + max(x, y) - abs(x - y)",
+            "sin(x) * cos(y) + log(abs(x) + 1)" })
+    public String expression;
+
+    /**
+     * 評価する行の数
+     */
+    @Param({ "100000" })
+    public int rows;
+
+    /**
+     * 評価する式を変換した {@link CompiledExpression}
+     */
+    private CompiledExpression compiled;
+
+    /**
+     * スロット番号をインデックスとする変数の値の列
+     */
+    private double[][] columns;
+
+    /**
+     * 評価結果の出力先
+     */
+    private double[] results;
+
+    @Setup
+    public void setUp() {
+
+        final Random random = new Random(42);
+
+        this.compiled = Neumann.compile(this.expression);
+        this.columns = new double[this.compiled.getVariables().size()][this.rows];
+        this.results = new double[this.rows];
+
+        for (double[] column : this.columns) {
+            for (int i = 0; i < column.length; i++) {
+                column[i] = random.nextDouble() * 200 - 100;
+            }
+        }
+    }
+
+    @Benchmark
+    public void perRow(Blackhole blackhole) {
+
+        final double[] values = new double[this.columns.length];
+
+        for (int i = 0; i < this.rows; i++) {
+            for (int j = 0; j < values.length; j++) {
+                values[j] = this.columns[j][i];
+            }
+
+            this.results[i] = this.compiled.evaluateDouble(values);
+        }
+
+        blackhole.consume(this.results);
+    }
+
+    @Benchmark
+    public void columnarScalar(Blackhole blackhole) {
+        this.compiled.evaluateDouble(this.columns, this.results, ColumnarBackend.SCALAR);
+        blackhole.consume(this.results);
+    }
+
+    @Benchmark
+    public void columnarVector(Blackhole blackhole) {
+        this.compiled.evaluateDouble(this.columns, this.results, ColumnarBackend.VECTOR);
+        blackhole.consume(this.results);
+    }
+}
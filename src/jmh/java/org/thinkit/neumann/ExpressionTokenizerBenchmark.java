@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link ExpressionTokenizer} の字句解析のスループットを計測するベンチマークです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExpressionTokenizerBenchmark {
+
+    /**
+     * 字句解析する式
+     */
+    @Param({ "3*(4-9)/3", "max(price * qty, 1.25e3) + sqrt(a * a + b * b) / (rate ^ 2 % 7)",
+            "12345678901234567890.123456789 * 0.000000000000000000001 + 42" })
+    public String expression;
+
+    @Benchmark
+    public void tokenize(Blackhole blackhole) {
+
+        final ExpressionTokenizer tokens = ExpressionTokenizer.of(this.expression);
+
+        while (tokens.next()) {
+            blackhole.consume(tokens.getLexemePattern());
+            blackhole.consume(tokens.getNumber());
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        blackhole.consume(ExpressionParser.of(this.expression).parse());
+    }
+}
@@ -0,0 +1,836 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.thinkit.neumann.catalog.MathematicalConstant;
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 式を倍々精度浮動小数点数で高速に評価し、誤差の上限が演算規則の精度に収まらない場合のみ {@link BigDecimal} で評価し直すクラスです。
+ * <p>
+ * 高速な評価では全ての値を二つの {@code double} 型の和で表現される倍々精度浮動小数点数 (約 {@code 32} 桁) で保持し、各演算で生じる誤差の上限を同時に計算します。
+ * 評価結果に誤差の上限を加減した区間の両端が演算規則で同一の値へ丸められる場合、その値は数学的に正確な評価結果を演算規則で丸めた値と一致するため、即座に返却されます。
+ * 区間の両端が異なる値へ丸められる場合、または高速な評価に対応していない演算が含まれる場合は、既存の {@link BigDecimal}
+ * による評価を演算規則で丸めた値が返却されます。 {@link RoundingMode#DOWN} のような方向を持つ丸めモードでは、評価結果が演算規則の精度以下の桁数で表現できる場合に区間の両端が丸めの境界を跨ぐため、
+ * {@link BigDecimal} による評価へ切り替わります。
+ * <p>
+ * 高速な評価における演算の扱いは以下の通りです。
+ * <ul>
+ * <li>{@code !} 、 {@code +} 、 {@code -} 、 {@code *} 、 {@code /} 、整数の指数による {@code ^} 、 {@code abs} 、
+ * {@code min} 、 {@code max} 、 {@code sum} 、 {@code avg} 、 {@code sqrt} は倍々精度で評価されます。</li>
+ * <li>{@code ceil} 、 {@code floor} 、 {@code round} は誤差の区間が丸めの境界を跨がない場合のみ評価されます。</li>
+ * <li>{@code sin} 、 {@code cos} 、 {@code asin} 、 {@code acos} 、 {@code atan} 、 {@code sinh} 、 {@code cosh} 、
+ * {@code tanh} 、 {@code log} は {@link Math} クラスの関数の誤差の仕様に基づき {@code double} 型の精度で評価されるため、演算規則の精度が約
+ * {@code 15} 桁以下の場合のみ高速な評価の結果が返却されます。</li>
+ * <li>{@code %} 、 {@code tan} 、整数ではない指数による {@code ^} は常に {@link BigDecimal} で評価されます。</li>
+ * </ul>
+ * 高速な評価は除算の商を正確に丸めるため、 {@link BigDecimal} による評価でも除算と平均は例外を送出せずに演算規則の精度に {@code 10}
+ * 桁を加えた精度で行われます。
+ * <p>
+ * このクラスは複数のスレッドから同時に {@link #evaluate(BigDecimal...)} メソッドを呼び出すことができます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+public final class AdaptiveExpression {
+
+    /**
+     * 加算と減算、乗算の相対誤差の上限
+     */
+    private static final double ARITHMETIC_ERROR = 0x1p-100;
+
+    /**
+     * 除算と平方根の相対誤差の上限
+     */
+    private static final double DIVISION_ERROR = 0x1p-98;
+
+    /**
+     * 誤差の上限の計算で生じる丸め誤差を吸収する係数
+     */
+    private static final double ERROR_INFLATION = 1 + 0x1p-40;
+
+    /**
+     * 下位の値の精度を保証できる絶対値の最小値
+     */
+    private static final double MIN_MAGNITUDE = 0x1p-960;
+
+    /**
+     * {@link BigDecimal} による除算で演算規則の精度に加える桁数
+     */
+    private static final int GUARD_DIGITS = 10;
+
+    /**
+     * 構文解析済みの式
+     */
+    private final CompiledExpression expression;
+
+    /**
+     * 命令列
+     */
+    private final int[] code;
+
+    /**
+     * レジスタの数
+     */
+    private final int registerCount;
+
+    /**
+     * 演算規則
+     */
+    private final MathContext mathContext;
+
+    /**
+     * 定数プールの上位の値
+     */
+    private final double[] constantHighs;
+
+    /**
+     * 定数プールの下位の値
+     */
+    private final double[] constantLows;
+
+    /**
+     * 定数プールの誤差の上限
+     */
+    private final double[] constantErrors;
+
+    /**
+     * 高速な評価を行うことができるか
+     */
+    private final boolean fastPathAvailable;
+
+    /**
+     * {@link BigDecimal} による評価で使用する評価器
+     */
+    @ToString.Exclude
+    private final Evaluator fallbackEvaluator;
+
+    /**
+     * 高速な評価の結果を返却した回数
+     */
+    @ToString.Exclude
+    private final LongAdder fastPathCount = new LongAdder();
+
+    /**
+     * {@link BigDecimal} による評価へ切り替わった回数
+     */
+    @ToString.Exclude
+    private final LongAdder fallbackCount = new LongAdder();
+
+    /**
+     * コンストラクタ
+     *
+     * @param expression 構文解析済みの式
+     */
+    private AdaptiveExpression(CompiledExpression expression) {
+        this.expression = expression;
+        this.code = expression.getProgram().getCode();
+        this.registerCount = expression.getProgram().getRegisterCount();
+        this.mathContext = expression.getMathContext();
+        this.fallbackEvaluator = new GuardedDivision(expression.getEvaluator(), new MathContext(
+                this.mathContext.getPrecision() + GUARD_DIGITS, this.mathContext.getRoundingMode()));
+
+        final BigDecimal[] constants = expression.getProgram().getConstants();
+        this.constantHighs = new double[constants.length];
+        this.constantLows = new double[constants.length];
+        this.constantErrors = new double[constants.length];
+        boolean fastPathAvailable = this.mathContext.getRoundingMode() != RoundingMode.UNNECESSARY;
+
+        for (int i = 0; i < constants.length; i++) {
+            split(constants[i], this.constantHighs, this.constantLows, this.constantErrors, i);
+            fastPathAvailable &= this.constantErrors[i] < Double.POSITIVE_INFINITY;
+        }
+
+        this.fastPathAvailable = fastPathAvailable;
+    }
+
+    /**
+     * 引数として渡された構文解析済みの式を評価する {@link AdaptiveExpression} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param expression 構文解析済みの式
+     * @return {@link AdaptiveExpression} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static AdaptiveExpression of(@NonNull CompiledExpression expression) {
+        return new AdaptiveExpression(expression);
+    }
+
+    /**
+     * 演算規則を返却します。
+     *
+     * @return 演算規則
+     */
+    public MathContext getMathContext() {
+        return this.mathContext;
+    }
+
+    /**
+     * 高速な評価の結果を返却した回数を返却します。
+     *
+     * @return 高速な評価の結果を返却した回数
+     */
+    public long getFastPathCount() {
+        return this.fastPathCount.sum();
+    }
+
+    /**
+     * {@link BigDecimal} による評価へ切り替わった回数を返却します。
+     *
+     * @return {@link BigDecimal} による評価へ切り替わった回数
+     */
+    public long getFallbackCount() {
+        return this.fallbackCount.sum();
+    }
+
+    /**
+     * 全ての評価のうち高速な評価の結果を返却した割合を返却します。評価が一度も行われていない場合は {@code 0} を返却します。
+     *
+     * @return 高速な評価の結果を返却した割合
+     */
+    public double getFastPathRate() {
+
+        final long fastPathCount = this.fastPathCount.sum();
+        final long total = fastPathCount + this.fallbackCount.sum();
+
+        return total == 0 ? 0 : (double) fastPathCount / total;
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、式を評価した結果を演算規則で丸めて返却します。
+     *
+     * @param values スロット番号をインデックスとする変数の値
+     * @return 演算規則で丸めた式の評価結果
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 変数の値の数が式中の変数の数より少ない場合
+     * @exception ArithmeticException      演算の結果が定義されない場合
+     */
+    public BigDecimal evaluate(@NonNull BigDecimal... values) {
+
+        final int variableCount = this.expression.getVariables().size();
+
+        if (values.length < variableCount) {
+            throw new IllegalArgumentException(
+                    String.format("Expected %d variable values but %d were given", variableCount, values.length));
+        }
+
+        if (this.fastPathAvailable) {
+            final BigDecimal result = this.evaluateFast(values);
+
+            if (result != null) {
+                this.fastPathCount.increment();
+                return result;
+            }
+        }
+
+        this.fallbackCount.increment();
+        return this.expression.getProgram().evaluate(this.fallbackEvaluator, values).round(this.mathContext);
+    }
+
+    /**
+     * 命令列を倍々精度で評価し、誤差の上限から評価結果を演算規則で正確に丸められる場合はその値を返却します。
+     *
+     * @param values スロット番号をインデックスとする変数の値
+     * @return 演算規則で丸めた評価結果、正確に丸められない場合は {@code null}
+     */
+    private BigDecimal evaluateFast(BigDecimal[] values) {
+
+        final int[] code = this.code;
+        final double[] highs = new double[this.registerCount];
+        final double[] lows = new double[this.registerCount];
+        final double[] errors = new double[this.registerCount];
+        int register = 0;
+        int position = 0;
+
+        while (position < code.length) {
+            switch (code[position]) {
+                case ExpressionProgram.LOAD_CONSTANT -> {
+                    final int index = code[position + 1];
+                    highs[register] = this.constantHighs[index];
+                    lows[register] = this.constantLows[index];
+                    errors[register] = this.constantErrors[index];
+                    position += 2;
+                }
+                case ExpressionProgram.LOAD_VARIABLE -> {
+                    split(values[code[position + 1]], highs, lows, errors, register);
+                    position += 2;
+                }
+                case ExpressionProgram.APPLY_OPERATOR -> {
+                    applyOperator(ExpressionProgram.toOperator(code[position + 1]), highs, lows, errors, register,
+                            code, position + 3);
+                    position += 3 + code[position + 2];
+                }
+                default -> {
+                    this.applyFunction(ExpressionProgram.toFunction(code[position + 1]), highs, lows, errors,
+                            register, code, position + 3, code[position + 2]);
+                    position += 3 + code[position + 2];
+                }
+            }
+
+            final double high = highs[register];
+
+            if (!Double.isFinite(high) || (high != 0 && Math.abs(high) < MIN_MAGNITUDE)
+                    || !(errors[register] < Double.POSITIVE_INFINITY)) {
+                return null;
+            }
+
+            errors[register] *= ERROR_INFLATION;
+            register++;
+        }
+
+        return this.round(highs[register - 1], lows[register - 1], errors[register - 1]);
+    }
+
+    /**
+     * 演算子を倍々精度で評価し、評価結果と誤差の上限をレジスタへ格納します。
+     *
+     * @param operator 演算子
+     * @param highs    レジスタの上位の値
+     * @param lows     レジスタの下位の値
+     * @param errors   レジスタの誤差の上限
+     * @param target   評価結果を格納するレジスタ
+     * @param code     命令列
+     * @param offset   被演算子のレジスタ番号の並びの位置
+     */
+    private static void applyOperator(MathematicalOperator operator, double[] highs, double[] lows, double[] errors,
+            int target, int[] code, int offset) {
+
+        final int left = code[offset];
+
+        switch (operator) {
+            case NEGATE -> {
+                highs[target] = -highs[left];
+                lows[target] = -lows[left];
+                errors[target] = errors[left];
+            }
+            case PLUS, MINUS -> {
+                final int right = code[offset + 1];
+                final double sign = operator == MathematicalOperator.PLUS ? 1 : -1;
+                add(highs[left], lows[left], sign * highs[right], sign * lows[right], highs, lows, target);
+                errors[target] = errors[left] + errors[right] + Math.abs(highs[target]) * ARITHMETIC_ERROR;
+            }
+            case MULTIPLY -> {
+                final int right = code[offset + 1];
+                multiply(highs[left], lows[left], highs[right], lows[right], highs, lows, target);
+                errors[target] = multiplyError(highs[left], lows[left], errors[left], highs[right], lows[right],
+                        errors[right], highs[target]);
+            }
+            case DIVIDE -> {
+                final int right = code[offset + 1];
+                divide(highs[left], lows[left], highs[right], lows[right], highs, lows, target);
+                errors[target] = divideError(errors[left], highs[right], lows[right], errors[right], highs[target]);
+            }
+            case EXPONENT -> power(highs[left], lows[left], errors[left], highs[code[offset + 1]],
+                    lows[code[offset + 1]], errors[code[offset + 1]], highs, lows, errors, target);
+            case MODULO -> errors[target] = Double.NaN;
+        }
+    }
+
+    /**
+     * 関数を倍々精度で評価し、評価結果と誤差の上限をレジスタへ格納します。
+     *
+     * @param function 関数
+     * @param highs    レジスタの上位の値
+     * @param lows     レジスタの下位の値
+     * @param errors   レジスタの誤差の上限
+     * @param target   評価結果を格納するレジスタ
+     * @param code     命令列
+     * @param offset   引数のレジスタ番号の並びの位置
+     * @param count    引数の数
+     */
+    private void applyFunction(MathematicalFunction function, double[] highs, double[] lows, double[] errors,
+            int target, int[] code, int offset, int count) {
+
+        final int argument = code[offset];
+        final double high = highs[argument];
+        final double low = lows[argument];
+        final double error = errors[argument];
+
+        switch (function) {
+            case CEIL -> {
+                floor(-high, -low, error, highs, lows, errors, target);
+                highs[target] = -highs[target];
+                lows[target] = -lows[target];
+            }
+            case FLOOR -> floor(high, low, error, highs, lows, errors, target);
+            case ROUND -> {
+                final BigDecimal rounded = this.round(high, low, error);
+
+                if (rounded == null) {
+                    errors[target] = Double.NaN;
+                } else {
+                    split(rounded, highs, lows, errors, target);
+                }
+            }
+            case ABS -> {
+                final double sign = high < 0 ? -1 : 1;
+                highs[target] = sign * high;
+                lows[target] = sign * low;
+                errors[target] = error;
+            }
+            case MIN, MAX -> {
+                final double sign = function == MathematicalFunction.MIN ? -1 : 1;
+                int selected = argument;
+                double maximumError = error;
+
+                for (int i = 1; i < count; i++) {
+                    final int candidate = code[offset + i];
+                    final double difference = sign * ((highs[candidate] - highs[selected])
+                            + (lows[candidate] - lows[selected]));
+
+                    if (difference > 0) {
+                        selected = candidate;
+                    }
+
+                    maximumError = Math.max(maximumError, errors[candidate]);
+                }
+
+                highs[target] = highs[selected];
+                lows[target] = lows[selected];
+                errors[target] = maximumError;
+            }
+            case SUM, AVERAGE -> {
+                double sumHigh = high;
+                double sumLow = low;
+                double sumError = error;
+
+                for (int i = 1; i < count; i++) {
+                    final int next = code[offset + i];
+                    add(sumHigh, sumLow, highs[next], lows[next], highs, lows, target);
+                    sumError = (sumError + errors[next] + Math.abs(highs[target]) * ARITHMETIC_ERROR)
+                            * ERROR_INFLATION;
+                    sumHigh = highs[target];
+                    sumLow = lows[target];
+                }
+
+                if (function == MathematicalFunction.SUM) {
+                    highs[target] = sumHigh;
+                    lows[target] = sumLow;
+                    errors[target] = sumError;
+                } else {
+                    divide(sumHigh, sumLow, count, 0, highs, lows, target);
+                    errors[target] = divideError(sumError, count, 0, 0, highs[target]);
+                }
+            }
+            case SQRT -> {
+                if (high == 0 && low == 0 && error == 0) {
+                    highs[target] = 0;
+                    lows[target] = 0;
+                    errors[target] = 0;
+                } else if (high - Math.abs(low) - error > 0) {
+                    squareRoot(high, low, highs, lows, target);
+                    errors[target] = error / Math.sqrt(high - Math.abs(low)) * ERROR_INFLATION
+                            + Math.abs(highs[target]) * DIVISION_ERROR;
+                } else {
+                    errors[target] = Double.NaN;
+                }
+            }
+            default -> {
+                final double distance = Math.abs(low) + error;
+                final double lipschitz = switch (function) {
+                    case SINE, COSINE, ARC_TANGENT, HYPERBOLIC_TANGENT -> 1;
+                    case HYPERBOLIC_SINE, HYPERBOLIC_COSINE -> Math.cosh(Math.abs(high) + distance);
+                    case ARC_SINE, ARC_COSINE -> {
+                        final double bound = Math.abs(high) + distance;
+                        yield bound < 1 ? 1 / Math.sqrt((1 - bound) * (1 + bound)) : Double.NaN;
+                    }
+                    case LOG -> high - distance > 0 ? 1 / (high - distance) : Double.NaN;
+                    default -> Double.NaN;
+                };
+                final double value = switch (function) {
+                    case SINE -> Math.sin(high);
+                    case COSINE -> Math.cos(high);
+                    case ARC_SINE -> Math.asin(high);
+                    case ARC_COSINE -> Math.acos(high);
+                    case ARC_TANGENT -> Math.atan(high);
+                    case HYPERBOLIC_SINE -> Math.sinh(high);
+                    case HYPERBOLIC_COSINE -> Math.cosh(high);
+                    case HYPERBOLIC_TANGENT -> Math.tanh(high);
+                    case LOG -> Math.log(high);
+                    default -> Double.NaN;
+                };
+                final int ulps = switch (function) {
+                    case HYPERBOLIC_SINE, HYPERBOLIC_COSINE, HYPERBOLIC_TANGENT -> 3;
+                    default -> 2;
+                };
+
+                highs[target] = value;
+                lows[target] = 0;
+                errors[target] = lipschitz * ERROR_INFLATION * distance + ulps * Math.ulp(value);
+            }
+        }
+    }
+
+    /**
+     * 累乗を倍々精度で評価し、評価結果と誤差の上限をレジスタへ格納します。指数が絶対値 {@code 1024} 以下の正確な整数ではない場合、誤差の上限は非数となります。
+     *
+     * @param baseHigh      底の上位の値
+     * @param baseLow       底の下位の値
+     * @param baseError     底の誤差の上限
+     * @param exponentHigh  指数の上位の値
+     * @param exponentLow   指数の下位の値
+     * @param exponentError 指数の誤差の上限
+     * @param highs         レジスタの上位の値
+     * @param lows          レジスタの下位の値
+     * @param errors        レジスタの誤差の上限
+     * @param target        評価結果を格納するレジスタ
+     */
+    private static void power(double baseHigh, double baseLow, double baseError, double exponentHigh,
+            double exponentLow, double exponentError, double[] highs, double[] lows, double[] errors, int target) {
+
+        if (exponentLow != 0 || exponentError != 0 || exponentHigh != Math.rint(exponentHigh)
+                || Math.abs(exponentHigh) > 1024) {
+            errors[target] = Double.NaN;
+            return;
+        }
+
+        double resultHigh = 1;
+        double resultLow = 0;
+        double resultError = 0;
+
+        for (long exponent = (long) Math.abs(exponentHigh); exponent > 0; exponent >>= 1) {
+            if ((exponent & 1) != 0) {
+                multiply(resultHigh, resultLow, baseHigh, baseLow, highs, lows, target);
+                resultError = multiplyError(resultHigh, resultLow, resultError, baseHigh, baseLow, baseError,
+                        highs[target]) * ERROR_INFLATION;
+                resultHigh = highs[target];
+                resultLow = lows[target];
+            }
+
+            if (exponent > 1) {
+                multiply(baseHigh, baseLow, baseHigh, baseLow, highs, lows, target);
+                baseError = multiplyError(baseHigh, baseLow, baseError, baseHigh, baseLow, baseError, highs[target])
+                        * ERROR_INFLATION;
+                baseHigh = highs[target];
+                baseLow = lows[target];
+            }
+        }
+
+        if (exponentHigh < 0) {
+            divide(1, 0, resultHigh, resultLow, highs, lows, target);
+            errors[target] = divideError(0, resultHigh, resultLow, resultError, highs[target]);
+        } else {
+            highs[target] = resultHigh;
+            lows[target] = resultLow;
+            errors[target] = resultError;
+        }
+    }
+
+    /**
+     * 倍々精度の値の床関数を評価し、評価結果と誤差の上限をレジスタへ格納します。誤差の区間が整数を跨ぐ場合、誤差の上限は非数となります。
+     *
+     * @param high   上位の値
+     * @param low    下位の値
+     * @param error  誤差の上限
+     * @param highs  レジスタの上位の値
+     * @param lows   レジスタの下位の値
+     * @param errors レジスタの誤差の上限
+     * @param target 評価結果を格納するレジスタ
+     */
+    private static void floor(double high, double low, double error, double[] highs, double[] lows,
+            double[] errors, int target) {
+
+        final double floorHigh = Math.floor(high);
+        final double floorLow = floorHigh == high ? Math.floor(low) : 0;
+        final double fraction = (high - floorHigh) + (low - floorLow);
+
+        highs[target] = floorHigh + floorLow;
+        lows[target] = floorLow - (highs[target] - floorHigh);
+        errors[target] = error == 0 || (fraction > 2 * error && 1 - fraction > 2 * error) ? 0 : Double.NaN;
+    }
+
+    /**
+     * 倍々精度の値に誤差の上限を加減した区間の両端を演算規則で丸め、両端が一致する場合はその値を返却します。
+     *
+     * @param high  上位の値
+     * @param low   下位の値
+     * @param error 誤差の上限
+     * @return 演算規則で丸めた値、区間の両端が異なる値へ丸められる場合は {@code null}
+     */
+    private BigDecimal round(double high, double low, double error) {
+
+        final BigDecimal value = new BigDecimal(high).add(new BigDecimal(low));
+
+        if (error == 0) {
+            return value.round(this.mathContext);
+        }
+
+        final BigDecimal bound = new BigDecimal(error);
+        final BigDecimal lower = value.subtract(bound).round(this.mathContext);
+
+        return lower.compareTo(value.add(bound).round(this.mathContext)) == 0 ? lower : null;
+    }
+
+    /**
+     * {@link BigDecimal} の値を倍々精度の値へ変換し、変換の誤差の上限と共にレジスタへ格納します。
+     *
+     * @param value  変換する値
+     * @param highs  レジスタの上位の値
+     * @param lows   レジスタの下位の値
+     * @param errors レジスタの誤差の上限
+     * @param target 変換した値を格納するレジスタ
+     */
+    private static void split(BigDecimal value, double[] highs, double[] lows, double[] errors, int target) {
+
+        final double high = value.doubleValue();
+
+        if (!Double.isFinite(high)) {
+            highs[target] = high;
+            errors[target] = Double.POSITIVE_INFINITY;
+            return;
+        }
+
+        final BigDecimal residual = value.subtract(new BigDecimal(high));
+        final double low = residual.doubleValue();
+
+        highs[target] = high;
+        lows[target] = low;
+        errors[target] = residual.compareTo(new BigDecimal(low)) == 0 ? 0 : Math.ulp(low);
+    }
+
+    /**
+     * 倍々精度の加算を行います。
+     *
+     * @param leftHigh  左辺の上位の値
+     * @param leftLow   左辺の下位の値
+     * @param rightHigh 右辺の上位の値
+     * @param rightLow  右辺の下位の値
+     * @param highs     レジスタの上位の値
+     * @param lows      レジスタの下位の値
+     * @param target    評価結果を格納するレジスタ
+     */
+    private static void add(double leftHigh, double leftLow, double rightHigh, double rightLow, double[] highs,
+            double[] lows, int target) {
+
+        final double sum = leftHigh + rightHigh;
+        final double sumVirtual = sum - leftHigh;
+        double sumError = (leftHigh - (sum - sumVirtual)) + (rightHigh - sumVirtual);
+
+        final double lowSum = leftLow + rightLow;
+        final double lowVirtual = lowSum - leftLow;
+        final double lowError = (leftLow - (lowSum - lowVirtual)) + (rightLow - lowVirtual);
+
+        sumError += lowSum;
+        final double high = sum + sumError;
+        sumError = sumError - (high - sum) + lowError;
+
+        highs[target] = high + sumError;
+        lows[target] = sumError - (highs[target] - high);
+    }
+
+    /**
+     * 倍々精度の乗算を行います。
+     *
+     * @param leftHigh  左辺の上位の値
+     * @param leftLow   左辺の下位の値
+     * @param rightHigh 右辺の上位の値
+     * @param rightLow  右辺の下位の値
+     * @param highs     レジスタの上位の値
+     * @param lows      レジスタの下位の値
+     * @param target    評価結果を格納するレジスタ
+     */
+    private static void multiply(double leftHigh, double leftLow, double rightHigh, double rightLow,
+            double[] highs, double[] lows, int target) {
+
+        final double product = leftHigh * rightHigh;
+        final double productError = Math.fma(leftHigh, rightHigh, -product)
+                + (leftHigh * rightLow + leftLow * rightHigh);
+
+        highs[target] = product + productError;
+        lows[target] = productError - (highs[target] - product);
+    }
+
+    /**
+     * 倍々精度の除算を行います。
+     *
+     * @param leftHigh  被除数の上位の値
+     * @param leftLow   被除数の下位の値
+     * @param rightHigh 除数の上位の値
+     * @param rightLow  除数の下位の値
+     * @param highs     レジスタの上位の値
+     * @param lows      レジスタの下位の値
+     * @param target    評価結果を格納するレジスタ
+     */
+    private static void divide(double leftHigh, double leftLow, double rightHigh, double rightLow, double[] highs,
+            double[] lows, int target) {
+
+        final double quotient = leftHigh / rightHigh;
+        final double product = quotient * rightHigh;
+        final double productError = Math.fma(quotient, rightHigh, -product);
+        final double remainder = (leftHigh - product) - productError + leftLow - quotient * rightLow;
+        final double correction = remainder / rightHigh;
+
+        highs[target] = quotient + correction;
+        lows[target] = correction - (highs[target] - quotient);
+    }
+
+    /**
+     * 倍々精度の平方根を評価します。
+     *
+     * @param high   上位の値
+     * @param low    下位の値
+     * @param highs  レジスタの上位の値
+     * @param lows   レジスタの下位の値
+     * @param target 評価結果を格納するレジスタ
+     */
+    private static void squareRoot(double high, double low, double[] highs, double[] lows, int target) {
+
+        final double root = Math.sqrt(high);
+        final double square = root * root;
+        final double squareError = Math.fma(root, root, -square);
+        final double correction = ((high - square) - squareError + low) / (2 * root);
+
+        highs[target] = root + correction;
+        lows[target] = correction - (highs[target] - root);
+    }
+
+    /**
+     * 乗算の評価結果の誤差の上限を計算します。
+     *
+     * @param leftHigh   左辺の上位の値
+     * @param leftLow    左辺の下位の値
+     * @param leftError  左辺の誤差の上限
+     * @param rightHigh  右辺の上位の値
+     * @param rightLow   右辺の下位の値
+     * @param rightError 右辺の誤差の上限
+     * @param result     評価結果の上位の値
+     * @return 評価結果の誤差の上限
+     */
+    private static double multiplyError(double leftHigh, double leftLow, double leftError, double rightHigh,
+            double rightLow, double rightError, double result) {
+        return (Math.abs(leftHigh) + Math.abs(leftLow)) * rightError
+                + (Math.abs(rightHigh) + Math.abs(rightLow)) * leftError + leftError * rightError
+                + Math.abs(result) * ARITHMETIC_ERROR;
+    }
+
+    /**
+     * 除算の評価結果の誤差の上限を計算します。除数の誤差の区間が {@code 0} を含む場合は非数を返却します。
+     *
+     * @param leftError  被除数の誤差の上限
+     * @param rightHigh  除数の上位の値
+     * @param rightLow   除数の下位の値
+     * @param rightError 除数の誤差の上限
+     * @param result     評価結果の上位の値
+     * @return 評価結果の誤差の上限
+     */
+    private static double divideError(double leftError, double rightHigh, double rightLow, double rightError,
+            double result) {
+
+        final double divisor = Math.abs(rightHigh) - Math.abs(rightLow) - rightError;
+
+        if (!(divisor > 0)) {
+            return Double.NaN;
+        }
+
+        return (leftError + Math.abs(result) * rightError) / divisor + Math.abs(result) * DIVISION_ERROR;
+    }
+
+    /**
+     * 除算と平均のみを演算規則の精度に保護桁を加えた精度で行い、それ以外の評価を委譲する評価器です。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     */
+    private static final class GuardedDivision implements Evaluator {
+
+        /**
+         * 委譲先の評価器
+         */
+        private final Evaluator evaluator;
+
+        /**
+         * 除算に使用する演算規則
+         */
+        private final MathContext mathContext;
+
+        /**
+         * コンストラクタ
+         *
+         * @param evaluator   委譲先の評価器
+         * @param mathContext 除算に使用する演算規則
+         */
+        private GuardedDivision(Evaluator evaluator, MathContext mathContext) {
+            this.evaluator = evaluator;
+            this.mathContext = mathContext;
+        }
+
+        @Override
+        public String getExpression() {
+            return this.evaluator.getExpression();
+        }
+
+        @Override
+        public MathContext getMathContext() {
+            return this.evaluator.getMathContext();
+        }
+
+        @Override
+        public BigDecimal evaluate(@NonNull MathematicalConstant constant) {
+            return this.evaluator.evaluate(constant);
+        }
+
+        @Override
+        public BigDecimal evaluate(@NonNull MathematicalOperator operator, @NonNull Iterator<BigDecimal> operands) {
+            return this.evaluator.evaluate(operator, operands);
+        }
+
+        @Override
+        public BigDecimal evaluate(@NonNull MathematicalFunction function, @NonNull Iterator<BigDecimal> arguments) {
+            return this.evaluator.evaluate(function, arguments);
+        }
+
+        @Override
+        public BigDecimal evaluate(@NonNull MathematicalOperator operator, @NonNull BigDecimal[] operands,
+                int offset, int count) {
+
+            if (operator == MathematicalOperator.DIVIDE) {
+                return operands[offset].divide(operands[offset + 1], this.mathContext);
+            }
+
+            return this.evaluator.evaluate(operator, operands, offset, count);
+        }
+
+        @Override
+        public BigDecimal evaluate(@NonNull MathematicalFunction function, @NonNull BigDecimal[] arguments,
+                int offset, int count) {
+
+            if (function == MathematicalFunction.AVERAGE) {
+                BigDecimal sum = arguments[offset];
+
+                for (int i = 1; i < count; i++) {
+                    sum = sum.add(arguments[offset + i]);
+                }
+
+                return sum.divide(new BigDecimal(count), this.mathContext);
+            }
+
+            return this.evaluator.evaluate(function, arguments, offset, count);
+        }
+    }
+}
@@ -0,0 +1,1029 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+
+import lombok.NonNull;
+
+/**
+ * 構文木の同一の部分木を共有したグラフを JVM のクラスへ変換し、隠しクラスとして定義するコンパイラです。
+ * <p>
+ * 複数の親ノードから参照されるノードの評価結果はローカル変数へ保持され、二度目以降の参照ではローカル変数から読み込まれるため、共有された部分式は一度だけ評価されます。
+ * <p>
+ * 生成されるクラスは分岐を含まない直線的な演算命令のみで構成されるため、JIT コンパイラは式全体をインライン展開しレジスタへ割り付けることができます。
+ * クラスは {@link MethodHandles.Lookup#defineHiddenClass(byte[], boolean, MethodHandles.Lookup.ClassOption...)}
+ * で定義されるため、生成されたインスタンスが参照されなくなるとクラスもアンロードの対象となります。
+ * <p>
+ * {@link BigDecimal} 型の評価は {@link Neumann} と同一の演算を直接呼び出し、 {@code double} 型の評価は
+ * {@link Math} の演算を直接呼び出します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class BytecodeCompiler {
+
+    /**
+     * 生成するクラスの名前
+     */
+    private static final String CLASS_NAME = "org/thinkit/neumann/GeneratedExpression";
+
+    /**
+     * {@link BigDecimal} 型の内部名
+     */
+    private static final String DECIMAL = "java/math/BigDecimal";
+
+    /**
+     * {@link BigDecimal} 型の記述子
+     */
+    private static final String DECIMAL_DESCRIPTOR = "Ljava/math/BigDecimal;";
+
+    /**
+     * {@link MathContext} 型の記述子
+     */
+    private static final String MATH_CONTEXT_DESCRIPTOR = "Ljava/math/MathContext;";
+
+    /**
+     * {@code BigDecimalMath} クラスの内部名
+     */
+    private static final String DECIMAL_MATH = "ch/obermuhlner/math/big/BigDecimalMath";
+
+    /**
+     * メソッドの命令列の長さの上限
+     */
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    /**
+     * メソッドのローカル変数の数の上限
+     */
+    private static final int MAX_LOCALS = 65535;
+
+    /**
+     * 命令の出力先
+     */
+    private final Code code;
+
+    /**
+     * 変換するグラフ
+     */
+    private final ExpressionGraph graph;
+
+    /**
+     * ノードごとの親ノードと構文木の根から参照される回数
+     */
+    private final int[] uses;
+
+    /**
+     * ノードごとの評価結果を保持するローカル変数の番号、保持していない場合は {@code 0}
+     */
+    private final int[] locals;
+
+    /**
+     * 使用しているローカル変数の数
+     */
+    private int localCount = 2;
+
+    /**
+     * コンストラクタ
+     *
+     * @param code  命令の出力先
+     * @param graph 変換するグラフ
+     */
+    private BytecodeCompiler(Code code, ExpressionGraph graph) {
+        this.code = code;
+        this.graph = graph;
+        this.uses = new int[graph.size()];
+        this.locals = new int[graph.size()];
+
+        for (int i = 0; i < graph.size(); i++) {
+            for (int operand : graph.getOperands(i)) {
+                this.uses[operand]++;
+            }
+        }
+
+        for (int root : graph.getRoots()) {
+            this.uses[root]++;
+        }
+    }
+
+    /**
+     * 引数として渡されたグラフを {@code double} 型で評価するクラスへ変換し、そのインスタンスを返却します。
+     *
+     * @param graph 構文木の同一の部分木を共有したグラフ
+     * @return 構文木を {@code double} 型で評価する {@link DoubleExpression}
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 式が大きすぎてクラスへ変換できない場合
+     */
+    public static DoubleExpression compileDouble(@NonNull ExpressionGraph graph) {
+
+        final ClassFile classFile = new ClassFile("org/thinkit/neumann/DoubleExpression");
+        final Code constructor = classFile.newCode();
+        constructor.aload(0, 1);
+        constructor.invoke(Opcode.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", -1);
+        constructor.op(Opcode.RETURN, 0);
+        classFile.addMethod("<init>", "()V", constructor, 1);
+
+        final BytecodeCompiler compiler = new BytecodeCompiler(classFile.newCode(), graph);
+        compiler.emitDouble(graph.getRoots()[0]);
+        compiler.code.op(Opcode.DRETURN, -2);
+        classFile.addMethod("evaluate", "([D)D", compiler.code, compiler.localCount);
+
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile.toByteArray(),
+                    true);
+            return (DoubleExpression) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 引数として渡されたグラフを {@link BigDecimal} 型で評価するクラスへ変換し、そのインスタンスを返却します。
+     *
+     * @param graph       構文木の同一の部分木を共有したグラフ
+     * @param evaluator   数学定数の値を算出する評価器
+     * @param mathContext 演算規則
+     * @return 構文木を {@link BigDecimal} 型で評価する {@link DecimalExpression}
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 式が大きすぎてクラスへ変換できない場合
+     */
+    public static DecimalExpression compileDecimal(@NonNull ExpressionGraph graph, @NonNull Evaluator evaluator,
+            @NonNull MathContext mathContext) {
+
+        final ClassFile classFile = new ClassFile("org/thinkit/neumann/DecimalExpression");
+        classFile.addField("constants", "[" + DECIMAL_DESCRIPTOR);
+        classFile.addField("mathContext", MATH_CONTEXT_DESCRIPTOR);
+
+        final String constructorDescriptor = "([" + DECIMAL_DESCRIPTOR + MATH_CONTEXT_DESCRIPTOR + ")V";
+        final Code constructor = classFile.newCode();
+        constructor.aload(0, 1);
+        constructor.invoke(Opcode.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", -1);
+        constructor.aload(0, 1);
+        constructor.aload(1, 1);
+        constructor.field(Opcode.PUTFIELD, CLASS_NAME, "constants", "[" + DECIMAL_DESCRIPTOR, -2);
+        constructor.aload(0, 1);
+        constructor.aload(2, 1);
+        constructor.field(Opcode.PUTFIELD, CLASS_NAME, "mathContext", MATH_CONTEXT_DESCRIPTOR, -2);
+        constructor.op(Opcode.RETURN, 0);
+        classFile.addMethod("<init>", constructorDescriptor, constructor, 3);
+
+        final List<BigDecimal> constants = new ArrayList<>();
+        final BytecodeCompiler compiler = new BytecodeCompiler(classFile.newCode(), graph);
+        compiler.emitDecimal(graph.getRoots()[0], constants, evaluator);
+        compiler.code.op(Opcode.ARETURN, -1);
+        classFile.addMethod("evaluate", "([" + DECIMAL_DESCRIPTOR + ")" + DECIMAL_DESCRIPTOR, compiler.code,
+                compiler.localCount);
+
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile.toByteArray(),
+                    true);
+            return (DecimalExpression) lookup
+                    .findConstructor(lookup.lookupClass(),
+                            MethodType.methodType(void.class, BigDecimal[].class, MathContext.class))
+                    .invoke(constants.toArray(new BigDecimal[0]), mathContext);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 引数として渡された番号のノードを {@code double} 型で評価する命令を出力します。
+     * <p>
+     * 評価結果をローカル変数へ保持済みのノードはローカル変数から読み込みます。
+     *
+     * @param index 評価するノードの番号
+     */
+    private void emitDouble(int index) {
+
+        if (this.locals[index] != 0) {
+            this.code.local(Opcode.DLOAD, this.locals[index], 2);
+            return;
+        }
+
+        final ExpressionNode node = this.graph.getNode(index);
+        final int[] operands = this.graph.getOperands(index);
+
+        switch (node.getNodePattern()) {
+            case LITERAL -> this.code.ldc2(node.getLiteral().doubleValue());
+            case CONSTANT -> this.code.ldc2(switch (node.getConstant()) {
+                case PI -> Math.PI;
+                case NAPIER -> Math.E;
+            });
+            case VARIABLE -> {
+                this.code.aload(1, 1);
+                this.code.iconst(node.getSlot());
+                this.code.op(Opcode.DALOAD, 0);
+            }
+            case OPERATOR -> this.emitDouble(node.getOperator(), operands);
+            case FUNCTION -> this.emitDouble(node.getFunction(), operands);
+        }
+
+        if (operands.length > 0) {
+            this.store(index, Opcode.DUP2, Opcode.DSTORE, 2);
+        }
+    }
+
+    /**
+     * 演算子を {@code double} 型で評価する命令を出力します。
+     * <p>
+     * リテラルによる除算は {@link ExpressionProgram#evaluateDouble(double[])} と同じく逆数の乗算として出力します。
+     *
+     * @param operator 演算子
+     * @param operands 被演算子のノードの番号
+     */
+    private void emitDouble(MathematicalOperator operator, int[] operands) {
+
+        if (operator == MathematicalOperator.DIVIDE && this.graph.getNode(operands[1]).isLiteral()
+                && ExpressionProgram.isReciprocable(this.graph.getNode(operands[1]).getLiteral().doubleValue())) {
+            this.emitDouble(operands[0]);
+            this.code.ldc2(1.0 / this.graph.getNode(operands[1]).getLiteral().doubleValue());
+            this.code.op(Opcode.DMUL, -2);
+            return;
+        }
+
+        for (int operand : operands) {
+            this.emitDouble(operand);
+        }
+
+        switch (operator) {
+            case NEGATE -> this.code.op(Opcode.DNEG, 0);
+            case MINUS -> this.code.op(Opcode.DSUB, -2);
+            case PLUS -> this.code.op(Opcode.DADD, -2);
+            case MULTIPLY -> this.code.op(Opcode.DMUL, -2);
+            case DIVIDE -> this.code.op(Opcode.DDIV, -2);
+            case EXPONENT -> this.code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "pow", "(DD)D", -2);
+            case MODULO -> this.code.op(Opcode.DREM, -2);
+        }
+    }
+
+    /**
+     * 関数を {@code double} 型で評価する命令を出力します。
+     * <p>
+     * {@link MathematicalFunction#ROUND} は {@link Neumann} と同じく有効桁数への丸めを表現するため、 {@code double}
+     * 型の精度では値を変化させません。
+     *
+     * @param function 関数
+     * @param operands 引数のノードの番号
+     */
+    private void emitDouble(MathematicalFunction function, int[] operands) {
+
+        final Code code = this.code;
+        this.emitDouble(operands[0]);
+
+        switch (function) {
+            case CEIL -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "ceil", "(D)D", 0);
+            case FLOOR -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "floor", "(D)D", 0);
+            case ROUND -> {
+            }
+            case ABS -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "abs", "(D)D", 0);
+            case SINE -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "sin", "(D)D", 0);
+            case COSINE -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "cos", "(D)D", 0);
+            case TANGENT -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "tan", "(D)D", 0);
+            case ARC_SINE -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "asin", "(D)D", 0);
+            case ARC_COSINE -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "acos", "(D)D", 0);
+            case ARC_TANGENT -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "atan", "(D)D", 0);
+            case HYPERBOLIC_SINE -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "sinh", "(D)D", 0);
+            case HYPERBOLIC_COSINE -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "cosh", "(D)D", 0);
+            case HYPERBOLIC_TANGENT -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "tanh", "(D)D", 0);
+            case LOG -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "log", "(D)D", 0);
+            case SQRT -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "sqrt", "(D)D", 0);
+            case MIN, MAX, SUM, AVERAGE -> {
+                for (int i = 1; i < operands.length; i++) {
+                    this.emitDouble(operands[i]);
+
+                    switch (function) {
+                        case MIN -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "min", "(DD)D", -2);
+                        case MAX -> code.invoke(Opcode.INVOKESTATIC, "java/lang/Math", "max", "(DD)D", -2);
+                        default -> code.op(Opcode.DADD, -2);
+                    }
+                }
+
+                if (function == MathematicalFunction.AVERAGE) {
+                    code.ldc2(operands.length);
+                    code.op(Opcode.DDIV, -2);
+                }
+            }
+        }
+    }
+
+    /**
+     * 引数として渡された番号のノードを {@link BigDecimal} 型で評価する命令を出力します。
+     * <p>
+     * 評価結果をローカル変数へ保持済みのノードはローカル変数から読み込みます。
+     *
+     * @param index     評価するノードの番号
+     * @param constants 生成するクラスが保持する定数
+     * @param evaluator 数学定数の値を算出する評価器
+     */
+    private void emitDecimal(int index, List<BigDecimal> constants, Evaluator evaluator) {
+
+        if (this.locals[index] != 0) {
+            this.code.local(Opcode.ALOAD, this.locals[index], 1);
+            return;
+        }
+
+        final Code code = this.code;
+        final ExpressionNode node = this.graph.getNode(index);
+        final int[] operands = this.graph.getOperands(index);
+
+        switch (node.getNodePattern()) {
+            case LITERAL -> emitConstant(code, node.getLiteral(), constants);
+            case CONSTANT -> emitConstant(code, evaluator.evaluate(node.getConstant()), constants);
+            case VARIABLE -> {
+                code.aload(1, 1);
+                code.iconst(node.getSlot());
+                code.op(Opcode.AALOAD, -1);
+            }
+            case OPERATOR -> {
+                for (int operand : operands) {
+                    this.emitDecimal(operand, constants, evaluator);
+                }
+
+                switch (node.getOperator()) {
+                    case NEGATE -> code.invokeDecimal("negate", "()", 0);
+                    case MINUS -> code.invokeDecimal("subtract", "(" + DECIMAL_DESCRIPTOR + ")", -1);
+                    case PLUS -> code.invokeDecimal("add", "(" + DECIMAL_DESCRIPTOR + ")", -1);
+                    case MULTIPLY -> code.invokeDecimal("multiply", "(" + DECIMAL_DESCRIPTOR + ")", -1);
+                    case DIVIDE -> code.invokeDecimal("divide", "(" + DECIMAL_DESCRIPTOR + ")", -1);
+                    case MODULO -> code.invokeDecimal("remainder", "(" + DECIMAL_DESCRIPTOR + ")", -1);
+                    case EXPONENT -> {
+                        emitMathContext(code);
+                        code.invoke(Opcode.INVOKESTATIC, DECIMAL_MATH, "pow", "(" + DECIMAL_DESCRIPTOR
+                                + DECIMAL_DESCRIPTOR + MATH_CONTEXT_DESCRIPTOR + ")" + DECIMAL_DESCRIPTOR, -2);
+                    }
+                }
+            }
+            case FUNCTION -> this.emitDecimal(node.getFunction(), operands, constants, evaluator);
+        }
+
+        if (operands.length > 0) {
+            this.store(index, Opcode.DUP, Opcode.ASTORE, 1);
+        }
+    }
+
+    /**
+     * 関数を {@link BigDecimal} 型で評価する命令を出力します。
+     *
+     * @param function  関数
+     * @param operands  引数のノードの番号
+     * @param constants 生成するクラスが保持する定数
+     * @param evaluator 数学定数の値を算出する評価器
+     */
+    private void emitDecimal(MathematicalFunction function, int[] operands, List<BigDecimal> constants,
+            Evaluator evaluator) {
+
+        final Code code = this.code;
+        this.emitDecimal(operands[0], constants, evaluator);
+
+        switch (function) {
+            case CEIL, FLOOR -> {
+                code.iconst(0);
+                code.field(Opcode.GETSTATIC, "java/math/RoundingMode",
+                        function == MathematicalFunction.CEIL ? "CEILING" : "FLOOR", "Ljava/math/RoundingMode;", 1);
+                code.invokeDecimal("setScale", "(ILjava/math/RoundingMode;)", -2);
+            }
+            case ROUND -> {
+                emitMathContext(code);
+                code.invokeDecimal("round", "(" + MATH_CONTEXT_DESCRIPTOR + ")", -1);
+            }
+            case ABS -> code.invokeDecimal("abs", "()", 0);
+            case SINE -> emitDecimalMath(code, "sin");
+            case COSINE -> emitDecimalMath(code, "cos");
+            case TANGENT -> emitDecimalMath(code, "tan");
+            case ARC_SINE -> emitDecimalMath(code, "asin");
+            case ARC_COSINE -> emitDecimalMath(code, "acos");
+            case ARC_TANGENT -> emitDecimalMath(code, "atan");
+            case HYPERBOLIC_SINE -> emitDecimalMath(code, "sinh");
+            case HYPERBOLIC_COSINE -> emitDecimalMath(code, "cosh");
+            case HYPERBOLIC_TANGENT -> emitDecimalMath(code, "tanh");
+            case LOG -> emitDecimalMath(code, "log");
+            case SQRT -> emitDecimalMath(code, "sqrt");
+            case MIN, MAX, SUM, AVERAGE -> {
+                for (int i = 1; i < operands.length; i++) {
+                    this.emitDecimal(operands[i], constants, evaluator);
+                    code.invokeDecimal(switch (function) {
+                        case MIN -> "min";
+                        case MAX -> "max";
+                        default -> "add";
+                    }, "(" + DECIMAL_DESCRIPTOR + ")", -1);
+                }
+
+                if (function == MathematicalFunction.AVERAGE) {
+                    emitConstant(code, new BigDecimal(operands.length), constants);
+                    code.invokeDecimal("divide", "(" + DECIMAL_DESCRIPTOR + ")", -1);
+                }
+            }
+        }
+    }
+
+    /**
+     * 複数回参照されるノードの場合、オペランドスタックへ積まれた評価結果を複製してローカル変数へ保持する命令を出力します。
+     *
+     * @param index    評価したノードの番号
+     * @param dup      評価結果を複製する命令
+     * @param store    評価結果をローカル変数へ保持する命令
+     * @param slotSize 評価結果が占有するローカル変数とオペランドスタックの大きさ
+     *
+     * @exception IllegalArgumentException ローカル変数の数が上限を超える場合
+     */
+    private void store(int index, int dup, int store, int slotSize) {
+
+        if (this.uses[index] < 2) {
+            return;
+        }
+
+        if (this.localCount + slotSize > MAX_LOCALS) {
+            throw new IllegalArgumentException("Expression is too large to compile into bytecode");
+        }
+
+        this.code.op(dup, slotSize);
+        this.code.local(store, this.localCount, -slotSize);
+        this.locals[index] = this.localCount;
+        this.localCount += slotSize;
+    }
+
+    /**
+     * {@code BigDecimalMath} の単項関数を呼び出す命令を出力します。
+     *
+     * @param code 命令の出力先
+     * @param name 関数名
+     */
+    private static void emitDecimalMath(Code code, String name) {
+        emitMathContext(code);
+        code.invoke(Opcode.INVOKESTATIC, DECIMAL_MATH, name,
+                "(" + DECIMAL_DESCRIPTOR + MATH_CONTEXT_DESCRIPTOR + ")" + DECIMAL_DESCRIPTOR, -1);
+    }
+
+    /**
+     * 演算規則をオペランドスタックへ積む命令を出力します。
+     *
+     * @param code 命令の出力先
+     */
+    private static void emitMathContext(Code code) {
+        code.aload(0, 1);
+        code.field(Opcode.GETFIELD, CLASS_NAME, "mathContext", MATH_CONTEXT_DESCRIPTOR, 0);
+    }
+
+    /**
+     * 定数を生成するクラスへ登録し、定数をオペランドスタックへ積む命令を出力します。
+     *
+     * @param code      命令の出力先
+     * @param value     定数
+     * @param constants 生成するクラスが保持する定数
+     */
+    private static void emitConstant(Code code, BigDecimal value, List<BigDecimal> constants) {
+        code.aload(0, 1);
+        code.field(Opcode.GETFIELD, CLASS_NAME, "constants", "[" + DECIMAL_DESCRIPTOR, 0);
+        code.iconst(constants.size());
+        code.op(Opcode.AALOAD, -1);
+        constants.add(value);
+    }
+
+    /**
+     * 生成するクラスで使用する命令の定数です。
+     */
+    private static final class Opcode {
+
+        static final int ICONST_0 = 0x03;
+        static final int BIPUSH = 0x10;
+        static final int SIPUSH = 0x11;
+        static final int LDC_W = 0x13;
+        static final int LDC2_W = 0x14;
+        static final int DLOAD = 0x18;
+        static final int ALOAD = 0x19;
+        static final int DALOAD = 0x31;
+        static final int AALOAD = 0x32;
+        static final int DSTORE = 0x39;
+        static final int ASTORE = 0x3a;
+        static final int DUP = 0x59;
+        static final int DUP2 = 0x5c;
+        static final int DADD = 0x63;
+        static final int DSUB = 0x67;
+        static final int DMUL = 0x6b;
+        static final int DDIV = 0x6f;
+        static final int DREM = 0x73;
+        static final int DNEG = 0x77;
+        static final int DRETURN = 0xaf;
+        static final int ARETURN = 0xb0;
+        static final int RETURN = 0xb1;
+        static final int GETSTATIC = 0xb2;
+        static final int GETFIELD = 0xb4;
+        static final int PUTFIELD = 0xb5;
+        static final int INVOKEVIRTUAL = 0xb6;
+        static final int INVOKESPECIAL = 0xb7;
+        static final int INVOKESTATIC = 0xb8;
+        static final int WIDE = 0xc4;
+    }
+
+    /**
+     * 生成するクラスの定数プール、フィールド、メソッドを保持し、クラスファイルの形式へ変換するクラスです。
+     */
+    private static final class ClassFile {
+
+        /**
+         * 定数プールの内容
+         */
+        private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+
+        /**
+         * 定数プールへの登録済みの項目と番号の対応
+         */
+        private final Map<String, Integer> entries = new HashMap<>();
+
+        /**
+         * 定数プールの次の番号
+         */
+        private int poolSize = 1;
+
+        /**
+         * フィールドの定義
+         */
+        private final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+
+        /**
+         * フィールドの数
+         */
+        private int fieldCount;
+
+        /**
+         * メソッドの定義
+         */
+        private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+
+        /**
+         * メソッドの数
+         */
+        private int methodCount;
+
+        /**
+         * 実装するインターフェースの内部名
+         */
+        private final String interfaceName;
+
+        /**
+         * コンストラクタ
+         *
+         * @param interfaceName 実装するインターフェースの内部名
+         */
+        ClassFile(String interfaceName) {
+            this.interfaceName = interfaceName;
+        }
+
+        /**
+         * このクラスの定数プールを参照する命令列を生成します。
+         *
+         * @return 命令列
+         */
+        Code newCode() {
+            return new Code(this);
+        }
+
+        /**
+         * フィールドを追加します。
+         *
+         * @param name       フィールド名
+         * @param descriptor フィールドの記述子
+         */
+        void addField(String name, String descriptor) {
+            final DataOutputStream out = new DataOutputStream(this.fields);
+            write(() -> {
+                out.writeShort(0x0012);
+                out.writeShort(this.utf8(name));
+                out.writeShort(this.utf8(descriptor));
+                out.writeShort(0);
+            });
+            this.fieldCount++;
+        }
+
+        /**
+         * メソッドを追加します。
+         *
+         * @param name       メソッド名
+         * @param descriptor メソッドの記述子
+         * @param code       命令列
+         * @param maxLocals  ローカル変数の数
+         *
+         * @exception IllegalArgumentException 命令列が長すぎる場合
+         */
+        void addMethod(String name, String descriptor, Code code, int maxLocals) {
+
+            final byte[] bytes = code.toByteArray();
+
+            if (bytes.length > MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Expression is too large to compile into bytecode");
+            }
+
+            final DataOutputStream out = new DataOutputStream(this.methods);
+            write(() -> {
+                out.writeShort(0x0001);
+                out.writeShort(this.utf8(name));
+                out.writeShort(this.utf8(descriptor));
+                out.writeShort(1);
+                out.writeShort(this.utf8("Code"));
+                out.writeInt(12 + bytes.length);
+                out.writeShort(code.getMaxStack());
+                out.writeShort(maxLocals);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                out.writeShort(0);
+                out.writeShort(0);
+            });
+            this.methodCount++;
+        }
+
+        /**
+         * クラスファイルの形式のバイト列を返却します。
+         *
+         * @return クラスファイルのバイト列
+         *
+         * @exception IllegalArgumentException 定数プールが大きすぎる場合
+         */
+        byte[] toByteArray() {
+
+            final int thisClass = this.classRef(CLASS_NAME);
+            final int superClass = this.classRef("java/lang/Object");
+            final int interfaceClass = this.classRef(this.interfaceName);
+
+            if (this.poolSize > 0xffff) {
+                throw new IllegalArgumentException("Expression is too large to compile into bytecode");
+            }
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            write(() -> {
+                out.writeInt(0xcafebabe);
+                out.writeShort(0);
+                out.writeShort(52);
+                out.writeShort(this.poolSize);
+                this.pool.writeTo(out);
+                out.writeShort(0x0031);
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(1);
+                out.writeShort(interfaceClass);
+                out.writeShort(this.fieldCount);
+                this.fields.writeTo(out);
+                out.writeShort(this.methodCount);
+                this.methods.writeTo(out);
+                out.writeShort(0);
+            });
+
+            return bytes.toByteArray();
+        }
+
+        /**
+         * 文字列を定数プールへ登録します。
+         *
+         * @param value 文字列
+         * @return 定数プールの番号
+         */
+        int utf8(String value) {
+            return this.entry("U" + value, 1, out -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        /**
+         * クラスの参照を定数プールへ登録します。
+         *
+         * @param internalName クラスの内部名
+         * @return 定数プールの番号
+         */
+        int classRef(String internalName) {
+            final int name = this.utf8(internalName);
+            return this.entry("C" + internalName, 1, out -> {
+                out.writeByte(7);
+                out.writeShort(name);
+            });
+        }
+
+        /**
+         * メソッドまたはフィールドの参照を定数プールへ登録します。
+         *
+         * @param tag        定数プールの項目の種類
+         * @param owner      所有するクラスの内部名
+         * @param name       名前
+         * @param descriptor 記述子
+         * @return 定数プールの番号
+         */
+        int memberRef(int tag, String owner, String name, String descriptor) {
+            final int ownerIndex = this.classRef(owner);
+            final int nameIndex = this.utf8(name);
+            final int descriptorIndex = this.utf8(descriptor);
+            final int nameAndType = this.entry("N" + name + ":" + descriptor, 1, out -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return this.entry("M" + tag + owner + "." + name + ":" + descriptor, 1, out -> {
+                out.writeByte(tag);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        /**
+         * 整数を定数プールへ登録します。
+         *
+         * @param value 整数
+         * @return 定数プールの番号
+         */
+        int integer(int value) {
+            return this.entry("I" + value, 1, out -> {
+                out.writeByte(3);
+                out.writeInt(value);
+            });
+        }
+
+        /**
+         * 倍精度浮動小数点数を定数プールへ登録します。
+         *
+         * @param value 倍精度浮動小数点数
+         * @return 定数プールの番号
+         */
+        int doubleValue(double value) {
+            return this.entry("D" + Double.doubleToRawLongBits(value), 2, out -> {
+                out.writeByte(6);
+                out.writeDouble(value);
+            });
+        }
+
+        /**
+         * 定数プールへ項目を登録します。登録済みの項目の場合は既存の番号を返却します。
+         *
+         * @param key    項目を識別するキー
+         * @param slots  項目が占有する番号の数
+         * @param writer 項目の内容の出力処理
+         * @return 定数プールの番号
+         */
+        private int entry(String key, int slots, PoolWriter writer) {
+
+            final Integer index = this.entries.get(key);
+
+            if (index != null) {
+                return index;
+            }
+
+            final DataOutputStream out = new DataOutputStream(this.pool);
+            write(() -> writer.write(out));
+
+            final int newIndex = this.poolSize;
+            this.poolSize += slots;
+            this.entries.put(key, newIndex);
+
+            return newIndex;
+        }
+
+        /**
+         * 入出力処理を実行し、 {@link IOException} を非検査例外へ変換します。
+         *
+         * @param action 入出力処理
+         */
+        private static void write(IoAction action) {
+            try {
+                action.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * 入出力処理を表現するインターフェースです。
+         */
+        @FunctionalInterface
+        private interface IoAction {
+            void run() throws IOException;
+        }
+
+        /**
+         * 定数プールの項目の出力処理を表現するインターフェースです。
+         */
+        @FunctionalInterface
+        private interface PoolWriter {
+            void write(DataOutputStream out) throws IOException;
+        }
+    }
+
+    /**
+     * メソッドの命令列を構築し、オペランドスタックの最大の深さを追跡するクラスです。
+     */
+    private static final class Code {
+
+        /**
+         * 参照する定数プールを保持するクラス
+         */
+        private final ClassFile classFile;
+
+        /**
+         * 命令列
+         */
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        /**
+         * 現在のオペランドスタックの深さ
+         */
+        private int stack;
+
+        /**
+         * オペランドスタックの最大の深さ
+         */
+        private int maxStack;
+
+        /**
+         * コンストラクタ
+         *
+         * @param classFile 参照する定数プールを保持するクラス
+         */
+        Code(ClassFile classFile) {
+            this.classFile = classFile;
+        }
+
+        /**
+         * 命令を出力します。
+         *
+         * @param opcode 命令
+         * @param delta  命令によるオペランドスタックの深さの変化量
+         */
+        void op(int opcode, int delta) {
+            this.bytes.write(opcode);
+            this.adjust(delta);
+        }
+
+        /**
+         * ローカル変数の参照をオペランドスタックへ積む命令を出力します。
+         *
+         * @param index ローカル変数の番号
+         * @param delta オペランドスタックの深さの変化量
+         */
+        void aload(int index, int delta) {
+            this.bytes.write(Opcode.ALOAD);
+            this.bytes.write(index);
+            this.adjust(delta);
+        }
+
+        /**
+         * ローカル変数を読み書きする命令を出力します。番号が1バイトで表現できない場合は {@code wide} 命令を前置します。
+         *
+         * @param opcode 命令
+         * @param index  ローカル変数の番号
+         * @param delta  オペランドスタックの深さの変化量
+         */
+        void local(int opcode, int index, int delta) {
+            if (index > 0xff) {
+                this.bytes.write(Opcode.WIDE);
+                this.bytes.write(opcode);
+                this.u2(index);
+            } else {
+                this.bytes.write(opcode);
+                this.bytes.write(index);
+            }
+            this.adjust(delta);
+        }
+
+        /**
+         * 整数の定数をオペランドスタックへ積む命令を出力します。
+         *
+         * @param value 整数
+         */
+        void iconst(int value) {
+            if (value >= 0 && value <= 5) {
+                this.bytes.write(Opcode.ICONST_0 + value);
+            } else if (value <= Byte.MAX_VALUE) {
+                this.bytes.write(Opcode.BIPUSH);
+                this.bytes.write(value);
+            } else if (value <= Short.MAX_VALUE) {
+                this.bytes.write(Opcode.SIPUSH);
+                this.u2(value);
+            } else {
+                this.bytes.write(Opcode.LDC_W);
+                this.u2(this.classFile.integer(value));
+            }
+            this.adjust(1);
+        }
+
+        /**
+         * 倍精度浮動小数点数の定数をオペランドスタックへ積む命令を出力します。
+         *
+         * @param value 倍精度浮動小数点数
+         */
+        void ldc2(double value) {
+            this.bytes.write(Opcode.LDC2_W);
+            this.u2(this.classFile.doubleValue(value));
+            this.adjust(2);
+        }
+
+        /**
+         * フィールドを参照する命令を出力します。
+         *
+         * @param opcode     命令
+         * @param owner      所有するクラスの内部名
+         * @param name       フィールド名
+         * @param descriptor フィールドの記述子
+         * @param delta      オペランドスタックの深さの変化量
+         */
+        void field(int opcode, String owner, String name, String descriptor, int delta) {
+            this.bytes.write(opcode);
+            this.u2(this.classFile.memberRef(9, owner, name, descriptor));
+            this.adjust(delta);
+        }
+
+        /**
+         * メソッドを呼び出す命令を出力します。
+         *
+         * @param opcode     命令
+         * @param owner      所有するクラスの内部名
+         * @param name       メソッド名
+         * @param descriptor メソッドの記述子
+         * @param delta      オペランドスタックの深さの変化量
+         */
+        void invoke(int opcode, String owner, String name, String descriptor, int delta) {
+            this.bytes.write(opcode);
+            this.u2(this.classFile.memberRef(10, owner, name, descriptor));
+            this.adjust(delta);
+        }
+
+        /**
+         * {@link BigDecimal} 型を返却するインスタンスメソッドを呼び出す命令を出力します。
+         *
+         * @param name       メソッド名
+         * @param parameters 引数の記述子
+         * @param delta      オペランドスタックの深さの変化量
+         */
+        void invokeDecimal(String name, String parameters, int delta) {
+            this.invoke(Opcode.INVOKEVIRTUAL, DECIMAL, name, parameters + DECIMAL_DESCRIPTOR, delta);
+        }
+
+        /**
+         * オペランドスタックの最大の深さを返却します。
+         *
+         * @return オペランドスタックの最大の深さ
+         */
+        int getMaxStack() {
+            return this.maxStack;
+        }
+
+        /**
+         * 命令列を返却します。
+         *
+         * @return 命令列
+         */
+        byte[] toByteArray() {
+            return this.bytes.toByteArray();
+        }
+
+        /**
+         * 2バイトの符号なし整数を出力します。
+         *
+         * @param value 符号なし整数
+         */
+        private void u2(int value) {
+            this.bytes.write(value >>> 8);
+            this.bytes.write(value);
+        }
+
+        /**
+         * オペランドスタックの深さを変化させます。
+         *
+         * @param delta 変化量
+         */
+        private void adjust(int delta) {
+            this.stack += delta;
+            this.maxStack = Math.max(this.maxStack, this.stack);
+        }
+    }
+}
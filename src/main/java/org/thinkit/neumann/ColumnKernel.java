@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import org.thinkit.neumann.catalog.ColumnarBackend;
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+
+import lombok.NonNull;
+
+/**
+ * 列単位の評価で {@code double} 型の列の各行へ演算を適用するループを提供するクラスです。
+ * <p>
+ * このクラスは一行ずつ演算する単純なループを提供し、 {@link ColumnarBackend#VECTOR} のループはこのクラスを継承した
+ * {@code VectorColumnKernel} クラスが提供します。 {@code VectorColumnKernel} クラスは {@code jdk.incubator.vector}
+ * モジュールを使用するため別のソースセットで変換され、実行環境でモジュールが利用できる場合のみ読み込まれます。
+ * <p>
+ * いずれのループも各行の評価結果は {@link ExpressionProgram#evaluateDouble(double[])} メソッドの評価結果と一致します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+class ColumnKernel {
+
+    /**
+     * 一行ずつ演算するループ
+     */
+    private static final ColumnKernel SCALAR = new ColumnKernel();
+
+    /**
+     * コンストラクタ
+     */
+    ColumnKernel() {
+    }
+
+    /**
+     * 引数として渡された方式のループを提供する {@link ColumnKernel} を返却します。
+     * <p>
+     * {@link ColumnarBackend#VECTOR} が実行環境で利用できない場合は一行ずつ演算するループを返却します。
+     *
+     * @param backend ループを実行する方式
+     * @return ループを提供する {@link ColumnKernel}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static ColumnKernel of(@NonNull ColumnarBackend backend) {
+        return backend == ColumnarBackend.VECTOR ? VectorKernelHolder.KERNEL : SCALAR;
+    }
+
+    /**
+     * 引数として渡された方式のループが実行環境で利用できるか判定します。
+     *
+     * @param backend ループを実行する方式
+     * @return 利用できる場合は {@code true} 、一行ずつ演算するループへ切り替わる場合は {@code false}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static boolean isAvailable(@NonNull ColumnarBackend backend) {
+        return backend == ColumnarBackend.SCALAR || VectorKernelHolder.KERNEL != SCALAR;
+    }
+
+    /**
+     * 演算子を列の各行へ適用します。
+     *
+     * @param operator 演算子
+     * @param target   評価結果を格納する列
+     * @param left     左辺の列
+     * @param right    右辺の列、単項演算子の場合は {@code null}
+     * @param size     評価する行の数
+     */
+    void apply(MathematicalOperator operator, double[] target, double[] left, double[] right, int size) {
+        switch (operator) {
+            case NEGATE -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = -left[i];
+                }
+            }
+            case MINUS -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = left[i] - right[i];
+                }
+            }
+            case PLUS -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = left[i] + right[i];
+                }
+            }
+            case MULTIPLY -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = left[i] * right[i];
+                }
+            }
+            case DIVIDE -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = left[i] / right[i];
+                }
+            }
+            case EXPONENT -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = Math.pow(left[i], right[i]);
+                }
+            }
+            case MODULO -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = left[i] % right[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * 列の各行へ同一の値を乗じます。
+     *
+     * @param target 評価結果を格納する列
+     * @param left   左辺の列
+     * @param factor 乗じる値
+     * @param size   評価する行の数
+     */
+    void multiply(double[] target, double[] left, double factor, int size) {
+        for (int i = 0; i < size; i++) {
+            target[i] = left[i] * factor;
+        }
+    }
+
+    /**
+     * 関数を列の各行へ適用します。
+     * <p>
+     * {@code abs} 、 {@code floor} 、 {@code ceil} 、 {@code sqrt} は左辺の列のみを引数とし、 {@code min} と {@code max}
+     * は左辺と右辺の二つの列を引数とします。それ以外の関数は適用されません。
+     *
+     * @param function 関数
+     * @param target   評価結果を格納する列
+     * @param left     左辺の列
+     * @param right    右辺の列、引数を一つ取る関数の場合は {@code null}
+     * @param size     評価する行の数
+     * @return 関数を適用した場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    boolean apply(MathematicalFunction function, double[] target, double[] left, double[] right, int size) {
+        switch (function) {
+            case ABS -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = Math.abs(left[i]);
+                }
+            }
+            case FLOOR -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = Math.floor(left[i]);
+                }
+            }
+            case CEIL -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = Math.ceil(left[i]);
+                }
+            }
+            case SQRT -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = Math.sqrt(left[i]);
+                }
+            }
+            case MIN -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = Math.min(left[i], right[i]);
+                }
+            }
+            case MAX -> {
+                for (int i = 0; i < size; i++) {
+                    target[i] = Math.max(left[i], right[i]);
+                }
+            }
+            default -> {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * {@link ColumnarBackend#VECTOR} のループを初めて使用する際に読み込むクラスです。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     */
+    private static final class VectorKernelHolder {
+
+        /**
+         * {@link ColumnarBackend#VECTOR} のループ、利用できない場合は一行ずつ演算するループ
+         */
+        private static final ColumnKernel KERNEL = load();
+
+        /**
+         * {@code VectorColumnKernel} クラスを読み込みます。
+         *
+         * @return 読み込んだループ、実行環境でモジュールまたはクラスが利用できない場合は一行ずつ演算するループ
+         */
+        private static ColumnKernel load() {
+
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+                return SCALAR;
+            }
+
+            try {
+                return Class.forName(ColumnKernel.class.getPackageName() + ".VectorColumnKernel")
+                        .asSubclass(ColumnKernel.class).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return SCALAR;
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 列単位の評価を行の範囲で分割し、 {@link java.util.concurrent.ForkJoinPool} で並列に実行するタスクです。
+ * <p>
+ * 範囲の行の数が区間の大きさ以下になるまで二分割し、各タスクは出力先の互いに重ならない範囲のみへ評価結果を格納するため、同期を必要としません。
+ * 各行の評価結果は分割の方法に依らず一行ずつの評価結果と一致します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ColumnarTask extends RecursiveAction {
+
+    /**
+     * シリアルバージョンUID
+     */
+    private static final long serialVersionUID = -3076209415567245185L;
+
+    /**
+     * 評価する命令列
+     */
+    private final transient ExpressionProgram program;
+
+    /**
+     * スロット番号をインデックスとする変数の値の列
+     */
+    private final transient double[][] columns;
+
+    /**
+     * 評価結果の出力先
+     */
+    private final transient double[] results;
+
+    /**
+     * 評価する最初の行
+     */
+    private final int offset;
+
+    /**
+     * 評価する行の数
+     */
+    private final int length;
+
+    /**
+     * 分割せずに評価する行の数の上限
+     */
+    private final int grainSize;
+
+    /**
+     * ループを提供する {@link ColumnKernel}
+     */
+    private final transient ColumnKernel kernel;
+
+    /**
+     * コンストラクタ
+     *
+     * @param program   評価する命令列
+     * @param columns   スロット番号をインデックスとする変数の値の列
+     * @param results   評価結果の出力先
+     * @param offset    評価する最初の行
+     * @param length    評価する行の数
+     * @param grainSize 分割せずに評価する行の数の上限
+     * @param kernel    ループを提供する {@link ColumnKernel}
+     */
+    ColumnarTask(ExpressionProgram program, double[][] columns, double[] results, int offset, int length,
+            int grainSize, ColumnKernel kernel) {
+        this.program = program;
+        this.columns = columns;
+        this.results = results;
+        this.offset = offset;
+        this.length = length;
+        this.grainSize = grainSize;
+        this.kernel = kernel;
+    }
+
+    @Override
+    protected void compute() {
+
+        if (this.length <= this.grainSize) {
+            this.program.evaluateDouble(this.columns, this.results, this.offset, this.length, this.kernel);
+            return;
+        }
+
+        final int half = this.length / 2;
+
+        invokeAll(
+                new ColumnarTask(this.program, this.columns, this.results, this.offset, half, this.grainSize,
+                        this.kernel),
+                new ColumnarTask(this.program, this.columns, this.results, this.offset + half, this.length - half,
+                        this.grainSize, this.kernel));
+    }
+}
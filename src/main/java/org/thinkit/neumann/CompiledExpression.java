@@ -0,0 +1,704 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.thinkit.neumann.catalog.ColumnarBackend;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 構文解析済みの式を表現するクラスです。
+ * <p>
+ * 式の字句解析と構文解析は {@link #of(Evaluator)} メソッドの呼び出し時に一度だけ行われ、構文の誤りはその時点で
+ * {@link IllegalArgumentException} として通知されます。 {@link #evaluate()}
+ * メソッドは同一の部分式を共有したグラフから変換された命令列を実行し演算のみを行うため、同一の式を繰り返し評価する場合はこのクラスのインスタンスを再利用してください。
+ * <p>
+ * このクラスは不変であり、複数のスレッドから同時に {@link #evaluate()} メソッドを呼び出すことができます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+@EqualsAndHashCode
+public final class CompiledExpression {
+
+    /**
+     * 並列に評価する際に分割せずに一つのタスクで評価する行の数の既定値
+     */
+    public static final int DEFAULT_GRAIN_SIZE = 16384;
+
+    /**
+     * 演算子、関数、数学定数の評価を行う評価器
+     */
+    private final Evaluator evaluator;
+
+    /**
+     * スロット番号の順に並べた変数名
+     */
+    private final List<String> variables;
+
+    /**
+     * 構文木に対して行われた最適化の結果
+     */
+    private final OptimizationReport optimizationReport;
+
+    /**
+     * 構文木の同一の部分木を共有したグラフ
+     */
+    private final ExpressionGraph graph;
+
+    /**
+     * グラフを変換した命令列
+     */
+    private final ExpressionProgram program;
+
+    /**
+     * コンストラクタ
+     *
+     * @param evaluator          演算子、関数、数学定数の評価を行う評価器
+     * @param graph              構文木の同一の部分木を共有したグラフ
+     * @param program            グラフを変換した命令列
+     * @param variables          スロット番号の順に並べた変数名
+     * @param optimizationReport 構文木に対して行われた最適化の結果
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    private CompiledExpression(@NonNull Evaluator evaluator, @NonNull ExpressionGraph graph,
+            @NonNull ExpressionProgram program, @NonNull List<String> variables,
+            @NonNull OptimizationReport optimizationReport) {
+        this.evaluator = evaluator;
+        this.variables = variables;
+        this.optimizationReport = optimizationReport;
+        this.graph = graph;
+        this.program = program;
+    }
+
+    /**
+     * 引数として渡された評価器が保持する式を構文解析し、 {@link CompiledExpression} クラスの新しいインスタンスを生成し返却します。
+     * <p>
+     * 構文木は構文解析の直後に最適化され、定数のみで構成される部分木は引数として渡された評価器で一度だけ評価されます。
+     *
+     * @param evaluator 評価対象の式と演算子、関数、数学定数の評価方法を提供する評価器
+     * @return {@link CompiledExpression} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 式の構文に誤りがある場合
+     */
+    public static CompiledExpression of(@NonNull Evaluator evaluator) {
+
+        final ExpressionParser parser = ExpressionParser.of(evaluator.getExpression());
+        final ExpressionOptimizer optimizer = ExpressionOptimizer.of(evaluator);
+        final ExpressionGraph graph = ExpressionGraph.of(optimizer.optimize(parser.parse()));
+
+        return new CompiledExpression(evaluator, graph, ExpressionProgram.of(graph, evaluator),
+                parser.getVariables(), optimizer.getReport());
+    }
+
+    /**
+     * 構文解析と最適化を済ませた構成要素から {@link CompiledExpression} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param evaluator          演算子、関数、数学定数の評価を行う評価器
+     * @param program            式を変換した命令列
+     * @param variables          スロット番号の順に並べた変数名
+     * @param optimizationReport 構文木に対して行われた最適化の結果
+     * @param sharedCount        統合により共有された構文木のノード数
+     * @return {@link CompiledExpression} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static CompiledExpression of(@NonNull Evaluator evaluator, @NonNull ExpressionProgram program,
+            @NonNull List<String> variables, @NonNull OptimizationReport optimizationReport, int sharedCount) {
+        return new CompiledExpression(evaluator, program.toGraph(sharedCount), program, variables,
+                optimizationReport);
+    }
+
+    /**
+     * 引数として渡された演算規則で同一の式を評価する {@link CompiledExpression} クラスのインスタンスを返却します。
+     * <p>
+     * 定数の畳み込みは演算規則に依存するため、演算規則が異なる場合は式を構文解析し直します。
+     *
+     * @param mathContext 演算規則
+     * @return 引数として渡された演算規則で式を評価する {@link CompiledExpression} クラスのインスタンス
+     *
+     * @exception NullPointerException          引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException      演算規則の精度が {@code 0} の場合
+     * @exception UnsupportedOperationException 評価器が演算規則に対応していない場合
+     */
+    public CompiledExpression withMathContext(@NonNull MathContext mathContext) {
+
+        if (mathContext.equals(this.getMathContext())) {
+            return this;
+        }
+
+        return of(this.evaluator.withMathContext(mathContext));
+    }
+
+    /**
+     * 式を評価する際の演算規則を返却します。
+     *
+     * @return 式を評価する際の演算規則
+     */
+    public MathContext getMathContext() {
+        return this.evaluator.getMathContext();
+    }
+
+    /**
+     * 構文解析された式を返却します。
+     *
+     * @return 構文解析された式
+     */
+    public String getExpression() {
+        return this.evaluator.getExpression();
+    }
+
+    /**
+     * 式中に出現した変数名をスロット番号の順に返却します。
+     * <p>
+     * スロット番号は変数が式中に初めて出現した順に {@code 0} から割り当てられます。
+     *
+     * @return スロット番号の順に並べた変数名
+     */
+    public List<String> getVariables() {
+        return this.variables;
+    }
+
+    /**
+     * 構文木に対して行われた定数の畳み込みと恒等式による簡約の結果を返却します。
+     *
+     * @return 構文木に対して行われた最適化の結果
+     */
+    public OptimizationReport getOptimizationReport() {
+        return this.optimizationReport;
+    }
+
+    /**
+     * 式を変換した命令列を返却します。
+     *
+     * @return 式を変換した命令列
+     */
+    ExpressionProgram getProgram() {
+        return this.program;
+    }
+
+    /**
+     * 評価器を返却します。
+     *
+     * @return 演算子、関数、数学定数の評価を行う評価器
+     */
+    Evaluator getEvaluator() {
+        return this.evaluator;
+    }
+
+    /**
+     * 共通部分式の統合により共有された構文木のノード数を返却します。
+     * <p>
+     * 式中に同一の部分式が複数回出現する場合、その部分式は評価ごとに一度だけ評価されます。このメソッドは省略される部分式のノード数を返却します。
+     *
+     * @return 共有された構文木のノード数
+     */
+    public int getSharedNodeCount() {
+        return this.graph.getSharedCount();
+    }
+
+    /**
+     * 引数として渡された変数名に割り当てられたスロット番号を返却します。
+     * <p>
+     * このメソッドは評価の前に一度だけ呼び出し、取得したスロット番号を使用して {@link #evaluate(BigDecimal...)}
+     * メソッドまたは {@link #evaluate(double...)} メソッドへ渡す配列を構築してください。
+     *
+     * @param variable 変数名
+     * @return 変数に割り当てられたスロット番号
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 式中に存在しない変数名が渡された場合
+     */
+    public int getSlot(@NonNull String variable) {
+
+        final int slot = this.variables.indexOf(variable);
+
+        if (slot < 0) {
+            throw new IllegalArgumentException("Unknown variable: " + variable);
+        }
+
+        return slot;
+    }
+
+    /**
+     * 式を評価し評価結果を返却します。
+     *
+     * @return 式の評価結果
+     *
+     * @exception IllegalArgumentException 式中に変数が存在する場合
+     * @exception ArithmeticException      演算の結果が定義されない場合
+     */
+    public BigDecimal evaluate() {
+        return this.evaluate(new BigDecimal[0]);
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、式を評価した結果を返却します。
+     *
+     * @param values スロット番号をインデックスとする変数の値
+     * @return 式の評価結果
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 変数の値の数が式中の変数の数より少ない場合
+     * @exception ArithmeticException      演算の結果が定義されない場合
+     */
+    public BigDecimal evaluate(@NonNull BigDecimal... values) {
+
+        if (values.length < this.variables.size()) {
+            throw new IllegalArgumentException(String.format("Expected %d variable values but %d were given: %s",
+                    this.variables.size(), values.length, this.variables));
+        }
+
+        return this.program.evaluate(this.evaluator, values);
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、式を評価した結果を返却します。
+     * <p>
+     * 変数の値は {@link BigDecimal#valueOf(double)} で変換された後に評価されます。
+     *
+     * @param values スロット番号をインデックスとする変数の値
+     * @return 式の評価結果
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 変数の値の数が式中の変数の数より少ない場合
+     * @exception NumberFormatException    変数の値が無限大または非数の場合
+     * @exception ArithmeticException      演算の結果が定義されない場合
+     */
+    public BigDecimal evaluate(@NonNull double... values) {
+
+        final BigDecimal[] decimals = new BigDecimal[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            decimals[i] = BigDecimal.valueOf(values[i]);
+        }
+
+        return this.evaluate(decimals);
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、式を {@code double} 型で評価した結果を返却します。
+     * <p>
+     * 演算は評価器に依らず {@link Math} クラスの関数で行われ、 {@link BigDecimal} のインスタンスは生成されません。
+     * 構文解析時に畳み込まれた定数は評価器の演算規則で算出された値が使用されます。零による除算は例外を送出せずに無限大または非数を返却します。
+     *
+     * @param values スロット番号をインデックスとする変数の値
+     * @return 式の評価結果
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 変数の値の数が式中の変数の数より少ない場合
+     */
+    public double evaluateDouble(@NonNull double... values) {
+
+        if (values.length < this.variables.size()) {
+            throw new IllegalArgumentException(String.format("Expected %d variable values but %d were given: %s",
+                    this.variables.size(), values.length, this.variables));
+        }
+
+        return this.program.evaluateDouble(values);
+    }
+
+    /**
+     * スロット番号をインデックスとする列で変数の値を束縛し、各行の式を {@code double} 型で評価した結果を出力先の同じ位置へ格納します。
+     * <p>
+     * 出力先の長さが評価する行の数となります。各演算は行ごとではなく列全体に対するループとして実行され、行ごとのオブジェクトは生成されないため、大量の行を評価する場合に使用してください。
+     * 各行の評価結果は {@link #evaluateDouble(double...)} メソッドの評価結果と一致します。
+     * <p>
+     * 各演算のループは {@link ColumnarBackend#SCALAR} の方式で実行されます。
+     *
+     * @param columns スロット番号をインデックスとする変数の値の列
+     * @param results 評価結果の出力先
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 列の数が式中の変数の数より少ない場合、または列の長さが出力先の長さより短い場合
+     */
+    public void evaluateDouble(@NonNull double[][] columns, @NonNull double[] results) {
+        this.evaluateDouble(columns, results, ColumnarBackend.SCALAR);
+    }
+
+    /**
+     * スロット番号をインデックスとする列で変数の値を束縛し、各行の式を {@code double} 型で評価した結果を出力先の同じ位置へ格納します。
+     * <p>
+     * 各演算のループは引数として渡された方式で実行されます。 {@link ColumnarBackend#VECTOR} は演算子、 {@code abs} 、 {@code sqrt} 、
+     * {@code min} 、 {@code max} を複数の行ずつ演算し、三角関数や対数のような関数は一行ずつ評価します。実行環境で
+     * {@code jdk.incubator.vector} モジュールが利用できない場合は {@link ColumnarBackend#SCALAR} の方式で実行されます。
+     * いずれの方式でも各行の評価結果は {@link #evaluateDouble(double...)} メソッドの評価結果と一致します。
+     *
+     * @param columns スロット番号をインデックスとする変数の値の列
+     * @param results 評価結果の出力先
+     * @param backend 各演算のループを実行する方式
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 列の数が式中の変数の数より少ない場合、または列の長さが出力先の長さより短い場合
+     *
+     * @see #isAvailable(ColumnarBackend)
+     */
+    public void evaluateDouble(@NonNull double[][] columns, @NonNull double[] results,
+            @NonNull ColumnarBackend backend) {
+        this.checkColumns(columns, results.length);
+        this.program.evaluateDouble(columns, results, 0, results.length, ColumnKernel.of(backend));
+    }
+
+    /**
+     * スロット番号をインデックスとする {@link DoubleBuffer} の列で変数の値を束縛し、各行の式を {@code double}
+     * 型で評価した結果を出力先の同じ位置へ格納します。
+     * <p>
+     * 出力先の現在の位置から限界までの要素の数が評価する行の数となり、各列も現在の位置から読み込まれます。いずれのバッファも位置は変更されません。
+     * 変数の値は一定の行数の区間ごとにバッファから直接読み込まれ、評価結果はバッファへ直接書き込まれるため、
+     * ダイレクトバッファやメモリへ写像したファイルの列をヒープ上の配列へ複写せずに評価できます。各行の評価結果は
+     * {@link #evaluateDouble(double...)} メソッドの評価結果と一致します。
+     *
+     * @param columns スロット番号をインデックスとする変数の値の列
+     * @param results 評価結果の出力先
+     * @param backend 各演算のループを実行する方式
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 列の数が式中の変数の数より少ない場合、または列の残りの要素の数が出力先の残りの要素の数より少ない場合
+     * @exception ReadOnlyBufferException  出力先が読み込み専用の場合
+     */
+    public void evaluateDouble(@NonNull DoubleBuffer[] columns, @NonNull DoubleBuffer results,
+            @NonNull ColumnarBackend backend) {
+
+        if (results.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+
+        final int rows = results.remaining();
+
+        if (columns.length < this.variables.size()) {
+            throw new IllegalArgumentException(String.format("Expected %d variable columns but %d were given: %s",
+                    this.variables.size(), columns.length, this.variables));
+        }
+
+        for (int i = 0; i < this.variables.size(); i++) {
+            if (columns[i].remaining() < rows) {
+                throw new IllegalArgumentException(String.format("Column %s has %d rows but %d are required",
+                        this.variables.get(i), columns[i].remaining(), rows));
+            }
+        }
+
+        this.program.evaluateDouble(columns, results, 0, rows, ColumnKernel.of(backend));
+    }
+
+    /**
+     * スロット番号をインデックスとする {@link ByteBuffer} の列で変数の値を束縛し、各行の式を {@code double} 型で評価した結果を出力先の同じ位置へ格納します。
+     * <p>
+     * 各バッファは現在のバイト順序による {@link ByteBuffer#asDoubleBuffer()} の表示として
+     * {@link #evaluateDouble(DoubleBuffer[], DoubleBuffer, ColumnarBackend)} メソッドで評価され、内容は複写されません。
+     *
+     * @param columns スロット番号をインデックスとする変数の値の列
+     * @param results 評価結果の出力先
+     * @param backend 各演算のループを実行する方式
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 列の数が式中の変数の数より少ない場合、または列の残りの要素の数が出力先の残りの要素の数より少ない場合
+     * @exception ReadOnlyBufferException  出力先が読み込み専用の場合
+     */
+    public void evaluateDouble(@NonNull ByteBuffer[] columns, @NonNull ByteBuffer results,
+            @NonNull ColumnarBackend backend) {
+
+        final DoubleBuffer[] views = new DoubleBuffer[columns.length];
+
+        for (int i = 0; i < columns.length; i++) {
+            views[i] = columns[i].asDoubleBuffer();
+        }
+
+        this.evaluateDouble(views, results.asDoubleBuffer(), backend);
+    }
+
+    /**
+     * スロット番号をインデックスとする列で変数の値を束縛し、行の範囲を分割して共通の {@link ForkJoinPool} で並列に評価した結果を出力先の同じ位置へ格納します。
+     * <p>
+     * 各演算のループは {@link ColumnarBackend#SCALAR} の方式で実行され、行の範囲は {@link #DEFAULT_GRAIN_SIZE} 行以下になるまで分割されます。
+     *
+     * @param columns スロット番号をインデックスとする変数の値の列
+     * @param results 評価結果の出力先
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 列の数が式中の変数の数より少ない場合、または列の長さが出力先の長さより短い場合
+     *
+     * @see #evaluateDoubleInParallel(double[][], double[], ColumnarBackend, int, Executor)
+     */
+    public void evaluateDoubleInParallel(@NonNull double[][] columns, @NonNull double[] results) {
+        this.evaluateDoubleInParallel(columns, results, ColumnarBackend.SCALAR, DEFAULT_GRAIN_SIZE,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * スロット番号をインデックスとする列で変数の値を束縛し、行の範囲を分割して引数として渡された実行器で並列に評価した結果を出力先の同じ位置へ格納します。
+     * <p>
+     * 実行器が {@link ForkJoinPool} の場合は行の範囲を区間の大きさ以下になるまで二分割するタスクとして実行し、それ以外の場合は区間の大きさごとの範囲を個別のタスクとして実行します。
+     * 各タスクは出力先の互いに重ならない範囲のみへ評価結果を格納するため同期を必要とせず、各行の評価結果は分割の方法や実行の順序に依らず
+     * {@link #evaluateDouble(double...)} メソッドの評価結果と一致します。このメソッドは全てのタスクが完了するまで呼び出し元のスレッドを待機させます。
+     * 実行器が途中のタスクを受け付けなかった場合も、受け付けられたタスクの完了を待機した後に例外を送出するため、このメソッドから制御が戻った後に出力先へ書き込まれることはありません。
+     *
+     * @param columns   スロット番号をインデックスとする変数の値の列
+     * @param results   評価結果の出力先
+     * @param backend   各演算のループを実行する方式
+     * @param grainSize 分割せずに一つのタスクで評価する行の数の上限
+     * @param executor  タスクを実行する実行器
+     *
+     * @exception NullPointerException       引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException   列の数が式中の変数の数より少ない場合、列の長さが出力先の長さより短い場合、または区間の大きさが
+     *                                       {@code 1} より小さい場合
+     * @exception RejectedExecutionException 実行器がタスクを受け付けなかった場合
+     */
+    public void evaluateDoubleInParallel(@NonNull double[][] columns, @NonNull double[] results,
+            @NonNull ColumnarBackend backend, int grainSize, @NonNull Executor executor) {
+
+        if (grainSize < 1) {
+            throw new IllegalArgumentException("Grain size must be positive but was " + grainSize);
+        }
+
+        this.checkColumns(columns, results.length);
+
+        final ColumnKernel kernel = ColumnKernel.of(backend);
+
+        if (executor instanceof ForkJoinPool) {
+            ((ForkJoinPool) executor)
+                    .invoke(new ColumnarTask(this.program, columns, results, 0, results.length, grainSize, kernel));
+            return;
+        }
+
+        final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+
+        try {
+            for (int offset = 0; offset < results.length; offset += grainSize) {
+
+                final int start = offset;
+                final int length = Math.min(grainSize, results.length - offset);
+
+                tasks.add(CompletableFuture.runAsync(
+                        () -> this.program.evaluateDouble(columns, results, start, length, kernel), executor));
+            }
+        } catch (RejectedExecutionException e) {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).exceptionally(cause -> null).join();
+            throw e;
+        }
+
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * 引数として渡された式に出現した変数名を、式の順に各式のスロット番号の順で重複を除いて並べて返却します。
+     *
+     * @param expressions 式
+     * @return 全ての式に出現した変数名
+     */
+    static List<String> collectVariables(@NonNull List<CompiledExpression> expressions) {
+
+        final List<String> variables = new ArrayList<>();
+
+        for (CompiledExpression expression : expressions) {
+            for (String variable : expression.getVariables()) {
+                if (!variables.contains(variable)) {
+                    variables.add(variable);
+                }
+            }
+        }
+
+        return Collections.unmodifiableList(variables);
+    }
+
+    /**
+     * 列の数が式中の変数の数以上であり、変数の列の長さが評価する行の数以上であるか検査します。
+     *
+     * @param columns スロット番号をインデックスとする変数の値の列
+     * @param rows    評価する行の数
+     *
+     * @exception IllegalArgumentException 列の数が式中の変数の数より少ない場合、または列の長さが評価する行の数より短い場合
+     */
+    private void checkColumns(double[][] columns, int rows) {
+
+        if (columns.length < this.variables.size()) {
+            throw new IllegalArgumentException(String.format("Expected %d variable columns but %d were given: %s",
+                    this.variables.size(), columns.length, this.variables));
+        }
+
+        for (int i = 0; i < this.variables.size(); i++) {
+            if (columns[i].length < rows) {
+                throw new IllegalArgumentException(String.format("Column %s has %d rows but %d are required",
+                        this.variables.get(i), columns[i].length, rows));
+            }
+        }
+    }
+
+    /**
+     * 引数として渡された列単位の評価の方式が実行環境で利用できるか判定します。
+     *
+     * @param backend 各演算のループを実行する方式
+     * @return 利用できる場合は {@code true} 、 {@link ColumnarBackend#SCALAR} の方式へ切り替わる場合は {@code false}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static boolean isAvailable(@NonNull ColumnarBackend backend) {
+        return ColumnKernel.isAvailable(backend);
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、式の評価結果と全ての変数に関する偏微分係数を前進モードの自動微分により一度の評価で計算します。
+     * <p>
+     * 評価結果は {@link #evaluate(BigDecimal...)} メソッドの評価結果と一致します。偏微分係数の計算で行われる乗算と除算は評価器の演算規則で丸められます。
+     *
+     * @param values スロット番号をインデックスとする変数の値
+     * @return 式の評価結果と偏微分係数
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 変数の値の数が式中の変数の数より少ない場合
+     * @exception ArithmeticException      演算の結果または偏微分係数が定義されない場合
+     */
+    public Gradient gradient(@NonNull BigDecimal... values) {
+
+        if (values.length < this.variables.size()) {
+            throw new IllegalArgumentException(String.format("Expected %d variable values but %d were given: %s",
+                    this.variables.size(), values.length, this.variables));
+        }
+
+        return ForwardDifferentiator.differentiate(this.program, this.evaluator, this.variables, values);
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、式の評価結果と全ての変数に関する偏微分係数を前進モードの自動微分により {@code double}
+     * 型で一度の評価で計算します。
+     * <p>
+     * 評価結果は {@link #evaluateDouble(double...)} メソッドの評価結果と一致します。
+     *
+     * @param values スロット番号をインデックスとする変数の値
+     * @return 式の評価結果と偏微分係数
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 変数の値の数が式中の変数の数より少ない場合
+     */
+    public DoubleGradient gradientDouble(@NonNull double... values) {
+
+        if (values.length < this.variables.size()) {
+            throw new IllegalArgumentException(String.format("Expected %d variable values but %d were given: %s",
+                    this.variables.size(), values.length, this.variables));
+        }
+
+        return ForwardDifferentiator.differentiateDouble(this.program, this.variables, values);
+    }
+
+    /**
+     * 式を JVM のクラスへ変換し、 {@link Neumann} と同一の演算で {@link BigDecimal} 型の評価を行う
+     * {@link DecimalExpression} を返却します。
+     * <p>
+     * 変換されたクラスは構文木を辿らずに演算を直接呼び出し、同一の部分式を一度だけ評価するため、同一の式を大量に評価する場合に使用してください。変換には時間を要するため、返却された
+     * {@link DecimalExpression} は再利用してください。変数の値の数は検査されません。
+     *
+     * @return 式を {@link BigDecimal} 型で評価する {@link DecimalExpression}
+     *
+     * @exception UnsupportedOperationException 評価器が {@link Neumann} ではない場合
+     * @exception IllegalArgumentException      式が大きすぎてクラスへ変換できない場合
+     */
+    public DecimalExpression toDecimalExpression() {
+
+        if (!(this.evaluator instanceof Neumann)) {
+            throw new UnsupportedOperationException(
+                    "Bytecode compilation is only supported for " + Neumann.class.getSimpleName());
+        }
+
+        return BytecodeCompiler.compileDecimal(this.graph, this.evaluator, this.evaluator.getMathContext());
+    }
+
+    /**
+     * 式を JVM のクラスへ変換し、 {@code double} 型の評価を行う {@link DoubleExpression} を返却します。
+     * <p>
+     * 演算は {@link Math} クラスの関数で行われるため、評価結果は {@link #evaluate(double...)} メソッドの評価結果と一致しない場合があります。
+     * 同一の部分式は一度だけ評価されます。変換には時間を要するため、返却された {@link DoubleExpression} は再利用してください。変数の値の数は検査されません。
+     *
+     * @return 式を {@code double} 型で評価する {@link DoubleExpression}
+     *
+     * @exception IllegalArgumentException 式が大きすぎてクラスへ変換できない場合
+     */
+    public DoubleExpression toDoubleExpression() {
+        return BytecodeCompiler.compileDouble(this.graph);
+    }
+
+    /**
+     * 全ての値を宣言されたスケールの固定小数点数として評価する {@link FixedPointExpression} を返却します。
+     * <p>
+     * 値は {@code long} 型で表現されるため金額計算のような式を {@link BigDecimal} より高速に評価でき、 {@code long}
+     * 型の範囲を超えた評価は同一の規則で {@link BigDecimal} による評価へ切り替わります。
+     *
+     * @param scale        スケール
+     * @param roundingMode 丸めモード
+     * @return 式を固定小数点数で評価する {@link FixedPointExpression}
+     *
+     * @exception NullPointerException          引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException      スケールが {@code 0} 未満または {@link FixedPointExpression#MAX_SCALE}
+     *                                          より大きい場合
+     * @exception UnsupportedOperationException 評価器が {@link Neumann} ではない場合、または固定小数点数で評価できない演算子または関数が含まれる場合
+     */
+    public FixedPointExpression toFixedPointExpression(int scale, @NonNull RoundingMode roundingMode) {
+
+        if (!(this.evaluator instanceof Neumann)) {
+            throw new UnsupportedOperationException(
+                    "Fixed point evaluation is only supported for " + Neumann.class.getSimpleName());
+        }
+
+        return FixedPointExpression.of(this.program, this.variables.size(), scale, roundingMode,
+                this.evaluator.getMathContext());
+    }
+
+    /**
+     * 式を倍々精度で高速に評価し、誤差の上限が演算規則の精度に収まらない場合のみ {@link BigDecimal} で評価し直す
+     * {@link AdaptiveExpression} を返却します。
+     * <p>
+     * 評価結果は評価器の演算規則で丸められます。入力の大半で誤差が小さい式を繰り返し評価する場合に使用してください。
+     *
+     * @return 式を適応的な精度で評価する {@link AdaptiveExpression}
+     *
+     * @exception UnsupportedOperationException 評価器が {@link Neumann} ではない場合
+     */
+    public AdaptiveExpression toAdaptiveExpression() {
+
+        if (!(this.evaluator instanceof Neumann)) {
+            throw new UnsupportedOperationException(
+                    "Adaptive evaluation is only supported for " + Neumann.class.getSimpleName());
+        }
+
+        return AdaptiveExpression.of(this);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.thinkit.neumann.catalog.MathematicalConstant;
+
+import ch.obermuhlner.math.big.BigDecimalMath;
+import lombok.NonNull;
+
+/**
+ * 数学定数の評価結果を演算規則毎に保持するキャッシュです。
+ * <p>
+ * 数学定数は演算規則毎に初回の参照時に一度だけ計算され、以降は同一のインスタンスが返却されます。 {@link BigDecimal}
+ * は不変であるため、このクラスは複数のスレッドから同時に使用することができます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ConstantCache {
+
+    /**
+     * 数学定数毎の演算規則をキーとした評価結果
+     */
+    private static final Map<MathematicalConstant, ConcurrentMap<MathContext, BigDecimal>> CACHE = new EnumMap<>(
+            MathematicalConstant.class);
+
+    static {
+        for (MathematicalConstant constant : MathematicalConstant.values()) {
+            CACHE.put(constant, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private ConstantCache() {
+    }
+
+    /**
+     * 引数として渡された演算規則で評価した数学定数を返却します。
+     *
+     * @param constant    数学定数
+     * @param mathContext 演算規則
+     * @return 数学定数の評価結果
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static BigDecimal get(@NonNull MathematicalConstant constant, @NonNull MathContext mathContext) {
+        return CACHE.get(constant).computeIfAbsent(mathContext, key -> switch (constant) {
+            case PI -> BigDecimalMath.pi(key);
+            case NAPIER -> BigDecimalMath.e(key);
+        });
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+
+/**
+ * 式を {@link BigDecimal} 型で評価する関数を抽象化したインターフェースです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface DecimalExpression {
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、式を評価した結果を返却します。
+     *
+     * @param variables スロット番号をインデックスとする変数の値
+     * @return 式の評価結果
+     */
+    public BigDecimal evaluate(BigDecimal[] variables);
+}
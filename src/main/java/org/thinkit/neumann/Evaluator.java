@@ -15,23 +15,14 @@
 package org.thinkit.neumann;
 
 import java.math.BigDecimal;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.math.MathContext;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
-
-import org.apache.commons.lang3.StringUtils;
-import org.thinkit.api.catalog.BiCatalog;
-import org.thinkit.common.Preconditions;
-import org.thinkit.neumann.catalog.Arity;
-import org.thinkit.neumann.catalog.CloseBracket;
-import org.thinkit.neumann.catalog.FunctionPattern;
+
 import org.thinkit.neumann.catalog.MathematicalConstant;
 import org.thinkit.neumann.catalog.MathematicalFunction;
 import org.thinkit.neumann.catalog.MathematicalOperator;
-import org.thinkit.neumann.catalog.OpenBracket;
-import org.thinkit.neumann.catalog.OperatorAssociativity;
-import org.thinkit.neumann.catalog.OperatorPattern;
+import org.thinkit.neumann.catalog.NumericMode;
 
 import lombok.NonNull;
 
@@ -92,212 +83,196 @@ public interface Evaluator {
      */
     public BigDecimal evaluate(@NonNull MathematicalFunction function, @NonNull Iterator<BigDecimal> arguments);
 
+    /**
+     * 引数として渡された {@link MathematicalOperator} に対応する数学演算子の評価を、配列の一部を被演算子として行います。
+     * <p>
+     * 構文解析済みの式の評価ではイテレータを生成せずにこのメソッドが呼び出されます。デフォルトの実装は
+     * {@link #evaluate(MathematicalOperator, Iterator)} メソッドへ委譲するため、具象クラスは必要に応じてこのメソッドを再定義してください。
+     *
+     * @param operator {@link MathematicalOperator} で表現される数学演算子
+     * @param operands 被演算子を格納した配列
+     * @param offset   最初の被演算子の位置
+     * @param count    被演算子の数
+     * @return {@link MathematicalOperator} に対応する数学演算子の評価結果
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    default BigDecimal evaluate(@NonNull MathematicalOperator operator, @NonNull BigDecimal[] operands, int offset,
+            int count) {
+        return this.evaluate(operator, Arrays.asList(operands).subList(offset, offset + count).iterator());
+    }
+
+    /**
+     * 引数として渡された {@link MathematicalFunction} に対応する数学関数の評価を、配列の一部を引数として行います。
+     * <p>
+     * 構文解析済みの式の評価ではイテレータを生成せずにこのメソッドが呼び出されます。デフォルトの実装は
+     * {@link #evaluate(MathematicalFunction, Iterator)} メソッドへ委譲するため、具象クラスは必要に応じてこのメソッドを再定義してください。
+     *
+     * @param function  {@link MathematicalFunction} で表現される数学関数
+     * @param arguments 数学関数に渡す引数を格納した配列
+     * @param offset    最初の引数の位置
+     * @param count     引数の数
+     * @return {@link MathematicalFunction} に対応する数学関数の評価結果
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    default BigDecimal evaluate(@NonNull MathematicalFunction function, @NonNull BigDecimal[] arguments, int offset,
+            int count) {
+        return this.evaluate(function, Arrays.asList(arguments).subList(offset, offset + count).iterator());
+    }
+
+    /**
+     * 式を評価し評価結果を文字列として返却します。
+     * <p>
+     * 式は {@link #getNumericMode()} メソッドが返却する数値表現で評価されます。評価結果を数値として使用する場合は文字列への変換と再度の解析を避けるため、
+     * {@link #evaluateToBigDecimal()} 、 {@link #evaluateToDouble()} 、 {@link #evaluateToLong()} メソッドを使用してください。
+     *
+     * @return 式の評価結果
+     *
+     * @exception IllegalArgumentException 式の構文に誤りがある場合
+     */
     default String evaluate() {
+        return switch (this.getNumericMode()) {
+            case DECIMAL -> this.evaluateToBigDecimal().toString();
+            case DOUBLE -> String.valueOf(this.evaluateToDouble());
+        };
+    }
 
-        final Deque<BigDecimal> valueStack = new ArrayDeque<>();
-        final Deque<ExpressionToken> symbolStack = new ArrayDeque<>();
-        final Deque<Integer> valueSizeStack = new ArrayDeque<>();
-        final ExpressionTokenizer tokens = ExpressionTokenizer.of(this.getExpression());
-
-        ExpressionToken previous = null;
-
-        while (tokens.hasMoreTokens()) {
-
-            final String token = tokens.nextToken();
-
-            if (StringUtils.isEmpty(token)) {
-                continue;
-            }
-
-            final ExpressionToken expressionToken = this.toExpressionToken(token);
-
-            if (expressionToken.isOpenBracket()) {
-
-                symbolStack.push(expressionToken);
-
-                if (previous != null && previous.isFunction()) {
-                    if (!BiCatalog.contains(OpenBracket.class, expressionToken.getOpenBracket().getTag())) {
-                        throw new IllegalArgumentException("Invalid bracket after function: " + token);
-                    }
-                } else {
-                    if (!BiCatalog.contains(OpenBracket.class, expressionToken.getOpenBracket().getTag())) {
-                        throw new IllegalArgumentException("Invalid bracket in expression: " + token);
-                    }
-                }
-            } else if (expressionToken.isCloseBracket()) {
-                Preconditions.requireNonNull(previous,
-                        new IllegalArgumentException("expression can't start with a close bracket"));
-
-                if (previous.isFunctionArgumentSeparator()) {
-                    throw new IllegalArgumentException("argument is missing");
-                }
-
-                CloseBracket closeBracket = expressionToken.getCloseBracket();
-                boolean openBracketFound = false;
-
-                while (!symbolStack.isEmpty()) {
-                    ExpressionToken sc = symbolStack.pop();
-                    if (sc.isOpenBracket()) {
-                        if (BiCatalog.getEnum(OpenBracket.class, closeBracket.getCode()).getTag()
-                                .equals(sc.getOpenBracket().getTag())) {
-                            openBracketFound = true;
-                            break;
-                        } else {
-                            throw new IllegalArgumentException(String.format("Invalid parenthesis match: %s and %s",
-                                    sc.getOpenBracket().getTag(), closeBracket.getTag()));
-                        }
-                    } else {
-                        output(valueStack, sc);
-                    }
-                }
-
-                if (!openBracketFound) {
-                    throw new IllegalArgumentException("Parentheses mismatched");
-                }
-
-                if (!symbolStack.isEmpty() && symbolStack.peek().isFunction()) {
-                    final int argumentCount = valueStack.size() - valueSizeStack.pop();
-                    this.evaluate(valueStack, symbolStack.pop().getFunction(), argumentCount);
-                }
-            } else if (expressionToken.isFunctionArgumentSeparator()) {
-                if (previous == null) {
-                    throw new IllegalArgumentException("expression can't start with a function argument separator");
-                }
-
-                if (previous.isOpenBracket() || previous.isFunctionArgumentSeparator()) {
-
-                    throw new IllegalArgumentException("argument is missing");
-                }
-
-                boolean pe = false;
-
-                while (!symbolStack.isEmpty()) {
-                    if (symbolStack.peek().isOpenBracket()) {
-                        pe = true;
-                        break;
-                    } else {
-                        output(valueStack, symbolStack.pop());
-                    }
-                }
-                if (!pe) {
-                    throw new IllegalArgumentException("Separator or parentheses mismatched");
-                } else {
-                    ExpressionToken openBracket = symbolStack.pop();
-                    ExpressionToken scopeToken = symbolStack.peek();
-                    symbolStack.push(openBracket);
-                    if (!scopeToken.isFunction()) {
-                        throw new IllegalArgumentException("Argument separator used outside of function scope");
-                    }
-                }
-            } else if (expressionToken.isFunction()) {
-                symbolStack.push(expressionToken);
-                valueSizeStack.push(valueStack.size());
-            } else if (expressionToken.isOperator()) {
-
-                while (!symbolStack.isEmpty()) {
-
-                    ExpressionToken sc = symbolStack.peek();
-
-                    if (sc.isOperator() && ((expressionToken.getOperator().getTag()
-                            .getAssociativity() == OperatorAssociativity.LEFT)
-                            && (expressionToken.getOperator().getTag().getPrecedence().getTag() <= sc.getOperator()
-                                    .getTag().getPrecedence().getTag())
-                            || (expressionToken.getOperator().getTag().getPrecedence().getTag() < sc.getOperator()
-                                    .getTag().getPrecedence().getTag()))) {
-                        this.output(valueStack, symbolStack.pop());
-                    } else {
-                        break;
-                    }
-                }
-
-                symbolStack.push(expressionToken);
-            } else {
-
-                if ((previous != null) && previous.isLiteral()) {
-                    throw new IllegalArgumentException("A literal can't follow another literal");
-                }
-
-                output(valueStack, expressionToken);
-            }
-
-            previous = expressionToken;
-        }
+    /**
+     * 式を評価し評価結果を {@link BigDecimal} 型で返却します。
+     * <p>
+     * 式は {@link #getNumericMode()} メソッドが返却する数値表現で評価されます。このメソッドは呼び出しの度に式を構文解析します。同一の式を繰り返し評価する場合は
+     * {@link CompiledExpression#of(Evaluator)} メソッドで構文解析済みの式を生成し再利用してください。
+     *
+     * @return 式の評価結果
+     *
+     * @exception IllegalArgumentException 式の構文に誤りがある場合
+     * @exception NumberFormatException    {@link NumericMode#DOUBLE} で評価結果が無限大または非数の場合
+     */
+    default BigDecimal evaluateToBigDecimal() {
 
-        while (!symbolStack.isEmpty()) {
+        final CompiledExpression expression = CompiledExpression.of(this);
 
-            ExpressionToken sc = symbolStack.pop();
+        return switch (this.getNumericMode()) {
+            case DECIMAL -> expression.evaluate();
+            case DOUBLE -> BigDecimal.valueOf(expression.evaluateDouble());
+        };
+    }
 
-            if (sc.isOpenBracket() || sc.isCloseBracket()) {
-                throw new IllegalArgumentException("Parentheses mismatched");
-            }
+    /**
+     * 式を評価し評価結果を {@code double} 型で返却します。
+     * <p>
+     * {@link NumericMode#DECIMAL} では {@link BigDecimal} 型の評価結果を {@code double} 型へ変換するため、精度が失われる場合があります。
+     *
+     * @return 式の評価結果
+     *
+     * @exception IllegalArgumentException 式の構文に誤りがある場合
+     */
+    default double evaluateToDouble() {
+
+        final CompiledExpression expression = CompiledExpression.of(this);
+
+        return switch (this.getNumericMode()) {
+            case DECIMAL -> expression.evaluate().doubleValue();
+            case DOUBLE -> expression.evaluateDouble();
+        };
+    }
+
+    /**
+     * 式を評価し評価結果を {@code long} 型で返却します。
+     * <p>
+     * 評価結果は丸められません。評価結果が小数部を持つ場合、または {@code long} 型の範囲を超える場合は例外が送出されます。
+     *
+     * @return 式の評価結果
+     *
+     * @exception IllegalArgumentException 式の構文に誤りがある場合
+     * @exception ArithmeticException      評価結果が {@code long} 型で正確に表現できない場合
+     */
+    default long evaluateToLong() {
 
-            output(valueStack, sc);
+        if (this.getNumericMode() == NumericMode.DECIMAL) {
+            return this.evaluateToBigDecimal().longValueExact();
         }
 
-        if (valueStack.size() != 1) {
-            throw new IllegalArgumentException();
+        final double value = this.evaluateToDouble();
+
+        if (value != Math.rint(value) || value < -0x1p63 || value >= 0x1p63) {
+            throw new ArithmeticException("Result cannot be represented as long: " + value);
         }
 
-        return valueStack.pop().toString();
+        return (long) value;
     }
 
-    private void evaluate(Deque<BigDecimal> values, MathematicalFunction function, int argumentCount) {
-        values.push(this.evaluate(function, this.toArguments(values, argumentCount)));
+    /**
+     * 式を評価する際の数値表現を返却します。
+     *
+     * @return 式を評価する際の数値表現
+     */
+    default NumericMode getNumericMode() {
+        return NumericMode.DECIMAL;
     }
 
-    private void output(Deque<BigDecimal> values, ExpressionToken token) {
-        if (token.isLiteral()) {
-
-            final String literal = token.getLiteral();
-            final MathematicalConstant constant = BiCatalog.getEnumByTag(MathematicalConstant.class,
-                    token.getLiteral());
-
-            values.push(constant == null ? new BigDecimal(literal) : this.evaluate(constant));
+    /**
+     * 引数として渡された数値表現で式を評価する評価器を返却します。
+     * <p>
+     * デフォルトの実装は現在の数値表現と同一の場合のみ自身を返却します。具象クラスは対応する数値表現に応じてこのメソッドを再定義してください。
+     *
+     * @param numericMode 式を評価する際の数値表現
+     * @return 引数として渡された数値表現で式を評価する評価器
+     *
+     * @exception NullPointerException          引数として {@code null} が渡された場合
+     * @exception UnsupportedOperationException 数値表現に対応していない場合
+     */
+    default Evaluator withNumericMode(@NonNull NumericMode numericMode) {
 
-        } else if (token.isOperator()) {
-            MathematicalOperator operator = token.getOperator();
-            values.push(this.evaluate(operator,
-                    this.toArguments(values, this.toArgumentCount(operator.getTag().getArity()))));
+        if (numericMode != this.getNumericMode()) {
+            throw new UnsupportedOperationException("Unsupported numeric mode: " + numericMode);
         }
-    }
 
-    private int toArgumentCount(@NonNull Arity arity) {
-        return switch (arity) {
-            case UNARY -> 1;
-            case BINARY -> 2;
-            case FINITARY -> Integer.MAX_VALUE;
-            case NULLARY, TERNARY, MULTIARY -> throw new UnsupportedOperationException();
-        };
+        return this;
     }
 
-    private Iterator<BigDecimal> toArguments(Deque<BigDecimal> values, int argumentCount) {
+    /**
+     * 式を評価する際の演算規則を返却します。
+     *
+     * @return 式を評価する際の演算規則
+     */
+    default MathContext getMathContext() {
+        return Neumann.DEFAULT_MATH_CONTEXT;
+    }
 
-        LinkedList<BigDecimal> arguments = new LinkedList<>();
+    /**
+     * 引数として渡された演算規則で式を評価する評価器を返却します。
+     * <p>
+     * デフォルトの実装は現在の演算規則と同一の場合のみ自身を返却します。具象クラスは対応する演算規則に応じてこのメソッドを再定義してください。
+     *
+     * @param mathContext 式を評価する際の演算規則
+     * @return 引数として渡された演算規則で式を評価する評価器
+     *
+     * @exception NullPointerException          引数として {@code null} が渡された場合
+     * @exception UnsupportedOperationException 演算規則に対応していない場合
+     */
+    default Evaluator withMathContext(@NonNull MathContext mathContext) {
 
-        for (int i = 0; i < argumentCount; i++) {
-            arguments.addFirst(values.pop());
+        if (!mathContext.equals(this.getMathContext())) {
+            throw new UnsupportedOperationException("Unsupported math context: " + mathContext);
         }
 
-        return arguments.iterator();
+        return this;
     }
 
-    private ExpressionToken toExpressionToken(@NonNull String token) {
-        if (",".equals(token)) {
-            return ExpressionToken.separator();
-        } else if (BiCatalog.contains(FunctionPattern.class, token)) {
-            final FunctionPattern functionPattern = BiCatalog.getEnumByTag(FunctionPattern.class, token);
-            return ExpressionToken.of(BiCatalog.getEnum(MathematicalFunction.class, functionPattern.getCode()));
-        } else if (BiCatalog.contains(OperatorPattern.class, token)) {
-            final OperatorPattern operatorPattern = BiCatalog.getEnumByTag(OperatorPattern.class, token);
-            return ExpressionToken.of(BiCatalog.getEnum(MathematicalOperator.class, operatorPattern.getCode()));
-        } else if (BiCatalog.contains(OpenBracket.class, token) || BiCatalog.contains(CloseBracket.class, token)) {
-            if (BiCatalog.contains(OpenBracket.class, token)) {
-                return ExpressionToken.of(BiCatalog.getEnumByTag(OpenBracket.class, token));
-            } else {
-                return ExpressionToken.of(BiCatalog.getEnumByTag(CloseBracket.class, token));
-            }
-        } else {
-            return ExpressionToken.of(token);
-        }
+    /**
+     * 引数として渡されたキャッシュへ数学関数と累乗の評価結果を保持しながら式を評価する評価器を返却します。
+     * <p>
+     * デフォルトの実装はキャッシュに対応していないため例外を送出します。具象クラスは必要に応じてこのメソッドを再定義してください。
+     *
+     * @param functionCache 数学関数と累乗の評価結果を保持するキャッシュ
+     * @return 引数として渡されたキャッシュを使用する評価器
+     *
+     * @exception NullPointerException          引数として {@code null} が渡された場合
+     * @exception UnsupportedOperationException キャッシュに対応していない場合
+     */
+    default Evaluator withFunctionCache(@NonNull FunctionCache functionCache) {
+        throw new UnsupportedOperationException("Function cache is not supported by " + this.getClass().getName());
     }
 }
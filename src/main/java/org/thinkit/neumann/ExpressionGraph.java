@@ -0,0 +1,266 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 構文木の同一の部分木を共有した有向非巡回グラフを表現するクラスです。
+ * <p>
+ * 構文木のノードは種類、値、子ノードの番号が一致する場合に同一のノードとして扱われ、一つのノードへ統合されます (ハッシュコンシング)。
+ * 統合後のノードは子ノードが親ノードより前に位置するトポロジカル順序で保持されるため、先頭から順に評価することで各部分式を一度ずつ評価できます。
+ * 統合後のノードは子ノードを保持せず、子ノードは {@link #getOperands(int)} メソッドで取得できる番号で表現されます。
+ * <p>
+ * 構文木の同一のインスタンスは一度だけ辿られるため、最適化により部分木のインスタンスを共有した構文木からも線形時間でグラフを構築できます。
+ * インスタンスとして共有された部分木は統合により共有されたノード数には含まれません。
+ * <p>
+ * 複数の構文木から一つのグラフを構築した場合は式をまたいで同一の部分木が統合され、各構文木の根に対応するノードの番号は {@link #getRoots()}
+ * メソッドで取得できます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+@EqualsAndHashCode
+final class ExpressionGraph {
+
+    /**
+     * トポロジカル順序で並べた統合後のノード
+     */
+    private final ExpressionNode[] nodes;
+
+    /**
+     * 統合後のノードごとの子ノードの番号
+     */
+    private final int[][] operands;
+
+    /**
+     * 構文木の根に対応するノードの番号
+     */
+    private final int[] roots;
+
+    /**
+     * 統合により共有された構文木のノード数
+     */
+    private final int sharedCount;
+
+    /**
+     * コンストラクタ
+     *
+     * @param nodes       トポロジカル順序で並べた統合後のノード
+     * @param operands    統合後のノードごとの子ノードの番号
+     * @param roots       構文木の根に対応するノードの番号
+     * @param sharedCount 統合により共有された構文木のノード数
+     */
+    private ExpressionGraph(ExpressionNode[] nodes, int[][] operands, int[] roots, int sharedCount) {
+        this.nodes = nodes;
+        this.operands = operands;
+        this.roots = roots;
+        this.sharedCount = sharedCount;
+    }
+
+    /**
+     * 引数として渡された構文木の同一の部分木を統合し、 {@link ExpressionGraph} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param root 構文木の根となるノード
+     * @return {@link ExpressionGraph} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static ExpressionGraph of(@NonNull ExpressionNode root) {
+        return of(List.of(root));
+    }
+
+    /**
+     * 引数として渡された全ての構文木の同一の部分木を式をまたいで統合し、 {@link ExpressionGraph} クラスの新しいインスタンスを生成し返却します。
+     * <p>
+     * 各構文木の変数のスロット番号は共通の変数の並びに対する番号である必要があります。
+     *
+     * @param roots 構文木の根となるノード
+     * @return {@link ExpressionGraph} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 構文木が渡されなかった場合
+     */
+    public static ExpressionGraph of(@NonNull List<ExpressionNode> roots) {
+
+        if (roots.isEmpty()) {
+            throw new IllegalArgumentException("At least one expression is required");
+        }
+
+        final Builder builder = new Builder();
+        final int[] indexes = new int[roots.size()];
+
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = builder.add(roots.get(i));
+        }
+
+        return new ExpressionGraph(builder.nodes.toArray(new ExpressionNode[0]),
+                builder.operands.toArray(new int[0][]), indexes, builder.visitedCount - builder.nodes.size());
+    }
+
+    /**
+     * トポロジカル順序で並べた統合済みのノードから {@link ExpressionGraph} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param nodes       トポロジカル順序で並べた統合後のノード
+     * @param operands    統合後のノードごとの子ノードの番号
+     * @param sharedCount 統合により共有された構文木のノード数
+     * @return {@link ExpressionGraph} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static ExpressionGraph of(@NonNull ExpressionNode[] nodes, @NonNull int[][] operands, int sharedCount) {
+        return new ExpressionGraph(nodes, operands, new int[] { nodes.length - 1 }, sharedCount);
+    }
+
+    /**
+     * 統合後のノード数を返却します。
+     *
+     * @return 統合後のノード数
+     */
+    public int size() {
+        return this.nodes.length;
+    }
+
+    /**
+     * 統合により共有された構文木のノード数を返却します。
+     * <p>
+     * 構文木のノード数から統合後のノード数を引いた値であり、評価時に省略される部分式の評価回数を表します。
+     *
+     * @return 統合により共有された構文木のノード数
+     */
+    public int getSharedCount() {
+        return this.sharedCount;
+    }
+
+    /**
+     * 構文木の根に対応するノードの番号を、グラフの構築時に渡された構文木の順に返却します。
+     * <p>
+     * 同一の構文木が複数渡された場合や、ある構文木が他の構文木の部分木である場合は同じノードの番号が返却されます。
+     *
+     * @return 構文木の根に対応するノードの番号
+     */
+    public int[] getRoots() {
+        return this.roots.clone();
+    }
+
+    /**
+     * 引数として渡された番号の統合後のノードを返却します。
+     * <p>
+     * 返却されるノードは子ノードを保持しないため、子ノードは {@link #getOperands(int)} メソッドで取得してください。
+     *
+     * @param index ノードの番号
+     * @return 統合後のノード
+     */
+    public ExpressionNode getNode(int index) {
+        return this.nodes[index];
+    }
+
+    /**
+     * 引数として渡された番号のノードの子ノードの番号を返却します。子ノードの番号は常に親ノードの番号より小さくなります。
+     *
+     * @param index ノードの番号
+     * @return 子ノードの番号
+     */
+    public int[] getOperands(int index) {
+        return this.operands[index].clone();
+    }
+
+    /**
+     * 構文木を後行順に辿り、同一のノードを統合しながらグラフを構築するクラスです。
+     */
+    private static final class Builder {
+
+        /**
+         * トポロジカル順序で並べた統合後のノード
+         */
+        private final List<ExpressionNode> nodes = new ArrayList<>();
+
+        /**
+         * 統合後のノードごとの子ノードの番号
+         */
+        private final List<int[]> operands = new ArrayList<>();
+
+        /**
+         * ノードの種類、値、子ノードの番号から統合後のノードの番号への対応
+         */
+        private final Map<List<Object>, Integer> indexes = new HashMap<>();
+
+        /**
+         * 辿った構文木のノードのインスタンスから統合後のノードの番号への対応
+         */
+        private final Map<ExpressionNode, Integer> visited = new IdentityHashMap<>();
+
+        /**
+         * 辿った構文木のノードのインスタンス数
+         */
+        private int visitedCount;
+
+        /**
+         * 引数として渡されたノードを根とする部分木をグラフへ追加し、統合後のノードの番号を返却します。
+         *
+         * @param node 追加するノード
+         * @return 統合後のノードの番号
+         */
+        int add(ExpressionNode node) {
+
+            final Integer visitedIndex = this.visited.get(node);
+
+            if (visitedIndex != null) {
+                return visitedIndex;
+            }
+
+            this.visitedCount++;
+
+            final int[] children = new int[node.getChildCount()];
+            final List<Object> key = new ArrayList<>(children.length + 2);
+            key.add(node.getNodePattern());
+            key.add(switch (node.getNodePattern()) {
+                case LITERAL -> node.getLiteral();
+                case CONSTANT -> node.getConstant();
+                case VARIABLE -> node.getSlot();
+                case OPERATOR -> node.getOperator();
+                case FUNCTION -> node.getFunction();
+            });
+
+            for (int i = 0; i < children.length; i++) {
+                children[i] = this.add(node.getChild(i));
+                key.add(children[i]);
+            }
+
+            Integer index = this.indexes.get(key);
+
+            if (index == null) {
+                index = this.nodes.size();
+                this.nodes.add(node.withoutChildren());
+                this.operands.add(children);
+                this.indexes.put(key, index);
+            }
+
+            this.visited.put(node, index);
+
+            return index;
+        }
+    }
+}
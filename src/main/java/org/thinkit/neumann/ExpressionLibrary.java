@@ -0,0 +1,424 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 構文解析済みの式を名前付きで格納したライブラリファイルを表現するクラスです。
+ * <p>
+ * {@link #write(Path, Map)} メソッドは式を構文解析と最適化を済ませた命令列の形式で一つのファイルへ書き込みます。
+ * {@link #open(Path)} メソッドはファイルをメモリへマップし、名前の索引のみを読み込みます。各式は {@link #get(String)}
+ * メソッドで初めて参照された時点で復号されるため、大量の式を格納したライブラリも構文解析を行わずに短時間で開くことができます。
+ * <p>
+ * ファイルは以下の形式で構成され、数値は全てビッグエンディアンで格納されます。
+ *
+ * <pre>
+ * ヘッダ   : マジックナンバー (int) 、形式のバージョン (short) 、式の数 (int)
+ * 索引     : 式ごとの名前 (文字列) 、本体の位置 (long) 、本体の長さ (int)
+ * 本体     : 式、演算規則の精度 (int) 、丸めモードの序数 (int) 、変数名の数 (int) 、変数名 (文字列) 、最適化の結果 (int * 5) 、
+ *            定数の数 (int) 、定数 (スケール (int) 、スケールなしの値の長さ (int) 、スケールなしの値 (byte[])) 、
+ *            命令列の長さ (int) 、命令列 (int[])
+ * 文字列   : UTF-8 で符号化したバイト数 (int) 、バイト列
+ * </pre>
+ *
+ * 復号された式は書き込まれた時点の演算規則を使用する {@link Neumann} で評価されます。演算規則を持たないバージョン {@code 1}
+ * の形式のファイルはデフォルトの演算規則で評価されます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+public final class ExpressionLibrary {
+
+    /**
+     * ライブラリファイルのマジックナンバー
+     */
+    private static final int MAGIC = 0x4e45554d;
+
+    /**
+     * ライブラリファイルの形式のバージョン
+     */
+    private static final short VERSION = 2;
+
+    /**
+     * 演算規則を持たない形式のバージョン
+     */
+    private static final short VERSION_WITHOUT_MATH_CONTEXT = 1;
+
+    /**
+     * ライブラリファイルの形式のバージョン
+     */
+    private final short version;
+
+    /**
+     * メモリへマップしたライブラリファイル
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * 式の名前から索引の番号への対応
+     */
+    private final Map<String, Integer> indexes;
+
+    /**
+     * 索引の番号ごとの本体の位置
+     */
+    private final long[] offsets;
+
+    /**
+     * 索引の番号ごとの復号済みの式
+     */
+    private final AtomicReferenceArray<CompiledExpression> expressions;
+
+    /**
+     * コンストラクタ
+     *
+     * @param version ライブラリファイルの形式のバージョン
+     * @param buffer  メモリへマップしたライブラリファイル
+     * @param indexes 式の名前から索引の番号への対応
+     * @param offsets 索引の番号ごとの本体の位置
+     */
+    private ExpressionLibrary(short version, ByteBuffer buffer, Map<String, Integer> indexes, long[] offsets) {
+        this.version = version;
+        this.buffer = buffer;
+        this.indexes = indexes;
+        this.offsets = offsets;
+        this.expressions = new AtomicReferenceArray<>(offsets.length);
+    }
+
+    /**
+     * 引数として渡された名前付きの式をライブラリファイルへ書き込みます。ファイルが既に存在する場合は上書きされます。
+     *
+     * @param file        書き込み先のファイル
+     * @param expressions 名前から構文解析済みの式への対応
+     *
+     * @exception NullPointerException          引数として {@code null} が渡された場合
+     * @exception UnsupportedOperationException 評価器が {@link Neumann} ではない式が含まれる場合
+     * @exception IOException                   ファイルの書き込みに失敗した場合
+     */
+    public static void write(@NonNull Path file, @NonNull Map<String, CompiledExpression> expressions)
+            throws IOException {
+
+        final List<byte[]> names = new ArrayList<>(expressions.size());
+        final List<byte[]> bodies = new ArrayList<>(expressions.size());
+
+        for (Map.Entry<String, CompiledExpression> entry : expressions.entrySet()) {
+            names.add(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            bodies.add(encode(entry.getValue()));
+        }
+
+        long offset = 4 + 2 + 4;
+
+        for (byte[] name : names) {
+            offset += 4 + name.length + 8 + 4;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(names.size());
+
+            for (int i = 0; i < names.size(); i++) {
+                out.writeInt(names.get(i).length);
+                out.write(names.get(i));
+                out.writeLong(offset);
+                out.writeInt(bodies.get(i).length);
+                offset += bodies.get(i).length;
+            }
+
+            for (byte[] body : bodies) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * 引数として渡されたライブラリファイルをメモリへマップし、 {@link ExpressionLibrary} クラスの新しいインスタンスを生成し返却します。
+     * <p>
+     * このメソッドは索引のみを読み込み、式の復号は {@link #get(String)} メソッドの初回の呼び出し時に行われます。
+     *
+     * @param file ライブラリファイル
+     * @return {@link ExpressionLibrary} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException ファイルの形式が不正または対応していないバージョンの場合
+     * @exception IOException              ファイルの読み込みに失敗した場合
+     */
+    public static ExpressionLibrary open(@NonNull Path file) throws IOException {
+
+        final ByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not an expression library: " + file);
+            }
+
+            final short version = buffer.getShort();
+
+            if (version != VERSION && version != VERSION_WITHOUT_MATH_CONTEXT) {
+                throw new IllegalArgumentException("Unsupported expression library version: " + version);
+            }
+
+            final int count = readLength(buffer, Integer.BYTES + Long.BYTES + Integer.BYTES);
+
+            final Map<String, Integer> indexes = new LinkedHashMap<>();
+            final long[] offsets = new long[count];
+
+            for (int i = 0; i < count; i++) {
+                indexes.put(readString(buffer), i);
+                offsets[i] = buffer.getLong();
+                buffer.getInt();
+            }
+
+            return new ExpressionLibrary(version, buffer, Collections.unmodifiableMap(indexes), offsets);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Corrupted expression library: " + file, e);
+        }
+    }
+
+    /**
+     * ライブラリに格納された式の数を返却します。
+     *
+     * @return 式の数
+     */
+    public int size() {
+        return this.offsets.length;
+    }
+
+    /**
+     * ライブラリに格納された式の名前を書き込まれた順に返却します。
+     *
+     * @return 式の名前
+     */
+    public Set<String> getNames() {
+        return this.indexes.keySet();
+    }
+
+    /**
+     * 引数として渡された名前の式を返却します。式は初回の呼び出し時に復号され、以降の呼び出しでは同一のインスタンスが返却されます。
+     *
+     * @param name 式の名前
+     * @return 構文解析済みの式
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 名前に対応する式が存在しない場合、または式の形式が不正な場合
+     */
+    public CompiledExpression get(@NonNull String name) {
+
+        final Integer index = this.indexes.get(name);
+
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown expression: " + name);
+        }
+
+        CompiledExpression expression = this.expressions.get(index);
+
+        if (expression == null) {
+            expression = this.decode(name, this.offsets[index]);
+
+            if (!this.expressions.compareAndSet(index, null, expression)) {
+                expression = this.expressions.get(index);
+            }
+        }
+
+        return expression;
+    }
+
+    /**
+     * 引数として渡された位置に格納された式の本体を復号します。
+     *
+     * @param name   式の名前
+     * @param offset 本体の位置
+     * @return 構文解析済みの式
+     *
+     * @exception IllegalArgumentException 式の形式が不正な場合
+     */
+    private CompiledExpression decode(String name, long offset) {
+
+        final ByteBuffer body = this.buffer.duplicate();
+
+        try {
+            body.position(Math.toIntExact(offset));
+
+            final String expression = readString(body);
+            final MathContext mathContext = this.version == VERSION_WITHOUT_MATH_CONTEXT ? Neumann.DEFAULT_MATH_CONTEXT
+                    : new MathContext(body.getInt(), RoundingMode.values()[body.getInt()]);
+            final int variableCount = readLength(body, Integer.BYTES);
+            final List<String> variables = new ArrayList<>(variableCount);
+
+            for (int i = 0; i < variableCount; i++) {
+                variables.add(readString(body));
+            }
+
+            final OptimizationReport report = OptimizationReport.of(body.getInt(), body.getInt(), body.getInt(),
+                    body.getInt());
+            final int sharedCount = body.getInt();
+
+            final BigDecimal[] constants = new BigDecimal[readLength(body, Integer.BYTES + Integer.BYTES)];
+
+            for (int i = 0; i < constants.length; i++) {
+                final int scale = body.getInt();
+                final byte[] unscaled = new byte[readLength(body, Byte.BYTES)];
+                body.get(unscaled);
+                constants[i] = new BigDecimal(new BigInteger(unscaled), scale);
+            }
+
+            final int[] code = new int[readLength(body, Integer.BYTES)];
+            body.asIntBuffer().get(code);
+
+            return CompiledExpression.of(Neumann.input(expression).withMathContext(mathContext),
+                    ExpressionProgram.of(code, constants, variables.size()), List.copyOf(variables), report,
+                    sharedCount);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NumberFormatException
+                | ArithmeticException e) {
+            throw new IllegalArgumentException("Corrupted expression: " + name, e);
+        }
+    }
+
+    /**
+     * 引数として渡された式の本体を符号化します。
+     *
+     * @param expression 構文解析済みの式
+     * @return 符号化した本体
+     *
+     * @exception UnsupportedOperationException 評価器が {@link Neumann} ではない場合
+     */
+    private static byte[] encode(CompiledExpression expression) {
+
+        if (!(expression.getEvaluator() instanceof Neumann)) {
+            throw new UnsupportedOperationException(
+                    "Only expressions evaluated by " + Neumann.class.getSimpleName() + " can be written");
+        }
+
+        final ExpressionProgram program = expression.getProgram();
+        final OptimizationReport report = expression.getOptimizationReport();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, expression.getExpression());
+            out.writeInt(expression.getMathContext().getPrecision());
+            out.writeInt(expression.getMathContext().getRoundingMode().ordinal());
+            out.writeInt(expression.getVariables().size());
+
+            for (String variable : expression.getVariables()) {
+                writeString(out, variable);
+            }
+
+            out.writeInt(report.getFoldedCount());
+            out.writeInt(report.getSimplifiedCount());
+            out.writeInt(report.getNodeCountBefore());
+            out.writeInt(report.getNodeCountAfter());
+            out.writeInt(expression.getSharedNodeCount());
+
+            final BigDecimal[] constants = program.getConstants();
+            out.writeInt(constants.length);
+
+            for (BigDecimal constant : constants) {
+                final byte[] unscaled = constant.unscaledValue().toByteArray();
+                out.writeInt(constant.scale());
+                out.writeInt(unscaled.length);
+                out.write(unscaled);
+            }
+
+            final int[] code = program.getCode();
+            out.writeInt(code.length);
+
+            for (int instruction : code) {
+                out.writeInt(instruction);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 文字列を UTF-8 で符号化したバイト数とバイト列として書き込みます。
+     *
+     * @param out   書き込み先
+     * @param value 文字列
+     * @throws IOException 書き込みに失敗した場合
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * UTF-8 で符号化したバイト数とバイト列として格納された文字列を読み込みます。
+     *
+     * @param buffer 読み込み元
+     * @return 文字列
+     */
+    private static String readString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[readLength(buffer, Byte.BYTES)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 要素の数として格納された値を読み込み、残りのバイト数に収まるか検査します。
+     * <p>
+     * 要素の数から配列を確保する前に呼び出し、破損した値により巨大な配列を確保することを防ぎます。
+     *
+     * @param buffer      読み込み元
+     * @param elementSize 一つの要素が占める最小のバイト数
+     * @return 要素の数
+     *
+     * @exception BufferUnderflowException 要素の数が負の値の場合、または残りのバイト数に収まらない場合
+     */
+    private static int readLength(ByteBuffer buffer, int elementSize) {
+
+        final int length = buffer.getInt();
+
+        if (length < 0 || length > buffer.remaining() / elementSize) {
+            throw new BufferUnderflowException();
+        }
+
+        return length;
+    }
+}
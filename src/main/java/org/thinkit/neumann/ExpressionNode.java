@@ -0,0 +1,275 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+
+import org.thinkit.neumann.catalog.MathematicalConstant;
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+import org.thinkit.neumann.catalog.NodePattern;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 構文解析済みの式を構成する構文木のノードを表現するクラスです。
+ * <p>
+ * このクラスは不変であり、生成後にノードの内容が変更されることはありません。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+@EqualsAndHashCode
+final class ExpressionNode {
+
+    /**
+     * 子ノードを持たないノードが共有する空の配列
+     */
+    private static final ExpressionNode[] NO_CHILDREN = new ExpressionNode[0];
+
+    /**
+     * ノードパターン
+     */
+    private final NodePattern nodePattern;
+
+    /**
+     * ノードの値
+     */
+    private final Object value;
+
+    /**
+     * 子ノード
+     */
+    private final ExpressionNode[] children;
+
+    /**
+     * コンストラクタ
+     *
+     * @param nodePattern ノードパターン
+     * @param value       ノードの値
+     * @param children    子ノード
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    private ExpressionNode(@NonNull NodePattern nodePattern, @NonNull Object value,
+            @NonNull ExpressionNode[] children) {
+        this.nodePattern = nodePattern;
+        this.value = value;
+        this.children = children;
+    }
+
+    /**
+     * 数値リテラルを表現する新しい {@link ExpressionNode} クラスのインスタンスを生成し返却します。
+     *
+     * @param literal 数値リテラル
+     * @return 数値リテラルを表現する新しい {@link ExpressionNode} クラスのインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static ExpressionNode of(@NonNull BigDecimal literal) {
+        return new ExpressionNode(NodePattern.LITERAL, literal, NO_CHILDREN);
+    }
+
+    /**
+     * 数学定数を表現する新しい {@link ExpressionNode} クラスのインスタンスを生成し返却します。
+     *
+     * @param constant 数学定数
+     * @return 数学定数を表現する新しい {@link ExpressionNode} クラスのインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static ExpressionNode of(@NonNull MathematicalConstant constant) {
+        return new ExpressionNode(NodePattern.CONSTANT, constant, NO_CHILDREN);
+    }
+
+    /**
+     * 演算子の適用を表現する新しい {@link ExpressionNode} クラスのインスタンスを生成し返却します。
+     *
+     * @param operator 演算子
+     * @param operands 被演算子
+     * @return 演算子の適用を表現する新しい {@link ExpressionNode} クラスのインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static ExpressionNode of(@NonNull MathematicalOperator operator, @NonNull ExpressionNode... operands) {
+        return new ExpressionNode(NodePattern.OPERATOR, operator, operands.clone());
+    }
+
+    /**
+     * 関数の適用を表現する新しい {@link ExpressionNode} クラスのインスタンスを生成し返却します。
+     *
+     * @param function  関数
+     * @param arguments 引数
+     * @return 関数の適用を表現する新しい {@link ExpressionNode} クラスのインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static ExpressionNode of(@NonNull MathematicalFunction function, @NonNull ExpressionNode... arguments) {
+        return new ExpressionNode(NodePattern.FUNCTION, function, arguments.clone());
+    }
+
+    /**
+     * 変数を表現する新しい {@link ExpressionNode} クラスのインスタンスを生成し返却します。
+     *
+     * @param slot 変数に割り当てられたスロット番号
+     * @return 変数を表現する新しい {@link ExpressionNode} クラスのインスタンス
+     */
+    public static ExpressionNode variable(int slot) {
+        return new ExpressionNode(NodePattern.VARIABLE, slot, NO_CHILDREN);
+    }
+
+    /**
+     * ノードパターンを返却します。
+     *
+     * @return ノードパターン
+     */
+    public NodePattern getNodePattern() {
+        return this.nodePattern;
+    }
+
+    /**
+     * ノードが数値リテラルであるか判定します。
+     *
+     * @return ノードが数値リテラルである場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    public boolean isLiteral() {
+        return this.nodePattern == NodePattern.LITERAL;
+    }
+
+    /**
+     * ノードが数学定数であるか判定します。
+     *
+     * @return ノードが数学定数である場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    public boolean isConstant() {
+        return this.nodePattern == NodePattern.CONSTANT;
+    }
+
+    /**
+     * ノードが演算子であるか判定します。
+     *
+     * @return ノードが演算子である場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    public boolean isOperator() {
+        return this.nodePattern == NodePattern.OPERATOR;
+    }
+
+    /**
+     * ノードが関数であるか判定します。
+     *
+     * @return ノードが関数である場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    public boolean isFunction() {
+        return this.nodePattern == NodePattern.FUNCTION;
+    }
+
+    /**
+     * ノードが変数であるか判定します。
+     *
+     * @return ノードが変数である場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    public boolean isVariable() {
+        return this.nodePattern == NodePattern.VARIABLE;
+    }
+
+    /**
+     * ノードの値を {@link BigDecimal} 型へ変換し返却します。
+     *
+     * @return {@link BigDecimal} 型のノードの値
+     *
+     * @exception ClassCastException ノードパターンが {@link NodePattern#LITERAL} ではない場合
+     */
+    public BigDecimal getLiteral() {
+        return (BigDecimal) this.value;
+    }
+
+    /**
+     * ノードの値を {@link MathematicalConstant} 型へ変換し返却します。
+     *
+     * @return {@link MathematicalConstant} 型のノードの値
+     *
+     * @exception ClassCastException ノードパターンが {@link NodePattern#CONSTANT} ではない場合
+     */
+    public MathematicalConstant getConstant() {
+        return (MathematicalConstant) this.value;
+    }
+
+    /**
+     * ノードの値を {@link MathematicalOperator} 型へ変換し返却します。
+     *
+     * @return {@link MathematicalOperator} 型のノードの値
+     *
+     * @exception ClassCastException ノードパターンが {@link NodePattern#OPERATOR} ではない場合
+     */
+    public MathematicalOperator getOperator() {
+        return (MathematicalOperator) this.value;
+    }
+
+    /**
+     * ノードの値を {@link MathematicalFunction} 型へ変換し返却します。
+     *
+     * @return {@link MathematicalFunction} 型のノードの値
+     *
+     * @exception ClassCastException ノードパターンが {@link NodePattern#FUNCTION} ではない場合
+     */
+    public MathematicalFunction getFunction() {
+        return (MathematicalFunction) this.value;
+    }
+
+    /**
+     * 変数に割り当てられたスロット番号を返却します。
+     *
+     * @return 変数のスロット番号
+     *
+     * @exception ClassCastException ノードパターンが {@link NodePattern#VARIABLE} ではない場合
+     */
+    public int getSlot() {
+        return (Integer) this.value;
+    }
+
+    /**
+     * 子ノードの数を返却します。
+     *
+     * @return 子ノードの数
+     */
+    public int getChildCount() {
+        return this.children.length;
+    }
+
+    /**
+     * 引数として渡されたインデックスに対応する子ノードを返却します。
+     *
+     * @param index 子ノードのインデックス
+     * @return 子ノード
+     *
+     * @exception ArrayIndexOutOfBoundsException インデックスが範囲外の場合
+     */
+    public ExpressionNode getChild(int index) {
+        return this.children[index];
+    }
+
+    /**
+     * 種類と値が等しく子ノードを持たないノードを返却します。
+     *
+     * @return 子ノードを除いたノード
+     */
+    public ExpressionNode withoutChildren() {
+        return this.children.length == 0 ? this : new ExpressionNode(this.nodePattern, this.value, NO_CHILDREN);
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+import org.thinkit.neumann.catalog.NumericMode;
+
+import lombok.NonNull;
+
+/**
+ * 構文木に対して定数の畳み込みと恒等式による簡約を行うクラスです。
+ * <p>
+ * 子ノードが全てリテラルである演算子と関数の適用、および数学定数は評価器を使用して構文解析時に一度だけ評価され、リテラルへ置換されます。
+ * 評価器の演算規則がそのまま使用されるため、畳み込みの前後で評価結果は変化しません。畳み込み時に {@link ArithmeticException}
+ * が送出された場合は評価時に同一の例外が送出されるよう、そのノードは畳み込まれません。
+ * <p>
+ * 畳み込みに続けて以下の恒等式による簡約を行います。いずれも {@link BigDecimal} の値を変化させない変換です。
+ * <ul>
+ * <li>{@code x * 1} 、 {@code 1 * x} 、 {@code x / 1} を {@code x} へ置換</li>
+ * <li>{@code x + 0} 、 {@code 0 + x} 、 {@code x - 0} を {@code x} へ置換</li>
+ * <li>{@code !!x} を {@code x} へ置換</li>
+ * </ul>
+ * <p>
+ * 評価器が {@link Neumann} の場合は最後に以下の特殊化を行います。
+ * <ul>
+ * <li>指数が {@code 1} から {@value #MAX_UNROLLED_EXPONENT} までの整数リテラルである {@code x ^ n} を、部分式を共有した乗算の連鎖を
+ * {@code round} で丸める形へ置換 ( {@code x ^ 4} は {@code round((x * x) * (x * x))} )</li>
+ * <li>指数が {@code 0.5} のリテラルである {@code x ^ 0.5} を {@code sqrt(x)} へ置換</li>
+ * <li>引数の数が {@value #MAX_UNROLLED_ARGUMENTS} 以下の {@code sum} と {@code avg} を {@code +} の連鎖と引数の数による {@code /}
+ * へ展開</li>
+ * </ul>
+ * 乗算の連鎖は部分式のインスタンスを共有するため、構文木の大きさは指数ではなく指数の桁数に比例し、最適化後のノード数は共有されたインスタンスを一度だけ数えます。
+ * 乗算の連鎖は正確な積を演算規則で一度だけ丸めるため、 {@code BigDecimalMath.pow} による評価結果とは二重の丸めが生じる稀な場合に最後の桁が異なることがあります。
+ * {@code sqrt} も同じく演算規則の精度で評価されます。 {@code sum} と {@code avg} の展開は加算の順序と除算を変えないため評価結果は変化しません。
+ * <p>
+ * 評価器の数値表現が {@link NumericMode#DOUBLE} の場合、畳み込みと特殊化は {@code double} 型の評価結果を変化させるため行われず、恒等式による簡約のみを行います。
+ * 数学定数、演算子、関数は全て評価時に {@code double} 型で評価されます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ExpressionOptimizer {
+
+    /**
+     * 乗算の連鎖へ置換する指数の最大値
+     */
+    private static final int MAX_UNROLLED_EXPONENT = 8;
+
+    /**
+     * 展開する {@code sum} と {@code avg} の引数の数の最大値
+     */
+    private static final int MAX_UNROLLED_ARGUMENTS = 8;
+
+    /**
+     * {@code sqrt} へ置換する指数
+     */
+    private static final BigDecimal SQUARE_ROOT_EXPONENT = new BigDecimal("0.5");
+
+    /**
+     * 畳み込みに使用する評価器
+     */
+    private final Evaluator evaluator;
+
+    /**
+     * 畳み込みと特殊化を行うか
+     */
+    private final boolean folding;
+
+    /**
+     * 畳み込まれた数学定数、演算子、関数の数
+     */
+    private int foldedCount;
+
+    /**
+     * 恒等式により除去された演算子、および特殊化された演算子と関数の数
+     */
+    private int simplifiedCount;
+
+    /**
+     * 最適化前の構文木のノード数
+     */
+    private int nodeCountBefore;
+
+    /**
+     * 最適化後の構文木のノード数
+     */
+    private int nodeCountAfter;
+
+    /**
+     * コンストラクタ
+     *
+     * @param evaluator 畳み込みに使用する評価器
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    private ExpressionOptimizer(@NonNull Evaluator evaluator) {
+        this.evaluator = evaluator;
+        this.folding = evaluator.getNumericMode() == NumericMode.DECIMAL;
+    }
+
+    /**
+     * 引数として渡された評価器で畳み込みを行う {@link ExpressionOptimizer} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param evaluator 畳み込みに使用する評価器
+     * @return {@link ExpressionOptimizer} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static ExpressionOptimizer of(@NonNull Evaluator evaluator) {
+        return new ExpressionOptimizer(evaluator);
+    }
+
+    /**
+     * 引数として渡された構文木を最適化し、最適化後の構文木を返却します。
+     *
+     * @param root 構文木の根となるノード
+     * @return 最適化後の構文木の根となるノード
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public ExpressionNode optimize(@NonNull ExpressionNode root) {
+        this.nodeCountBefore += countNodes(root, Collections.newSetFromMap(new IdentityHashMap<>()));
+        final ExpressionNode optimized = this.visit(root);
+        this.nodeCountAfter += countNodes(optimized, Collections.newSetFromMap(new IdentityHashMap<>()));
+        return optimized;
+    }
+
+    /**
+     * これまでに行われた最適化の結果を返却します。
+     *
+     * @return 最適化の結果
+     */
+    public OptimizationReport getReport() {
+        return OptimizationReport.of(this.foldedCount, this.simplifiedCount, this.nodeCountBefore,
+                this.nodeCountAfter);
+    }
+
+    /**
+     * 引数として渡されたノードを根とする部分木を子ノードから順に最適化します。
+     *
+     * @param node 最適化するノード
+     * @return 最適化後のノード
+     */
+    private ExpressionNode visit(ExpressionNode node) {
+
+        if (node.isLiteral() || node.isVariable()) {
+            return node;
+        }
+
+        if (node.isConstant()) {
+
+            if (!this.folding) {
+                return node;
+            }
+
+            final BigDecimal value = this.evaluator.evaluate(node.getConstant());
+            this.foldedCount++;
+            return ExpressionNode.of(value);
+        }
+
+        final ExpressionNode[] children = new ExpressionNode[node.getChildCount()];
+        boolean constant = true;
+
+        for (int i = 0; i < children.length; i++) {
+            children[i] = this.visit(node.getChild(i));
+            constant &= children[i].isLiteral();
+        }
+
+        if (constant && this.folding) {
+            final ExpressionNode folded = this.fold(node, children);
+
+            if (folded != null) {
+                this.foldedCount++;
+                return folded;
+            }
+        }
+
+        final ExpressionNode optimized = node.isOperator() ? this.simplify(node.getOperator(), children)
+                : ExpressionNode.of(node.getFunction(), children);
+
+        return this.folding && this.evaluator instanceof Neumann ? this.specialize(optimized) : optimized;
+    }
+
+    /**
+     * 子ノードが全てリテラルである演算子または関数の適用を評価し、評価結果のリテラルを返却します。
+     *
+     * @param node     畳み込むノード
+     * @param children 最適化後の子ノード
+     * @return 評価結果のリテラル、評価できない場合は {@code null}
+     */
+    private ExpressionNode fold(ExpressionNode node, ExpressionNode[] children) {
+
+        final BigDecimal[] arguments = new BigDecimal[children.length];
+
+        for (int i = 0; i < children.length; i++) {
+            arguments[i] = children[i].getLiteral();
+        }
+
+        try {
+            return ExpressionNode.of(node.isOperator()
+                    ? this.evaluator.evaluate(node.getOperator(), Arrays.asList(arguments).iterator())
+                    : this.evaluator.evaluate(node.getFunction(), Arrays.asList(arguments).iterator()));
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 恒等式により演算子の適用を簡約します。
+     *
+     * @param operator 演算子
+     * @param operands 最適化後の被演算子
+     * @return 簡約後のノード
+     */
+    private ExpressionNode simplify(MathematicalOperator operator, ExpressionNode[] operands) {
+
+        final ExpressionNode simplified = switch (operator) {
+            case NEGATE -> operands[0].isOperator() && operands[0].getOperator() == MathematicalOperator.NEGATE
+                    ? operands[0].getChild(0)
+                    : null;
+            case MULTIPLY -> isLiteral(operands[1], BigDecimal.ONE) ? operands[0]
+                    : isLiteral(operands[0], BigDecimal.ONE) ? operands[1] : null;
+            case DIVIDE -> isLiteral(operands[1], BigDecimal.ONE) ? operands[0] : null;
+            case PLUS -> isLiteral(operands[1], BigDecimal.ZERO) ? operands[0]
+                    : isLiteral(operands[0], BigDecimal.ZERO) ? operands[1] : null;
+            case MINUS -> isLiteral(operands[1], BigDecimal.ZERO) ? operands[0] : null;
+            default -> null;
+        };
+
+        if (simplified == null) {
+            return ExpressionNode.of(operator, operands);
+        }
+
+        this.simplifiedCount += operator == MathematicalOperator.NEGATE ? 2 : 1;
+        return simplified;
+    }
+
+    /**
+     * 累乗、 {@code sum} 、 {@code avg} をより軽量な演算の組み合わせへ特殊化します。
+     *
+     * @param node 特殊化するノード
+     * @return 特殊化後のノード、特殊化できない場合は引数として渡されたノード
+     */
+    private ExpressionNode specialize(ExpressionNode node) {
+
+        if (node.isOperator() && node.getOperator() == MathematicalOperator.EXPONENT && node.getChild(1).isLiteral()) {
+
+            final BigDecimal exponent = node.getChild(1).getLiteral();
+
+            if (exponent.compareTo(SQUARE_ROOT_EXPONENT) == 0) {
+                this.simplifiedCount++;
+                return ExpressionNode.of(MathematicalFunction.SQRT, new ExpressionNode[] { node.getChild(0) });
+            }
+
+            if (exponent.signum() > 0 && exponent.compareTo(BigDecimal.valueOf(MAX_UNROLLED_EXPONENT)) <= 0
+                    && exponent.stripTrailingZeros().scale() <= 0) {
+                this.simplifiedCount++;
+                return ExpressionNode.of(MathematicalFunction.ROUND,
+                        new ExpressionNode[] { power(node.getChild(0), exponent.intValue()) });
+            }
+        }
+
+        if (node.isFunction() && node.getChildCount() <= MAX_UNROLLED_ARGUMENTS
+                && (node.getFunction() == MathematicalFunction.SUM
+                        || node.getFunction() == MathematicalFunction.AVERAGE)) {
+
+            ExpressionNode sum = node.getChild(0);
+
+            for (int i = 1; i < node.getChildCount(); i++) {
+                sum = ExpressionNode.of(MathematicalOperator.PLUS, new ExpressionNode[] { sum, node.getChild(i) });
+            }
+
+            this.simplifiedCount++;
+
+            return node.getFunction() == MathematicalFunction.SUM ? sum
+                    : ExpressionNode.of(MathematicalOperator.DIVIDE,
+                            new ExpressionNode[] { sum, ExpressionNode.of(new BigDecimal(node.getChildCount())) });
+        }
+
+        return node;
+    }
+
+    /**
+     * 引数として渡された底の累乗を、部分式を共有した乗算の連鎖で表現します。
+     *
+     * @param base     底
+     * @param exponent {@code 1} 以上の指数
+     * @return 乗算の連鎖
+     */
+    private static ExpressionNode power(ExpressionNode base, int exponent) {
+
+        if (exponent == 1) {
+            return base;
+        }
+
+        final ExpressionNode half = power(base, exponent / 2);
+        final ExpressionNode square = ExpressionNode.of(MathematicalOperator.MULTIPLY,
+                new ExpressionNode[] { half, half });
+
+        return exponent % 2 == 0 ? square
+                : ExpressionNode.of(MathematicalOperator.MULTIPLY, new ExpressionNode[] { square, base });
+    }
+
+    /**
+     * 引数として渡されたノードが値と精度の両方が一致するリテラルであるか判定します。
+     *
+     * @param node  判定するノード
+     * @param value リテラルの値
+     * @return ノードが値と精度の両方が一致するリテラルの場合は {@code true} 、それ以外は {@code false}
+     */
+    private static boolean isLiteral(ExpressionNode node, BigDecimal value) {
+        return node.isLiteral() && node.getLiteral().equals(value);
+    }
+
+    /**
+     * 引数として渡されたノードを根とする部分木のうち、まだ数えていないノードのインスタンス数を返却します。
+     * <p>
+     * 特殊化により共有された部分木のインスタンスは一度だけ数えられます。
+     *
+     * @param node    根となるノード
+     * @param visited 数えたノードのインスタンス
+     * @return 部分木のノードのインスタンス数
+     */
+    private static int countNodes(ExpressionNode node, Set<ExpressionNode> visited) {
+
+        if (!visited.add(node)) {
+            return 0;
+        }
+
+        int count = 1;
+
+        for (int i = 0; i < node.getChildCount(); i++) {
+            count += countNodes(node.getChild(i), visited);
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.thinkit.neumann.catalog.Arity;
+import org.thinkit.neumann.catalog.CloseBracket;
+import org.thinkit.neumann.catalog.MathematicalConstant;
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+import org.thinkit.neumann.catalog.OperatorAssociativity;
+import org.thinkit.neumann.catalog.TokenPattern;
+
+import lombok.NonNull;
+
+/**
+ * 式を構文解析し {@link ExpressionNode} で表現される構文木へ変換するクラスです。
+ * <p>
+ * 構文解析は {@link ExpressionTokenizer} が切り出した字句に対して操車場アルゴリズムで行われ、式の構文に誤りがある場合は構文解析の時点で例外が送出されます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ExpressionParser {
+
+    /**
+     * 構文解析する式
+     */
+    private final String expression;
+
+    /**
+     * 式中に出現した変数名とスロット番号の対応
+     */
+    private final Map<String, Integer> variables = new LinkedHashMap<>();
+
+    /**
+     * コンストラクタ
+     *
+     * @param expression 構文解析する式
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    private ExpressionParser(@NonNull String expression) {
+        this.expression = expression;
+    }
+
+    /**
+     * 引数として渡された式を構文解析する {@link ExpressionParser} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param expression 構文解析する式
+     * @return {@link ExpressionParser} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static ExpressionParser of(@NonNull String expression) {
+        return new ExpressionParser(expression);
+    }
+
+    /**
+     * 式を構文解析し構文木の根となるノードを返却します。
+     *
+     * @return 構文木の根となるノード
+     *
+     * @exception IllegalArgumentException 式の構文に誤りがある場合
+     */
+    public ExpressionNode parse() {
+
+        final Deque<ExpressionNode> valueStack = new ArrayDeque<>();
+        final Deque<ExpressionToken> symbolStack = new ArrayDeque<>();
+        final Deque<Integer> valueSizeStack = new ArrayDeque<>();
+        final ExpressionTokenizer tokens = ExpressionTokenizer.of(this.expression);
+
+        TokenPattern previous = null;
+
+        while (tokens.next()) {
+
+            final TokenPattern current = this.toTokenPattern(tokens);
+
+            if (previous == TokenPattern.FUNCTION && current != TokenPattern.OPEN_BRACKET) {
+                throw new IllegalArgumentException("Open bracket is missing after function at position "
+                        + tokens.getStart());
+            }
+
+            switch (current) {
+                case OPEN_BRACKET -> symbolStack
+                        .push(ExpressionToken.of(TokenTable.getOpenBracket(tokens.getSymbol())));
+
+                case CLOSE_BRACKET -> {
+                    if (previous == null) {
+                        throw new IllegalArgumentException("expression can't start with a close bracket");
+                    }
+
+                    if (previous == TokenPattern.FUNCTION_ARGUMENT_SEPARATOR) {
+                        throw new IllegalArgumentException("argument is missing");
+                    }
+
+                    final CloseBracket closeBracket = TokenTable.getCloseBracket(tokens.getSymbol());
+                    boolean openBracketFound = false;
+
+                    while (!symbolStack.isEmpty()) {
+                        ExpressionToken sc = symbolStack.pop();
+                        if (sc.isOpenBracket()) {
+                            if (sc.getOpenBracket().getCode() == closeBracket.getCode()) {
+                                openBracketFound = true;
+                                break;
+                            } else {
+                                throw new IllegalArgumentException(
+                                        String.format("Invalid parenthesis match: %s and %s",
+                                                sc.getOpenBracket().getTag(), closeBracket.getTag()));
+                            }
+                        } else {
+                            this.output(valueStack, sc);
+                        }
+                    }
+
+                    if (!openBracketFound) {
+                        throw new IllegalArgumentException("Parentheses mismatched");
+                    }
+
+                    if (!symbolStack.isEmpty() && symbolStack.peek().isFunction()) {
+                        final int argumentCount = valueStack.size() - valueSizeStack.pop();
+                        this.output(valueStack, symbolStack.pop().getFunction(), argumentCount);
+                    }
+                }
+
+                case FUNCTION_ARGUMENT_SEPARATOR -> {
+                    if (previous == null) {
+                        throw new IllegalArgumentException(
+                                "expression can't start with a function argument separator");
+                    }
+
+                    if (previous == TokenPattern.OPEN_BRACKET
+                            || previous == TokenPattern.FUNCTION_ARGUMENT_SEPARATOR) {
+                        throw new IllegalArgumentException("argument is missing");
+                    }
+
+                    boolean pe = false;
+
+                    while (!symbolStack.isEmpty()) {
+                        if (symbolStack.peek().isOpenBracket()) {
+                            pe = true;
+                            break;
+                        } else {
+                            this.output(valueStack, symbolStack.pop());
+                        }
+                    }
+                    if (!pe) {
+                        throw new IllegalArgumentException("Separator or parentheses mismatched");
+                    } else {
+                        ExpressionToken openBracket = symbolStack.pop();
+                        ExpressionToken scopeToken = symbolStack.peek();
+                        symbolStack.push(openBracket);
+                        if (scopeToken == null || !scopeToken.isFunction()) {
+                            throw new IllegalArgumentException("Argument separator used outside of function scope");
+                        }
+                    }
+                }
+
+                case FUNCTION -> {
+                    symbolStack.push(ExpressionToken.of(this.toFunction(tokens)));
+                    valueSizeStack.push(valueStack.size());
+                }
+
+                case OPERATOR -> {
+                    final ExpressionToken expressionToken = ExpressionToken
+                            .of(TokenTable.getOperator(tokens.getSymbol()));
+
+                    while (!symbolStack.isEmpty()) {
+
+                        ExpressionToken sc = symbolStack.peek();
+
+                        if (sc.isOperator() && ((expressionToken.getOperator().getTag()
+                                .getAssociativity() == OperatorAssociativity.LEFT)
+                                && (expressionToken.getOperator().getTag().getPrecedence().getTag() <= sc
+                                        .getOperator().getTag().getPrecedence().getTag())
+                                || (expressionToken.getOperator().getTag().getPrecedence().getTag() < sc
+                                        .getOperator().getTag().getPrecedence().getTag()))) {
+                            this.output(valueStack, symbolStack.pop());
+                        } else {
+                            break;
+                        }
+                    }
+
+                    symbolStack.push(expressionToken);
+                }
+
+                default -> {
+                    if (previous == TokenPattern.LITERAL) {
+                        throw new IllegalArgumentException("A literal can't follow another literal");
+                    }
+
+                    valueStack.push(this.toLiteral(tokens));
+                }
+            }
+
+            previous = current;
+        }
+
+        if (previous == TokenPattern.FUNCTION) {
+            throw new IllegalArgumentException("Open bracket is missing after function at position "
+                    + tokens.getStart());
+        }
+
+        while (!symbolStack.isEmpty()) {
+
+            ExpressionToken sc = symbolStack.pop();
+
+            if (sc.isOpenBracket() || sc.isCloseBracket() || sc.isFunction()) {
+                throw new IllegalArgumentException("Parentheses mismatched");
+            }
+
+            this.output(valueStack, sc);
+        }
+
+        if (valueStack.size() != 1) {
+            throw new IllegalArgumentException("Invalid expression: " + this.expression);
+        }
+
+        return valueStack.pop();
+    }
+
+    /**
+     * 構文解析した式に出現した変数名をスロット番号の順に返却します。
+     * <p>
+     * スロット番号は変数が式中に初めて出現した順に {@code 0} から割り当てられます。このメソッドは {@link #parse()}
+     * メソッドの呼び出し後に使用してください。
+     *
+     * @return スロット番号の順に並べた変数名
+     */
+    public List<String> getVariables() {
+        return List.copyOf(this.variables.keySet());
+    }
+
+    /**
+     * 引数として渡された関数の適用を表現するノードを値のスタックへ追加します。
+     *
+     * @param values        値のスタック
+     * @param function      関数
+     * @param argumentCount 引数の数
+     *
+     * @exception IllegalArgumentException 引数の数が関数の項数と一致しない場合
+     */
+    private void output(Deque<ExpressionNode> values, MathematicalFunction function, int argumentCount) {
+
+        final Arity arity = function.getTag().getArity();
+
+        if (argumentCount < 1 || (arity == Arity.UNARY && argumentCount != 1)) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid argument count for %s: %d", function, argumentCount));
+        }
+
+        values.push(ExpressionNode.of(function, this.toArguments(values, argumentCount)));
+    }
+
+    /**
+     * 引数として渡された演算子のトークンに対応するノードを値のスタックへ追加します。
+     *
+     * @param values 値のスタック
+     * @param token  トークン
+     *
+     * @exception IllegalArgumentException 被演算子が不足している場合
+     */
+    private void output(Deque<ExpressionNode> values, ExpressionToken token) {
+        if (token.isOperator()) {
+            MathematicalOperator operator = token.getOperator();
+            values.push(ExpressionNode.of(operator,
+                    this.toArguments(values, this.toArgumentCount(operator.getTag().getArity()))));
+        }
+    }
+
+    /**
+     * 引数として渡された項数を引数の数へ変換します。
+     *
+     * @param arity 項数
+     * @return 引数の数
+     *
+     * @exception UnsupportedOperationException 演算子が対応していない項数の場合
+     */
+    private int toArgumentCount(@NonNull Arity arity) {
+        return switch (arity) {
+            case UNARY -> 1;
+            case BINARY -> 2;
+            case NULLARY, TERNARY, MULTIARY, FINITARY -> throw new UnsupportedOperationException();
+        };
+    }
+
+    /**
+     * 値のスタックから引数の数だけノードを取り出し、式中の出現順に並べた配列として返却します。
+     *
+     * @param values        値のスタック
+     * @param argumentCount 引数の数
+     * @return 式中の出現順に並べた引数の配列
+     *
+     * @exception IllegalArgumentException 値のスタックに必要な数のノードが存在しない場合
+     */
+    private ExpressionNode[] toArguments(Deque<ExpressionNode> values, int argumentCount) {
+
+        if (values.size() < argumentCount) {
+            throw new IllegalArgumentException("operand is missing");
+        }
+
+        final ExpressionNode[] arguments = new ExpressionNode[argumentCount];
+
+        for (int i = argumentCount - 1; i >= 0; i--) {
+            arguments[i] = values.pop();
+        }
+
+        return arguments;
+    }
+
+    /**
+     * 字句解析器が切り出した現在の字句を構文上のトークンパターンへ変換します。
+     * <p>
+     * 識別子は関数名と一致する場合は {@link TokenPattern#FUNCTION} 、それ以外の場合は数学定数または変数を表現する
+     * {@link TokenPattern#LITERAL} として扱われます。
+     *
+     * @param tokens 字句解析器
+     * @return トークンパターン
+     */
+    private TokenPattern toTokenPattern(ExpressionTokenizer tokens) {
+        return switch (tokens.getLexemePattern()) {
+            case NUMBER -> TokenPattern.LITERAL;
+            case IDENTIFIER -> this.toFunction(tokens) != null ? TokenPattern.FUNCTION : TokenPattern.LITERAL;
+            case OPERATOR -> TokenPattern.OPERATOR;
+            case OPEN_BRACKET -> TokenPattern.OPEN_BRACKET;
+            case CLOSE_BRACKET -> TokenPattern.CLOSE_BRACKET;
+            case FUNCTION_ARGUMENT_SEPARATOR -> TokenPattern.FUNCTION_ARGUMENT_SEPARATOR;
+        };
+    }
+
+    /**
+     * 字句解析器が切り出した現在のリテラルの字句を数値、数学定数、変数のいずれかを表現するノードへ変換します。
+     * <p>
+     * 変数には式中に初めて出現した順にスロット番号が割り当てられます。
+     *
+     * @param tokens 字句解析器
+     * @return リテラルを表現するノード
+     */
+    private ExpressionNode toLiteral(ExpressionTokenizer tokens) {
+
+        if (tokens.getNumber() != null) {
+            return ExpressionNode.of(tokens.getNumber());
+        }
+
+        final MathematicalConstant constant = TokenTable.getConstant(this.expression, tokens.getStart(),
+                tokens.getEnd());
+
+        if (constant != null) {
+            return ExpressionNode.of(constant);
+        }
+
+        return ExpressionNode
+                .variable(this.variables.computeIfAbsent(tokens.getText(), variable -> this.variables.size()));
+    }
+
+    /**
+     * 字句解析器が切り出した現在の識別子の字句に対応する関数を返却します。
+     *
+     * @param tokens 字句解析器
+     * @return 識別子に対応する関数。識別子が関数名ではない場合は {@code null}
+     */
+    private MathematicalFunction toFunction(ExpressionTokenizer tokens) {
+        return TokenTable.getFunction(this.expression, tokens.getStart(), tokens.getEnd());
+    }
+}
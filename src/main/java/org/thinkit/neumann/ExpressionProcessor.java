@@ -0,0 +1,490 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.thinkit.neumann.catalog.ColumnarBackend;
+
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 変数の値の行を購読し、式の集合を各行で評価した結果の行を発行する {@link Flow.Processor} です。
+ * <p>
+ * 評価器が保持する式は生成時に一度だけ {@link CompiledExpression} へ変換されます。入力の行は {@link #getVariables()}
+ * メソッドが返却する変数名の順に並べた値であり、出力の行は生成時に渡された評価器の順に並べた各式の評価結果です。
+ * <p>
+ * 受信した行は内部の列へ複写され、区間の大きさに達した時点、または要求した全ての行を受信した時点でまとめて列単位で評価されます。
+ * 上流への要求は下流から要求された行の数を超えないよう区間の大きさずつ行われるため、全ての行を保持することなく背圧が伝播されます。
+ * <p>
+ * 下流の購読者は一つのみ登録できます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public final class ExpressionProcessor implements Flow.Processor<double[], double[]> {
+
+    /**
+     * 変換した式
+     */
+    @ToString.Include
+    private final List<CompiledExpression> expressions;
+
+    /**
+     * 全ての式に出現した変数名
+     */
+    @ToString.Include
+    private final List<String> variables;
+
+    /**
+     * 区間の大きさ
+     */
+    @ToString.Include
+    private final int batchSize;
+
+    /**
+     * 変数名の順に並べた変数の値の列
+     */
+    private final double[][] columns;
+
+    /**
+     * 式ごとのスロット番号をインデックスとする変数の値の列
+     */
+    private final double[][][] expressionColumns;
+
+    /**
+     * 式ごとの評価結果の列
+     */
+    private final double[][] results;
+
+    /**
+     * 状態を保護するロック
+     */
+    private final Object lock = new Object();
+
+    /**
+     * 発行を逐次化するための未処理の要求の数
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * 評価済みで未発行の行
+     */
+    private final Queue<double[]> ready = new ArrayDeque<>();
+
+    /**
+     * 上流の購読
+     */
+    private Flow.Subscription upstream;
+
+    /**
+     * 下流の購読者
+     */
+    private Flow.Subscriber<? super double[]> downstream;
+
+    /**
+     * 列へ複写済みで未評価の行の数
+     */
+    private int buffered;
+
+    /**
+     * 下流から要求され未発行の行の数
+     */
+    private long demand;
+
+    /**
+     * 上流へ要求し未受信の行の数
+     */
+    private long requested;
+
+    /**
+     * 上流が完了したか
+     */
+    private boolean completed;
+
+    /**
+     * 下流へ通知する例外
+     */
+    private Throwable error;
+
+    /**
+     * 終了したか
+     */
+    private boolean terminated;
+
+    /**
+     * コンストラクタ
+     *
+     * @param expressions 変換した式
+     * @param batchSize   区間の大きさ
+     */
+    private ExpressionProcessor(List<CompiledExpression> expressions, int batchSize) {
+
+        final List<String> variables = CompiledExpression.collectVariables(expressions);
+
+        this.expressions = expressions;
+        this.variables = variables;
+        this.batchSize = batchSize;
+        this.columns = new double[variables.size()][batchSize];
+        this.expressionColumns = new double[expressions.size()][][];
+        this.results = new double[expressions.size()][batchSize];
+
+        for (int i = 0; i < expressions.size(); i++) {
+
+            final List<String> slots = expressions.get(i).getVariables();
+            this.expressionColumns[i] = new double[slots.size()][];
+
+            for (int j = 0; j < slots.size(); j++) {
+                this.expressionColumns[i][j] = this.columns[variables.indexOf(slots.get(j))];
+            }
+        }
+    }
+
+    /**
+     * 引数として渡された評価器が保持する式を変換し、各行で評価する {@link ExpressionProcessor} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param batchSize  まとめて評価する行の数の上限
+     * @param evaluators 評価対象の式と演算子、関数、数学定数の評価方法を提供する評価器
+     * @return {@link ExpressionProcessor} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 区間の大きさが {@code 1} より小さい場合、評価器が渡されなかった場合、または式の構文に誤りがある場合
+     */
+    public static ExpressionProcessor of(int batchSize, @NonNull Evaluator... evaluators) {
+
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive but was " + batchSize);
+        }
+
+        if (evaluators.length == 0) {
+            throw new IllegalArgumentException("At least one evaluator is required");
+        }
+
+        final List<CompiledExpression> expressions = new ArrayList<>(evaluators.length);
+
+        for (Evaluator evaluator : evaluators) {
+            expressions.add(CompiledExpression.of(evaluator));
+        }
+
+        return new ExpressionProcessor(Collections.unmodifiableList(expressions), batchSize);
+    }
+
+    /**
+     * 入力の行に並べる変数名を返却します。
+     * <p>
+     * 変数名は生成時に渡された評価器の順に、各式に出現した順で重複を除いて並べられます。
+     *
+     * @return 入力の行に並べる変数名
+     */
+    public List<String> getVariables() {
+        return this.variables;
+    }
+
+    /**
+     * 変換した式を生成時に渡された評価器の順に返却します。
+     *
+     * @return 変換した式
+     */
+    public List<CompiledExpression> getExpressions() {
+        return this.expressions;
+    }
+
+    @Override
+    public void subscribe(@NonNull Flow.Subscriber<? super double[]> subscriber) {
+
+        final boolean accepted;
+
+        synchronized (this.lock) {
+            accepted = this.downstream == null;
+
+            if (accepted) {
+                this.downstream = subscriber;
+            }
+        }
+
+        if (!accepted) {
+            subscriber.onSubscribe(new Subscription(false));
+            subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+            return;
+        }
+
+        subscriber.onSubscribe(new Subscription(true));
+        this.drain();
+    }
+
+    @Override
+    public void onSubscribe(@NonNull Flow.Subscription subscription) {
+
+        synchronized (this.lock) {
+            if (this.upstream != null) {
+                subscription.cancel();
+                return;
+            }
+
+            this.upstream = subscription;
+        }
+
+        this.drain();
+    }
+
+    @Override
+    public void onNext(@NonNull double[] row) {
+
+        synchronized (this.lock) {
+            if (this.terminated || this.error != null) {
+                return;
+            }
+
+            if (row.length < this.columns.length) {
+                this.error = new IllegalArgumentException(String.format(
+                        "Expected %d variable values but %d were given: %s", this.columns.length, row.length,
+                        this.variables));
+            } else {
+                for (int i = 0; i < this.columns.length; i++) {
+                    this.columns[i][this.buffered] = row[i];
+                }
+
+                this.buffered++;
+                this.requested--;
+
+                if (this.buffered == this.batchSize || this.requested <= 0) {
+                    this.evaluate();
+                }
+            }
+        }
+
+        this.drain();
+    }
+
+    @Override
+    public void onError(@NonNull Throwable throwable) {
+
+        synchronized (this.lock) {
+            if (this.error == null) {
+                this.error = throwable;
+            }
+        }
+
+        this.drain();
+    }
+
+    @Override
+    public void onComplete() {
+
+        synchronized (this.lock) {
+            this.completed = true;
+
+            if (this.buffered > 0) {
+                this.evaluate();
+            }
+        }
+
+        this.drain();
+    }
+
+    /**
+     * 列へ複写済みの行をまとめて評価し、評価結果の行を未発行の行へ追加します。
+     */
+    private void evaluate() {
+
+        final double[][] results = this.buffered == this.batchSize ? this.results
+                : new double[this.expressions.size()][this.buffered];
+
+        for (int i = 0; i < this.expressions.size(); i++) {
+            this.expressions.get(i).evaluateDouble(this.expressionColumns[i], results[i], ColumnarBackend.SCALAR);
+        }
+
+        for (int row = 0; row < this.buffered; row++) {
+
+            final double[] values = new double[this.expressions.size()];
+
+            for (int i = 0; i < values.length; i++) {
+                values[i] = results[i][row];
+            }
+
+            this.ready.add(values);
+        }
+
+        this.buffered = 0;
+    }
+
+    /**
+     * 上流の購読を解除し、保持している行を破棄します。
+     */
+    private void cancelUpstream() {
+
+        final Flow.Subscription subscription;
+
+        synchronized (this.lock) {
+            this.terminated = true;
+            this.ready.clear();
+            this.buffered = 0;
+            subscription = this.upstream;
+        }
+
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    /**
+     * 下流からの要求の範囲で評価結果の行を発行し、終了を通知し、上流へ次の区間を要求します。
+     * <p>
+     * 複数のスレッドから同時に呼び出された場合も、下流への通知と上流への要求は一つのスレッドから逐次に行われます。
+     */
+    private void drain() {
+
+        if (this.pending.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+
+        do {
+            while (true) {
+
+                final Flow.Subscriber<? super double[]> subscriber;
+                final Flow.Subscription subscription;
+                final double[] values;
+                final Throwable throwable;
+                final boolean complete;
+                long request = 0;
+
+                synchronized (this.lock) {
+                    subscriber = this.downstream;
+                    subscription = this.upstream;
+
+                    if (this.terminated || subscriber == null) {
+                        break;
+                    }
+
+                    throwable = this.error;
+                    values = throwable == null && this.demand > 0 ? this.ready.poll() : null;
+
+                    if (values != null) {
+                        this.demand--;
+                    }
+
+                    complete = throwable == null && values == null && this.completed && this.ready.isEmpty();
+                    this.terminated = throwable != null || complete;
+
+                    if (!this.terminated && values == null && subscription != null && !this.completed
+                            && this.requested <= 0 && this.demand > this.ready.size()) {
+                        request = Math.min(this.batchSize, this.demand - this.ready.size());
+                        this.requested = request;
+                    }
+
+                    if (this.terminated) {
+                        this.ready.clear();
+                    }
+                }
+
+                if (throwable != null) {
+                    if (subscription != null) {
+                        subscription.cancel();
+                    }
+
+                    subscriber.onError(throwable);
+                    break;
+                }
+
+                if (complete) {
+                    subscriber.onComplete();
+                    break;
+                }
+
+                if (values != null) {
+                    subscriber.onNext(values);
+                    continue;
+                }
+
+                if (request > 0) {
+                    subscription.request(request);
+                }
+
+                break;
+            }
+
+            missed = this.pending.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * 下流から要求された行の数を加算します。
+     *
+     * @param n 要求された行の数
+     */
+    private void request(long n) {
+
+        synchronized (this.lock) {
+            if (n <= 0) {
+                if (this.error == null) {
+                    this.error = new IllegalArgumentException("Request must be positive but was " + n);
+                }
+            } else {
+                this.demand = this.demand + n < 0 ? Long.MAX_VALUE : this.demand + n;
+            }
+        }
+
+        this.drain();
+    }
+
+    /**
+     * 下流の購読者へ渡す購読です。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     */
+    private final class Subscription implements Flow.Subscription {
+
+        /**
+         * 購読者として登録されたか
+         */
+        private final boolean accepted;
+
+        /**
+         * コンストラクタ
+         *
+         * @param accepted 購読者として登録されたか
+         */
+        private Subscription(boolean accepted) {
+            this.accepted = accepted;
+        }
+
+        @Override
+        public void request(long n) {
+            if (this.accepted) {
+                ExpressionProcessor.this.request(n);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (this.accepted) {
+                ExpressionProcessor.this.cancelUpstream();
+            }
+        }
+    }
+}
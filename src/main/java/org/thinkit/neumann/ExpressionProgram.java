@@ -0,0 +1,919 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.thinkit.neumann.catalog.Arity;
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 式を平坦な命令列として表現し、単一のループで評価するクラスです。
+ * <p>
+ * 命令列は {@link ExpressionGraph} のノードと一対一に対応し、 {@code n} 番目の命令の評価結果は {@code n}
+ * 番目のレジスタへ格納されます。各命令は {@code int} 型の配列へ以下の形式で格納されます。
+ * <ul>
+ * <li>{@link #LOAD_CONSTANT} 、定数プールの番号</li>
+ * <li>{@link #LOAD_VARIABLE} 、変数のスロット番号</li>
+ * <li>{@link #APPLY_OPERATOR} 、演算子のコード値、被演算子の数、被演算子のレジスタ番号の並び</li>
+ * <li>{@link #APPLY_FUNCTION} 、関数のコード値、引数の数、引数のレジスタ番号の並び</li>
+ * </ul>
+ * 評価時にはレジスタと引数の作業領域を合わせた配列を一度だけ確保し、トークンやイテレータを生成せずに命令列を先頭から実行します。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+@EqualsAndHashCode
+final class ExpressionProgram {
+
+    /**
+     * 定数プールの値をレジスタへ読み込む命令
+     */
+    static final int LOAD_CONSTANT = 0;
+
+    /**
+     * 変数の値をレジスタへ読み込む命令
+     */
+    static final int LOAD_VARIABLE = 1;
+
+    /**
+     * 演算子を適用する命令
+     */
+    static final int APPLY_OPERATOR = 2;
+
+    /**
+     * 関数を適用する命令
+     */
+    static final int APPLY_FUNCTION = 3;
+
+    /**
+     * 定数の逆数を乗じる {@code double} 型専用の命令
+     * <p>
+     * 定数による除算から {@link #evaluateDouble(double[])} が実行する命令列を生成する際にのみ使用され、
+     * {@link #APPLY_OPERATOR} と同じ長さで逆数の定数プール番号、被演算子の数、被演算子のレジスタ番号の並びを持ちます。
+     */
+    private static final int MULTIPLY_RECIPROCAL = 4;
+
+    /**
+     * 列単位の評価で一度に処理する行数
+     */
+    private static final int COLUMN_BLOCK_SIZE = 512;
+
+    /**
+     * コード値をインデックスとする演算子
+     */
+    private static final MathematicalOperator[] OPERATORS = new MathematicalOperator[MathematicalOperator
+            .values().length];
+
+    /**
+     * コード値をインデックスとする関数
+     */
+    private static final MathematicalFunction[] FUNCTIONS = new MathematicalFunction[MathematicalFunction
+            .values().length];
+
+    static {
+        for (MathematicalOperator operator : MathematicalOperator.values()) {
+            OPERATORS[operator.getCode()] = operator;
+        }
+
+        for (MathematicalFunction function : MathematicalFunction.values()) {
+            FUNCTIONS[function.getCode()] = function;
+        }
+    }
+
+    /**
+     * 命令列
+     */
+    private final int[] code;
+
+    /**
+     * 定数プール
+     */
+    private final BigDecimal[] constants;
+
+    /**
+     * レジスタの数
+     */
+    private final int registerCount;
+
+    /**
+     * 命令が取る引数の数の最大値
+     */
+    private final int maxArgumentCount;
+
+    /**
+     * {@code double} 型へ変換した定数プール
+     */
+    private final double[] doubleConstants;
+
+    /**
+     * {@code double} 型で実行する命令列
+     */
+    private final int[] doubleCode;
+
+    /**
+     * 命令の番号をインデックスとする命令列上の位置
+     */
+    private final int[] positions;
+
+    /**
+     * コンストラクタ
+     *
+     * @param code             命令列
+     * @param constants        定数プール
+     * @param registerCount    レジスタの数
+     * @param maxArgumentCount 命令が取る引数の数の最大値
+     */
+    private ExpressionProgram(int[] code, BigDecimal[] constants, int registerCount, int maxArgumentCount) {
+        this.code = code;
+        this.constants = constants;
+        this.registerCount = registerCount;
+        this.maxArgumentCount = maxArgumentCount;
+
+        final double[] doubleConstants = new double[constants.length + registerCount];
+        final int[] constantRegisters = new int[registerCount];
+        final int[] doubleCode = code.clone();
+        final int[] positions = new int[registerCount];
+        int constantCount = constants.length;
+
+        for (int i = 0; i < constants.length; i++) {
+            doubleConstants[i] = constants[i].doubleValue();
+        }
+
+        Arrays.fill(constantRegisters, -1);
+
+        for (int position = 0, register = 0; position < code.length; register++) {
+
+            positions[register] = position;
+
+            if (code[position] == LOAD_CONSTANT) {
+                constantRegisters[register] = code[position + 1];
+                position += 2;
+            } else if (code[position] == LOAD_VARIABLE) {
+                position += 2;
+            } else {
+                if (code[position] == APPLY_OPERATOR && OPERATORS[code[position + 1]] == MathematicalOperator.DIVIDE
+                        && constantRegisters[code[position + 4]] >= 0
+                        && isReciprocable(doubleConstants[constantRegisters[code[position + 4]]])) {
+                    doubleConstants[constantCount] = 1.0 / doubleConstants[constantRegisters[code[position + 4]]];
+                    doubleCode[position] = MULTIPLY_RECIPROCAL;
+                    doubleCode[position + 1] = constantCount++;
+                }
+
+                position += 3 + code[position + 2];
+            }
+        }
+
+        this.doubleConstants = Arrays.copyOf(doubleConstants, constantCount);
+        this.doubleCode = doubleCode;
+        this.positions = positions;
+    }
+
+    /**
+     * 引数として渡されたグラフを命令列へ変換し、 {@link ExpressionProgram} クラスの新しいインスタンスを生成し返却します。
+     * <p>
+     * 数学定数は引数として渡された評価器で変換時に評価され、定数プールへ格納されます。
+     *
+     * @param graph     変換するグラフ
+     * @param evaluator 数学定数の評価を行う評価器
+     * @return {@link ExpressionProgram} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static ExpressionProgram of(@NonNull ExpressionGraph graph, @NonNull Evaluator evaluator) {
+
+        final int[] code = new int[countCode(graph)];
+        final List<BigDecimal> constants = new ArrayList<>();
+        int position = 0;
+        int maxArgumentCount = 0;
+
+        for (int i = 0; i < graph.size(); i++) {
+
+            final ExpressionNode node = graph.getNode(i);
+
+            switch (node.getNodePattern()) {
+                case LITERAL, CONSTANT -> {
+                    code[position++] = LOAD_CONSTANT;
+                    code[position++] = constants.size();
+                    constants.add(node.isLiteral() ? node.getLiteral() : evaluator.evaluate(node.getConstant()));
+                }
+                case VARIABLE -> {
+                    code[position++] = LOAD_VARIABLE;
+                    code[position++] = node.getSlot();
+                }
+                case OPERATOR, FUNCTION -> {
+                    final int[] operands = graph.getOperands(i);
+                    code[position++] = node.isOperator() ? APPLY_OPERATOR : APPLY_FUNCTION;
+                    code[position++] = node.isOperator() ? node.getOperator().getCode()
+                            : node.getFunction().getCode();
+                    code[position++] = operands.length;
+                    System.arraycopy(operands, 0, code, position, operands.length);
+                    position += operands.length;
+                    maxArgumentCount = Math.max(maxArgumentCount, operands.length);
+                }
+            }
+        }
+
+        return new ExpressionProgram(code, constants.toArray(new BigDecimal[0]), graph.size(), maxArgumentCount);
+    }
+
+    /**
+     * 引数として渡された命令列と定数プールから {@link ExpressionProgram} クラスの新しいインスタンスを生成し返却します。
+     * <p>
+     * 命令列は {@link #getCode()} メソッドで取得した形式である必要があり、各命令の形式とレジスタ番号の範囲が検査されます。
+     *
+     * @param code          命令列
+     * @param constants     定数プール
+     * @param variableCount 変数の数
+     * @return {@link ExpressionProgram} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 命令列の形式が不正な場合
+     */
+    static ExpressionProgram of(@NonNull int[] code, @NonNull BigDecimal[] constants, int variableCount) {
+
+        int registerCount = 0;
+        int maxArgumentCount = 0;
+        int position = 0;
+
+        while (position < code.length) {
+
+            final int length = switch (code[position]) {
+                case LOAD_CONSTANT, LOAD_VARIABLE -> 2;
+                case APPLY_OPERATOR, APPLY_FUNCTION -> position + 2 < code.length ? 3 + code[position + 2] : 3;
+                default -> throw new IllegalArgumentException("Invalid instruction at position " + position);
+            };
+
+            if (position + length > code.length
+                    || !isValid(code, position, length, registerCount, constants.length, variableCount)) {
+                throw new IllegalArgumentException("Invalid instruction at position " + position);
+            }
+
+            if (length > 2) {
+                maxArgumentCount = Math.max(maxArgumentCount, length - 3);
+            }
+
+            position += length;
+            registerCount++;
+        }
+
+        if (registerCount == 0) {
+            throw new IllegalArgumentException("Program must contain at least one instruction");
+        }
+
+        return new ExpressionProgram(code.clone(), constants.clone(), registerCount, maxArgumentCount);
+    }
+
+    /**
+     * 命令列をグラフへ復元します。
+     *
+     * @param sharedCount 統合により共有された構文木のノード数
+     * @return 命令列と一対一に対応するノードを持つグラフ
+     */
+    ExpressionGraph toGraph(int sharedCount) {
+
+        final ExpressionNode[] nodes = new ExpressionNode[this.registerCount];
+        final int[][] operands = new int[this.registerCount][];
+        int position = 0;
+
+        for (int i = 0; i < nodes.length; i++) {
+            switch (this.code[position]) {
+                case LOAD_CONSTANT -> {
+                    nodes[i] = ExpressionNode.of(this.constants[this.code[position + 1]]);
+                    operands[i] = new int[0];
+                    position += 2;
+                }
+                case LOAD_VARIABLE -> {
+                    nodes[i] = ExpressionNode.variable(this.code[position + 1]);
+                    operands[i] = new int[0];
+                    position += 2;
+                }
+                default -> {
+                    final int count = this.code[position + 2];
+                    operands[i] = Arrays.copyOfRange(this.code, position + 3, position + 3 + count);
+                    nodes[i] = this.code[position] == APPLY_OPERATOR
+                            ? ExpressionNode.of(OPERATORS[this.code[position + 1]])
+                            : ExpressionNode.of(FUNCTIONS[this.code[position + 1]]);
+                    position += 3 + count;
+                }
+            }
+        }
+
+        return ExpressionGraph.of(nodes, operands, sharedCount);
+    }
+
+    /**
+     * 引数として渡されたコード値に対応する演算子を返却します。
+     *
+     * @param code 演算子のコード値
+     * @return 演算子
+     */
+    static MathematicalOperator toOperator(int code) {
+        return OPERATORS[code];
+    }
+
+    /**
+     * 引数として渡されたコード値に対応する関数を返却します。
+     *
+     * @param code 関数のコード値
+     * @return 関数
+     */
+    static MathematicalFunction toFunction(int code) {
+        return FUNCTIONS[code];
+    }
+
+    /**
+     * レジスタの数を返却します。
+     *
+     * @return レジスタの数
+     */
+    int getRegisterCount() {
+        return this.registerCount;
+    }
+
+    /**
+     * 命令列を返却します。
+     *
+     * @return 命令列
+     */
+    public int[] getCode() {
+        return this.code.clone();
+    }
+
+    /**
+     * 定数プールを返却します。
+     *
+     * @return 定数プール
+     */
+    public BigDecimal[] getConstants() {
+        return this.constants.clone();
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、命令列を実行した結果を返却します。
+     *
+     * @param evaluator 演算子と関数の評価を行う評価器
+     * @param variables スロット番号をインデックスとする変数の値
+     * @return 最後の命令の評価結果
+     */
+    public BigDecimal evaluate(@NonNull Evaluator evaluator, @NonNull BigDecimal[] variables) {
+        return this.execute(evaluator, variables)[this.registerCount - 1];
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、命令列を一度だけ実行した結果から指定されたレジスタの値を返却します。
+     * <p>
+     * 複数の式を一つのグラフへ統合した命令列で各式の評価結果を取得する際に使用され、式の間で共有された部分式は一度だけ評価されます。
+     *
+     * @param evaluator 演算子と関数の評価を行う評価器
+     * @param variables スロット番号をインデックスとする変数の値
+     * @param outputs   評価結果を取得するレジスタ番号
+     * @return レジスタ番号の順に並べた評価結果
+     */
+    public BigDecimal[] evaluate(@NonNull Evaluator evaluator, @NonNull BigDecimal[] variables,
+            @NonNull int[] outputs) {
+
+        final BigDecimal[] registers = this.execute(evaluator, variables);
+        final BigDecimal[] results = new BigDecimal[outputs.length];
+
+        for (int i = 0; i < outputs.length; i++) {
+            results[i] = registers[outputs[i]];
+        }
+
+        return results;
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、命令列を実行した後のレジスタを返却します。
+     * <p>
+     * 返却される配列は {@link #evaluate(Evaluator, BigDecimal[], BigDecimal[], int)} メソッドへそのまま渡すことができます。
+     *
+     * @param evaluator 演算子と関数の評価を行う評価器
+     * @param variables スロット番号をインデックスとする変数の値
+     * @return 命令の番号をインデックスとする評価結果と引数の作業領域を合わせた配列
+     */
+    BigDecimal[] execute(@NonNull Evaluator evaluator, @NonNull BigDecimal[] variables) {
+
+        final int[] code = this.code;
+        final int arguments = this.registerCount;
+        final BigDecimal[] registers = new BigDecimal[arguments + this.maxArgumentCount];
+        int register = 0;
+        int position = 0;
+
+        while (position < code.length) {
+            switch (code[position]) {
+                case LOAD_CONSTANT -> {
+                    registers[register] = this.constants[code[position + 1]];
+                    position += 2;
+                }
+                case LOAD_VARIABLE -> {
+                    registers[register] = variables[code[position + 1]];
+                    position += 2;
+                }
+                default -> {
+                    final int count = code[position + 2];
+
+                    for (int i = 0; i < count; i++) {
+                        registers[arguments + i] = registers[code[position + 3 + i]];
+                    }
+
+                    registers[register] = code[position] == APPLY_OPERATOR
+                            ? evaluator.evaluate(OPERATORS[code[position + 1]], registers, arguments, count)
+                            : evaluator.evaluate(FUNCTIONS[code[position + 1]], registers, arguments, count);
+                    position += 3 + count;
+                }
+            }
+
+            register++;
+        }
+
+        return registers;
+    }
+
+    /**
+     * 引数として渡された番号の命令のみを、レジスタに格納済みの被演算子の値で評価した結果を返却します。
+     * <p>
+     * レジスタは {@link #execute(Evaluator, BigDecimal[])} メソッドが返却した配列である必要があり、引数の作業領域は上書きされます。
+     * 評価結果はレジスタへ格納されません。
+     *
+     * @param evaluator 演算子と関数の評価を行う評価器
+     * @param variables スロット番号をインデックスとする変数の値
+     * @param registers 命令の番号をインデックスとする評価結果と引数の作業領域を合わせた配列
+     * @param register  評価する命令の番号
+     * @return 命令の評価結果
+     */
+    BigDecimal evaluate(@NonNull Evaluator evaluator, @NonNull BigDecimal[] variables,
+            @NonNull BigDecimal[] registers, int register) {
+
+        final int[] code = this.code;
+        final int position = this.positions[register];
+
+        return switch (code[position]) {
+            case LOAD_CONSTANT -> this.constants[code[position + 1]];
+            case LOAD_VARIABLE -> variables[code[position + 1]];
+            default -> {
+                final int arguments = this.registerCount;
+                final int count = code[position + 2];
+
+                for (int i = 0; i < count; i++) {
+                    registers[arguments + i] = registers[code[position + 3 + i]];
+                }
+
+                yield code[position] == APPLY_OPERATOR
+                        ? evaluator.evaluate(OPERATORS[code[position + 1]], registers, arguments, count)
+                        : evaluator.evaluate(FUNCTIONS[code[position + 1]], registers, arguments, count);
+            }
+        };
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、命令列を {@code double} 型で実行した結果を返却します。
+     * <p>
+     * 演算は {@link Math} クラスの関数で行われ、 {@link BigDecimal} のインスタンスは生成されません。
+     * {@link MathematicalFunction#ROUND} は有効桁数への丸めを表現するため {@code double} 型の精度では値を変化させず、
+     * 零による除算は例外を送出せずに無限大または非数を返却します。
+     * 定数による除算は逆数を事前に計算した乗算として実行されるため、除算の結果とは最後の桁が異なることがあります。
+     *
+     * @param variables スロット番号をインデックスとする変数の値
+     * @return 最後の命令の評価結果
+     */
+    public double evaluateDouble(@NonNull double[] variables) {
+        return this.executeDouble(variables)[this.registerCount - 1];
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、命令列を {@code double} 型で一度だけ実行した結果から指定されたレジスタの値を返却します。
+     *
+     * @param variables スロット番号をインデックスとする変数の値
+     * @param outputs   評価結果を取得するレジスタ番号
+     * @return レジスタ番号の順に並べた評価結果
+     */
+    public double[] evaluateDouble(@NonNull double[] variables, @NonNull int[] outputs) {
+
+        final double[] registers = this.executeDouble(variables);
+        final double[] results = new double[outputs.length];
+
+        for (int i = 0; i < outputs.length; i++) {
+            results[i] = registers[outputs[i]];
+        }
+
+        return results;
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、命令列を {@code double} 型で実行した後のレジスタを返却します。
+     *
+     * @param variables スロット番号をインデックスとする変数の値
+     * @return 命令の番号をインデックスとする評価結果
+     */
+    private double[] executeDouble(double[] variables) {
+
+        final int[] code = this.doubleCode;
+        final double[] registers = new double[this.registerCount];
+        int register = 0;
+        int position = 0;
+
+        while (position < code.length) {
+            switch (code[position]) {
+                case LOAD_CONSTANT -> {
+                    registers[register] = this.doubleConstants[code[position + 1]];
+                    position += 2;
+                }
+                case LOAD_VARIABLE -> {
+                    registers[register] = variables[code[position + 1]];
+                    position += 2;
+                }
+                case APPLY_OPERATOR -> {
+                    final double left = registers[code[position + 3]];
+                    registers[register] = switch (OPERATORS[code[position + 1]]) {
+                        case NEGATE -> -left;
+                        case MINUS -> left - registers[code[position + 4]];
+                        case PLUS -> left + registers[code[position + 4]];
+                        case MULTIPLY -> left * registers[code[position + 4]];
+                        case DIVIDE -> left / registers[code[position + 4]];
+                        case EXPONENT -> Math.pow(left, registers[code[position + 4]]);
+                        case MODULO -> left % registers[code[position + 4]];
+                    };
+                    position += 3 + code[position + 2];
+                }
+                case MULTIPLY_RECIPROCAL -> {
+                    registers[register] = registers[code[position + 3]] * this.doubleConstants[code[position + 1]];
+                    position += 5;
+                }
+                default -> {
+                    registers[register] = applyDouble(FUNCTIONS[code[position + 1]], registers, code, position + 3,
+                            code[position + 2]);
+                    position += 3 + code[position + 2];
+                }
+            }
+
+            register++;
+        }
+
+        return registers;
+    }
+
+    /**
+     * スロット番号をインデックスとする列で変数の値を束縛し、指定された範囲の行の命令列を {@code double} 型で実行した結果を出力先の同じ位置へ格納します。
+     * <p>
+     * 行は {@value #COLUMN_BLOCK_SIZE} 行ずつの区間に分割され、各命令は区間の全ての行に対する単純なループとして実行されます。
+     * レジスタは区間の長さの列として一度だけ確保され、行ごとのオブジェクトは生成されません。各行の評価結果は
+     * {@link #evaluateDouble(double[])} メソッドの評価結果と一致します。
+     * <p>
+     * 演算子、 {@code abs} 、 {@code floor} 、 {@code ceil} 、 {@code sqrt} 、 {@code min} 、 {@code max}
+     * のループは引数として渡された {@link ColumnKernel} で実行され、それ以外の関数は一行ずつ評価されます。
+     *
+     * @param columns スロット番号をインデックスとする変数の値の列
+     * @param results 評価結果の出力先
+     * @param offset  評価する最初の行
+     * @param length  評価する行の数
+     * @param kernel  ループを提供する {@link ColumnKernel}
+     */
+    void evaluateDouble(@NonNull double[][] columns, @NonNull double[] results, int offset, int length,
+            @NonNull ColumnKernel kernel) {
+        this.evaluateColumns(offset, length, kernel,
+                (slot, start, target, size) -> System.arraycopy(columns[slot], start, target, 0, size),
+                (start, source, size) -> System.arraycopy(source, 0, results, start, size));
+    }
+
+    /**
+     * スロット番号をインデックスとする {@link DoubleBuffer} の列で変数の値を束縛し、指定された範囲の行の命令列を {@code double}
+     * 型で実行した結果を出力先の同じ位置へ格納します。
+     * <p>
+     * 行の位置は各バッファの現在の位置を起点とし、バッファの位置は変更されません。変数の値は区間ごとにバッファから直接レジスタへ読み込まれ、評価結果はレジスタから直接出力先へ書き込まれるため、
+     * 列全体をヒープ上の配列へ複写することはありません。各行の評価結果は {@link #evaluateDouble(double[])} メソッドの評価結果と一致します。
+     *
+     * @param columns スロット番号をインデックスとする変数の値の列
+     * @param results 評価結果の出力先
+     * @param offset  評価する最初の行
+     * @param length  評価する行の数
+     * @param kernel  ループを提供する {@link ColumnKernel}
+     */
+    void evaluateDouble(@NonNull DoubleBuffer[] columns, @NonNull DoubleBuffer results, int offset, int length,
+            @NonNull ColumnKernel kernel) {
+        this.evaluateColumns(offset, length, kernel,
+                (slot, start, target, size) -> columns[slot].get(columns[slot].position() + start, target, 0, size),
+                (start, source, size) -> results.put(results.position() + start, source, 0, size));
+    }
+
+    /**
+     * 指定された範囲の行を区間ごとに読み込み、命令列を列単位で実行した結果を書き込みます。
+     *
+     * @param offset 評価する最初の行
+     * @param length 評価する行の数
+     * @param kernel ループを提供する {@link ColumnKernel}
+     * @param reader 変数の値をレジスタへ読み込む処理
+     * @param writer 評価結果を出力先へ書き込む処理
+     */
+    private void evaluateColumns(int offset, int length, ColumnKernel kernel, ColumnReader reader,
+            ColumnWriter writer) {
+
+        final int[] code = this.doubleCode;
+        final double[][] registers = new double[this.registerCount][Math.min(length, COLUMN_BLOCK_SIZE)];
+
+        for (int position = 0, register = 0; position < code.length; register++) {
+            if (code[position] == LOAD_CONSTANT) {
+                Arrays.fill(registers[register], this.doubleConstants[code[position + 1]]);
+                position += 2;
+            } else {
+                position += code[position] == LOAD_VARIABLE ? 2 : 3 + code[position + 2];
+            }
+        }
+
+        for (int start = offset; start < offset + length; start += COLUMN_BLOCK_SIZE) {
+
+            final int size = Math.min(COLUMN_BLOCK_SIZE, offset + length - start);
+            int register = 0;
+            int position = 0;
+
+            while (position < code.length) {
+                switch (code[position]) {
+                    case LOAD_CONSTANT -> position += 2;
+                    case LOAD_VARIABLE -> {
+                        reader.read(code[position + 1], start, registers[register], size);
+                        position += 2;
+                    }
+                    case APPLY_OPERATOR -> {
+                        kernel.apply(OPERATORS[code[position + 1]], registers[register], registers[code[position + 3]],
+                                code[position + 2] > 1 ? registers[code[position + 4]] : null, size);
+                        position += 3 + code[position + 2];
+                    }
+                    case MULTIPLY_RECIPROCAL -> {
+                        kernel.multiply(registers[register], registers[code[position + 3]],
+                                this.doubleConstants[code[position + 1]], size);
+                        position += 5;
+                    }
+                    default -> {
+                        applyColumns(FUNCTIONS[code[position + 1]], registers[register], registers, code, position + 3,
+                                code[position + 2], size, kernel);
+                        position += 3 + code[position + 2];
+                    }
+                }
+
+                register++;
+            }
+
+            writer.write(start, registers[register - 1], size);
+        }
+    }
+
+    /**
+     * 関数を {@code double} 型の列の各行へ適用します。
+     *
+     * @param function  関数
+     * @param target    評価結果を格納する列
+     * @param registers レジスタの列
+     * @param code      命令列
+     * @param offset    引数のレジスタ番号の並びの位置
+     * @param count     引数の数
+     * @param size      評価する行の数
+     * @param kernel    ループを提供する {@link ColumnKernel}
+     */
+    private static void applyColumns(MathematicalFunction function, double[] target, double[][] registers, int[] code,
+            int offset, int count, int size, ColumnKernel kernel) {
+
+        final double[] argument = registers[code[offset]];
+
+        switch (function) {
+            case MIN, MAX, SUM, AVERAGE -> {
+                System.arraycopy(argument, 0, target, 0, size);
+
+                for (int j = 1; j < count; j++) {
+                    if (function == MathematicalFunction.MIN || function == MathematicalFunction.MAX) {
+                        kernel.apply(function, target, target, registers[code[offset + j]], size);
+                    } else {
+                        kernel.apply(MathematicalOperator.PLUS, target, target, registers[code[offset + j]], size);
+                    }
+                }
+
+                if (function == MathematicalFunction.AVERAGE) {
+                    for (int i = 0; i < size; i++) {
+                        target[i] /= count;
+                    }
+                }
+            }
+            case ROUND -> System.arraycopy(argument, 0, target, 0, size);
+            default -> {
+                if (!kernel.apply(function, target, argument, null, size)) {
+                    for (int i = 0; i < size; i++) {
+                        target[i] = applyDouble(function, argument[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 引数として渡された除数による除算を逆数の乗算へ置換できるか判定します。
+     * <p>
+     * 除数とその逆数の両方が零でない有限の正規化数である場合に置換可能と判定します。
+     *
+     * @param divisor 除数
+     * @return 置換できる場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    static boolean isReciprocable(double divisor) {
+        return Math.abs(divisor) >= Double.MIN_NORMAL && Double.isFinite(divisor)
+                && Math.abs(1.0 / divisor) >= Double.MIN_NORMAL && Double.isFinite(1.0 / divisor);
+    }
+
+    /**
+     * 関数を {@code double} 型で評価します。
+     *
+     * @param function  関数
+     * @param registers レジスタ
+     * @param code      命令列
+     * @param offset    引数のレジスタ番号の並びの位置
+     * @param count     引数の数
+     * @return 関数の評価結果
+     */
+    private static double applyDouble(MathematicalFunction function, double[] registers, int[] code, int offset,
+            int count) {
+
+        final double argument = registers[code[offset]];
+
+        return switch (function) {
+            case MIN -> {
+                double minimum = argument;
+
+                for (int i = 1; i < count; i++) {
+                    minimum = Math.min(minimum, registers[code[offset + i]]);
+                }
+
+                yield minimum;
+            }
+            case MAX -> {
+                double maximum = argument;
+
+                for (int i = 1; i < count; i++) {
+                    maximum = Math.max(maximum, registers[code[offset + i]]);
+                }
+
+                yield maximum;
+            }
+            case SUM, AVERAGE -> {
+                double sum = argument;
+
+                for (int i = 1; i < count; i++) {
+                    sum += registers[code[offset + i]];
+                }
+
+                yield function == MathematicalFunction.SUM ? sum : sum / count;
+            }
+            default -> applyDouble(function, argument);
+        };
+    }
+
+    /**
+     * 引数を一つ取る関数を {@code double} 型で評価します。
+     *
+     * @param function 関数
+     * @param argument 引数
+     * @return 関数の評価結果
+     */
+    private static double applyDouble(MathematicalFunction function, double argument) {
+        return switch (function) {
+            case CEIL -> Math.ceil(argument);
+            case FLOOR -> Math.floor(argument);
+            case ROUND -> argument;
+            case ABS -> Math.abs(argument);
+            case SINE -> Math.sin(argument);
+            case COSINE -> Math.cos(argument);
+            case TANGENT -> Math.tan(argument);
+            case ARC_SINE -> Math.asin(argument);
+            case ARC_COSINE -> Math.acos(argument);
+            case ARC_TANGENT -> Math.atan(argument);
+            case HYPERBOLIC_SINE -> Math.sinh(argument);
+            case HYPERBOLIC_COSINE -> Math.cosh(argument);
+            case HYPERBOLIC_TANGENT -> Math.tanh(argument);
+            case LOG -> Math.log(argument);
+            case SQRT -> Math.sqrt(argument);
+            default -> throw new UnsupportedOperationException("Unsupported function: " + function);
+        };
+    }
+
+    /**
+     * 引数として渡された位置の命令が参照する定数、演算子、関数、レジスタが有効であるか判定します。
+     *
+     * @param code          命令列
+     * @param position      命令の位置
+     * @param length        命令の長さ
+     * @param register      命令の評価結果を格納するレジスタ番号
+     * @param constantCount 定数プールの大きさ
+     * @param variableCount 変数の数
+     * @return 命令が有効な場合は {@code true} 、それ以外は {@code false}
+     */
+    private static boolean isValid(int[] code, int position, int length, int register, int constantCount,
+            int variableCount) {
+
+        final int operand = code[position + 1];
+
+        return switch (code[position]) {
+            case LOAD_CONSTANT -> operand >= 0 && operand < constantCount;
+            case LOAD_VARIABLE -> operand >= 0 && operand < variableCount;
+            default -> {
+                if (operand < 0 || operand >= (code[position] == APPLY_OPERATOR ? OPERATORS.length : FUNCTIONS.length)
+                        || length < 4) {
+                    yield false;
+                }
+
+                final Arity arity = code[position] == APPLY_OPERATOR ? OPERATORS[operand].getTag().getArity()
+                        : FUNCTIONS[operand].getTag().getArity();
+
+                if ((arity == Arity.UNARY && length != 4) || (code[position] == APPLY_OPERATOR
+                        && arity == Arity.BINARY && length != 5)) {
+                    yield false;
+                }
+
+                for (int i = position + 3; i < position + length; i++) {
+                    if (code[i] < 0 || code[i] >= register) {
+                        yield false;
+                    }
+                }
+
+                yield true;
+            }
+        };
+    }
+
+    /**
+     * 引数として渡されたグラフを変換した命令列の長さを返却します。
+     *
+     * @param graph 変換するグラフ
+     * @return 命令列の長さ
+     */
+    private static int countCode(ExpressionGraph graph) {
+
+        int length = 0;
+
+        for (int i = 0; i < graph.size(); i++) {
+            final ExpressionNode node = graph.getNode(i);
+            length += node.isOperator() || node.isFunction() ? 3 + graph.getOperands(i).length : 2;
+        }
+
+        return length;
+    }
+
+    /**
+     * 変数の値の列から区間の行をレジスタへ読み込む関数です。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     */
+    @FunctionalInterface
+    private interface ColumnReader {
+
+        /**
+         * 変数の値の列から区間の行をレジスタへ読み込みます。
+         *
+         * @param slot   変数のスロット番号
+         * @param start  区間の最初の行
+         * @param target 読み込み先のレジスタ
+         * @param size   区間の行の数
+         */
+        void read(int slot, int start, double[] target, int size);
+    }
+
+    /**
+     * 区間の評価結果を出力先へ書き込む関数です。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     */
+    @FunctionalInterface
+    private interface ColumnWriter {
+
+        /**
+         * 区間の評価結果を出力先へ書き込みます。
+         *
+         * @param start  区間の最初の行
+         * @param source 評価結果のレジスタ
+         * @param size   区間の行の数
+         */
+        void write(int start, double[] source, int size);
+    }
+}
@@ -14,36 +14,358 @@
 
 package org.thinkit.neumann;
 
-import java.util.StringTokenizer;
+import java.math.BigDecimal;
+
+import org.thinkit.neumann.catalog.LexemePattern;
 
-import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.ToString;
 
+/**
+ * 式を先頭から一度だけ走査し字句を切り出す字句解析器です。
+ * <p>
+ * 切り出された字句は {@link #next()} メソッドを呼び出す度に更新され、字句の種類は
+ * {@link #getLexemePattern()} メソッド、式中の位置は {@link #getStart()} メソッドと {@link #getEnd()}
+ * メソッドで取得できます。数値の字句は走査と同時に文字から直接 {@link BigDecimal} へ変換されるため、字句毎に中間の文字列が生成されることはありません。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
 @ToString
-@EqualsAndHashCode
 final class ExpressionTokenizer {
 
     /**
-     * 式の正規表現パターン
+     * 小数点
+     */
+    private static final char DECIMAL_POINT = '.';
+
+    /**
+     * 桁あふれを起こさずに10倍して1桁を加算できる符号なし整数の上限
+     */
+    private static final long UNSCALED_LIMIT = (Long.MAX_VALUE - 9) / 10;
+
+    /**
+     * 字句解析する式
+     */
+    private final CharSequence expression;
+
+    /**
+     * 次に走査する文字の位置
+     */
+    private int position;
+
+    /**
+     * 現在の字句の種類
+     */
+    private LexemePattern lexemePattern;
+
+    /**
+     * 現在の字句の開始位置
+     */
+    private int start;
+
+    /**
+     * 現在の字句の終了位置 (この位置の文字は含まない)
      */
-    private static final String REGEX_PATTERN = "[()-+*/^% ]";
+    private int end;
 
-    private StringTokenizer tokenizer;
+    /**
+     * 現在の字句が数値である場合の値
+     */
+    private BigDecimal number;
 
-    private ExpressionTokenizer(@NonNull String expression) {
-        this.tokenizer = new StringTokenizer(expression, REGEX_PATTERN, true);
+    /**
+     * コンストラクタ
+     *
+     * @param expression 字句解析する式
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    private ExpressionTokenizer(@NonNull CharSequence expression) {
+        this.expression = expression;
     }
 
-    public static ExpressionTokenizer of(@NonNull String expression) {
+    /**
+     * 引数として渡された式を字句解析する {@link ExpressionTokenizer} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param expression 字句解析する式
+     * @return {@link ExpressionTokenizer} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    public static ExpressionTokenizer of(@NonNull CharSequence expression) {
         return new ExpressionTokenizer(expression);
     }
 
-    public boolean hasMoreTokens() {
-        return this.tokenizer.hasMoreTokens();
+    /**
+     * 次の字句を切り出します。
+     * <p>
+     * 空白文字は読み飛ばされます。
+     *
+     * @return 次の字句が存在する場合は {@code true} 、式の終端に達した場合は {@code false}
+     *
+     * @exception IllegalArgumentException 字句として解釈できない文字が存在する場合
+     */
+    public boolean next() {
+
+        final int length = this.expression.length();
+
+        while (this.position < length && Character.isWhitespace(this.expression.charAt(this.position))) {
+            this.position++;
+        }
+
+        if (this.position >= length) {
+            this.lexemePattern = null;
+            this.start = this.end = length;
+            return false;
+        }
+
+        this.start = this.position;
+        this.number = null;
+
+        final char c = this.expression.charAt(this.position);
+
+        if (this.isDigit(c) || (c == DECIMAL_POINT && this.isDigitAt(this.position + 1))) {
+            this.lexemePattern = LexemePattern.NUMBER;
+            this.scanNumber();
+        } else if (Character.isLetter(c) || c == '_') {
+            this.lexemePattern = LexemePattern.IDENTIFIER;
+            this.scanIdentifier();
+        } else {
+            this.lexemePattern = this.toSymbolPattern(c);
+            this.position++;
+        }
+
+        this.end = this.position;
+
+        return true;
+    }
+
+    /**
+     * 現在の字句の種類を返却します。
+     *
+     * @return 現在の字句の種類。式の終端に達している場合は {@code null}
+     */
+    public LexemePattern getLexemePattern() {
+        return this.lexemePattern;
+    }
+
+    /**
+     * 現在の字句の式中における開始位置を返却します。
+     *
+     * @return 現在の字句の開始位置
+     */
+    public int getStart() {
+        return this.start;
+    }
+
+    /**
+     * 現在の字句の式中における終了位置を返却します。終了位置の文字は字句に含まれません。
+     *
+     * @return 現在の字句の終了位置
+     */
+    public int getEnd() {
+        return this.end;
+    }
+
+    /**
+     * 現在の字句の先頭の文字を返却します。
+     * <p>
+     * 演算子、括弧、引数の区切り文字は1文字で構成されるため、このメソッドで字句の内容を取得できます。
+     *
+     * @return 現在の字句の先頭の文字
+     */
+    public char getSymbol() {
+        return this.expression.charAt(this.start);
+    }
+
+    /**
+     * 現在の字句が数値である場合にその値を返却します。
+     *
+     * @return 現在の字句の数値。現在の字句が数値ではない場合は {@code null}
+     */
+    public BigDecimal getNumber() {
+        return this.number;
+    }
+
+    /**
+     * 現在の字句が引数として渡された文字列と一致するか判定します。
+     *
+     * @param text 比較する文字列
+     * @return 現在の字句が文字列と一致する場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    public boolean matches(@NonNull String text) {
+
+        if (text.length() != this.end - this.start) {
+            return false;
+        }
+
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) != this.expression.charAt(this.start + i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * 現在の字句を文字列として返却します。
+     * <p>
+     * このメソッドは呼び出しの度に新しい文字列を生成します。変数名の登録やエラーメッセージの生成など、文字列が必要な場合にのみ使用してください。
+     *
+     * @return 現在の字句の文字列
+     */
+    public String getText() {
+        return this.expression.subSequence(this.start, this.end).toString();
+    }
+
+    /**
+     * 数値の字句を走査し {@link #number} へ値を設定します。
+     * <p>
+     * 数値は {@code 12} 、 {@code 1.5} 、 {@code .5} 、 {@code 2e10} 、 {@code 2E-3} の形式に対応しています。仮数部が
+     * {@code long} の範囲に収まる場合は文字から直接値を算出し、範囲を超える場合のみ文字配列を経由して {@link BigDecimal} を生成します。
+     */
+    private void scanNumber() {
+
+        final int length = this.expression.length();
+
+        long unscaled = 0;
+        int scale = 0;
+        boolean overflow = false;
+
+        while (this.position < length && this.isDigit(this.expression.charAt(this.position))) {
+            if (unscaled <= UNSCALED_LIMIT) {
+                unscaled = unscaled * 10 + (this.expression.charAt(this.position) - '0');
+            } else {
+                overflow = true;
+            }
+            this.position++;
+        }
+
+        if (this.position < length && this.expression.charAt(this.position) == DECIMAL_POINT) {
+            this.position++;
+
+            while (this.position < length && this.isDigit(this.expression.charAt(this.position))) {
+                if (unscaled <= UNSCALED_LIMIT) {
+                    unscaled = unscaled * 10 + (this.expression.charAt(this.position) - '0');
+                    scale++;
+                } else {
+                    overflow = true;
+                }
+                this.position++;
+            }
+        }
+
+        if (this.position < length && (this.expression.charAt(this.position) == 'e'
+                || this.expression.charAt(this.position) == 'E')) {
+
+            int exponentStart = this.position + 1;
+            boolean negative = false;
+
+            if (exponentStart < length && (this.expression.charAt(exponentStart) == '+'
+                    || this.expression.charAt(exponentStart) == '-')) {
+                negative = this.expression.charAt(exponentStart) == '-';
+                exponentStart++;
+            }
+
+            if (this.isDigitAt(exponentStart)) {
+                this.position = exponentStart;
+
+                long exponent = 0;
+
+                while (this.position < length && this.isDigit(this.expression.charAt(this.position))) {
+                    if (exponent <= Integer.MAX_VALUE) {
+                        exponent = exponent * 10 + (this.expression.charAt(this.position) - '0');
+                    }
+                    this.position++;
+                }
+
+                final long adjusted = scale - (negative ? -exponent : exponent);
+
+                if (adjusted < Integer.MIN_VALUE || adjusted > Integer.MAX_VALUE) {
+                    overflow = true;
+                } else {
+                    scale = (int) adjusted;
+                }
+            }
+        }
+
+        this.number = overflow ? new BigDecimal(this.toCharArray(this.start, this.position))
+                : BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * 識別子の字句を走査します。
+     * <p>
+     * 識別子は英字またはアンダースコアで始まり、英数字またはアンダースコアで構成されます。
+     */
+    private void scanIdentifier() {
+
+        final int length = this.expression.length();
+
+        while (this.position < length && (Character.isLetterOrDigit(this.expression.charAt(this.position))
+                || this.expression.charAt(this.position) == '_')) {
+            this.position++;
+        }
+    }
+
+    /**
+     * 引数として渡された記号の文字に対応する字句の種類を返却します。
+     *
+     * @param c 記号の文字
+     * @return 字句の種類
+     *
+     * @exception IllegalArgumentException 記号として解釈できない文字が渡された場合
+     */
+    private LexemePattern toSymbolPattern(char c) {
+
+        final LexemePattern lexemePattern = TokenTable.getSymbolPattern(c);
+
+        if (lexemePattern == null) {
+            throw new IllegalArgumentException(
+                    String.format("Unexpected character '%s' at position %d", c, this.position));
+        }
+
+        return lexemePattern;
+    }
+
+    /**
+     * 引数として渡された文字が10進数の数字であるか判定します。
+     *
+     * @param c 文字
+     * @return 文字が数字である場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    private boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * 引数として渡された位置の文字が10進数の数字であるか判定します。
+     *
+     * @param index 文字の位置
+     * @return 位置が式の範囲内かつ文字が数字である場合は {@code true} 、それ以外の場合は {@code false}
+     */
+    private boolean isDigitAt(int index) {
+        return index < this.expression.length() && this.isDigit(this.expression.charAt(index));
     }
 
-    public String nextToken() {
-        return this.tokenizer.nextToken().trim();
+    /**
+     * 式の指定された範囲の文字を配列として返却します。
+     *
+     * @param from 開始位置
+     * @param to   終了位置 (この位置の文字は含まない)
+     * @return 範囲内の文字の配列
+     */
+    private char[] toCharArray(int from, int to) {
+
+        final char[] chars = new char[to - from];
+
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = this.expression.charAt(from + i);
+        }
+
+        return chars;
     }
 }
@@ -0,0 +1,737 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 式を固定小数点数で評価するクラスです。
+ * <p>
+ * 全ての値は宣言されたスケールの {@link BigDecimal} のスケールなしの値として {@code long} 型で表現され、リテラル、変数の値、各演算の結果は宣言された丸めモードで宣言されたスケールへ丸められます。
+ * 演算の途中で {@code long} 型の範囲を超えた場合、その評価のみ同一の規則で {@link BigDecimal} による評価へ切り替わるため、評価結果は常に
+ * {@link BigDecimal} による評価と一致します。
+ * <p>
+ * 使用できる演算子と関数は以下の通りです。
+ * <ul>
+ * <li>{@code !} 、 {@code +} 、 {@code -} 、 {@code *} 、 {@code /} 、 {@code %}</li>
+ * <li>{@code ceil} 、 {@code floor} 、 {@code round} 、 {@code abs} 、 {@code min} 、 {@code max} 、
+ * {@code sum} 、 {@code avg}</li>
+ * </ul>
+ * {@code round} は {@link Neumann} と同じく評価器の演算規則による丸めを表現します。
+ * <p>
+ * 評価器が {@link Neumann} の場合、指数が {@code 1} から {@code 8} までの整数リテラルである {@code x ^ n} も使用できます。
+ * この累乗は構文解析時の最適化で乗算の連鎖へ置換されるため ( {@code x ^ 3} は {@code round((x * x) * x)} )、
+ * 他の演算と同じく各乗算の積が宣言された丸めモードで宣言されたスケールへ丸められます。そのため正確な累乗を一度だけ丸めた値とは最後の桁が異なることがあります
+ * ( {@code 2.35 ^ 3} はスケール {@code 2} 、 {@link RoundingMode#HALF_UP} で {@code 12.97} となり、正確な値 {@code 12.977875} を丸めた
+ * {@code 12.98} とは異なります)。変数を指数とする累乗、および範囲外の指数の累乗は使用できません。
+ * <p>
+ * このクラスは複数のスレッドから同時に {@link #evaluate(BigDecimal...)} メソッドを呼び出すことができます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+public final class FixedPointExpression {
+
+    /**
+     * 宣言できるスケールの最大値
+     */
+    public static final int MAX_SCALE = 18;
+
+    /**
+     * 列単位の評価で一度に処理する行数
+     */
+    private static final int COLUMN_BLOCK_SIZE = 512;
+
+    /**
+     * 固定小数点数で評価できる演算子
+     */
+    private static final Set<MathematicalOperator> OPERATORS = EnumSet.of(MathematicalOperator.NEGATE,
+            MathematicalOperator.MINUS, MathematicalOperator.PLUS, MathematicalOperator.MULTIPLY,
+            MathematicalOperator.DIVIDE, MathematicalOperator.MODULO);
+
+    /**
+     * 固定小数点数で評価できる関数
+     */
+    private static final Set<MathematicalFunction> FUNCTIONS = EnumSet.of(MathematicalFunction.CEIL,
+            MathematicalFunction.FLOOR, MathematicalFunction.ROUND, MathematicalFunction.ABS,
+            MathematicalFunction.MIN, MathematicalFunction.MAX, MathematicalFunction.SUM,
+            MathematicalFunction.AVERAGE);
+
+    /**
+     * 命令列
+     */
+    private final int[] code;
+
+    /**
+     * 変数の数
+     */
+    private final int variableCount;
+
+    /**
+     * レジスタの数
+     */
+    private final int registerCount;
+
+    /**
+     * スケール
+     */
+    private final int scale;
+
+    /**
+     * 丸めモード
+     */
+    private final RoundingMode roundingMode;
+
+    /**
+     * {@code round} 関数に使用する演算規則
+     */
+    private final MathContext mathContext;
+
+    /**
+     * {@code 10} のスケール乗
+     */
+    private final long unit;
+
+    /**
+     * スケールへ丸めた定数プール
+     */
+    private final BigDecimal[] constants;
+
+    /**
+     * スケールへ丸めた定数プールのスケールなしの値
+     */
+    private final long[] unscaledConstants;
+
+    /**
+     * 定数プールの全ての値が {@code long} 型で表現できるか
+     */
+    private final boolean unscaledConstantsAvailable;
+
+    /**
+     * {@link BigDecimal} による評価へ切り替わった回数
+     */
+    @ToString.Exclude
+    private final LongAdder fallbackCount = new LongAdder();
+
+    /**
+     * コンストラクタ
+     *
+     * @param program       式を変換した命令列
+     * @param variableCount 変数の数
+     * @param scale         スケール
+     * @param roundingMode  丸めモード
+     * @param mathContext   {@code round} 関数に使用する演算規則
+     */
+    private FixedPointExpression(ExpressionProgram program, int variableCount, int scale, RoundingMode roundingMode,
+            MathContext mathContext) {
+        this.code = program.getCode();
+        this.variableCount = variableCount;
+        this.registerCount = program.getRegisterCount();
+        this.scale = scale;
+        this.roundingMode = roundingMode;
+        this.mathContext = mathContext;
+        this.unit = BigDecimal.ONE.movePointRight(scale).longValueExact();
+
+        final BigDecimal[] constants = program.getConstants();
+        this.constants = new BigDecimal[constants.length];
+        this.unscaledConstants = new long[constants.length];
+        boolean unscaledConstantsAvailable = true;
+
+        for (int i = 0; i < constants.length; i++) {
+            this.constants[i] = constants[i].setScale(scale, roundingMode);
+
+            if (this.constants[i].unscaledValue().bitLength() < Long.SIZE) {
+                this.unscaledConstants[i] = this.constants[i].unscaledValue().longValue();
+            } else {
+                unscaledConstantsAvailable = false;
+            }
+        }
+
+        this.unscaledConstantsAvailable = unscaledConstantsAvailable;
+    }
+
+    /**
+     * 引数として渡された命令列を固定小数点数で評価する {@link FixedPointExpression} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param program       式を変換した命令列
+     * @param variableCount 変数の数
+     * @param scale         スケール
+     * @param roundingMode  丸めモード
+     * @param mathContext   {@code round} 関数に使用する演算規則
+     * @return {@link FixedPointExpression} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException          引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException      スケールが {@code 0} 未満または {@link #MAX_SCALE} より大きい場合
+     * @exception UnsupportedOperationException 固定小数点数で評価できない演算子または関数が含まれる場合
+     */
+    static FixedPointExpression of(@NonNull ExpressionProgram program, int variableCount, int scale,
+            @NonNull RoundingMode roundingMode, @NonNull MathContext mathContext) {
+
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException(
+                    String.format("Scale must be between 0 and %d but was %d", MAX_SCALE, scale));
+        }
+
+        final int[] code = program.getCode();
+        int position = 0;
+
+        while (position < code.length) {
+            if (code[position] == ExpressionProgram.APPLY_OPERATOR
+                    && !OPERATORS.contains(ExpressionProgram.toOperator(code[position + 1]))) {
+                throw new UnsupportedOperationException("Unsupported operator in fixed point mode: "
+                        + ExpressionProgram.toOperator(code[position + 1]));
+            }
+
+            if (code[position] == ExpressionProgram.APPLY_FUNCTION
+                    && !FUNCTIONS.contains(ExpressionProgram.toFunction(code[position + 1]))) {
+                throw new UnsupportedOperationException("Unsupported function in fixed point mode: "
+                        + ExpressionProgram.toFunction(code[position + 1]));
+            }
+
+            position += code[position] == ExpressionProgram.APPLY_OPERATOR
+                    || code[position] == ExpressionProgram.APPLY_FUNCTION ? 3 + code[position + 2] : 2;
+        }
+
+        return new FixedPointExpression(program, variableCount, scale, roundingMode, mathContext);
+    }
+
+    /**
+     * スケールを返却します。
+     *
+     * @return スケール
+     */
+    public int getScale() {
+        return this.scale;
+    }
+
+    /**
+     * 丸めモードを返却します。
+     *
+     * @return 丸めモード
+     */
+    public RoundingMode getRoundingMode() {
+        return this.roundingMode;
+    }
+
+    /**
+     * {@code long} 型の範囲を超えたため {@link BigDecimal} による評価へ切り替わった回数を返却します。
+     *
+     * @return {@link BigDecimal} による評価へ切り替わった回数
+     */
+    public long getFallbackCount() {
+        return this.fallbackCount.sum();
+    }
+
+    /**
+     * スロット番号をインデックスとする配列で変数の値を束縛し、式を固定小数点数で評価した結果を返却します。
+     * <p>
+     * 変数の値は評価の前に宣言されたスケールへ丸められます。評価結果のスケールは常に宣言されたスケールと一致します。
+     *
+     * @param values スロット番号をインデックスとする変数の値
+     * @return 式の評価結果
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 変数の値の数が式中の変数の数より少ない場合
+     * @exception ArithmeticException      演算の結果が定義されない場合、または丸めモードが
+     *                                     {@link RoundingMode#UNNECESSARY} で丸めが必要な場合
+     */
+    public BigDecimal evaluate(@NonNull BigDecimal... values) {
+
+        if (values.length < this.variableCount) {
+            throw new IllegalArgumentException(String.format("Expected %d variable values but %d were given",
+                    this.variableCount, values.length));
+        }
+
+        final BigDecimal[] decimals = new BigDecimal[this.variableCount];
+        final long[] unscaled = new long[this.variableCount];
+        boolean unscaledAvailable = this.unscaledConstantsAvailable;
+
+        for (int i = 0; i < decimals.length; i++) {
+            decimals[i] = values[i].setScale(this.scale, this.roundingMode);
+
+            if (decimals[i].unscaledValue().bitLength() < Long.SIZE) {
+                unscaled[i] = decimals[i].unscaledValue().longValue();
+            } else {
+                unscaledAvailable = false;
+            }
+        }
+
+        if (unscaledAvailable) {
+            try {
+                return BigDecimal.valueOf(this.evaluateUnscaled(unscaled), this.scale);
+            } catch (ArithmeticException e) {
+                // 桁あふれの場合は BigDecimal による評価で同一の結果を求め、それ以外の場合は同一の例外が再び送出される
+            }
+        }
+
+        this.fallbackCount.increment();
+        return this.evaluateDecimal(decimals);
+    }
+
+    /**
+     * スロット番号をインデックスとする列で変数のスケールなしの値を束縛し、式を固定小数点数で評価したスケールなしの値を出力先へ格納します。
+     * <p>
+     * 変数の値と評価結果はいずれも宣言されたスケールのスケールなしの値であり、出力先の長さが評価する行の数となります。行は
+     * {@value #COLUMN_BLOCK_SIZE} 行ずつの区間に分割され、各命令は区間の全ての行に対するループとして実行されます。区間の途中で
+     * {@code long} 型の範囲を超えた場合はその区間のみ行ごとの評価へ切り替わるため、各行の評価結果は
+     * {@link #evaluate(BigDecimal...)} メソッドの評価結果と一致します。
+     *
+     * @param columns スロット番号をインデックスとする変数のスケールなしの値の列
+     * @param results 評価結果のスケールなしの値の出力先
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 列の数が式中の変数の数より少ない場合、または列の長さが出力先の長さより短い場合
+     * @exception ArithmeticException      演算の結果が定義されない場合、評価結果が {@code long} 型で表現できない場合、または丸めモードが
+     *                                     {@link RoundingMode#UNNECESSARY} で丸めが必要な場合
+     */
+    public void evaluate(@NonNull long[][] columns, @NonNull long[] results) {
+
+        if (columns.length < this.variableCount) {
+            throw new IllegalArgumentException(String.format("Expected %d variable columns but %d were given",
+                    this.variableCount, columns.length));
+        }
+
+        for (int i = 0; i < this.variableCount; i++) {
+            if (columns[i].length < results.length) {
+                throw new IllegalArgumentException(String.format("Column %d has %d rows but %d are required", i,
+                        columns[i].length, results.length));
+            }
+        }
+
+        final long[][] registers = new long[this.registerCount][Math.min(results.length, COLUMN_BLOCK_SIZE)];
+
+        for (int start = 0; start < results.length; start += COLUMN_BLOCK_SIZE) {
+
+            final int size = Math.min(COLUMN_BLOCK_SIZE, results.length - start);
+
+            if (this.unscaledConstantsAvailable) {
+                try {
+                    System.arraycopy(this.evaluateUnscaled(columns, start, size, registers), 0, results, start, size);
+                    continue;
+                } catch (ArithmeticException e) {
+                    // 区間の途中で桁あふれした場合は行ごとに評価し、桁あふれした行のみ BigDecimal による評価へ切り替える
+                }
+            }
+
+            final BigDecimal[] values = new BigDecimal[this.variableCount];
+
+            for (int row = start; row < start + size; row++) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = BigDecimal.valueOf(columns[i][row], this.scale);
+                }
+
+                results[row] = this.evaluate(values).unscaledValue().longValueExact();
+            }
+        }
+    }
+
+    /**
+     * 命令列を指定された区間の行のスケールなしの値で列ごとに評価します。
+     *
+     * @param columns   スロット番号をインデックスとする変数のスケールなしの値の列
+     * @param start     区間の最初の行
+     * @param size      区間の行の数
+     * @param registers レジスタの列
+     * @return 評価結果のスケールなしの値の列
+     *
+     * @exception ArithmeticException {@code long} 型の範囲を超えた場合、または演算の結果が定義されない場合
+     */
+    private long[] evaluateUnscaled(long[][] columns, int start, int size, long[][] registers) {
+
+        final int[] code = this.code;
+        int register = 0;
+        int position = 0;
+
+        while (position < code.length) {
+
+            final long[] target = registers[register];
+
+            switch (code[position]) {
+                case ExpressionProgram.LOAD_CONSTANT -> {
+                    Arrays.fill(target, 0, size, this.unscaledConstants[code[position + 1]]);
+                    position += 2;
+                }
+                case ExpressionProgram.LOAD_VARIABLE -> {
+                    System.arraycopy(columns[code[position + 1]], start, target, 0, size);
+                    position += 2;
+                }
+                case ExpressionProgram.APPLY_OPERATOR -> {
+                    final long[] left = registers[code[position + 3]];
+                    final long[] right = code[position + 2] > 1 ? registers[code[position + 4]] : null;
+
+                    switch (ExpressionProgram.toOperator(code[position + 1])) {
+                        case NEGATE -> {
+                            for (int i = 0; i < size; i++) {
+                                target[i] = Math.negateExact(left[i]);
+                            }
+                        }
+                        case MINUS -> {
+                            for (int i = 0; i < size; i++) {
+                                target[i] = Math.subtractExact(left[i], right[i]);
+                            }
+                        }
+                        case PLUS -> {
+                            for (int i = 0; i < size; i++) {
+                                target[i] = Math.addExact(left[i], right[i]);
+                            }
+                        }
+                        case MULTIPLY -> {
+                            for (int i = 0; i < size; i++) {
+                                target[i] = this.divide(Math.multiplyExact(left[i], right[i]), this.unit);
+                            }
+                        }
+                        case DIVIDE -> {
+                            for (int i = 0; i < size; i++) {
+                                target[i] = this.divide(Math.multiplyExact(left[i], this.unit), right[i]);
+                            }
+                        }
+                        case MODULO -> {
+                            for (int i = 0; i < size; i++) {
+                                target[i] = left[i] % right[i];
+                            }
+                        }
+                        default -> throw new UnsupportedOperationException();
+                    }
+
+                    position += 3 + code[position + 2];
+                }
+                default -> {
+                    final MathematicalFunction function = ExpressionProgram.toFunction(code[position + 1]);
+                    final int count = code[position + 2];
+
+                    final long[] argument = registers[code[position + 3]];
+
+                    switch (function) {
+                        case MIN, MAX -> {
+                            System.arraycopy(argument, 0, target, 0, size);
+
+                            for (int j = 1; j < count; j++) {
+                                final long[] other = registers[code[position + 3 + j]];
+
+                                for (int i = 0; i < size; i++) {
+                                    target[i] = function == MathematicalFunction.MIN ? Math.min(target[i], other[i])
+                                            : Math.max(target[i], other[i]);
+                                }
+                            }
+                        }
+                        case SUM, AVERAGE -> {
+                            System.arraycopy(argument, 0, target, 0, size);
+
+                            for (int j = 1; j < count; j++) {
+                                final long[] other = registers[code[position + 3 + j]];
+
+                                for (int i = 0; i < size; i++) {
+                                    target[i] = Math.addExact(target[i], other[i]);
+                                }
+                            }
+
+                            if (function == MathematicalFunction.AVERAGE) {
+                                for (int i = 0; i < size; i++) {
+                                    target[i] = this.divide(target[i], count);
+                                }
+                            }
+                        }
+                        default -> {
+                            for (int i = 0; i < size; i++) {
+                                target[i] = this.applyUnscaled(function, argument[i]);
+                            }
+                        }
+                    }
+
+                    position += 3 + count;
+                }
+            }
+
+            register++;
+        }
+
+        return registers[register - 1];
+    }
+
+    /**
+     * 命令列をスケールなしの値で評価します。
+     *
+     * @param variables スロット番号をインデックスとする変数のスケールなしの値
+     * @return 評価結果のスケールなしの値
+     *
+     * @exception ArithmeticException {@code long} 型の範囲を超えた場合、または演算の結果が定義されない場合
+     */
+    private long evaluateUnscaled(long[] variables) {
+
+        final int[] code = this.code;
+        final long[] registers = new long[this.registerCount];
+        int register = 0;
+        int position = 0;
+
+        while (position < code.length) {
+            switch (code[position]) {
+                case ExpressionProgram.LOAD_CONSTANT -> {
+                    registers[register] = this.unscaledConstants[code[position + 1]];
+                    position += 2;
+                }
+                case ExpressionProgram.LOAD_VARIABLE -> {
+                    registers[register] = variables[code[position + 1]];
+                    position += 2;
+                }
+                case ExpressionProgram.APPLY_OPERATOR -> {
+                    final long left = registers[code[position + 3]];
+                    registers[register] = switch (ExpressionProgram.toOperator(code[position + 1])) {
+                        case NEGATE -> Math.negateExact(left);
+                        case MINUS -> Math.subtractExact(left, registers[code[position + 4]]);
+                        case PLUS -> Math.addExact(left, registers[code[position + 4]]);
+                        case MULTIPLY -> this.divide(Math.multiplyExact(left, registers[code[position + 4]]),
+                                this.unit);
+                        case DIVIDE -> this.divide(Math.multiplyExact(left, this.unit), registers[code[position + 4]]);
+                        case MODULO -> left % registers[code[position + 4]];
+                        default -> throw new UnsupportedOperationException();
+                    };
+                    position += 3 + code[position + 2];
+                }
+                default -> {
+                    registers[register] = this.applyUnscaled(ExpressionProgram.toFunction(code[position + 1]),
+                            registers, position + 3, code[position + 2]);
+                    position += 3 + code[position + 2];
+                }
+            }
+
+            register++;
+        }
+
+        return registers[register - 1];
+    }
+
+    /**
+     * 関数をスケールなしの値で評価します。
+     *
+     * @param function  関数
+     * @param registers レジスタ
+     * @param offset    引数のレジスタ番号の並びの位置
+     * @param count     引数の数
+     * @return 関数の評価結果のスケールなしの値
+     *
+     * @exception ArithmeticException {@code long} 型の範囲を超えた場合
+     */
+    private long applyUnscaled(MathematicalFunction function, long[] registers, int offset, int count) {
+
+        final int[] code = this.code;
+        final long argument = registers[code[offset]];
+
+        return switch (function) {
+            case MIN -> {
+                long minimum = argument;
+
+                for (int i = 1; i < count; i++) {
+                    minimum = Math.min(minimum, registers[code[offset + i]]);
+                }
+
+                yield minimum;
+            }
+            case MAX -> {
+                long maximum = argument;
+
+                for (int i = 1; i < count; i++) {
+                    maximum = Math.max(maximum, registers[code[offset + i]]);
+                }
+
+                yield maximum;
+            }
+            case SUM, AVERAGE -> {
+                long sum = argument;
+
+                for (int i = 1; i < count; i++) {
+                    sum = Math.addExact(sum, registers[code[offset + i]]);
+                }
+
+                yield function == MathematicalFunction.SUM ? sum : this.divide(sum, count);
+            }
+            default -> this.applyUnscaled(function, argument);
+        };
+    }
+
+    /**
+     * 引数を一つ取る関数をスケールなしの値で評価します。
+     *
+     * @param function 関数
+     * @param argument 引数のスケールなしの値
+     * @return 関数の評価結果のスケールなしの値
+     *
+     * @exception ArithmeticException {@code long} 型の範囲を超えた場合
+     */
+    private long applyUnscaled(MathematicalFunction function, long argument) {
+        return switch (function) {
+            case CEIL -> Math.multiplyExact(-Math.floorDiv(-argument, this.unit), this.unit);
+            case FLOOR -> Math.multiplyExact(Math.floorDiv(argument, this.unit), this.unit);
+            case ROUND -> this.mathContext.getPrecision() >= 19 ? argument
+                    : BigDecimal.valueOf(argument, this.scale).round(this.mathContext)
+                            .setScale(this.scale, this.roundingMode).unscaledValue().longValueExact();
+            case ABS -> Math.absExact(argument);
+            default -> throw new UnsupportedOperationException();
+        };
+    }
+
+    /**
+     * 命令列を宣言されたスケールの {@link BigDecimal} で評価します。
+     *
+     * @param variables スロット番号をインデックスとする変数の値
+     * @return 式の評価結果
+     *
+     * @exception ArithmeticException 演算の結果が定義されない場合
+     */
+    private BigDecimal evaluateDecimal(BigDecimal[] variables) {
+
+        final int[] code = this.code;
+        final BigDecimal[] registers = new BigDecimal[this.registerCount];
+        int register = 0;
+        int position = 0;
+
+        while (position < code.length) {
+            switch (code[position]) {
+                case ExpressionProgram.LOAD_CONSTANT -> {
+                    registers[register] = this.constants[code[position + 1]];
+                    position += 2;
+                }
+                case ExpressionProgram.LOAD_VARIABLE -> {
+                    registers[register] = variables[code[position + 1]];
+                    position += 2;
+                }
+                case ExpressionProgram.APPLY_OPERATOR -> {
+                    final BigDecimal left = registers[code[position + 3]];
+                    registers[register] = switch (ExpressionProgram.toOperator(code[position + 1])) {
+                        case NEGATE -> left.negate();
+                        case MINUS -> left.subtract(registers[code[position + 4]]);
+                        case PLUS -> left.add(registers[code[position + 4]]);
+                        case MULTIPLY -> left.multiply(registers[code[position + 4]]).setScale(this.scale,
+                                this.roundingMode);
+                        case DIVIDE -> left.divide(registers[code[position + 4]], this.scale, this.roundingMode);
+                        case MODULO -> left.remainder(registers[code[position + 4]]);
+                        default -> throw new UnsupportedOperationException();
+                    };
+                    position += 3 + code[position + 2];
+                }
+                default -> {
+                    registers[register] = this.applyDecimal(ExpressionProgram.toFunction(code[position + 1]),
+                            registers, position + 3, code[position + 2]);
+                    position += 3 + code[position + 2];
+                }
+            }
+
+            register++;
+        }
+
+        return registers[register - 1];
+    }
+
+    /**
+     * 関数を宣言されたスケールの {@link BigDecimal} で評価します。
+     *
+     * @param function  関数
+     * @param registers レジスタ
+     * @param offset    引数のレジスタ番号の並びの位置
+     * @param count     引数の数
+     * @return 関数の評価結果
+     */
+    private BigDecimal applyDecimal(MathematicalFunction function, BigDecimal[] registers, int offset, int count) {
+
+        final int[] code = this.code;
+        final BigDecimal argument = registers[code[offset]];
+
+        return switch (function) {
+            case CEIL -> argument.setScale(0, RoundingMode.CEILING).setScale(this.scale);
+            case FLOOR -> argument.setScale(0, RoundingMode.FLOOR).setScale(this.scale);
+            case ROUND -> argument.round(this.mathContext).setScale(this.scale, this.roundingMode);
+            case ABS -> argument.abs();
+            case MIN -> {
+                BigDecimal minimum = argument;
+
+                for (int i = 1; i < count; i++) {
+                    minimum = minimum.min(registers[code[offset + i]]);
+                }
+
+                yield minimum;
+            }
+            case MAX -> {
+                BigDecimal maximum = argument;
+
+                for (int i = 1; i < count; i++) {
+                    maximum = maximum.max(registers[code[offset + i]]);
+                }
+
+                yield maximum;
+            }
+            case SUM, AVERAGE -> {
+                BigDecimal sum = argument;
+
+                for (int i = 1; i < count; i++) {
+                    sum = sum.add(registers[code[offset + i]]);
+                }
+
+                yield function == MathematicalFunction.SUM ? sum
+                        : sum.divide(BigDecimal.valueOf(count), this.scale, this.roundingMode);
+            }
+            default -> throw new UnsupportedOperationException();
+        };
+    }
+
+    /**
+     * 整数の除算を行い、商を丸めモードで整数へ丸めます。
+     *
+     * @param dividend 被除数
+     * @param divisor  除数
+     * @return 丸めた商
+     *
+     * @exception ArithmeticException 除数が {@code 0} の場合、または丸めモードが {@link RoundingMode#UNNECESSARY}
+     *                                で丸めが必要な場合
+     */
+    private long divide(long dividend, long divisor) {
+
+        final long quotient = dividend / divisor;
+        final long remainder = dividend % divisor;
+
+        if (remainder == 0) {
+            return quotient;
+        }
+
+        final int sign = (dividend < 0) == (divisor < 0) ? 1 : -1;
+        final long half = Math.abs(divisor) - Math.abs(remainder);
+        final int comparison = Long.compare(Math.abs(remainder), half);
+
+        final boolean increment = switch (this.roundingMode) {
+            case UP -> true;
+            case DOWN -> false;
+            case CEILING -> sign > 0;
+            case FLOOR -> sign < 0;
+            case HALF_UP -> comparison >= 0;
+            case HALF_DOWN -> comparison > 0;
+            case HALF_EVEN -> comparison > 0 || (comparison == 0 && (quotient & 1) != 0);
+            case UNNECESSARY -> throw new ArithmeticException("Rounding necessary");
+        };
+
+        return increment ? quotient + sign : quotient;
+    }
+}
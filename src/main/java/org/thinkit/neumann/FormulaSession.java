@@ -0,0 +1,374 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Objects;
+
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * {@link FormulaSet} の各ノードの評価結果を保持し、変数の値が更新された際にその変数に依存するノードのみを再評価するクラスです。
+ * <p>
+ * 生成時に全ての式が一度評価され、各ノードの評価結果が保持されます。 {@link #update(int, BigDecimal)}
+ * メソッドなどで変数の値を更新すると、更新された変数に依存するノードのみがトポロジカル順序で再評価され、評価結果が変化した式の番号が返却されます。
+ * 再評価したノードの評価結果が以前の値と等しい場合、そのノードに依存するノードの再評価は省略されます。値の比較は {@link BigDecimal#equals(Object)}
+ * で行われるため、数値が等しくスケールが異なる場合は変化したものとして扱われます。
+ * <p>
+ * 再評価中に例外が送出された場合、変数の値と各ノードの評価結果は更新前の状態へ戻されます。
+ * <p>
+ * このクラスは状態を持つため、複数のスレッドから同時に使用することはできません。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public final class FormulaSession {
+
+    /**
+     * 評価する式の集合
+     */
+    @ToString.Include
+    private final FormulaSet formulaSet;
+
+    /**
+     * 演算子、関数、数学定数の評価を行う評価器
+     */
+    private final Evaluator evaluator;
+
+    /**
+     * 全ての式を統合した命令列
+     */
+    private final ExpressionProgram program;
+
+    /**
+     * 式ごとの評価結果を保持するレジスタ番号
+     */
+    private final int[] outputs;
+
+    /**
+     * ノードごとの子ノードの番号
+     */
+    private final int[][] operands;
+
+    /**
+     * 共通のスロット番号ごとの変数に依存するノードの番号
+     */
+    private final BitSet[] dependents;
+
+    /**
+     * 共通のスロット番号をインデックスとする変数の値
+     */
+    @ToString.Include
+    private final BigDecimal[] values;
+
+    /**
+     * ノードの番号をインデックスとする評価結果と引数の作業領域を合わせた配列
+     */
+    private final BigDecimal[] registers;
+
+    /**
+     * 更新前のノードの評価結果
+     */
+    private final BigDecimal[] previous;
+
+    /**
+     * 再評価の対象となるノードの番号
+     */
+    private final BitSet candidates = new BitSet();
+
+    /**
+     * 評価結果が変化したノードの番号
+     */
+    private final BitSet changed = new BitSet();
+
+    /**
+     * 生成後に再評価したノードの数
+     */
+    @ToString.Include
+    private long recomputedCount;
+
+    /**
+     * コンストラクタ
+     *
+     * @param formulaSet 評価する式の集合
+     * @param values     共通のスロット番号をインデックスとする変数の値
+     */
+    private FormulaSession(FormulaSet formulaSet, BigDecimal[] values) {
+
+        final ExpressionGraph graph = formulaSet.getGraph();
+        final BitSet[] variables = new BitSet[graph.size()];
+
+        this.formulaSet = formulaSet;
+        this.evaluator = formulaSet.getEvaluator();
+        this.program = formulaSet.getProgram();
+        this.outputs = formulaSet.getOutputs();
+        this.operands = new int[graph.size()][];
+        this.dependents = new BitSet[values.length];
+        this.values = values;
+        this.registers = this.program.execute(this.evaluator, values);
+        this.previous = new BigDecimal[graph.size()];
+
+        for (int i = 0; i < values.length; i++) {
+            this.dependents[i] = new BitSet(graph.size());
+        }
+
+        for (int i = 0; i < graph.size(); i++) {
+
+            this.operands[i] = graph.getOperands(i);
+            variables[i] = new BitSet(values.length);
+
+            if (graph.getNode(i).isVariable()) {
+                variables[i].set(graph.getNode(i).getSlot());
+            }
+
+            for (int operand : this.operands[i]) {
+                variables[i].or(variables[operand]);
+            }
+
+            for (int slot = variables[i].nextSetBit(0); slot >= 0; slot = variables[i].nextSetBit(slot + 1)) {
+                this.dependents[slot].set(i);
+            }
+        }
+    }
+
+    /**
+     * 引数として渡された変数の値で全ての式を評価し、評価結果を保持する {@link FormulaSession} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param formulaSet 評価する式の集合
+     * @param values     共通のスロット番号をインデックスとする変数の初期値
+     * @return {@link FormulaSession} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 変数の値の数が全ての式に出現した変数の数より少ない場合
+     * @exception ArithmeticException      いずれかの演算の結果が定義されない場合
+     */
+    public static FormulaSession of(@NonNull FormulaSet formulaSet, @NonNull BigDecimal... values) {
+        formulaSet.checkValues(values.length);
+        return new FormulaSession(formulaSet, Arrays.copyOf(values, formulaSet.getVariables().size()));
+    }
+
+    /**
+     * 評価する式の集合を返却します。
+     *
+     * @return 評価する式の集合
+     */
+    public FormulaSet getFormulaSet() {
+        return this.formulaSet;
+    }
+
+    /**
+     * 引数として渡された変数名の現在の値を返却します。
+     *
+     * @param variable 変数名
+     * @return 変数の現在の値
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 全ての式に存在しない変数名が渡された場合
+     */
+    public BigDecimal getValue(@NonNull String variable) {
+        return this.values[this.formulaSet.getSlot(variable)];
+    }
+
+    /**
+     * 引数として渡された番号の式の現在の評価結果を返却します。
+     *
+     * @param index 生成時に渡された順の式の番号
+     * @return 式の現在の評価結果
+     *
+     * @exception IndexOutOfBoundsException 式の番号が範囲外の場合
+     */
+    public BigDecimal getResult(int index) {
+        return this.registers[this.outputs[index]];
+    }
+
+    /**
+     * 全ての式の現在の評価結果を返却します。
+     *
+     * @return 生成時に渡された順に並べた各式の現在の評価結果
+     */
+    public BigDecimal[] getResults() {
+
+        final BigDecimal[] results = new BigDecimal[this.outputs.length];
+
+        for (int i = 0; i < results.length; i++) {
+            results[i] = this.registers[this.outputs[i]];
+        }
+
+        return results;
+    }
+
+    /**
+     * 生成後に再評価したノードの数を返却します。
+     * <p>
+     * 変数の値の更新ごとに、更新された変数に依存し被演算子の評価結果が変化したノードの数が加算されます。
+     *
+     * @return 生成後に再評価したノードの数
+     */
+    public long getRecomputedCount() {
+        return this.recomputedCount;
+    }
+
+    /**
+     * 引数として渡された共通のスロット番号の変数の値を更新し、評価結果が変化した式の番号を返却します。
+     *
+     * @param slot  変数の共通のスロット番号
+     * @param value 変数の新しい値
+     * @return 評価結果が変化した式の番号を昇順に並べた配列
+     *
+     * @exception NullPointerException      引数として {@code null} が渡された場合
+     * @exception IndexOutOfBoundsException スロット番号が範囲外の場合
+     * @exception ArithmeticException       いずれかの演算の結果が定義されない場合
+     */
+    public int[] update(int slot, @NonNull BigDecimal value) {
+        return this.update(new int[] { Objects.checkIndex(slot, this.values.length) }, new BigDecimal[] { value });
+    }
+
+    /**
+     * 引数として渡された変数名の変数の値を更新し、評価結果が変化した式の番号を返却します。
+     *
+     * @param variable 変数名
+     * @param value    変数の新しい値
+     * @return 評価結果が変化した式の番号を昇順に並べた配列
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 全ての式に存在しない変数名が渡された場合
+     * @exception ArithmeticException      いずれかの演算の結果が定義されない場合
+     */
+    public int[] update(@NonNull String variable, @NonNull BigDecimal value) {
+        return this.update(this.formulaSet.getSlot(variable), value);
+    }
+
+    /**
+     * 引数として渡された変数名と値の対応で複数の変数の値をまとめて更新し、評価結果が変化した式の番号を返却します。
+     * <p>
+     * 複数の変数に依存するノードも一度だけ再評価されます。
+     *
+     * @param values 変数名と変数の新しい値の対応
+     * @return 評価結果が変化した式の番号を昇順に並べた配列
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 全ての式に存在しない変数名が渡された場合
+     * @exception ArithmeticException      いずれかの演算の結果が定義されない場合
+     */
+    public int[] update(@NonNull Map<String, BigDecimal> values) {
+
+        final int[] slots = new int[values.size()];
+        final BigDecimal[] updates = new BigDecimal[values.size()];
+        int index = 0;
+
+        for (Map.Entry<String, BigDecimal> entry : values.entrySet()) {
+            slots[index] = this.formulaSet.getSlot(entry.getKey());
+            updates[index++] = Objects.requireNonNull(entry.getValue(), entry.getKey());
+        }
+
+        return this.update(slots, updates);
+    }
+
+    /**
+     * 引数として渡されたスロット番号の変数の値を更新し、依存するノードを再評価した後に評価結果が変化した式の番号を返却します。
+     *
+     * @param slots   変数の共通のスロット番号
+     * @param updates 変数の新しい値
+     * @return 評価結果が変化した式の番号を昇順に並べた配列
+     */
+    private int[] update(int[] slots, BigDecimal[] updates) {
+
+        final BigDecimal[] oldValues = new BigDecimal[slots.length];
+        final BitSet candidates = this.candidates;
+        final BitSet changed = this.changed;
+
+        candidates.clear();
+        changed.clear();
+
+        for (int i = 0; i < slots.length; i++) {
+            oldValues[i] = this.values[slots[i]];
+            this.values[slots[i]] = updates[i];
+            candidates.or(this.dependents[slots[i]]);
+        }
+
+        try {
+            for (int node = candidates.nextSetBit(0); node >= 0; node = candidates.nextSetBit(node + 1)) {
+                if (this.operands[node].length > 0 && !this.isAnyChanged(this.operands[node])) {
+                    continue;
+                }
+
+                final BigDecimal value = this.program.evaluate(this.evaluator, this.values, this.registers, node);
+                this.recomputedCount++;
+
+                if (!value.equals(this.registers[node])) {
+                    this.previous[node] = this.registers[node];
+                    this.registers[node] = value;
+                    changed.set(node);
+                }
+            }
+        } catch (RuntimeException e) {
+            for (int node = changed.nextSetBit(0); node >= 0; node = changed.nextSetBit(node + 1)) {
+                this.registers[node] = this.previous[node];
+                this.previous[node] = null;
+            }
+
+            for (int i = slots.length - 1; i >= 0; i--) {
+                this.values[slots[i]] = oldValues[i];
+            }
+
+            throw e;
+        }
+
+        for (int node = changed.nextSetBit(0); node >= 0; node = changed.nextSetBit(node + 1)) {
+            this.previous[node] = null;
+        }
+
+        int count = 0;
+
+        for (int output : this.outputs) {
+            if (changed.get(output)) {
+                count++;
+            }
+        }
+
+        final int[] indexes = new int[count];
+
+        for (int i = 0, j = 0; i < this.outputs.length; i++) {
+            if (changed.get(this.outputs[i])) {
+                indexes[j++] = i;
+            }
+        }
+
+        return indexes;
+    }
+
+    /**
+     * 引数として渡されたノードのいずれかの評価結果が今回の更新で変化したか判定します。
+     *
+     * @param nodes ノードの番号
+     * @return いずれかの評価結果が変化した場合は {@code true} 、それ以外は {@code false}
+     */
+    private boolean isAnyChanged(int[] nodes) {
+
+        for (int node : nodes) {
+            if (this.changed.get(node)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 複数の式を一つのグラフへ統合し、同一の変数の値で全ての式をまとめて評価するクラスです。
+ * <p>
+ * 各式は生成時に構文解析と最適化が行われた後、変数のスロット番号を全ての式で共通の番号へ振り直して一つの {@link ExpressionGraph}
+ * へ統合されます。式をまたいで同一の部分式 ( {@code price * qty} や {@code avg(a, b, c)} など) は一つのノードとして共有されるため、
+ * {@link #evaluate(BigDecimal...)} メソッドの一度の呼び出しで共有された部分式は一度だけ評価され、全ての式の評価結果が返却されます。
+ * <p>
+ * 統合された部分式は一つの評価器で評価されるため、全ての評価器は同一のクラス、数値表現、演算規則である必要があります。評価器が {@link Neumann}
+ * の場合は関数の評価結果を保持するキャッシュも同一である必要があります。
+ * <p>
+ * このクラスは不変であり、複数のスレッドから同時に {@link #evaluate(BigDecimal...)} メソッドを呼び出すことができます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+@EqualsAndHashCode
+public final class FormulaSet {
+
+    /**
+     * 演算子、関数、数学定数の評価を行う評価器
+     */
+    private final Evaluator evaluator;
+
+    /**
+     * 生成時に渡された順に並べた式
+     */
+    private final List<String> expressions;
+
+    /**
+     * 共通のスロット番号の順に並べた変数名
+     */
+    private final List<String> variables;
+
+    /**
+     * 変数名と共通のスロット番号の対応
+     */
+    private final Map<String, Integer> slots;
+
+    /**
+     * 全ての式を統合したグラフ
+     */
+    private final ExpressionGraph graph;
+
+    /**
+     * グラフを変換した命令列
+     */
+    private final ExpressionProgram program;
+
+    /**
+     * 式ごとの評価結果を保持するレジスタ番号
+     */
+    private final int[] outputs;
+
+    /**
+     * コンストラクタ
+     *
+     * @param evaluator   演算子、関数、数学定数の評価を行う評価器
+     * @param expressions 生成時に渡された順に並べた式
+     * @param slots       共通のスロット番号の順に変数名を登録した変数名と共通のスロット番号の対応
+     * @param graph       全ての式を統合したグラフ
+     */
+    private FormulaSet(Evaluator evaluator, List<String> expressions, Map<String, Integer> slots,
+            ExpressionGraph graph) {
+        this.evaluator = evaluator;
+        this.expressions = expressions;
+        this.variables = List.copyOf(slots.keySet());
+        this.slots = slots;
+        this.graph = graph;
+        this.program = ExpressionProgram.of(graph, evaluator);
+        this.outputs = graph.getRoots();
+    }
+
+    /**
+     * 引数として渡された評価器が保持する式を一つのグラフへ統合し、 {@link FormulaSet} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param evaluators 評価対象の式と演算子、関数、数学定数の評価方法を提供する評価器
+     * @return {@link FormulaSet} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 評価器が渡されなかった場合、評価器のクラス、数値表現、演算規則、関数のキャッシュのいずれかが一致しない場合、または式の構文に誤りがある場合
+     */
+    public static FormulaSet of(@NonNull Evaluator... evaluators) {
+
+        if (evaluators.length == 0) {
+            throw new IllegalArgumentException("At least one evaluator is required");
+        }
+
+        final Evaluator evaluator = evaluators[0];
+        final List<String> expressions = new ArrayList<>(evaluators.length);
+        final Map<String, Integer> variables = new LinkedHashMap<>();
+        final List<ExpressionNode> roots = new ArrayList<>(evaluators.length);
+
+        for (Evaluator element : evaluators) {
+            if (!isCompatible(evaluator, element)) {
+                throw new IllegalArgumentException(String.format("All evaluators must share the same class, "
+                        + "numeric mode, math context and function cache: %s and %s", evaluator, element));
+            }
+
+            final ExpressionParser parser = ExpressionParser.of(element.getExpression());
+            final ExpressionNode root = ExpressionOptimizer.of(element).optimize(parser.parse());
+            final List<String> names = parser.getVariables();
+            final int[] slots = new int[names.size()];
+
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = variables.computeIfAbsent(names.get(i), name -> variables.size());
+            }
+
+            expressions.add(element.getExpression());
+            roots.add(remap(root, slots, new IdentityHashMap<>()));
+        }
+
+        return new FormulaSet(evaluator, Collections.unmodifiableList(expressions), variables,
+                ExpressionGraph.of(roots));
+    }
+
+    /**
+     * 引数として渡された評価器の式を一つのグラフへ統合して評価できるか判定します。
+     *
+     * @param evaluator 基準となる評価器
+     * @param element   判定する評価器
+     * @return クラス、数値表現、演算規則、関数のキャッシュが全て一致する場合は {@code true} 、それ以外は {@code false}
+     */
+    private static boolean isCompatible(Evaluator evaluator, Evaluator element) {
+
+        if (element.getClass() != evaluator.getClass() || element.getNumericMode() != evaluator.getNumericMode()
+                || !element.getMathContext().equals(evaluator.getMathContext())) {
+            return false;
+        }
+
+        return !(evaluator instanceof Neumann)
+                || ((Neumann) element).getFunctionCache() == ((Neumann) evaluator).getFunctionCache();
+    }
+
+    /**
+     * 生成時に渡された順に並べた式を返却します。
+     *
+     * @return 生成時に渡された順に並べた式
+     */
+    public List<String> getExpressions() {
+        return this.expressions;
+    }
+
+    /**
+     * 全ての式に出現した変数名を共通のスロット番号の順に返却します。
+     * <p>
+     * 変数名は生成時に渡された評価器の順に、各式に出現した順で重複を除いて並べられます。
+     *
+     * @return 共通のスロット番号の順に並べた変数名
+     */
+    public List<String> getVariables() {
+        return this.variables;
+    }
+
+    /**
+     * 式の数を返却します。
+     *
+     * @return 式の数
+     */
+    public int size() {
+        return this.outputs.length;
+    }
+
+    /**
+     * 引数として渡された変数名に割り当てられた共通のスロット番号を返却します。
+     *
+     * @param variable 変数名
+     * @return 変数に割り当てられたスロット番号
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 全ての式に存在しない変数名が渡された場合
+     */
+    public int getSlot(@NonNull String variable) {
+
+        final Integer slot = this.slots.get(variable);
+
+        if (slot == null) {
+            throw new IllegalArgumentException("Unknown variable: " + variable);
+        }
+
+        return slot;
+    }
+
+    /**
+     * 全ての式を統合したグラフのノード数を返却します。
+     * <p>
+     * 一度の評価で評価される部分式の数を表します。
+     *
+     * @return 統合後のノード数
+     */
+    public int getNodeCount() {
+        return this.graph.size();
+    }
+
+    /**
+     * 式の内部および式の間で同一の部分式として共有された構文木のノード数を返却します。
+     *
+     * @return 統合により共有された構文木のノード数
+     */
+    public int getSharedNodeCount() {
+        return this.graph.getSharedCount();
+    }
+
+    /**
+     * 全ての式を統合したグラフを返却します。
+     *
+     * @return 全ての式を統合したグラフ
+     */
+    ExpressionGraph getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * グラフを変換した命令列を返却します。
+     *
+     * @return グラフを変換した命令列
+     */
+    ExpressionProgram getProgram() {
+        return this.program;
+    }
+
+    /**
+     * 評価器を返却します。
+     *
+     * @return 演算子、関数、数学定数の評価を行う評価器
+     */
+    Evaluator getEvaluator() {
+        return this.evaluator;
+    }
+
+    /**
+     * 式ごとの評価結果を保持するレジスタ番号を返却します。
+     *
+     * @return 式ごとの評価結果を保持するレジスタ番号
+     */
+    int[] getOutputs() {
+        return this.outputs.clone();
+    }
+
+    /**
+     * 共通のスロット番号をインデックスとする配列で変数の値を束縛し、全ての式を評価した結果を返却します。
+     * <p>
+     * 命令列は一度だけ実行され、式の間で共有された部分式は一度だけ評価されます。
+     *
+     * @param values 共通のスロット番号をインデックスとする変数の値
+     * @return 生成時に渡された順に並べた各式の評価結果
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 変数の値の数が全ての式に出現した変数の数より少ない場合
+     * @exception ArithmeticException      いずれかの演算の結果が定義されない場合
+     */
+    public BigDecimal[] evaluate(@NonNull BigDecimal... values) {
+        this.checkValues(values.length);
+        return this.program.evaluate(this.evaluator, values, this.outputs);
+    }
+
+    /**
+     * 共通のスロット番号をインデックスとする配列で変数の値を束縛し、全ての式を評価した結果を返却します。
+     * <p>
+     * 変数の値は {@link BigDecimal#valueOf(double)} で変換された後に評価されます。
+     *
+     * @param values 共通のスロット番号をインデックスとする変数の値
+     * @return 生成時に渡された順に並べた各式の評価結果
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 変数の値の数が全ての式に出現した変数の数より少ない場合
+     * @exception NumberFormatException    変数の値が無限大または非数の場合
+     * @exception ArithmeticException      いずれかの演算の結果が定義されない場合
+     */
+    public BigDecimal[] evaluate(@NonNull double... values) {
+
+        final BigDecimal[] decimals = new BigDecimal[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            decimals[i] = BigDecimal.valueOf(values[i]);
+        }
+
+        return this.evaluate(decimals);
+    }
+
+    /**
+     * 共通のスロット番号をインデックスとする配列で変数の値を束縛し、全ての式を {@code double} 型で評価した結果を返却します。
+     * <p>
+     * 各式の評価結果は {@link CompiledExpression#evaluateDouble(double...)} メソッドの評価結果と一致します。
+     *
+     * @param values 共通のスロット番号をインデックスとする変数の値
+     * @return 生成時に渡された順に並べた各式の評価結果
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 変数の値の数が全ての式に出現した変数の数より少ない場合
+     */
+    public double[] evaluateDouble(@NonNull double... values) {
+        this.checkValues(values.length);
+        return this.program.evaluateDouble(values, this.outputs);
+    }
+
+    /**
+     * 変数の値の数が全ての式に出現した変数の数以上であるか検査します。
+     *
+     * @param count 変数の値の数
+     *
+     * @exception IllegalArgumentException 変数の値の数が全ての式に出現した変数の数より少ない場合
+     */
+    void checkValues(int count) {
+        if (count < this.variables.size()) {
+            throw new IllegalArgumentException(String.format("Expected %d variable values but %d were given: %s",
+                    this.variables.size(), count, this.variables));
+        }
+    }
+
+    /**
+     * 引数として渡された構文木の変数のスロット番号を振り直した構文木を返却します。
+     * <p>
+     * 最適化により共有された部分木のインスタンスは一度だけ振り直され、振り直した後も共有されます。
+     *
+     * @param node     構文木の根となるノード
+     * @param slots    式ごとのスロット番号をインデックスとする共通のスロット番号
+     * @param remapped 振り直し済みのノードのインスタンスと振り直した後のノードの対応
+     * @return スロット番号を振り直した構文木
+     */
+    private static ExpressionNode remap(ExpressionNode node, int[] slots,
+            Map<ExpressionNode, ExpressionNode> remapped) {
+
+        ExpressionNode result = remapped.get(node);
+
+        if (result == null) {
+            result = switch (node.getNodePattern()) {
+                case LITERAL, CONSTANT -> node;
+                case VARIABLE -> ExpressionNode.variable(slots[node.getSlot()]);
+                case OPERATOR -> ExpressionNode.of(node.getOperator(), remapChildren(node, slots, remapped));
+                case FUNCTION -> ExpressionNode.of(node.getFunction(), remapChildren(node, slots, remapped));
+            };
+            remapped.put(node, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * 引数として渡されたノードの子ノードの変数のスロット番号を振り直した子ノードを返却します。
+     *
+     * @param node     親ノード
+     * @param slots    式ごとのスロット番号をインデックスとする共通のスロット番号
+     * @param remapped 振り直し済みのノードのインスタンスと振り直した後のノードの対応
+     * @return スロット番号を振り直した子ノード
+     */
+    private static ExpressionNode[] remapChildren(ExpressionNode node, int[] slots,
+            Map<ExpressionNode, ExpressionNode> remapped) {
+
+        final ExpressionNode[] children = new ExpressionNode[node.getChildCount()];
+
+        for (int i = 0; i < children.length; i++) {
+            children[i] = remap(node.getChild(i), slots, remapped);
+        }
+
+        return children;
+    }
+}
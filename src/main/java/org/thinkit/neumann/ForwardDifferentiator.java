@@ -0,0 +1,558 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.List;
+
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+
+/**
+ * 命令列を前進モードの自動微分で評価し、評価結果と全ての変数に関する偏微分係数を一度の走査で計算するクラスです。
+ * <p>
+ * 各レジスタは値と変数の数と同じ長さの勾配ベクトルの組を保持し、演算子と関数ごとの微分規則で勾配ベクトルを伝播します。定数のように勾配ベクトルが零のレジスタは
+ * {@code null} で表現され、勾配の計算は省略されます。 {@code ceil} 、 {@code floor} 、 {@code %} の整数部のような区分的に定数の演算は微分可能な点の微分係数
+ * ( {@code 0} ) を使用し、 {@code min} と {@code max} は選択された引数の勾配ベクトルを使用します。 {@code double} 型の {@code min} と
+ * {@code max} は {@link Math#min(double, double)} と {@link Math#max(double, double)} で評価され、非数と符号付きの零を含め評価結果と等しい最初の引数が選択されます。 {@code round}
+ * は有効桁数への丸めのため恒等写像として微分されます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class ForwardDifferentiator {
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private ForwardDifferentiator() {
+    }
+
+    /**
+     * 命令列を {@link BigDecimal} 型で評価し、評価結果と偏微分係数を返却します。
+     * <p>
+     * 評価結果は評価器で評価され、 {@link CompiledExpression#evaluate(BigDecimal...)} メソッドの評価結果と一致します。微分係数の計算に使用する乗算と除算は評価器の演算規則で丸められます。
+     *
+     * @param program   式を変換した命令列
+     * @param evaluator 演算子と関数の評価を行う評価器
+     * @param variables スロット番号の順に並べた変数名
+     * @param values    スロット番号をインデックスとする変数の値
+     * @return 評価結果と偏微分係数
+     *
+     * @exception ArithmeticException 演算の結果が定義されない場合
+     */
+    static Gradient differentiate(ExpressionProgram program, Evaluator evaluator, List<String> variables,
+            BigDecimal[] values) {
+
+        final int[] code = program.getCode();
+        final BigDecimal[] constants = program.getConstants();
+        final MathContext mathContext = evaluator.getMathContext();
+        final int dimension = variables.size();
+        final int registerCount = program.getRegisterCount();
+        final BigDecimal[] registers = new BigDecimal[registerCount];
+        final BigDecimal[][] gradients = new BigDecimal[registerCount][];
+        int register = 0;
+        int position = 0;
+
+        while (position < code.length) {
+            switch (code[position]) {
+                case ExpressionProgram.LOAD_CONSTANT -> {
+                    registers[register] = constants[code[position + 1]];
+                    position += 2;
+                }
+                case ExpressionProgram.LOAD_VARIABLE -> {
+                    final int slot = code[position + 1];
+                    registers[register] = values[slot];
+                    gradients[register] = new BigDecimal[dimension];
+
+                    for (int i = 0; i < dimension; i++) {
+                        gradients[register][i] = i == slot ? BigDecimal.ONE : BigDecimal.ZERO;
+                    }
+
+                    position += 2;
+                }
+                default -> {
+                    final int count = code[position + 2];
+                    final BigDecimal[] arguments = new BigDecimal[count];
+
+                    for (int i = 0; i < count; i++) {
+                        arguments[i] = registers[code[position + 3 + i]];
+                    }
+
+                    if (code[position] == ExpressionProgram.APPLY_OPERATOR) {
+                        final MathematicalOperator operator = ExpressionProgram.toOperator(code[position + 1]);
+                        registers[register] = evaluator.evaluate(operator, arguments, 0, count);
+                        gradients[register] = differentiate(operator, evaluator, mathContext, arguments,
+                                registers[register], gradients, code, position + 3);
+                    } else {
+                        final MathematicalFunction function = ExpressionProgram.toFunction(code[position + 1]);
+                        registers[register] = evaluator.evaluate(function, arguments, 0, count);
+                        gradients[register] = differentiate(function, evaluator, mathContext, arguments,
+                                registers[register], gradients, code, position + 3);
+                    }
+
+                    position += 3 + count;
+                }
+            }
+
+            register++;
+        }
+
+        BigDecimal[] partials = gradients[register - 1];
+
+        if (partials == null) {
+            partials = new BigDecimal[dimension];
+            Arrays.fill(partials, BigDecimal.ZERO);
+        }
+
+        return Gradient.of(registers[register - 1], variables, partials);
+    }
+
+    /**
+     * 命令列を {@code double} 型で評価し、評価結果と偏微分係数を返却します。
+     * <p>
+     * 評価結果は {@link CompiledExpression#evaluateDouble(double...)} メソッドの評価結果と一致します。定数による除算も同じく逆数の乗算として評価されます。
+     *
+     * @param program   式を変換した命令列
+     * @param variables スロット番号の順に並べた変数名
+     * @param values    スロット番号をインデックスとする変数の値
+     * @return 評価結果と偏微分係数
+     */
+    static DoubleGradient differentiateDouble(ExpressionProgram program, List<String> variables, double[] values) {
+
+        final int[] code = program.getCode();
+        final BigDecimal[] constants = program.getConstants();
+        final int dimension = variables.size();
+        final int registerCount = program.getRegisterCount();
+        final double[] registers = new double[registerCount];
+        final double[][] gradients = new double[registerCount][];
+        final boolean[] constantRegisters = new boolean[registerCount];
+        int register = 0;
+        int position = 0;
+
+        while (position < code.length) {
+            switch (code[position]) {
+                case ExpressionProgram.LOAD_CONSTANT -> {
+                    registers[register] = constants[code[position + 1]].doubleValue();
+                    constantRegisters[register] = true;
+                    position += 2;
+                }
+                case ExpressionProgram.LOAD_VARIABLE -> {
+                    final int slot = code[position + 1];
+                    registers[register] = values[slot];
+                    gradients[register] = new double[dimension];
+                    gradients[register][slot] = 1;
+                    position += 2;
+                }
+                case ExpressionProgram.APPLY_OPERATOR -> {
+                    final int left = code[position + 3];
+                    final int right = code[position + 2] > 1 ? code[position + 4] : left;
+                    final double a = registers[left];
+                    final double b = registers[right];
+
+                    switch (ExpressionProgram.toOperator(code[position + 1])) {
+                        case NEGATE -> {
+                            registers[register] = -a;
+                            gradients[register] = combine(gradients[left], -1, null, 0);
+                        }
+                        case MINUS -> {
+                            registers[register] = a - b;
+                            gradients[register] = combine(gradients[left], 1, gradients[right], -1);
+                        }
+                        case PLUS -> {
+                            registers[register] = a + b;
+                            gradients[register] = combine(gradients[left], 1, gradients[right], 1);
+                        }
+                        case MULTIPLY -> {
+                            registers[register] = a * b;
+                            gradients[register] = combine(gradients[left], b, gradients[right], a);
+                        }
+                        case DIVIDE -> {
+                            if (constantRegisters[right] && ExpressionProgram.isReciprocable(b)) {
+                                registers[register] = a * (1.0 / b);
+                                gradients[register] = combine(gradients[left], 1.0 / b, null, 0);
+                            } else {
+                                registers[register] = a / b;
+                                gradients[register] = combine(gradients[left], 1 / b, gradients[right],
+                                        -registers[register] / b);
+                            }
+                        }
+                        case EXPONENT -> {
+                            registers[register] = Math.pow(a, b);
+                            gradients[register] = combine(gradients[left],
+                                    gradients[left] == null ? 0 : b * Math.pow(a, b - 1), gradients[right],
+                                    gradients[right] == null ? 0 : registers[register] * Math.log(a));
+                        }
+                        case MODULO -> {
+                            final double quotient = a / b;
+                            registers[register] = a % b;
+                            gradients[register] = combine(gradients[left], 1, gradients[right],
+                                    quotient < 0 ? -Math.ceil(quotient) : -Math.floor(quotient));
+                        }
+                    }
+
+                    position += 3 + code[position + 2];
+                }
+                default -> {
+                    final int count = code[position + 2];
+                    final int argument = code[position + 3];
+                    final double a = registers[argument];
+                    final double[] gradient = gradients[argument];
+
+                    gradients[register] = switch (ExpressionProgram.toFunction(code[position + 1])) {
+                        case CEIL -> {
+                            registers[register] = Math.ceil(a);
+                            yield null;
+                        }
+                        case FLOOR -> {
+                            registers[register] = Math.floor(a);
+                            yield null;
+                        }
+                        case ROUND -> {
+                            registers[register] = a;
+                            yield gradient;
+                        }
+                        case ABS -> {
+                            registers[register] = Math.abs(a);
+                            yield combine(gradient, Math.signum(a), null, 0);
+                        }
+                        case SINE -> {
+                            registers[register] = Math.sin(a);
+                            yield combine(gradient, Math.cos(a), null, 0);
+                        }
+                        case COSINE -> {
+                            registers[register] = Math.cos(a);
+                            yield combine(gradient, -Math.sin(a), null, 0);
+                        }
+                        case TANGENT -> {
+                            registers[register] = Math.tan(a);
+                            yield combine(gradient, 1 + registers[register] * registers[register], null, 0);
+                        }
+                        case ARC_SINE -> {
+                            registers[register] = Math.asin(a);
+                            yield combine(gradient, 1 / Math.sqrt(1 - a * a), null, 0);
+                        }
+                        case ARC_COSINE -> {
+                            registers[register] = Math.acos(a);
+                            yield combine(gradient, -1 / Math.sqrt(1 - a * a), null, 0);
+                        }
+                        case ARC_TANGENT -> {
+                            registers[register] = Math.atan(a);
+                            yield combine(gradient, 1 / (1 + a * a), null, 0);
+                        }
+                        case HYPERBOLIC_SINE -> {
+                            registers[register] = Math.sinh(a);
+                            yield combine(gradient, Math.cosh(a), null, 0);
+                        }
+                        case HYPERBOLIC_COSINE -> {
+                            registers[register] = Math.cosh(a);
+                            yield combine(gradient, Math.sinh(a), null, 0);
+                        }
+                        case HYPERBOLIC_TANGENT -> {
+                            registers[register] = Math.tanh(a);
+                            yield combine(gradient, 1 - registers[register] * registers[register], null, 0);
+                        }
+                        case LOG -> {
+                            registers[register] = Math.log(a);
+                            yield combine(gradient, 1 / a, null, 0);
+                        }
+                        case SQRT -> {
+                            registers[register] = Math.sqrt(a);
+                            yield combine(gradient, 0.5 / registers[register], null, 0);
+                        }
+                        case MIN, MAX -> {
+                            final boolean minimum = ExpressionProgram
+                                    .toFunction(code[position + 1]) == MathematicalFunction.MIN;
+                            double value = a;
+
+                            for (int i = 1; i < count; i++) {
+                                final double candidate = registers[code[position + 3 + i]];
+                                value = minimum ? Math.min(value, candidate) : Math.max(value, candidate);
+                            }
+
+                            int selected = argument;
+
+                            for (int i = 0; i < count; i++) {
+                                if (Double.doubleToLongBits(registers[code[position + 3 + i]]) == Double
+                                        .doubleToLongBits(value)) {
+                                    selected = code[position + 3 + i];
+                                    break;
+                                }
+                            }
+
+                            registers[register] = value;
+                            yield gradients[selected];
+                        }
+                        case SUM, AVERAGE -> {
+                            double sum = a;
+                            double[] sumGradient = gradient;
+
+                            for (int i = 1; i < count; i++) {
+                                final int next = code[position + 3 + i];
+                                sum += registers[next];
+                                sumGradient = combine(sumGradient, 1, gradients[next], 1);
+                            }
+
+                            if (ExpressionProgram.toFunction(code[position + 1]) == MathematicalFunction.SUM) {
+                                registers[register] = sum;
+                                yield sumGradient;
+                            }
+
+                            registers[register] = sum / count;
+                            yield combine(sumGradient, 1.0 / count, null, 0);
+                        }
+                    };
+
+                    position += 3 + count;
+                }
+            }
+
+            register++;
+        }
+
+        final double[] partials = gradients[register - 1];
+        return DoubleGradient.of(registers[register - 1], variables,
+                partials == null ? new double[dimension] : partials.clone());
+    }
+
+    /**
+     * 演算子の微分規則で勾配ベクトルを計算します。
+     *
+     * @param operator    演算子
+     * @param evaluator   演算子と関数の評価を行う評価器
+     * @param mathContext 微分係数の計算に使用する演算規則
+     * @param arguments   被演算子の値
+     * @param result      演算子の評価結果
+     * @param gradients   レジスタごとの勾配ベクトル
+     * @param code        命令列
+     * @param offset      被演算子のレジスタ番号の並びの位置
+     * @return 評価結果の勾配ベクトル、零の場合は {@code null}
+     */
+    private static BigDecimal[] differentiate(MathematicalOperator operator, Evaluator evaluator,
+            MathContext mathContext, BigDecimal[] arguments, BigDecimal result, BigDecimal[][] gradients, int[] code,
+            int offset) {
+
+        final BigDecimal[] left = gradients[code[offset]];
+
+        if (operator == MathematicalOperator.NEGATE) {
+            return combine(left, BigDecimal.ONE.negate(), null, null, mathContext);
+        }
+
+        final BigDecimal[] right = gradients[code[offset + 1]];
+        final BigDecimal a = arguments[0];
+        final BigDecimal b = arguments[1];
+
+        return switch (operator) {
+            case MINUS -> combine(left, BigDecimal.ONE, right, BigDecimal.ONE.negate(), mathContext);
+            case PLUS -> combine(left, BigDecimal.ONE, right, BigDecimal.ONE, mathContext);
+            case MULTIPLY -> combine(left, b, right, a, mathContext);
+            case DIVIDE -> combine(left, BigDecimal.ONE.divide(b, mathContext), right,
+                    result.divide(b, mathContext).negate(), mathContext);
+            case EXPONENT -> combine(left,
+                    left == null ? null
+                            : evaluator.evaluate(MathematicalOperator.EXPONENT,
+                                    new BigDecimal[] { a, b.subtract(BigDecimal.ONE) }, 0, 2).multiply(b, mathContext),
+                    right, right == null ? null : result.multiply(apply(evaluator, MathematicalFunction.LOG, a),
+                            mathContext),
+                    mathContext);
+            case MODULO -> combine(left, BigDecimal.ONE, right, a.divideToIntegralValue(b).negate(), mathContext);
+            default -> throw new UnsupportedOperationException("Unsupported operator: " + operator);
+        };
+    }
+
+    /**
+     * 関数の微分規則で勾配ベクトルを計算します。
+     *
+     * @param function    関数
+     * @param evaluator   演算子と関数の評価を行う評価器
+     * @param mathContext 微分係数の計算に使用する演算規則
+     * @param arguments   引数の値
+     * @param result      関数の評価結果
+     * @param gradients   レジスタごとの勾配ベクトル
+     * @param code        命令列
+     * @param offset      引数のレジスタ番号の並びの位置
+     * @return 評価結果の勾配ベクトル、零の場合は {@code null}
+     */
+    private static BigDecimal[] differentiate(MathematicalFunction function, Evaluator evaluator,
+            MathContext mathContext, BigDecimal[] arguments, BigDecimal result, BigDecimal[][] gradients, int[] code,
+            int offset) {
+
+        final BigDecimal[] gradient = gradients[code[offset]];
+
+        return switch (function) {
+            case CEIL, FLOOR -> null;
+            case ROUND -> gradient;
+            case MIN, MAX -> {
+                for (int i = 0; i < arguments.length; i++) {
+                    if (arguments[i].compareTo(result) == 0) {
+                        yield gradients[code[offset + i]];
+                    }
+                }
+
+                yield null;
+            }
+            case SUM, AVERAGE -> {
+                BigDecimal[] sum = gradient;
+
+                for (int i = 1; i < arguments.length; i++) {
+                    sum = combine(sum, BigDecimal.ONE, gradients[code[offset + i]], BigDecimal.ONE, mathContext);
+                }
+
+                yield function == MathematicalFunction.SUM ? sum
+                        : combine(sum, BigDecimal.ONE.divide(BigDecimal.valueOf(arguments.length), mathContext), null,
+                                null, mathContext);
+            }
+            default -> gradient == null ? null
+                    : combine(gradient, derivative(function, evaluator, mathContext, arguments[0], result), null,
+                            null, mathContext);
+        };
+    }
+
+    /**
+     * 単項の関数の導関数の値を計算します。
+     *
+     * @param function    関数
+     * @param evaluator   演算子と関数の評価を行う評価器
+     * @param mathContext 微分係数の計算に使用する演算規則
+     * @param argument    引数の値
+     * @param result      関数の評価結果
+     * @return 導関数の値
+     */
+    private static BigDecimal derivative(MathematicalFunction function, Evaluator evaluator, MathContext mathContext,
+            BigDecimal argument, BigDecimal result) {
+        return switch (function) {
+            case ABS -> BigDecimal.valueOf(argument.signum());
+            case SINE -> apply(evaluator, MathematicalFunction.COSINE, argument);
+            case COSINE -> apply(evaluator, MathematicalFunction.SINE, argument).negate();
+            case TANGENT -> BigDecimal.ONE.add(result.multiply(result, mathContext));
+            case ARC_SINE -> BigDecimal.ONE.divide(apply(evaluator, MathematicalFunction.SQRT,
+                    BigDecimal.ONE.subtract(argument.multiply(argument, mathContext))), mathContext);
+            case ARC_COSINE -> BigDecimal.ONE.divide(apply(evaluator, MathematicalFunction.SQRT,
+                    BigDecimal.ONE.subtract(argument.multiply(argument, mathContext))), mathContext).negate();
+            case ARC_TANGENT -> BigDecimal.ONE.divide(BigDecimal.ONE.add(argument.multiply(argument, mathContext)),
+                    mathContext);
+            case HYPERBOLIC_SINE -> apply(evaluator, MathematicalFunction.HYPERBOLIC_COSINE, argument);
+            case HYPERBOLIC_COSINE -> apply(evaluator, MathematicalFunction.HYPERBOLIC_SINE, argument);
+            case HYPERBOLIC_TANGENT -> BigDecimal.ONE.subtract(result.multiply(result, mathContext));
+            case LOG -> BigDecimal.ONE.divide(argument, mathContext);
+            case SQRT -> BigDecimal.ONE.divide(result.add(result), mathContext);
+            default -> throw new UnsupportedOperationException("Unsupported function: " + function);
+        };
+    }
+
+    /**
+     * 引数として渡された値に単項の関数を適用します。
+     *
+     * @param evaluator 関数の評価を行う評価器
+     * @param function  関数
+     * @param argument  引数
+     * @return 関数の評価結果
+     */
+    private static BigDecimal apply(Evaluator evaluator, MathematicalFunction function, BigDecimal argument) {
+        return evaluator.evaluate(function, new BigDecimal[] { argument }, 0, 1);
+    }
+
+    /**
+     * 二つの勾配ベクトルの線形結合を計算します。 {@code null} の勾配ベクトルは零として扱われます。
+     *
+     * @param left        左辺の勾配ベクトル
+     * @param leftFactor  左辺の係数
+     * @param right       右辺の勾配ベクトル
+     * @param rightFactor 右辺の係数
+     * @param mathContext 乗算に使用する演算規則
+     * @return 線形結合の結果、両辺が零の場合は {@code null}
+     */
+    private static BigDecimal[] combine(BigDecimal[] left, BigDecimal leftFactor, BigDecimal[] right,
+            BigDecimal rightFactor, MathContext mathContext) {
+
+        if (left == null && right == null) {
+            return null;
+        }
+
+        final BigDecimal[] result = new BigDecimal[left != null ? left.length : right.length];
+
+        for (int i = 0; i < result.length; i++) {
+            BigDecimal value = BigDecimal.ZERO;
+
+            if (left != null) {
+                value = value.add(scale(left[i], leftFactor, mathContext));
+            }
+
+            if (right != null) {
+                value = value.add(scale(right[i], rightFactor, mathContext));
+            }
+
+            result[i] = value;
+        }
+
+        return result;
+    }
+
+    /**
+     * 微分係数に係数を乗じます。係数が {@code 1} または {@code -1} の場合は丸めを行いません。
+     *
+     * @param value       微分係数
+     * @param factor      係数
+     * @param mathContext 乗算に使用する演算規則
+     * @return 係数を乗じた微分係数
+     */
+    private static BigDecimal scale(BigDecimal value, BigDecimal factor, MathContext mathContext) {
+
+        if (factor.compareTo(BigDecimal.ONE) == 0) {
+            return value;
+        }
+
+        if (factor.compareTo(BigDecimal.ONE.negate()) == 0) {
+            return value.negate();
+        }
+
+        return value.multiply(factor, mathContext);
+    }
+
+    /**
+     * 二つの勾配ベクトルの線形結合を計算します。 {@code null} の勾配ベクトルは零として扱われます。
+     *
+     * @param left        左辺の勾配ベクトル
+     * @param leftFactor  左辺の係数
+     * @param right       右辺の勾配ベクトル
+     * @param rightFactor 右辺の係数
+     * @return 線形結合の結果、両辺が零の場合は {@code null}
+     */
+    private static double[] combine(double[] left, double leftFactor, double[] right, double rightFactor) {
+
+        if (left == null && right == null) {
+            return null;
+        }
+
+        final double[] result = new double[left != null ? left.length : right.length];
+
+        if (left != null) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] = left[i] * leftFactor;
+            }
+        }
+
+        if (right != null) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] += right[i] * rightFactor;
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 計算量の大きい数学関数と累乗の評価結果を保持する、容量に上限を持つキャッシュです。
+ * <p>
+ * {@link Evaluator#withFunctionCache(FunctionCache)} メソッドで評価器へ設定すると、三角関数、双曲線関数、 {@code log} 、
+ * {@code sqrt} 、 {@code ^} の評価結果が関数または演算子、引数の値、演算規則をキーとして保持され、同一の引数による再度の評価では計算が省略されます。
+ * 引数の値は {@link BigDecimal#equals(Object)} で比較されるため、値が等しくてもスケールが異なる引数は別のキーとして扱われます。
+ * <p>
+ * 保持する評価結果の数が容量を超えた場合は最近使用されていない評価結果から破棄されます。このクラスは複数のスレッドと複数の評価器から同時に使用することができます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+public final class FunctionCache {
+
+    /**
+     * 容量
+     */
+    private final long maximumSize;
+
+    /**
+     * 関数または演算子、演算規則、引数の値をキーとした評価結果
+     */
+    @ToString.Exclude
+    private final Cache<List<Object>, BigDecimal> cache;
+
+    /**
+     * コンストラクタ
+     *
+     * @param maximumSize 容量
+     */
+    private FunctionCache(long maximumSize) {
+        this.maximumSize = maximumSize;
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    /**
+     * 引数として渡された容量で {@link FunctionCache} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param maximumSize 保持する評価結果の数の上限
+     * @return {@link FunctionCache} クラスの新しいインスタンス
+     *
+     * @exception IllegalArgumentException 容量が負数の場合
+     */
+    public static FunctionCache of(long maximumSize) {
+
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Maximum size must not be negative: " + maximumSize);
+        }
+
+        return new FunctionCache(maximumSize);
+    }
+
+    /**
+     * 引数として渡されたキーに対応する評価結果を返却し、保持されていない場合は評価を行い保持します。
+     * <p>
+     * 評価は純粋な計算であるため、同一のキーが複数のスレッドで同時に評価された場合は後から保持された評価結果が残ります。
+     *
+     * @param operation   関数または演算子
+     * @param mathContext 演算規則
+     * @param arguments   評価に使用する引数の配列
+     * @param offset      最初の引数の位置
+     * @param count       引数の数
+     * @param evaluation  評価を行う処理
+     * @return 評価結果
+     */
+    BigDecimal get(Object operation, MathContext mathContext, BigDecimal[] arguments, int offset, int count,
+            @NonNull Supplier<BigDecimal> evaluation) {
+
+        final Object[] key = new Object[count + 2];
+        key[0] = operation;
+        key[1] = mathContext;
+        System.arraycopy(arguments, offset, key, 2, count);
+
+        final List<Object> cacheKey = Arrays.asList(key);
+        final BigDecimal cached = this.cache.getIfPresent(cacheKey);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final BigDecimal result = evaluation.get();
+        this.cache.put(cacheKey, result);
+
+        return result;
+    }
+
+    /**
+     * 保持している評価結果の数を返却します。
+     *
+     * @return 保持している評価結果の数
+     */
+    public long size() {
+        return this.cache.size();
+    }
+
+    /**
+     * 容量を返却します。
+     *
+     * @return 容量
+     */
+    public long getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    /**
+     * 評価結果がキャッシュから返却された回数を返却します。
+     *
+     * @return 評価結果がキャッシュから返却された回数
+     */
+    public long getHitCount() {
+        return this.cache.stats().hitCount();
+    }
+
+    /**
+     * 評価結果がキャッシュに存在せず評価が行われた回数を返却します。
+     *
+     * @return 評価が行われた回数
+     */
+    public long getMissCount() {
+        return this.cache.stats().missCount();
+    }
+
+    /**
+     * 容量を超えたため破棄された評価結果の数を返却します。
+     *
+     * @return 破棄された評価結果の数
+     */
+    public long getEvictionCount() {
+        return this.cache.stats().evictionCount();
+    }
+
+    /**
+     * 参照のうち評価結果がキャッシュから返却された割合を返却します。参照が一度も行われていない場合は {@code 1} を返却します。
+     *
+     * @return 評価結果がキャッシュから返却された割合
+     */
+    public double getHitRate() {
+        return this.cache.stats().hitRate();
+    }
+
+    /**
+     * 保持している全ての評価結果を破棄します。統計は破棄されません。
+     */
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * 式の評価結果と変数ごとの偏微分係数を {@link BigDecimal} 型で表現するクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+@EqualsAndHashCode
+public final class Gradient {
+
+    /**
+     * 式の評価結果
+     */
+    @Getter
+    private final BigDecimal value;
+
+    /**
+     * スロット番号の順に並べた変数名
+     */
+    @Getter
+    private final List<String> variables;
+
+    /**
+     * スロット番号をインデックスとする偏微分係数
+     */
+    private final BigDecimal[] partials;
+
+    /**
+     * コンストラクタ
+     *
+     * @param value     式の評価結果
+     * @param variables スロット番号の順に並べた変数名
+     * @param partials  スロット番号をインデックスとする偏微分係数
+     */
+    private Gradient(BigDecimal value, List<String> variables, BigDecimal[] partials) {
+        this.value = value;
+        this.variables = variables;
+        this.partials = partials;
+    }
+
+    /**
+     * {@link Gradient} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param value     式の評価結果
+     * @param variables スロット番号の順に並べた変数名
+     * @param partials  スロット番号をインデックスとする偏微分係数
+     * @return {@link Gradient} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    static Gradient of(@NonNull BigDecimal value, @NonNull List<String> variables, @NonNull BigDecimal[] partials) {
+        return new Gradient(value, variables, partials);
+    }
+
+    /**
+     * 引数として渡されたスロット番号の変数に関する偏微分係数を返却します。
+     *
+     * @param slot 変数のスロット番号
+     * @return 偏微分係数
+     *
+     * @exception IndexOutOfBoundsException スロット番号が範囲外の場合
+     */
+    public BigDecimal getPartial(int slot) {
+        return this.partials[slot];
+    }
+
+    /**
+     * 引数として渡された変数に関する偏微分係数を返却します。
+     *
+     * @param variable 変数名
+     * @return 偏微分係数
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 式中に変数が存在しない場合
+     */
+    public BigDecimal getPartial(@NonNull String variable) {
+
+        final int slot = this.variables.indexOf(variable);
+
+        if (slot < 0) {
+            throw new IllegalArgumentException("Unknown variable: " + variable);
+        }
+
+        return this.partials[slot];
+    }
+
+    /**
+     * スロット番号をインデックスとする偏微分係数を返却します。
+     *
+     * @return スロット番号をインデックスとする偏微分係数
+     */
+    public BigDecimal[] getPartials() {
+        return this.partials.clone();
+    }
+}
@@ -0,0 +1,640 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.thinkit.neumann.catalog.ColumnarBackend;
+
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * メモリへ写像したファイルの各行で式の集合を評価し、評価結果の列をメモリへ写像したファイルへ書き込むクラスです。
+ * <p>
+ * 入力のファイルは以下のいずれかの形式です。
+ * <ul>
+ * <li>CSV 形式、各行は {@code ,} で区切られた数値であり、改行は {@code \n} または {@code \r\n}</li>
+ * <li>列形式のバイナリ、 {@link #getVariables()} メソッドが返却する変数名の順に各変数の全ての行の値をリトルエンディアンの {@code double} 型で並べたファイル</li>
+ * </ul>
+ * 出力のファイルは列形式のバイナリであり、生成時に渡された評価器の順に各式の全ての行の評価結果をリトルエンディアンの {@code double} 型で並べたファイルです。
+ * <p>
+ * 数値は写像したバイト列から直接解析され、行ごとに {@link String} や {@link java.math.BigDecimal} のインスタンスは生成されません。有効桁数が
+ * {@code 15} 桁以下かつ十進の指数の絶対値が {@code 22} 以下の数値は {@code double} 型の演算のみで正しく丸めて解析され、それ以外の数値のみ
+ * {@link Double#parseDouble(String)} で解析されます。 CSV 形式のファイルは {@value #CHUNK_SIZE} 行ずつ列へ解析して評価され、列形式のバイナリは写像した列を複写せずに直接評価されます。
+ * <p>
+ * 以下のように実行するとコマンドラインから使用できます。
+ *
+ * <pre>
+ * java org.thinkit.neumann.MappedFileEvaluator csv|csv-header|binary 入力ファイル 出力ファイル 式...
+ * </pre>
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public final class MappedFileEvaluator {
+
+    /**
+     * 一度に評価する行の数
+     */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * CSV 形式のファイルを一度に写像するバイト数の上限
+     */
+    private static final int WINDOW_SIZE = 1 << 28;
+
+    /**
+     * {@code double} 型のバイト数
+     */
+    private static final int DOUBLE_BYTES = Double.BYTES;
+
+    /**
+     * {@code double} 型で正確に表現できる {@code 10} の累乗
+     */
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /**
+     * 変換した式
+     */
+    @ToString.Include
+    private final List<CompiledExpression> expressions;
+
+    /**
+     * 全ての式に出現した変数名
+     */
+    @ToString.Include
+    private final List<String> variables;
+
+    /**
+     * 式ごとに変数名の番号をスロット番号の順に並べた配列
+     */
+    private final int[][] slots;
+
+    /**
+     * コンストラクタ
+     *
+     * @param expressions 変換した式
+     */
+    private MappedFileEvaluator(List<CompiledExpression> expressions) {
+        this.expressions = expressions;
+        this.variables = CompiledExpression.collectVariables(expressions);
+        this.slots = new int[expressions.size()][];
+
+        for (int i = 0; i < expressions.size(); i++) {
+
+            final List<String> variables = expressions.get(i).getVariables();
+            this.slots[i] = new int[variables.size()];
+
+            for (int j = 0; j < variables.size(); j++) {
+                this.slots[i][j] = this.variables.indexOf(variables.get(j));
+            }
+        }
+    }
+
+    /**
+     * 引数として渡された評価器が保持する式を変換し、ファイルの各行で評価する {@link MappedFileEvaluator} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param evaluators 評価対象の式と演算子、関数、数学定数の評価方法を提供する評価器
+     * @return {@link MappedFileEvaluator} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 評価器が渡されなかった場合、または式の構文に誤りがある場合
+     */
+    public static MappedFileEvaluator of(@NonNull Evaluator... evaluators) {
+
+        if (evaluators.length == 0) {
+            throw new IllegalArgumentException("At least one evaluator is required");
+        }
+
+        final List<CompiledExpression> expressions = new ArrayList<>(evaluators.length);
+
+        for (Evaluator evaluator : evaluators) {
+            expressions.add(CompiledExpression.of(evaluator));
+        }
+
+        return new MappedFileEvaluator(Collections.unmodifiableList(expressions));
+    }
+
+    /**
+     * 入力の列に並べる変数名を返却します。
+     * <p>
+     * 変数名は生成時に渡された評価器の順に、各式に出現した順で重複を除いて並べられます。
+     *
+     * @return 入力の列に並べる変数名
+     */
+    public List<String> getVariables() {
+        return this.variables;
+    }
+
+    /**
+     * 変換した式を生成時に渡された評価器の順に返却します。
+     *
+     * @return 変換した式
+     */
+    public List<CompiledExpression> getExpressions() {
+        return this.expressions;
+    }
+
+    /**
+     * CSV 形式の入力のファイルの各行で式を評価し、評価結果を列形式のバイナリで出力のファイルへ書き込みます。
+     * <p>
+     * 見出しの行がある場合は変数名と一致する見出しの列を変数の値として使用し、それ以外の列は無視されます。見出しの行がない場合は
+     * {@link #getVariables()} メソッドが返却する変数名の順に先頭の列から使用されます。空の行は無視されます。
+     *
+     * @param input  入力のファイル
+     * @param header 先頭の行が見出しの行であるか
+     * @param output 出力のファイル
+     * @return 評価した行の数
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 見出しの行に変数名が含まれない場合、列が不足している場合、数値の形式に誤りがある場合、または一行が長すぎる場合
+     * @exception IOException              ファイルの読み書きに失敗した場合
+     */
+    public long evaluateCsv(@NonNull Path input, boolean header, @NonNull Path output) throws IOException {
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            final int[] fields = new int[this.variables.size()];
+            final long[] counts = new long[2];
+
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = i;
+            }
+
+            forEachLine(in, (buffer, from, to) -> {
+                if (header && counts[0]++ == 0) {
+                    this.bindHeader(buffer, from, to, fields);
+                } else {
+                    counts[1]++;
+                }
+            });
+
+            final long rows = counts[1];
+            final int capacity = (int) Math.min(CHUNK_SIZE, rows);
+            final double[][] columns = new double[this.variables.size()][capacity];
+            final int[] filled = new int[1];
+            final long[] written = new long[1];
+            final long[] lines = new long[1];
+
+            forEachLine(in, (buffer, from, to) -> {
+                if (header && lines[0]++ == 0) {
+                    return;
+                }
+
+                this.parseLine(buffer, from, to, fields, columns, filled[0]);
+
+                if (++filled[0] == capacity) {
+                    this.write(out, columns, filled[0], written[0], rows);
+                    written[0] += filled[0];
+                    filled[0] = 0;
+                }
+            });
+
+            if (filled[0] > 0) {
+                this.write(out, columns, filled[0], written[0], rows);
+            }
+
+            return rows;
+        }
+    }
+
+    /**
+     * 列形式のバイナリの入力のファイルの各行で式を評価し、評価結果を列形式のバイナリで出力のファイルへ書き込みます。
+     *
+     * @param input  入力のファイル
+     * @param output 出力のファイル
+     * @return 評価した行の数
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 式に変数が含まれない場合、または入力のファイルの大きさが変数の数と {@code double} 型のバイト数の積の倍数でない場合
+     * @exception IOException              ファイルの読み書きに失敗した場合
+     */
+    public long evaluateBinary(@NonNull Path input, @NonNull Path output) throws IOException {
+
+        if (this.variables.isEmpty()) {
+            throw new IllegalArgumentException("Binary input requires at least one variable");
+        }
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            final long rowBytes = (long) this.variables.size() * DOUBLE_BYTES;
+
+            if (in.size() % rowBytes != 0) {
+                throw new IllegalArgumentException(String.format(
+                        "File size %d is not a multiple of %d variables of %d bytes", in.size(),
+                        this.variables.size(), DOUBLE_BYTES));
+            }
+
+            final long rows = in.size() / rowBytes;
+            final DoubleBuffer[] columns = new DoubleBuffer[this.variables.size()];
+
+            for (long start = 0; start < rows; start += WINDOW_SIZE / DOUBLE_BYTES) {
+
+                final int count = (int) Math.min(WINDOW_SIZE / DOUBLE_BYTES, rows - start);
+
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = map(in, FileChannel.MapMode.READ_ONLY, i * rows + start, count);
+                }
+
+                for (int i = 0; i < this.expressions.size(); i++) {
+
+                    final DoubleBuffer[] slots = new DoubleBuffer[this.slots[i].length];
+
+                    for (int j = 0; j < slots.length; j++) {
+                        slots[j] = columns[this.slots[i][j]];
+                    }
+
+                    this.expressions.get(i).evaluateDouble(slots,
+                            map(out, FileChannel.MapMode.READ_WRITE, i * rows + start, count), ColumnarBackend.SCALAR);
+                }
+            }
+
+            return rows;
+        }
+    }
+
+    /**
+     * 列の先頭から指定された行の数の式を評価し、評価結果を出力のファイルの各式の列の指定された位置へ書き込みます。
+     *
+     * @param out     出力のファイル
+     * @param columns 変数名の順に並べた変数の値の列
+     * @param count   評価する行の数
+     * @param start   出力のファイルの列における最初の行の位置
+     * @param rows    全ての行の数
+     *
+     * @exception IOException ファイルの書き込みに失敗した場合
+     */
+    private void write(FileChannel out, double[][] columns, int count, long start, long rows) throws IOException {
+
+        final double[] results = new double[count];
+
+        for (int i = 0; i < this.expressions.size(); i++) {
+
+            final double[][] slots = new double[this.slots[i].length][];
+
+            for (int j = 0; j < slots.length; j++) {
+                slots[j] = columns[this.slots[i][j]];
+            }
+
+            this.expressions.get(i).evaluateDouble(slots, results);
+
+            map(out, FileChannel.MapMode.READ_WRITE, i * rows + start, count).put(results, 0, count);
+        }
+    }
+
+    /**
+     * ファイルの指定された位置から指定された数の {@code double} 型の値をリトルエンディアンで写像します。
+     *
+     * @param channel ファイル
+     * @param mode    写像の方式
+     * @param index   最初の値の位置
+     * @param count   値の数
+     * @return 写像した値のバッファ
+     *
+     * @exception IOException ファイルの写像に失敗した場合
+     */
+    private static DoubleBuffer map(FileChannel channel, FileChannel.MapMode mode, long index, int count)
+            throws IOException {
+        return channel.map(mode, index * DOUBLE_BYTES, (long) count * DOUBLE_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .asDoubleBuffer();
+    }
+
+    /**
+     * 見出しの行から各変数の値を読み込む列の番号を決定します。
+     *
+     * @param buffer 写像したバイト列
+     * @param from   行の最初の位置
+     * @param to     行の最後の次の位置
+     * @param fields 変数名の順に並べた列の番号の出力先
+     *
+     * @exception IllegalArgumentException 見出しの行に変数名が含まれない場合
+     */
+    private void bindHeader(ByteBuffer buffer, int from, int to, int[] fields) {
+
+        final byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+
+        final List<String> names = new ArrayList<>();
+
+        for (String name : new String(bytes, StandardCharsets.UTF_8).split(",", -1)) {
+            names.add(name.strip());
+        }
+
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = names.indexOf(this.variables.get(i));
+
+            if (fields[i] < 0) {
+                throw new IllegalArgumentException(
+                        String.format("Header %s does not contain variable %s", names, this.variables.get(i)));
+            }
+        }
+    }
+
+    /**
+     * CSV 形式の一行を解析し、各変数の値を列の指定された行へ格納します。
+     *
+     * @param buffer  写像したバイト列
+     * @param from    行の最初の位置
+     * @param to      行の最後の次の位置
+     * @param fields  変数名の順に並べた列の番号
+     * @param columns 変数名の順に並べた変数の値の列
+     * @param row     格納する行
+     *
+     * @exception IllegalArgumentException 列が不足している場合、または数値の形式に誤りがある場合
+     */
+    private void parseLine(ByteBuffer buffer, int from, int to, int[] fields, double[][] columns, int row) {
+
+        int field = 0;
+        int start = from;
+
+        for (int i = from; i <= to; i++) {
+            if (i == to || buffer.get(i) == ',') {
+                for (int j = 0; j < fields.length; j++) {
+                    if (fields[j] == field) {
+                        columns[j][row] = parseDouble(buffer, start, i);
+                    }
+                }
+
+                field++;
+                start = i + 1;
+            }
+        }
+
+        for (int j = 0; j < fields.length; j++) {
+            if (fields[j] >= field) {
+                throw new IllegalArgumentException(
+                        String.format("Expected at least %d fields but %d were given", fields[j] + 1, field));
+            }
+        }
+    }
+
+    /**
+     * 写像したバイト列の指定された範囲を数値として解析します。
+     * <p>
+     * 前後の空白は無視されます。有効桁数が {@code 15} 桁以下かつ十進の指数の絶対値が {@code 22} 以下の数値は仮数と {@code 10}
+     * の累乗がいずれも {@code double} 型で正確に表現できるため、一度の乗算または除算で正しく丸めた値を求めます。それ以外の数値は
+     * {@link Double#parseDouble(String)} で解析します。
+     *
+     * @param buffer 写像したバイト列
+     * @param from   数値の最初の位置
+     * @param to     数値の最後の次の位置
+     * @return 解析した数値
+     *
+     * @exception IllegalArgumentException 数値の形式に誤りがある場合
+     */
+    static double parseDouble(ByteBuffer buffer, int from, int to) {
+
+        while (from < to && buffer.get(from) <= ' ') {
+            from++;
+        }
+
+        while (to > from && buffer.get(to - 1) <= ' ') {
+            to--;
+        }
+
+        int position = from;
+        final boolean negative = position < to && buffer.get(position) == '-';
+
+        if (position < to && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seen = false;
+        boolean fraction = false;
+
+        for (; position < to; position++) {
+
+            final byte character = buffer.get(position);
+
+            if (character >= '0' && character <= '9') {
+                seen = true;
+
+                if (mantissa == 0 && character == '0') {
+                    exponent -= fraction ? 1 : 0;
+                    continue;
+                }
+
+                if (++digits > 15) {
+                    return parseSlow(buffer, from, to);
+                }
+
+                mantissa = mantissa * 10 + (character - '0');
+                exponent -= fraction ? 1 : 0;
+            } else if (character == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+
+        if (position < to && seen && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+
+            position++;
+            final boolean negativeExponent = position < to && buffer.get(position) == '-';
+
+            if (position < to && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                position++;
+            }
+
+            int value = 0;
+            final int start = position;
+
+            for (; position < to && buffer.get(position) >= '0' && buffer.get(position) <= '9'; position++) {
+                if (value > 10000) {
+                    return parseSlow(buffer, from, to);
+                }
+
+                value = value * 10 + (buffer.get(position) - '0');
+            }
+
+            if (position == start) {
+                return parseSlow(buffer, from, to);
+            }
+
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (!seen || position != to || exponent < -22 || exponent > 22) {
+            return parseSlow(buffer, from, to);
+        }
+
+        final double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent]
+                : mantissa * POWERS_OF_TEN[exponent];
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * 写像したバイト列の指定された範囲を {@link Double#parseDouble(String)} で数値として解析します。
+     *
+     * @param buffer 写像したバイト列
+     * @param from   数値の最初の位置
+     * @param to     数値の最後の次の位置
+     * @return 解析した数値
+     *
+     * @exception IllegalArgumentException 数値の形式に誤りがある場合
+     */
+    private static double parseSlow(ByteBuffer buffer, int from, int to) {
+
+        final byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+
+        final String text = new String(bytes, StandardCharsets.ISO_8859_1);
+
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number: " + text, e);
+        }
+    }
+
+    /**
+     * ファイルを順に写像し、空の行を除く各行を引数として渡された処理へ渡します。
+     * <p>
+     * 行が写像の境界をまたぐ場合は行の先頭から次の写像を開始します。
+     *
+     * @param channel ファイル
+     * @param action  各行の処理
+     *
+     * @exception IllegalArgumentException 一行が写像するバイト数の上限より長い場合
+     * @exception IOException              ファイルの読み込みに失敗した場合
+     */
+    private static void forEachLine(FileChannel channel, LineAction action) throws IOException {
+
+        final long size = channel.size();
+        long position = 0;
+
+        while (position < size) {
+
+            final int length = (int) Math.min(WINDOW_SIZE, size - position);
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            final boolean last = position + length == size;
+            int start = 0;
+
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(i) == '\n') {
+                    acceptLine(buffer, start, i, action);
+                    start = i + 1;
+                }
+            }
+
+            if (last) {
+                acceptLine(buffer, start, length, action);
+                position = size;
+            } else if (start == 0) {
+                throw new IllegalArgumentException("Line exceeds " + WINDOW_SIZE + " bytes at offset " + position);
+            } else {
+                position += start;
+            }
+        }
+    }
+
+    /**
+     * 行末の {@code \r} を除いた行が空でない場合に引数として渡された処理へ渡します。
+     *
+     * @param buffer 写像したバイト列
+     * @param from   行の最初の位置
+     * @param to     行の最後の次の位置
+     * @param action 各行の処理
+     *
+     * @exception IOException ファイルの読み書きに失敗した場合
+     */
+    private static void acceptLine(ByteBuffer buffer, int from, int to, LineAction action) throws IOException {
+
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+
+        if (to > from) {
+            action.accept(buffer, from, to);
+        }
+    }
+
+    /**
+     * 引数として渡された形式、入力のファイル、出力のファイル、式でファイルの各行を評価します。
+     *
+     * @param args {@code csv} 、 {@code csv-header} 、 {@code binary} のいずれかの形式、入力のファイル、出力のファイル、式の並び
+     *
+     * @exception IOException ファイルの読み書きに失敗した場合
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 4 || !Arrays.asList("csv", "csv-header", "binary").contains(args[0])) {
+            System.err.println("Usage: MappedFileEvaluator csv|csv-header|binary <input> <output> <expression>...");
+            System.exit(2);
+            return;
+        }
+
+        final Evaluator[] evaluators = new Evaluator[args.length - 3];
+
+        for (int i = 0; i < evaluators.length; i++) {
+            evaluators[i] = Neumann.input(args[i + 3]);
+        }
+
+        final MappedFileEvaluator evaluator = MappedFileEvaluator.of(evaluators);
+        final Path input = Paths.get(args[1]);
+        final Path output = Paths.get(args[2]);
+        final long rows = args[0].equals("binary") ? evaluator.evaluateBinary(input, output)
+                : evaluator.evaluateCsv(input, args[0].equals("csv-header"), output);
+
+        System.out.println(rows + " rows evaluated over " + evaluator.getVariables());
+    }
+
+    /**
+     * 写像したバイト列の一行を処理する関数です。
+     *
+     * @author Kato Shinya
+     * @since 1.0
+     * @version 1.0
+     */
+    @FunctionalInterface
+    private interface LineAction {
+
+        /**
+         * 一行を処理します。
+         *
+         * @param buffer 写像したバイト列
+         * @param from   行の最初の位置
+         * @param to     行の最後の次の位置
+         *
+         * @exception IOException ファイルの読み書きに失敗した場合
+         */
+        void accept(ByteBuffer buffer, int from, int to) throws IOException;
+    }
+}
@@ -17,11 +17,14 @@ package org.thinkit.neumann;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.thinkit.neumann.catalog.MathematicalConstant;
 import org.thinkit.neumann.catalog.MathematicalFunction;
 import org.thinkit.neumann.catalog.MathematicalOperator;
+import org.thinkit.neumann.catalog.NumericMode;
 
 import ch.obermuhlner.math.big.BigDecimalMath;
 import lombok.EqualsAndHashCode;
@@ -41,9 +44,9 @@ import lombok.ToString;
 public final class Neumann implements Evaluator {
 
     /**
-     * 演算規則
+     * デフォルトの演算規則
      */
-    private static final MathContext MATH_CONTEXT = new MathContext(20);
+    public static final MathContext DEFAULT_MATH_CONTEXT = new MathContext(20);
 
     /**
      * 評価する式
@@ -51,6 +54,24 @@ public final class Neumann implements Evaluator {
     @Getter
     private String expression;
 
+    /**
+     * 式を評価する際の数値表現
+     */
+    @Getter
+    private NumericMode numericMode = NumericMode.DECIMAL;
+
+    /**
+     * 演算規則
+     */
+    @Getter
+    private MathContext mathContext = DEFAULT_MATH_CONTEXT;
+
+    /**
+     * 数学関数と累乗の評価結果を保持するキャッシュ、使用しない場合は {@code null}
+     */
+    @Getter
+    private FunctionCache functionCache;
+
     /**
      * デフォルトコンストラクタ
      */
@@ -68,6 +89,24 @@ public final class Neumann implements Evaluator {
         this.expression = expression;
     }
 
+    /**
+     * コンストラクタ
+     *
+     * @param expression    評価する式
+     * @param numericMode   式を評価する際の数値表現
+     * @param mathContext   演算規則
+     * @param functionCache 数学関数と累乗の評価結果を保持するキャッシュ、使用しない場合は {@code null}
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    private Neumann(@NonNull String expression, @NonNull NumericMode numericMode, @NonNull MathContext mathContext,
+            FunctionCache functionCache) {
+        this.expression = expression;
+        this.numericMode = numericMode;
+        this.mathContext = mathContext;
+        this.functionCache = functionCache;
+    }
+
     /**
      * 引数として渡された式を評価する {@link Neumann} クラスの新しいインスタンスを生成し返却します。
      *
@@ -80,83 +119,224 @@ public final class Neumann implements Evaluator {
         return new Neumann(expression);
     }
 
+    /**
+     * 引数として渡された式を構文解析し、繰り返し評価可能な {@link CompiledExpression} クラスの新しいインスタンスを生成し返却します。
+     * <p>
+     * 式の構文に誤りがある場合はこのメソッドの呼び出し時に例外が送出されます。
+     *
+     * @param expression 構文解析する式
+     * @return {@link CompiledExpression} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 式の構文に誤りがある場合
+     */
+    public static CompiledExpression compile(@NonNull String expression) {
+        return CompiledExpression.of(new Neumann(expression));
+    }
+
+    /**
+     * 引数として渡された式を引数として渡された演算規則で構文解析し、繰り返し評価可能な {@link CompiledExpression} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param expression  構文解析する式
+     * @param mathContext 演算規則
+     * @return {@link CompiledExpression} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 式の構文に誤りがある場合、または演算規則の精度が {@code 0} の場合
+     */
+    public static CompiledExpression compile(@NonNull String expression, @NonNull MathContext mathContext) {
+        return CompiledExpression.of(new Neumann(expression).withMathContext(mathContext));
+    }
+
+    /**
+     * 引数として渡された数値表現で同一の式を評価する {@link Neumann} クラスの新しいインスタンスを生成し返却します。
+     * <p>
+     * {@link NumericMode#DOUBLE} が指定された場合、全ての演算子、関数、数学定数は {@link Math} クラスの関数により {@code double}
+     * 型で評価されます。
+     *
+     * @param numericMode 式を評価する際の数値表現
+     * @return {@link Neumann} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    @Override
+    public Evaluator withNumericMode(@NonNull NumericMode numericMode) {
+        return new Neumann(this.expression, numericMode, this.mathContext, this.functionCache);
+    }
+
+    /**
+     * 引数として渡された演算規則で同一の式を評価する {@link Neumann} クラスの新しいインスタンスを生成し返却します。
+     * <p>
+     * 演算規則は累乗、丸め、三角関数、対数関数、平方根、数学定数の精度と丸めモードに使用されます。数学定数は演算規則毎に一度だけ計算され、以降の評価では再利用されます。
+     *
+     * @param mathContext 演算規則
+     * @return {@link Neumann} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException     引数として {@code null} が渡された場合
+     * @exception IllegalArgumentException 演算規則の精度が {@code 0} の場合
+     */
+    @Override
+    public Evaluator withMathContext(@NonNull MathContext mathContext) {
+
+        if (mathContext.getPrecision() == 0) {
+            throw new IllegalArgumentException("Unlimited precision is not supported: " + mathContext);
+        }
+
+        return new Neumann(this.expression, this.numericMode, mathContext, this.functionCache);
+    }
+
+    /**
+     * 引数として渡されたキャッシュへ数学関数と累乗の評価結果を保持しながら同一の式を評価する {@link Neumann} クラスの新しいインスタンスを生成し返却します。
+     * <p>
+     * 三角関数、双曲線関数、 {@code log} 、 {@code sqrt} 、 {@code ^} の評価結果が引数の値と演算規則をキーとして保持されます。同一のキャッシュは複数の評価器とスレッドで共有することができます。
+     * {@link CompiledExpression#toDecimalExpression()} メソッドで変換されたクラスはキャッシュを使用しません。
+     *
+     * @param functionCache 数学関数と累乗の評価結果を保持するキャッシュ
+     * @return {@link Neumann} クラスの新しいインスタンス
+     *
+     * @exception NullPointerException 引数として {@code null} が渡された場合
+     */
+    @Override
+    public Evaluator withFunctionCache(@NonNull FunctionCache functionCache) {
+        return new Neumann(this.expression, this.numericMode, this.mathContext, functionCache);
+    }
+
     @Override
     public BigDecimal evaluate(@NonNull MathematicalConstant constant) {
-        return switch (constant) {
-            case PI -> BigDecimalMath.pi(MATH_CONTEXT);
-            case NAPIER -> BigDecimalMath.e(MATH_CONTEXT);
-        };
+        return ConstantCache.get(constant, this.mathContext);
     }
 
     @Override
     public BigDecimal evaluate(@NonNull MathematicalOperator operator, @NonNull Iterator<BigDecimal> operands) {
+        final BigDecimal[] values = toArray(operands);
+        return this.evaluate(operator, values, 0, values.length);
+    }
+
+    @Override
+    public BigDecimal evaluate(@NonNull MathematicalFunction function, @NonNull Iterator<BigDecimal> arguments) {
+        final BigDecimal[] values = toArray(arguments);
+        return this.evaluate(function, values, 0, values.length);
+    }
+
+    @Override
+    public BigDecimal evaluate(@NonNull MathematicalOperator operator, @NonNull BigDecimal[] operands, int offset,
+            int count) {
         return switch (operator) {
-            case NEGATE -> operands.next().negate();
-            case MINUS -> operands.next().subtract(operands.next());
-            case PLUS -> operands.next().add(operands.next());
-            case MULTIPLY -> operands.next().multiply(operands.next());
-            case DIVIDE -> operands.next().divide(operands.next());
-            case EXPONENT -> BigDecimalMath.pow(operands.next(), operands.next(), MATH_CONTEXT);
-            case MODULO -> operands.next().remainder(operands.next());
+            case NEGATE -> operands[offset].negate();
+            case MINUS -> operands[offset].subtract(operands[offset + 1]);
+            case PLUS -> operands[offset].add(operands[offset + 1]);
+            case MULTIPLY -> operands[offset].multiply(operands[offset + 1]);
+            case DIVIDE -> operands[offset].divide(operands[offset + 1]);
+            case EXPONENT -> this.functionCache == null
+                    ? BigDecimalMath.pow(operands[offset], operands[offset + 1], this.mathContext)
+                    : this.functionCache.get(operator, this.mathContext, operands, offset, count,
+                            () -> BigDecimalMath.pow(operands[offset], operands[offset + 1], this.mathContext));
+            case MODULO -> operands[offset].remainder(operands[offset + 1]);
         };
     }
 
     @Override
-    public BigDecimal evaluate(@NonNull MathematicalFunction function, @NonNull Iterator<BigDecimal> arguments) {
+    public BigDecimal evaluate(@NonNull MathematicalFunction function, @NonNull BigDecimal[] arguments, int offset,
+            int count) {
+
+        if (this.functionCache != null && isCacheable(function)) {
+            return this.functionCache.get(function, this.mathContext, arguments, offset, count,
+                    () -> this.apply(function, arguments, offset, count));
+        }
+
+        return this.apply(function, arguments, offset, count);
+    }
+
+    /**
+     * 引数として渡された関数の評価結果をキャッシュへ保持するか判定します。
+     *
+     * @param function 関数
+     * @return 三角関数、双曲線関数、 {@code log} 、 {@code sqrt} の場合は {@code true} 、それ以外は {@code false}
+     */
+    private static boolean isCacheable(MathematicalFunction function) {
         return switch (function) {
-            case CEIL -> arguments.next().setScale(0, RoundingMode.CEILING);
-            case FLOOR -> arguments.next().setScale(0, RoundingMode.FLOOR);
-            case ROUND -> arguments.next().round(MATH_CONTEXT);
-            case ABS -> arguments.next().abs();
-            case SINE -> BigDecimalMath.sin(arguments.next(), MATH_CONTEXT);
-            case COSINE -> BigDecimalMath.cos(arguments.next(), MATH_CONTEXT);
-            case TANGENT -> BigDecimalMath.tan(arguments.next(), MATH_CONTEXT);
-            case ARC_SINE -> BigDecimalMath.asin(arguments.next(), MATH_CONTEXT);
-            case ARC_COSINE -> BigDecimalMath.acos(arguments.next(), MATH_CONTEXT);
-            case ARC_TANGENT -> BigDecimalMath.atan(arguments.next(), MATH_CONTEXT);
-            case HYPERBOLIC_SINE -> BigDecimalMath.sinh(arguments.next(), MATH_CONTEXT);
-            case HYPERBOLIC_COSINE -> BigDecimalMath.cosh(arguments.next(), MATH_CONTEXT);
-            case HYPERBOLIC_TANGENT -> BigDecimalMath.tanh(arguments.next(), MATH_CONTEXT);
+            case SINE, COSINE, TANGENT, ARC_SINE, ARC_COSINE, ARC_TANGENT, HYPERBOLIC_SINE, HYPERBOLIC_COSINE,
+                    HYPERBOLIC_TANGENT, LOG, SQRT -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * 配列の一部を引数として関数を評価します。
+     *
+     * @param function  関数
+     * @param arguments 引数を格納した配列
+     * @param offset    最初の引数の位置
+     * @param count     引数の数
+     * @return 関数の評価結果
+     */
+    private BigDecimal apply(MathematicalFunction function, BigDecimal[] arguments, int offset, int count) {
+        return switch (function) {
+            case CEIL -> arguments[offset].setScale(0, RoundingMode.CEILING);
+            case FLOOR -> arguments[offset].setScale(0, RoundingMode.FLOOR);
+            case ROUND -> arguments[offset].round(this.mathContext);
+            case ABS -> arguments[offset].abs();
+            case SINE -> BigDecimalMath.sin(arguments[offset], this.mathContext);
+            case COSINE -> BigDecimalMath.cos(arguments[offset], this.mathContext);
+            case TANGENT -> BigDecimalMath.tan(arguments[offset], this.mathContext);
+            case ARC_SINE -> BigDecimalMath.asin(arguments[offset], this.mathContext);
+            case ARC_COSINE -> BigDecimalMath.acos(arguments[offset], this.mathContext);
+            case ARC_TANGENT -> BigDecimalMath.atan(arguments[offset], this.mathContext);
+            case HYPERBOLIC_SINE -> BigDecimalMath.sinh(arguments[offset], this.mathContext);
+            case HYPERBOLIC_COSINE -> BigDecimalMath.cosh(arguments[offset], this.mathContext);
+            case HYPERBOLIC_TANGENT -> BigDecimalMath.tanh(arguments[offset], this.mathContext);
             case MIN -> {
-                BigDecimal minimum = arguments.next();
+                BigDecimal minimum = arguments[offset];
 
-                while (arguments.hasNext()) {
-                    minimum = minimum.min(arguments.next());
+                for (int i = 1; i < count; i++) {
+                    minimum = minimum.min(arguments[offset + i]);
                 }
 
                 yield minimum;
             }
             case MAX -> {
-                BigDecimal maximum = arguments.next();
+                BigDecimal maximum = arguments[offset];
 
-                while (arguments.hasNext()) {
-                    maximum = maximum.max(arguments.next());
+                for (int i = 1; i < count; i++) {
+                    maximum = maximum.max(arguments[offset + i]);
                 }
 
                 yield maximum;
             }
             case SUM -> {
-                BigDecimal sum = arguments.next();
+                BigDecimal sum = arguments[offset];
 
-                while (arguments.hasNext()) {
-                    sum = sum.add(arguments.next());
+                for (int i = 1; i < count; i++) {
+                    sum = sum.add(arguments[offset + i]);
                 }
 
                 yield sum;
             }
             case AVERAGE -> {
-                BigDecimal average = arguments.next();
-                int count = 1;
+                BigDecimal average = arguments[offset];
 
-                while (arguments.hasNext()) {
-                    average = average.add(arguments.next());
-                    count++;
+                for (int i = 1; i < count; i++) {
+                    average = average.add(arguments[offset + i]);
                 }
 
                 yield average.divide(new BigDecimal(count));
             }
-            case LOG -> BigDecimalMath.log(arguments.next(), MATH_CONTEXT);
-            case SQRT -> BigDecimalMath.sqrt(arguments.next(), MATH_CONTEXT);
+            case LOG -> BigDecimalMath.log(arguments[offset], this.mathContext);
+            case SQRT -> BigDecimalMath.sqrt(arguments[offset], this.mathContext);
         };
     }
+
+    /**
+     * 引数として渡されたイテレータの残りの要素を配列へ変換します。
+     *
+     * @param values イテレータ
+     * @return イテレータの残りの要素の配列
+     */
+    private static BigDecimal[] toArray(Iterator<BigDecimal> values) {
+
+        final List<BigDecimal> list = new ArrayList<>();
+        values.forEachRemaining(list::add);
+
+        return list.toArray(new BigDecimal[0]);
+    }
 }
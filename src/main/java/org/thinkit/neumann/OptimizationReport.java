@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 構文解析された式に対して行われた最適化の結果を表現するクラスです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@ToString
+@EqualsAndHashCode
+public final class OptimizationReport {
+
+    /**
+     * 畳み込まれた数学定数、演算子、関数の数
+     */
+    @Getter
+    private final int foldedCount;
+
+    /**
+     * 恒等式により除去された演算子の数
+     */
+    @Getter
+    private final int simplifiedCount;
+
+    /**
+     * 最適化前の構文木のノード数
+     */
+    @Getter
+    private final int nodeCountBefore;
+
+    /**
+     * 最適化後の構文木のノード数、特殊化により共有された部分木は一度だけ数える
+     */
+    @Getter
+    private final int nodeCountAfter;
+
+    /**
+     * コンストラクタ
+     *
+     * @param foldedCount     畳み込まれた数学定数、演算子、関数の数
+     * @param simplifiedCount 恒等式により除去された演算子の数
+     * @param nodeCountBefore 最適化前の構文木のノード数
+     * @param nodeCountAfter  最適化後の構文木のノード数
+     */
+    private OptimizationReport(int foldedCount, int simplifiedCount, int nodeCountBefore, int nodeCountAfter) {
+        this.foldedCount = foldedCount;
+        this.simplifiedCount = simplifiedCount;
+        this.nodeCountBefore = nodeCountBefore;
+        this.nodeCountAfter = nodeCountAfter;
+    }
+
+    /**
+     * {@link OptimizationReport} クラスの新しいインスタンスを生成し返却します。
+     *
+     * @param foldedCount     畳み込まれた数学定数、演算子、関数の数
+     * @param simplifiedCount 恒等式により除去された演算子の数
+     * @param nodeCountBefore 最適化前の構文木のノード数
+     * @param nodeCountAfter  最適化後の構文木のノード数
+     * @return {@link OptimizationReport} クラスの新しいインスタンス
+     */
+    static OptimizationReport of(int foldedCount, int simplifiedCount, int nodeCountBefore, int nodeCountAfter) {
+        return new OptimizationReport(foldedCount, simplifiedCount, nodeCountBefore, nodeCountAfter);
+    }
+}
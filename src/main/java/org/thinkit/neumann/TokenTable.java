@@ -0,0 +1,312 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import java.util.Arrays;
+
+import org.thinkit.api.catalog.BiCatalog;
+import org.thinkit.neumann.catalog.CloseBracket;
+import org.thinkit.neumann.catalog.FunctionPattern;
+import org.thinkit.neumann.catalog.LexemePattern;
+import org.thinkit.neumann.catalog.MathematicalConstant;
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+import org.thinkit.neumann.catalog.OpenBracket;
+import org.thinkit.neumann.catalog.OperatorPattern;
+
+/**
+ * 字句の分類に使用する参照表を管理するクラスです。
+ * <p>
+ * 演算子、括弧、引数の区切り文字は文字コードをインデックスとする配列、関数名と数学定数名はトライ木として、クラスの初期化時に各カタログから一度だけ構築されます。
+ * 以降の分類は全て定数時間で行われ、オブジェクトの生成を伴いません。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class TokenTable {
+
+    /**
+     * 参照表が対象とする文字コードの上限 (この値は含まない)
+     */
+    private static final int ALPHABET_SIZE = 128;
+
+    /**
+     * 関数における引数の区切り文字
+     */
+    private static final char FUNCTION_ARGUMENT_SEPARATOR = ',';
+
+    /**
+     * 記号の文字に対応する字句の種類
+     */
+    private static final LexemePattern[] SYMBOL_PATTERNS = new LexemePattern[ALPHABET_SIZE];
+
+    /**
+     * 記号の文字に対応する演算子
+     */
+    private static final MathematicalOperator[] OPERATORS = new MathematicalOperator[ALPHABET_SIZE];
+
+    /**
+     * 記号の文字に対応する始め括弧
+     */
+    private static final OpenBracket[] OPEN_BRACKETS = new OpenBracket[ALPHABET_SIZE];
+
+    /**
+     * 記号の文字に対応する終わり括弧
+     */
+    private static final CloseBracket[] CLOSE_BRACKETS = new CloseBracket[ALPHABET_SIZE];
+
+    /**
+     * 関数名のトライ木
+     */
+    private static final Trie<MathematicalFunction> FUNCTIONS = new Trie<>();
+
+    /**
+     * 数学定数名のトライ木
+     */
+    private static final Trie<MathematicalConstant> CONSTANTS = new Trie<>();
+
+    static {
+        register(FUNCTION_ARGUMENT_SEPARATOR, LexemePattern.FUNCTION_ARGUMENT_SEPARATOR);
+
+        for (OperatorPattern operatorPattern : OperatorPattern.values()) {
+            final char symbol = toSymbol(operatorPattern.getTag());
+            register(symbol, LexemePattern.OPERATOR);
+            OPERATORS[symbol] = BiCatalog.getEnum(MathematicalOperator.class, operatorPattern.getCode());
+        }
+
+        for (OpenBracket openBracket : OpenBracket.values()) {
+            final char symbol = toSymbol(openBracket.getTag());
+            register(symbol, LexemePattern.OPEN_BRACKET);
+            OPEN_BRACKETS[symbol] = openBracket;
+        }
+
+        for (CloseBracket closeBracket : CloseBracket.values()) {
+            final char symbol = toSymbol(closeBracket.getTag());
+            register(symbol, LexemePattern.CLOSE_BRACKET);
+            CLOSE_BRACKETS[symbol] = closeBracket;
+        }
+
+        for (FunctionPattern functionPattern : FunctionPattern.values()) {
+            FUNCTIONS.put(functionPattern.getTag(),
+                    BiCatalog.getEnum(MathematicalFunction.class, functionPattern.getCode()));
+        }
+
+        for (MathematicalConstant constant : MathematicalConstant.values()) {
+            if (FUNCTIONS.get(constant.getTag(), 0, constant.getTag().length()) != null) {
+                throw new IllegalStateException("Constant name conflicts with function name: " + constant.getTag());
+            }
+
+            CONSTANTS.put(constant.getTag(), constant);
+        }
+    }
+
+    /**
+     * デフォルトコンストラクタ
+     */
+    private TokenTable() {
+    }
+
+    /**
+     * 引数として渡された記号の文字に対応する字句の種類を返却します。
+     *
+     * @param c 文字
+     * @return 文字に対応する字句の種類。記号として登録されていない文字の場合は {@code null}
+     */
+    public static LexemePattern getSymbolPattern(char c) {
+        return c < ALPHABET_SIZE ? SYMBOL_PATTERNS[c] : null;
+    }
+
+    /**
+     * 引数として渡された記号の文字に対応する演算子を返却します。
+     *
+     * @param c 文字
+     * @return 文字に対応する演算子。演算子ではない文字の場合は {@code null}
+     */
+    public static MathematicalOperator getOperator(char c) {
+        return c < ALPHABET_SIZE ? OPERATORS[c] : null;
+    }
+
+    /**
+     * 引数として渡された記号の文字に対応する始め括弧を返却します。
+     *
+     * @param c 文字
+     * @return 文字に対応する始め括弧。始め括弧ではない文字の場合は {@code null}
+     */
+    public static OpenBracket getOpenBracket(char c) {
+        return c < ALPHABET_SIZE ? OPEN_BRACKETS[c] : null;
+    }
+
+    /**
+     * 引数として渡された記号の文字に対応する終わり括弧を返却します。
+     *
+     * @param c 文字
+     * @return 文字に対応する終わり括弧。終わり括弧ではない文字の場合は {@code null}
+     */
+    public static CloseBracket getCloseBracket(char c) {
+        return c < ALPHABET_SIZE ? CLOSE_BRACKETS[c] : null;
+    }
+
+    /**
+     * 引数として渡された文字列の範囲に一致する関数を返却します。
+     *
+     * @param text  文字列
+     * @param start 開始位置
+     * @param end   終了位置 (この位置の文字は含まない)
+     * @return 範囲に一致する関数。関数名ではない場合は {@code null}
+     */
+    public static MathematicalFunction getFunction(CharSequence text, int start, int end) {
+        return FUNCTIONS.get(text, start, end);
+    }
+
+    /**
+     * 引数として渡された文字列の範囲に一致する数学定数を返却します。
+     *
+     * @param text  文字列
+     * @param start 開始位置
+     * @param end   終了位置 (この位置の文字は含まない)
+     * @return 範囲に一致する数学定数。数学定数名ではない場合は {@code null}
+     */
+    public static MathematicalConstant getConstant(CharSequence text, int start, int end) {
+        return CONSTANTS.get(text, start, end);
+    }
+
+    /**
+     * 記号の文字と字句の種類の対応を登録します。
+     *
+     * @param symbol        記号の文字
+     * @param lexemePattern 字句の種類
+     *
+     * @exception IllegalStateException 同じ文字が既に登録されている場合
+     */
+    private static void register(char symbol, LexemePattern lexemePattern) {
+
+        if (SYMBOL_PATTERNS[symbol] != null) {
+            throw new IllegalStateException("Duplicate symbol: " + symbol);
+        }
+
+        SYMBOL_PATTERNS[symbol] = lexemePattern;
+    }
+
+    /**
+     * 1文字で構成されるタグを文字へ変換します。
+     *
+     * @param tag タグ
+     * @return タグの文字
+     *
+     * @exception IllegalStateException タグが参照表で扱えない場合
+     */
+    private static char toSymbol(String tag) {
+
+        if (tag.length() != 1 || tag.charAt(0) >= ALPHABET_SIZE) {
+            throw new IllegalStateException("Symbol must be a single ASCII character: " + tag);
+        }
+
+        return tag.charAt(0);
+    }
+
+    /**
+     * ASCII文字で構成される名前と値を対応付けるトライ木です。
+     * <p>
+     * ノードの遷移は {@code ノード番号 * 128 + 文字コード} をインデックスとする配列で表現されるため、名前の長さに比例する時間で検索できます。
+     *
+     * @param <E> 名前に対応付ける値の型
+     */
+    private static final class Trie<E> {
+
+        /**
+         * 遷移先のノード番号 (遷移先が存在しない場合は {@code 0})
+         */
+        private int[] transitions = new int[ALPHABET_SIZE];
+
+        /**
+         * ノードに対応付けられた値
+         */
+        private Object[] values = new Object[1];
+
+        /**
+         * ノードの数
+         */
+        private int size = 1;
+
+        /**
+         * 名前と値を対応付けます。
+         *
+         * @param name  名前
+         * @param value 値
+         *
+         * @exception IllegalStateException 名前が既に登録されている場合、または名前にASCII以外の文字が含まれる場合
+         */
+        void put(String name, E value) {
+
+            int node = 0;
+
+            for (int i = 0; i < name.length(); i++) {
+                final char c = name.charAt(i);
+
+                if (c >= ALPHABET_SIZE) {
+                    throw new IllegalStateException("Name must consist of ASCII characters: " + name);
+                }
+
+                if (this.transitions[node * ALPHABET_SIZE + c] == 0) {
+                    if (this.size == this.values.length) {
+                        this.values = Arrays.copyOf(this.values, this.size * 2);
+                        this.transitions = Arrays.copyOf(this.transitions, this.size * 2 * ALPHABET_SIZE);
+                    }
+
+                    this.transitions[node * ALPHABET_SIZE + c] = this.size++;
+                }
+
+                node = this.transitions[node * ALPHABET_SIZE + c];
+            }
+
+            if (this.values[node] != null) {
+                throw new IllegalStateException("Duplicate name: " + name);
+            }
+
+            this.values[node] = value;
+        }
+
+        /**
+         * 文字列の範囲に一致する名前に対応付けられた値を返却します。
+         *
+         * @param text  文字列
+         * @param start 開始位置
+         * @param end   終了位置 (この位置の文字は含まない)
+         * @return 名前に対応付けられた値。一致する名前が存在しない場合は {@code null}
+         */
+        @SuppressWarnings("unchecked")
+        E get(CharSequence text, int start, int end) {
+
+            int node = 0;
+
+            for (int i = start; i < end; i++) {
+                final char c = text.charAt(i);
+
+                if (c >= ALPHABET_SIZE) {
+                    return null;
+                }
+
+                node = this.transitions[node * ALPHABET_SIZE + c];
+
+                if (node == 0) {
+                    return null;
+                }
+            }
+
+            return (E) this.values[node];
+        }
+    }
+}
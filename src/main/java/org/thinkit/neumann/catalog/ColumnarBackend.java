@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann.catalog;
+
+import org.thinkit.api.catalog.Catalog;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 列単位の評価で各演算のループを実行する方式を管理するカタログです。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+@RequiredArgsConstructor
+public enum ColumnarBackend implements Catalog<ColumnarBackend> {
+
+    /**
+     * 一行ずつ演算する単純なループ
+     */
+    SCALAR(0),
+
+    /**
+     * {@code jdk.incubator.vector} モジュールにより複数の行を一度に演算するループ
+     * <p>
+     * 実行環境でモジュールが利用できない場合は {@link #SCALAR} と同じループで評価されます。
+     */
+    VECTOR(1);
+
+    /**
+     * コード値
+     */
+    @Getter
+    private final int code;
+}
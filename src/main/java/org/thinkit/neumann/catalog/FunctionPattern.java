@@ -67,12 +67,12 @@ public enum FunctionPattern implements BiCatalog<FunctionPattern, String> {
     /**
      * 逆正弦
      */
-    ARC_SINE(7, "acos"),
+    ARC_SINE(7, "asin"),
 
     /**
      * 逆余弦
      */
-    ARC_COSINE(8, "asin"),
+    ARC_COSINE(8, "acos"),
 
     /**
      * 逆正接
@@ -102,7 +102,7 @@ public enum FunctionPattern implements BiCatalog<FunctionPattern, String> {
     /**
      * 最大値
      */
-    MAX(14, "min"),
+    MAX(14, "max"),
 
     /**
      * 合計値
@@ -0,0 +1,69 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveExpressionTest {
+
+    @Test
+    void testFastPath() {
+        AdaptiveExpression expression = Neumann.compile("(a * b + c / 3) ^ 2 - sqrt(avg(a, c)) + abs(!b)")
+                .toAdaptiveExpression();
+
+        for (String[] values : new String[][] { { "1.5", "2.25", "1" }, { "0.1", "0.2", "0.3" },
+                { "12345.6789", "-0.001", "7" } }) {
+            BigDecimal a = new BigDecimal(values[0]);
+            BigDecimal b = new BigDecimal(values[1]);
+            BigDecimal c = new BigDecimal(values[2]);
+            MathContext reference = new MathContext(60);
+            BigDecimal expected = a.multiply(b).add(c.divide(new BigDecimal("3"), reference)).pow(2)
+                    .round(Neumann.DEFAULT_MATH_CONTEXT).subtract(a.add(c).divide(new BigDecimal("2")).sqrt(reference))
+                    .add(b.abs()).round(Neumann.DEFAULT_MATH_CONTEXT);
+
+            assertEquals(expected, expression.evaluate(a, b, c));
+        }
+
+        assertEquals(3, expression.getFastPathCount());
+        assertEquals(0, expression.getFallbackCount());
+        assertEquals(1.0, expression.getFastPathRate());
+    }
+
+    @Test
+    void testFallback() {
+        AdaptiveExpression expression = Neumann.compile("(a + b) - a").toAdaptiveExpression();
+
+        assertEquals(0, new BigDecimal("1E-30").compareTo(expression.evaluate(new BigDecimal("1E+30"),
+                new BigDecimal("1E-30"))));
+        assertEquals(0, expression.getFastPathCount());
+        assertEquals(1, expression.getFallbackCount());
+        assertEquals(0, new BigDecimal("2").compareTo(expression.evaluate(new BigDecimal("1"), new BigDecimal("2"))));
+        assertEquals(0.5, expression.getFastPathRate());
+
+        assertThrows(ArithmeticException.class,
+                () -> Neumann.compile("a / b").toAdaptiveExpression().evaluate(BigDecimal.ONE, BigDecimal.ZERO));
+        assertEquals(new BigDecimal("0.33333333333333333333"),
+                Neumann.compile("a / b % 1").toAdaptiveExpression().evaluate(BigDecimal.ONE, new BigDecimal("3")));
+    }
+
+    @Test
+    void testPrecision() {
+        MathContext mathContext = new MathContext(12, RoundingMode.HALF_EVEN);
+        AdaptiveExpression expression = Neumann.compile("sin(x) * log(x) + floor(x)", mathContext)
+                .toAdaptiveExpression();
+        BigDecimal x = new BigDecimal("2.5");
+
+        assertEquals(Neumann.compile("sin(x) * log(x) + floor(x)", new MathContext(40)).evaluate(x).round(mathContext),
+                expression.evaluate(x));
+        assertEquals(1, expression.getFastPathCount());
+
+        AdaptiveExpression precise = Neumann.compile("sin(x)").toAdaptiveExpression();
+        assertEquals(Neumann.compile("sin(x)").evaluate(x), precise.evaluate(x));
+        assertEquals(1, precise.getFallbackCount());
+    }
+}
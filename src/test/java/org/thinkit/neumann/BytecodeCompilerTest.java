@@ -0,0 +1,65 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+public class BytecodeCompilerTest {
+
+    @Test
+    void testDoubleExpression() {
+        DoubleExpression expression = Neumann.compile("x * (y - 1) / 2 + sum(x, y, 3) - max(x, 10) % 3 ^ 2")
+                .toDoubleExpression();
+
+        assertEquals(3.0 * (4.0 - 1) / 2 + (3.0 + 4.0 + 3) - 10 % Math.pow(3, 2),
+                expression.evaluate(new double[] { 3, 4 }));
+        assertEquals(-1.5, Neumann.compile("avg(1, 2, !3, !6)").toDoubleExpression().evaluate(new double[0]));
+        assertEquals(Math.sqrt(Math.PI),
+                Neumann.compile("sqrt(x)").toDoubleExpression().evaluate(new double[] { Math.PI }));
+    }
+
+    @Test
+    void testDecimalExpression() {
+        String[] formulas = { "3*(4-9)/3", "ceil(x / 4) + floor(!x / 4)", "min(x, 2, y) * abs(!y)", "avg(x, y, 4)",
+                "round(x ^ 2) + sqrt(y)", "sin(x) + log(y) - pi", "!x % 3" };
+        BigDecimal[] values = { new BigDecimal("7"), new BigDecimal("16") };
+
+        for (String formula : formulas) {
+            CompiledExpression expression = Neumann.compile(formula);
+            assertEquals(expression.evaluate(values), expression.toDecimalExpression().evaluate(values), formula);
+        }
+    }
+
+    @Test
+    void testSharedSubexpression() {
+        CompiledExpression expression = Neumann.compile("sin(x * y) + sin(x * y) * (x * y) - sqrt(x * y)");
+        BigDecimal[] values = { new BigDecimal("1.5"), new BigDecimal("4") };
+
+        assertEquals(expression.evaluate(values), expression.toDecimalExpression().evaluate(values));
+        assertEquals(expression.evaluateDouble(1.5, 4),
+                expression.toDoubleExpression().evaluate(new double[] { 1.5, 4 }));
+
+        StringBuilder formula = new StringBuilder("0");
+
+        for (int i = 1; i <= 200; i++) {
+            formula.append(" + (x + ").append(i).append(") * (x + ").append(i).append(")");
+        }
+
+        CompiledExpression large = Neumann.compile(formula.toString());
+
+        assertEquals(large.evaluateDouble(0.5), large.toDoubleExpression().evaluate(new double[] { 0.5 }));
+        assertEquals(large.evaluate(new BigDecimal("0.5")),
+                large.toDecimalExpression().evaluate(new BigDecimal[] { new BigDecimal("0.5") }));
+    }
+
+    @Test
+    void testDecimalExpressionArithmeticError() {
+        DecimalExpression expression = Neumann.compile("1 / x").toDecimalExpression();
+
+        assertEquals(new BigDecimal("0.5"), expression.evaluate(new BigDecimal[] { new BigDecimal("2") }));
+        assertThrows(ArithmeticException.class, () -> expression.evaluate(new BigDecimal[] { new BigDecimal("3") }));
+    }
+}
@@ -0,0 +1,249 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.thinkit.neumann.catalog.ColumnarBackend;
+
+import org.junit.jupiter.api.Test;
+
+public class CompiledExpressionTest {
+
+    @Test
+    void testEvaluate() {
+        CompiledExpression expression = Neumann.compile("3*(4-9)/3");
+
+        assertEquals(new BigDecimal("-5"), expression.evaluate());
+        assertEquals(new BigDecimal("-5"), expression.evaluate());
+    }
+
+    @Test
+    void testPrecedence() {
+        assertEquals(new BigDecimal("14"), Neumann.compile("2+3*4").evaluate());
+        assertEquals(new BigDecimal("20"), Neumann.compile("(2+3)*4").evaluate());
+    }
+
+    @Test
+    void testFunctionArguments() {
+        assertEquals(new BigDecimal("6"), Neumann.compile("sum(1, 2, 3)").evaluate());
+        assertEquals(new BigDecimal("5"), Neumann.compile("max(1, 5, 3)").evaluate());
+        assertEquals(new BigDecimal("1"), Neumann.compile("min(1, 5, 3)").evaluate());
+        assertEquals(new BigDecimal("-2"), Neumann.compile("!2").evaluate());
+    }
+
+    @Test
+    void testVariables() {
+        CompiledExpression expression = Neumann.compile("price * qty + price");
+
+        assertEquals(List.of("price", "qty"), expression.getVariables());
+        assertEquals(0, expression.getSlot("price"));
+        assertEquals(1, expression.getSlot("qty"));
+        assertEquals(new BigDecimal("12"), expression.evaluate(new BigDecimal("3"), new BigDecimal("3")));
+        assertEquals(0, new BigDecimal("7.5").compareTo(expression.evaluate(2.5, 2)));
+    }
+
+    @Test
+    void testMissingVariableValue() {
+        CompiledExpression expression = Neumann.compile("a + b");
+
+        assertThrows(IllegalArgumentException.class, () -> expression.evaluate(new BigDecimal("1")));
+        assertThrows(IllegalArgumentException.class, () -> expression.evaluate());
+        assertThrows(IllegalArgumentException.class, () -> expression.getSlot("c"));
+    }
+
+    @Test
+    void testParseErrorAtCompileTime() {
+        assertThrows(IllegalArgumentException.class, () -> Neumann.compile("(1+2"));
+        assertThrows(IllegalArgumentException.class, () -> Neumann.compile("1+2)"));
+        assertThrows(IllegalArgumentException.class, () -> Neumann.compile("1+"));
+    }
+
+    @Test
+    void testEvaluateDouble() {
+        CompiledExpression expression = Neumann.compile("sqrt(x*x + y*y) + avg(x, y) % 2 - sin(pi / 2) ^ 2");
+
+        assertEquals(5 + 3.5 % 2 - 1, expression.evaluateDouble(3, 4));
+        assertEquals(Double.POSITIVE_INFINITY, Neumann.compile("1 / x").evaluateDouble(0));
+        assertThrows(IllegalArgumentException.class, () -> expression.evaluateDouble(3));
+    }
+
+    @Test
+    void testEvaluateColumns() {
+        CompiledExpression expression = Neumann.compile("sqrt(x*x + y*y) + avg(x, y) % 2 - sin(y / 4) + max(x, 1, y)");
+        double[][] columns = new double[2][1500];
+
+        for (int i = 0; i < 1500; i++) {
+            columns[0][i] = i * 0.25 - 100;
+            columns[1][i] = 3 - i * 0.125;
+        }
+
+        double[] results = new double[1300];
+        expression.evaluateDouble(columns, results);
+
+        for (int i = 0; i < results.length; i++) {
+            assertEquals(expression.evaluateDouble(columns[0][i], columns[1][i]), results[i]);
+        }
+    }
+
+    @Test
+    void testColumnarBackend() {
+        CompiledExpression expression = Neumann
+                .compile("min(x, y, 2) - max(!x, y) * abs(x) / 4 + sqrt(abs(y)) - floor(x) + ceil(y) % 3 ^ 2");
+        double[][] columns = { { 1.5, -0.0, 0.0, Double.NaN, -2.25, 7, Double.POSITIVE_INFINITY, 1e-310, -3 },
+                { -0.0, 0.0, -0.0, 4, Double.NaN, -7, 1, -1e300, 0.5 } };
+        double[] scalar = new double[columns[0].length];
+
+        expression.evaluateDouble(columns, scalar, ColumnarBackend.SCALAR);
+
+        assertTrue(CompiledExpression.isAvailable(ColumnarBackend.SCALAR));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> expression.evaluateDouble(new double[][] { new double[10] }, new double[10]));
+        assertThrows(IllegalArgumentException.class,
+                () -> expression.evaluateDouble(new double[][] { new double[10], new double[5] }, new double[10]));
+
+        assumeTrue(CompiledExpression.isAvailable(ColumnarBackend.VECTOR));
+
+        for (int size = 0; size <= scalar.length; size++) {
+            double[] results = new double[size];
+            expression.evaluateDouble(columns, results, ColumnarBackend.VECTOR);
+
+            for (int i = 0; i < size; i++) {
+                assertEquals(scalar[i], results[i]);
+                assertEquals(expression.evaluateDouble(columns[0][i], columns[1][i]), results[i]);
+            }
+        }
+    }
+
+    @Test
+    void testEvaluateInParallel() {
+        CompiledExpression expression = Neumann.compile("x * y / 3 - sqrt(abs(x)) + sin(y) ^ 2");
+        double[][] columns = new double[2][5000];
+
+        for (int i = 0; i < 5000; i++) {
+            columns[0][i] = i * 0.5 - 1000;
+            columns[1][i] = Math.cos(i);
+        }
+
+        double[] expected = new double[5000];
+        expression.evaluateDouble(columns, expected);
+
+        double[] results = new double[5000];
+        expression.evaluateDoubleInParallel(columns, results);
+        assertArrayEquals(expected, results);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        ForkJoinPool pool = new ForkJoinPool(3);
+
+        try {
+            for (int grainSize : new int[] { 1, 7, 1000, 10000 }) {
+                results = new double[5000];
+                expression.evaluateDoubleInParallel(columns, results, ColumnarBackend.VECTOR, grainSize, executor);
+                assertArrayEquals(expected, results);
+
+                results = new double[5000];
+                expression.evaluateDoubleInParallel(columns, results, ColumnarBackend.SCALAR, grainSize, pool);
+                assertArrayEquals(expected, results);
+            }
+
+            assertThrows(IllegalArgumentException.class, () -> expression.evaluateDoubleInParallel(columns,
+                    new double[10], ColumnarBackend.SCALAR, 0, executor));
+        } finally {
+            executor.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testRejectedExecution() {
+        CompiledExpression expression = Neumann.compile("x * 2 + 1");
+        double[][] columns = { new double[3000] };
+        double[] results = new double[3000];
+        ExecutorService delegate = Executors.newSingleThreadExecutor();
+        AtomicInteger submitted = new AtomicInteger();
+
+        Arrays.setAll(columns[0], i -> i);
+
+        try {
+            Executor executor = task -> {
+                if (submitted.incrementAndGet() > 2) {
+                    throw new RejectedExecutionException();
+                }
+
+                delegate.execute(() -> {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+
+                    task.run();
+                });
+            };
+
+            assertThrows(RejectedExecutionException.class, () -> expression.evaluateDoubleInParallel(columns,
+                    results, ColumnarBackend.SCALAR, 1000, executor));
+
+            for (int i = 0; i < 2000; i++) {
+                assertEquals(i * 2 + 1, results[i]);
+            }
+
+            assertEquals(0, results[2000]);
+        } finally {
+            delegate.shutdown();
+        }
+    }
+
+    @Test
+    void testEvaluateBuffers() {
+        CompiledExpression expression = Neumann.compile("x * y / 3 - sqrt(abs(x)) + max(x, y)");
+        ByteBuffer x = ByteBuffer.allocateDirect(8 * 1200).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(8 * 1200);
+        DoubleBuffer y = DoubleBuffer.allocate(1210);
+
+        for (int i = 0; i < 1200; i++) {
+            x.putDouble(i * 8, i * 0.5 - 100);
+            bytes.putDouble(i * 8, 7 - i * 0.25);
+            y.put(i + 10, 7 - i * 0.25);
+        }
+
+        y.position(10);
+
+        ByteBuffer results = ByteBuffer.allocateDirect(8 * 1200);
+        expression.evaluateDouble(new ByteBuffer[] { x, bytes }, results, ColumnarBackend.VECTOR);
+
+        DoubleBuffer output = DoubleBuffer.allocate(1205).position(5);
+        expression.evaluateDouble(new DoubleBuffer[] { x.asDoubleBuffer(), y }, output, ColumnarBackend.SCALAR);
+
+        for (int i = 0; i < 1200; i++) {
+            double expected = expression.evaluateDouble(i * 0.5 - 100, 7 - i * 0.25);
+            assertEquals(expected, results.getDouble(i * 8));
+            assertEquals(expected, output.get(i + 5));
+        }
+
+        assertEquals(10, y.position());
+        assertEquals(5, output.position());
+        assertThrows(IllegalArgumentException.class, () -> expression.evaluateDouble(
+                new DoubleBuffer[] { x.asDoubleBuffer(), y }, DoubleBuffer.allocate(1201), ColumnarBackend.SCALAR));
+        assertThrows(ReadOnlyBufferException.class, () -> expression.evaluateDouble(
+                new DoubleBuffer[] { x.asDoubleBuffer(), y }, DoubleBuffer.allocate(10).asReadOnlyBuffer(),
+                ColumnarBackend.SCALAR));
+    }
+}
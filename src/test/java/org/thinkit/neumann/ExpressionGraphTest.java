@@ -0,0 +1,36 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+public class ExpressionGraphTest {
+
+    @Test
+    void testSharedSubexpressions() {
+        CompiledExpression expression = Neumann
+                .compile("max(sqrt(a*a+b*b), 1) + max(sqrt(a*a+b*b), c) - sqrt(a*a+b*b)");
+
+        // 8 ノードからなる sqrt(a*a+b*b) の 2 回目以降の出現と、最初の出現中の a と b の重複が共有される
+        assertEquals(8 * 2 + 2, expression.getSharedNodeCount());
+        assertEquals(0, new BigDecimal("9").compareTo(expression.evaluate(new BigDecimal("3"),
+                new BigDecimal("4"), new BigDecimal("9"))));
+    }
+
+    @Test
+    void testDistinctNodes() {
+        assertEquals(0, Neumann.compile("a + b * c").getSharedNodeCount());
+        assertEquals(1, Neumann.compile("2 * x + 2.0 * x").getSharedNodeCount());
+        assertEquals(0, Neumann.compile("x ^ 8").getSharedNodeCount());
+    }
+
+    @Test
+    void testTopologicalOrder() {
+        ExpressionGraph graph = ExpressionGraph.of(ExpressionParser.of("(x + 1) * (x + 1)").parse());
+
+        assertEquals(4, graph.size());
+        assertEquals(3, graph.getSharedCount());
+    }
+}
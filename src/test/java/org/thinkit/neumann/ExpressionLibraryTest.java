@@ -0,0 +1,123 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class ExpressionLibraryTest {
+
+    @Test
+    void testWriteAndOpen() throws IOException {
+        Map<String, CompiledExpression> expressions = new LinkedHashMap<>();
+        expressions.put("area", Neumann.compile("pi * r ^ 2"));
+        expressions.put("価格", Neumann.compile("sqrt(a*a + b*b) + max(sqrt(a*a + b*b), 0.125)"));
+        expressions.put("constant", Neumann.compile("!12345678901234567890.5 - 1"));
+        expressions.put("precision", Neumann.compile("sqrt(x) + pi", new MathContext(8, RoundingMode.DOWN)));
+
+        Path file = Files.createTempFile("neumann", ".lib");
+
+        try {
+            ExpressionLibrary.write(file, expressions);
+            ExpressionLibrary library = ExpressionLibrary.open(file);
+
+            assertEquals(4, library.size());
+            assertEquals(List.of("area", "価格", "constant", "precision"), List.copyOf(library.getNames()));
+
+            for (String name : expressions.keySet()) {
+                CompiledExpression expected = expressions.get(name);
+                CompiledExpression actual = library.get(name);
+
+                assertEquals(expected.getExpression(), actual.getExpression());
+                assertEquals(expected.getVariables(), actual.getVariables());
+                assertEquals(expected.getOptimizationReport(), actual.getOptimizationReport());
+                assertEquals(expected.getSharedNodeCount(), actual.getSharedNodeCount());
+                assertEquals(expected.getMathContext(), actual.getMathContext());
+            }
+
+            assertEquals(expressions.get("area").evaluate(new BigDecimal("2")),
+                    library.get("area").evaluate(new BigDecimal("2")));
+            assertEquals(new BigDecimal("10"), library.get("価格").evaluate(new BigDecimal("3"), new BigDecimal("4")));
+            assertEquals(new BigDecimal("-12345678901234567891.5"), library.get("constant").evaluate());
+            assertEquals(new BigDecimal("4.5558061"), library.get("precision").evaluate(new BigDecimal("2")));
+            assertSame(library.get("area"), library.get("area"));
+            assertThrows(IllegalArgumentException.class, () -> library.get("unknown"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testVersionWithoutMathContext() throws IOException {
+        Path file = Files.createTempFile("neumann", ".lib");
+
+        try {
+            CompiledExpression original = Neumann.compile("sqrt(x) + pi");
+            ExpressionLibrary.write(file, Map.of("a", original));
+
+            ByteBuffer current = ByteBuffer.wrap(Files.readAllBytes(file));
+            int body = (int) current.getLong(4 + 2 + 4 + 4 + 1);
+            int mathContext = body + 4 + current.getInt(body);
+            ByteBuffer legacy = ByteBuffer.allocate(current.capacity() - 8);
+
+            legacy.put(current.array(), 0, mathContext).put(current.array(), mathContext + 8,
+                    current.capacity() - mathContext - 8);
+            legacy.putShort(4, (short) 1);
+            Files.write(file, legacy.array());
+
+            CompiledExpression expression = ExpressionLibrary.open(file).get("a");
+
+            assertEquals(Neumann.DEFAULT_MATH_CONTEXT, expression.getMathContext());
+            assertEquals(original.getVariables(), expression.getVariables());
+            assertEquals(original.getOptimizationReport(), expression.getOptimizationReport());
+            assertEquals(original.evaluate(new BigDecimal("2")), expression.evaluate(new BigDecimal("2")));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testInvalidFile() throws IOException {
+        Path file = Files.createTempFile("neumann", ".lib");
+
+        try {
+            Files.write(file, new byte[] { 1, 2, 3, 4, 0, 1, 0, 0, 0, 0 });
+            assertThrows(IllegalArgumentException.class, () -> ExpressionLibrary.open(file));
+
+            Files.write(file, ByteBuffer.allocate(14).putInt(0x4e45554d).putShort((short) 2).putInt(1)
+                    .putInt(0x7ffffff0).array());
+            assertThrows(IllegalArgumentException.class, () -> ExpressionLibrary.open(file));
+
+            CompiledExpression expression = Neumann.compile("x + 1");
+            ExpressionLibrary.write(file, Map.of("a", expression));
+            byte[] bytes = Files.readAllBytes(file);
+            int body = (int) ByteBuffer.wrap(bytes).getLong(4 + 2 + 4 + 4 + 1);
+            int code = bytes.length - Integer.BYTES * (expression.getProgram().getCode().length + 1);
+
+            assertEquals(expression.getProgram().getCode().length, ByteBuffer.wrap(bytes).getInt(code));
+
+            for (int position : new int[] { body, code }) {
+                byte[] corrupted = bytes.clone();
+                ByteBuffer.wrap(corrupted).putInt(position, 0x7ffffff0);
+                Files.write(file, corrupted);
+
+                ExpressionLibrary library = ExpressionLibrary.open(file);
+                assertThrows(IllegalArgumentException.class, () -> library.get("a"));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
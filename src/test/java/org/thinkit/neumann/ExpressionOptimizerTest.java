@@ -0,0 +1,84 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class ExpressionOptimizerTest {
+
+    @Test
+    void testConstantFolding() {
+        CompiledExpression expression = Neumann.compile("2 * pi / 4 * x");
+        OptimizationReport report = expression.getOptimizationReport();
+
+        assertEquals(3, report.getFoldedCount());
+        assertEquals(7, report.getNodeCountBefore());
+        assertEquals(3, report.getNodeCountAfter());
+        assertEquals(Neumann.input("2 * pi / 4 * 90").evaluate(),
+                expression.evaluate(new BigDecimal("90")).toString());
+    }
+
+    @Test
+    void testIdentities() {
+        CompiledExpression expression = Neumann.compile("(1 + 0) * x + 0 - !!y / 1");
+        OptimizationReport report = expression.getOptimizationReport();
+
+        assertEquals(1, report.getFoldedCount());
+        assertEquals(5, report.getSimplifiedCount());
+        assertEquals(3, report.getNodeCountAfter());
+        assertEquals(new BigDecimal("1.5"), expression.evaluate(new BigDecimal("2.5"), BigDecimal.ONE));
+    }
+
+    @Test
+    void testIdentityKeepsScale() {
+        CompiledExpression expression = Neumann.compile("x * 1.0");
+
+        assertEquals(0, expression.getOptimizationReport().getSimplifiedCount());
+        assertEquals(new BigDecimal("2.0"), expression.evaluate(new BigDecimal("2")));
+    }
+
+    @Test
+    void testArithmeticErrorIsDeferred() {
+        CompiledExpression expression = Neumann.compile("x + 1 / 0");
+
+        assertEquals(0, expression.getOptimizationReport().getFoldedCount());
+        assertThrows(ArithmeticException.class, () -> expression.evaluate(BigDecimal.ONE));
+    }
+
+    @Test
+    void testSpecialization() {
+        CompiledExpression expression = Neumann.compile("x ^ 5 + y ^ 0.5 - avg(x, y, 2.25) + sum(x)");
+        OptimizationReport report = expression.getOptimizationReport();
+
+        assertEquals(4, report.getSimplifiedCount());
+        assertEquals(Neumann.input("1.5 ^ 5 + 2.25 ^ 0.5 - avg(1.5, 2.25, 2.25) + sum(1.5)").evaluate(),
+                expression.evaluate(new BigDecimal("1.5"), new BigDecimal("2.25")).toString());
+        assertEquals(Math.pow(1.5, 5) + 1.5 - 2 + 1.5,
+                expression.evaluateDouble(1.5, 2.25), 1e-12);
+        assertEquals(0, Neumann.compile("x ^ 9 + x ^ 0 + x ^ 2.5").getOptimizationReport().getSimplifiedCount());
+    }
+
+    @Test
+    void testDeepPowerChain() {
+        String formula = "x" + " ^ 8".repeat(40);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            CompiledExpression expression = Neumann.compile(formula);
+            OptimizationReport report = expression.getOptimizationReport();
+
+            assertEquals(40, report.getSimplifiedCount());
+            assertEquals(40 * 4 + 1, report.getNodeCountAfter());
+            assertEquals(0, expression.getSharedNodeCount());
+            assertEquals(BigDecimal.ONE, expression.evaluate(BigDecimal.ONE));
+            assertEquals(1.0, expression.toDoubleExpression().evaluate(new double[] { 1.0 }));
+            assertEquals(1, FormulaSet.of(Neumann.input(formula), Neumann.input("x")).evaluate(1.0)[0].intValue());
+            assertFalse(expression.toString().isEmpty());
+        });
+    }
+}
@@ -0,0 +1,160 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import org.junit.jupiter.api.Test;
+
+public class ExpressionProcessorTest {
+
+    @Test
+    void testProcess() {
+        ExpressionProcessor processor = ExpressionProcessor.of(64, Neumann.input("x * y + 1"),
+                Neumann.input("sqrt(z) - x / 4"));
+        RowPublisher publisher = new RowPublisher(1000);
+        RowSubscriber subscriber = new RowSubscriber();
+
+        assertEquals(List.of("x", "y", "z"), processor.getVariables());
+
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(1000, subscriber.rows.size());
+        assertTrue(subscriber.completed);
+
+        for (int i = 0; i < 1000; i++) {
+            double[] row = RowPublisher.row(i);
+            assertArrayEquals(new double[] { processor.getExpressions().get(0).evaluateDouble(row[0], row[1]),
+                    processor.getExpressions().get(1).evaluateDouble(row[2], row[0]) }, subscriber.rows.get(i));
+        }
+    }
+
+    @Test
+    void testBackpressure() {
+        ExpressionProcessor processor = ExpressionProcessor.of(8, Neumann.input("x + y + z"));
+        RowPublisher publisher = new RowPublisher(30);
+        RowSubscriber subscriber = new RowSubscriber();
+
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        subscriber.subscription.request(3);
+        assertEquals(3, subscriber.rows.size());
+        assertEquals(3, publisher.requested);
+
+        subscriber.subscription.request(20);
+        assertEquals(23, subscriber.rows.size());
+        assertEquals(23, publisher.requested);
+        assertEquals(List.of(3L, 8L, 8L, 4L), publisher.requests);
+
+        subscriber.subscription.request(100);
+        assertEquals(30, subscriber.rows.size());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    void testError() {
+        ExpressionProcessor processor = ExpressionProcessor.of(4, Neumann.input("a + b + c + d"));
+        RowPublisher publisher = new RowPublisher(10);
+        RowSubscriber subscriber = new RowSubscriber();
+
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+        subscriber.subscription.request(10);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(publisher.cancelled);
+
+        RowSubscriber second = new RowSubscriber();
+        processor.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+
+        assertThrows(IllegalArgumentException.class, () -> ExpressionProcessor.of(0, Neumann.input("x")));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionProcessor.of(4));
+    }
+
+    private static final class RowPublisher implements Flow.Publisher<double[]> {
+
+        private final int count;
+
+        private final List<Long> requests = new ArrayList<>();
+
+        private long requested;
+
+        private boolean cancelled;
+
+        private RowPublisher(int count) {
+            this.count = count;
+        }
+
+        private static double[] row(int i) {
+            return new double[] { i * 0.5, 3 - i, i % 7 };
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super double[]> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+
+                private int emitted;
+
+                @Override
+                public void request(long n) {
+                    requests.add(n);
+                    requested += n;
+
+                    for (long i = 0; i < n && this.emitted < count && !cancelled; i++) {
+                        subscriber.onNext(row(this.emitted++));
+                    }
+
+                    if (this.emitted == count && !cancelled) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    private static final class RowSubscriber implements Flow.Subscriber<double[]> {
+
+        private final List<double[]> rows = new ArrayList<>();
+
+        private Flow.Subscription subscription;
+
+        private boolean completed;
+
+        private Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(double[] item) {
+            this.rows.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+    }
+}
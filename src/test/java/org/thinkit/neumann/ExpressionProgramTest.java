@@ -0,0 +1,33 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+
+public class ExpressionProgramTest {
+
+    @Test
+    void testInstructionLayout() {
+        ExpressionProgram program = ExpressionProgram
+                .of(ExpressionGraph.of(ExpressionParser.of("max(x * 2, x)").parse()), Neumann.input(""));
+
+        assertArrayEquals(new int[] { ExpressionProgram.LOAD_VARIABLE, 0, ExpressionProgram.LOAD_CONSTANT, 0,
+                ExpressionProgram.APPLY_OPERATOR, MathematicalOperator.MULTIPLY.getCode(), 2, 0, 1,
+                ExpressionProgram.APPLY_FUNCTION, MathematicalFunction.MAX.getCode(), 2, 2, 0 }, program.getCode());
+        assertArrayEquals(new BigDecimal[] { new BigDecimal("2") }, program.getConstants());
+    }
+
+    @Test
+    void testEvaluate() {
+        ExpressionProgram program = ExpressionProgram.of(
+                ExpressionGraph.of(ExpressionParser.of("avg(a, b, 4) - !a ^ 2 % 7").parse()), Neumann.input(""));
+
+        assertEquals(new BigDecimal("6"),
+                program.evaluate(Neumann.input(""), new BigDecimal[] { new BigDecimal("3"), new BigDecimal("5") }));
+    }
+}
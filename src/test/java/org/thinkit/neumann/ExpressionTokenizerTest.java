@@ -0,0 +1,70 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.thinkit.neumann.catalog.LexemePattern;
+
+public class ExpressionTokenizerTest {
+
+    @Test
+    void testLexemesAndOffsets() {
+        ExpressionTokenizer tokens = ExpressionTokenizer.of(" max(a1, 2.50)*-3 ");
+
+        assertLexeme(tokens, LexemePattern.IDENTIFIER, 1, 4);
+        assertTrue(tokens.matches("max"));
+        assertLexeme(tokens, LexemePattern.OPEN_BRACKET, 4, 5);
+        assertLexeme(tokens, LexemePattern.IDENTIFIER, 5, 7);
+        assertEquals("a1", tokens.getText());
+        assertLexeme(tokens, LexemePattern.FUNCTION_ARGUMENT_SEPARATOR, 7, 8);
+        assertLexeme(tokens, LexemePattern.NUMBER, 9, 13);
+        assertEquals(new BigDecimal("2.50"), tokens.getNumber());
+        assertLexeme(tokens, LexemePattern.CLOSE_BRACKET, 13, 14);
+        assertLexeme(tokens, LexemePattern.OPERATOR, 14, 15);
+        assertEquals('*', tokens.getSymbol());
+        assertLexeme(tokens, LexemePattern.OPERATOR, 15, 16);
+        assertEquals('-', tokens.getSymbol());
+        assertLexeme(tokens, LexemePattern.NUMBER, 16, 17);
+        assertFalse(tokens.next());
+        assertNull(tokens.getLexemePattern());
+    }
+
+    @Test
+    void testNumbers() {
+        assertEquals(new BigDecimal(".5"), this.number(".5"));
+        assertEquals(new BigDecimal("1.25e3"), this.number("1.25e3"));
+        assertEquals(new BigDecimal("2E-3"), this.number("2E-3"));
+        assertEquals(new BigDecimal("12345678901234567890.123456789"), this.number("12345678901234567890.123456789"));
+    }
+
+    @Test
+    void testUnexpectedCharacter() {
+        ExpressionTokenizer tokens = ExpressionTokenizer.of("1 $ 2");
+
+        assertTrue(tokens.next());
+        assertThrows(IllegalArgumentException.class, () -> tokens.next());
+    }
+
+    private BigDecimal number(String text) {
+        ExpressionTokenizer tokens = ExpressionTokenizer.of(text);
+
+        assertTrue(tokens.next());
+        assertEquals(LexemePattern.NUMBER, tokens.getLexemePattern());
+        assertEquals(text.length(), tokens.getEnd());
+
+        return tokens.getNumber();
+    }
+
+    private static void assertLexeme(ExpressionTokenizer tokens, LexemePattern lexemePattern, int start, int end) {
+        assertTrue(tokens.next());
+        assertEquals(lexemePattern, tokens.getLexemePattern());
+        assertEquals(start, tokens.getStart());
+        assertEquals(end, tokens.getEnd());
+    }
+}
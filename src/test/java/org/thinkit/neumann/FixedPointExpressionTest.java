@@ -0,0 +1,118 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.junit.jupiter.api.Test;
+
+public class FixedPointExpressionTest {
+
+    @Test
+    void testEvaluate() {
+        FixedPointExpression expression = Neumann.compile("price * quantity * (1 + rate) - discount")
+                .toFixedPointExpression(2, RoundingMode.HALF_UP);
+
+        assertEquals(new BigDecimal("3244.28"), expression.evaluate(new BigDecimal("1234.56"), new BigDecimal("3"),
+                new BigDecimal("0.08"), new BigDecimal("755.69")));
+        assertEquals(new BigDecimal("0.30"), Neumann.compile("a + b").toFixedPointExpression(2, RoundingMode.HALF_UP)
+                .evaluate(new BigDecimal("0.1"), new BigDecimal("0.2")));
+        assertEquals(new BigDecimal("33.33"),
+                Neumann.compile("x / 3").toFixedPointExpression(2, RoundingMode.DOWN).evaluate(new BigDecimal("100")));
+        assertEquals(new BigDecimal("4.000"), Neumann.compile("avg(a, b, 4) + floor(!a / 4) + ceil(b % 2)")
+                .toFixedPointExpression(3, RoundingMode.HALF_EVEN).evaluate(new BigDecimal("3"), new BigDecimal("5")));
+        assertEquals(0, expression.getFallbackCount());
+    }
+
+    @Test
+    void testRoundingMode() {
+        CompiledExpression compiled = Neumann.compile("x / 8");
+
+        for (RoundingMode roundingMode : RoundingMode.values()) {
+            if (roundingMode == RoundingMode.UNNECESSARY) {
+                assertThrows(ArithmeticException.class,
+                        () -> compiled.toFixedPointExpression(2, roundingMode).evaluate(new BigDecimal("0.2")));
+                continue;
+            }
+
+            for (String value : new String[] { "0.2", "0.6", "-0.2", "-0.6", "0.04" }) {
+                assertEquals(new BigDecimal(value).divide(new BigDecimal("8"), 2, roundingMode),
+                        compiled.toFixedPointExpression(2, roundingMode).evaluate(new BigDecimal(value)));
+            }
+        }
+    }
+
+    @Test
+    void testOverflowFallback() {
+        FixedPointExpression expression = Neumann.compile("a * b + 1").toFixedPointExpression(4,
+                RoundingMode.HALF_UP);
+
+        assertEquals(new BigDecimal("100000000000000000001.0000"),
+                expression.evaluate(new BigDecimal("10000000000"), new BigDecimal("10000000000")));
+        assertEquals(1, expression.getFallbackCount());
+        assertEquals(new BigDecimal("7.0000"), expression.evaluate(new BigDecimal("2"), new BigDecimal("3")));
+        assertEquals(1, expression.getFallbackCount());
+        assertThrows(ArithmeticException.class,
+                () -> Neumann.compile("a / b").toFixedPointExpression(2, RoundingMode.HALF_UP)
+                        .evaluate(new BigDecimal("1"), BigDecimal.ZERO));
+    }
+
+    @Test
+    void testIntegerPower() {
+        FixedPointExpression square = Neumann.compile("x ^ 2").toFixedPointExpression(2, RoundingMode.HALF_UP);
+        FixedPointExpression cube = Neumann.compile("x ^ 3").toFixedPointExpression(2, RoundingMode.HALF_UP);
+
+        assertEquals(new BigDecimal("1.56"), square.evaluate(new BigDecimal("1.25")));
+        assertEquals(new BigDecimal("5.52"), square.evaluate(new BigDecimal("2.35")));
+        assertEquals(new BigDecimal("-1.95"), cube.evaluate(new BigDecimal("-1.25")));
+        assertEquals(new BigDecimal("12.97"), cube.evaluate(new BigDecimal("2.35")));
+        assertEquals(new BigDecimal("12.98"), new BigDecimal("2.35").pow(3).setScale(2, RoundingMode.HALF_UP));
+        assertEquals(0, cube.getFallbackCount());
+    }
+
+    @Test
+    void testUnsupported() {
+        assertThrows(UnsupportedOperationException.class,
+                () -> Neumann.compile("sqrt(x)").toFixedPointExpression(2, RoundingMode.HALF_UP));
+        assertThrows(UnsupportedOperationException.class,
+                () -> Neumann.compile("x ^ 9").toFixedPointExpression(2, RoundingMode.HALF_UP));
+        assertThrows(UnsupportedOperationException.class,
+                () -> Neumann.compile("x ^ 2.5").toFixedPointExpression(2, RoundingMode.HALF_UP));
+        assertThrows(UnsupportedOperationException.class,
+                () -> Neumann.compile("x ^ y").toFixedPointExpression(2, RoundingMode.HALF_UP));
+        assertThrows(IllegalArgumentException.class,
+                () -> Neumann.compile("x").toFixedPointExpression(19, RoundingMode.HALF_UP));
+        assertThrows(IllegalArgumentException.class,
+                () -> Neumann.compile("a + b").toFixedPointExpression(2, RoundingMode.HALF_UP)
+                        .evaluate(BigDecimal.ONE));
+    }
+
+    @Test
+    void testEvaluateColumns() {
+        FixedPointExpression expression = Neumann.compile("a * b + avg(a, b, 1) - max(a, 0) + floor(b / 3)")
+                .toFixedPointExpression(2, RoundingMode.HALF_EVEN);
+        long[][] columns = new long[2][1200];
+
+        for (int i = 0; i < 1200; i++) {
+            columns[0][i] = i * 37 - 20000;
+            columns[1][i] = 5000 - i * 13;
+        }
+
+        columns[0][700] = 4000000000000000L;
+        columns[1][700] = 30000;
+
+        long[] results = new long[1200];
+        expression.evaluate(columns, results);
+
+        for (int i = 0; i < results.length; i++) {
+            assertEquals(expression.evaluate(BigDecimal.valueOf(columns[0][i], 2),
+                    BigDecimal.valueOf(columns[1][i], 2)), BigDecimal.valueOf(results[i], 2));
+        }
+
+        assertEquals(2, expression.getFallbackCount());
+        assertThrows(ArithmeticException.class,
+                () -> expression.evaluate(new long[][] { { Long.MAX_VALUE / 10 }, { 100000 } }, new long[1]));
+    }
+}
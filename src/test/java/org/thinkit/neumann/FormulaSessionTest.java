@@ -0,0 +1,62 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class FormulaSessionTest {
+
+    @Test
+    void testUpdate() {
+        FormulaSet formulaSet = FormulaSet.of(Neumann.input("price * qty"), Neumann.input("price * qty * (1 - rate)"),
+                Neumann.input("fee + 1"), Neumann.input("max(qty, 10) + fee"));
+        FormulaSession session = FormulaSession.of(formulaSet, new BigDecimal("12.5"), new BigDecimal("8"),
+                new BigDecimal("0.2"), new BigDecimal("3"));
+
+        assertArrayEquals(formulaSet.evaluate(session.getValue("price"), session.getValue("qty"),
+                session.getValue("rate"), session.getValue("fee")), session.getResults());
+
+        assertArrayEquals(new int[] { 1 }, session.update("rate", new BigDecimal("0.1")));
+        assertEquals(new BigDecimal("90.00"), session.getResult(1));
+        assertEquals(3, session.getRecomputedCount());
+
+        assertArrayEquals(new int[] { 0, 1 }, session.update("qty", new BigDecimal("9")));
+        assertEquals(new BigDecimal("112.5"), session.getResult(0));
+        assertEquals(new BigDecimal("101.25"), session.getResult(1));
+        assertEquals(new BigDecimal("13"), session.getResult(3));
+
+        assertArrayEquals(new int[0], session.update("qty", new BigDecimal("9")));
+        assertArrayEquals(new int[] { 2, 3 }, session.update(formulaSet.getSlot("fee"), new BigDecimal("4")));
+
+        Map<String, BigDecimal> values = new LinkedHashMap<>();
+        values.put("price", new BigDecimal("10"));
+        values.put("qty", new BigDecimal("12"));
+
+        assertArrayEquals(new int[] { 0, 1, 3 }, session.update(values));
+        assertArrayEquals(formulaSet.evaluate(new BigDecimal("10"), new BigDecimal("12"), new BigDecimal("0.1"),
+                new BigDecimal("4")), session.getResults());
+    }
+
+    @Test
+    void testRollback() {
+        FormulaSet formulaSet = FormulaSet.of(Neumann.input("x + y"), Neumann.input("1 / x"));
+        FormulaSession session = FormulaSession.of(formulaSet, new BigDecimal("4"), new BigDecimal("1"));
+        BigDecimal[] results = session.getResults();
+
+        assertThrows(ArithmeticException.class, () -> session.update("x", BigDecimal.ZERO));
+        assertEquals(new BigDecimal("4"), session.getValue("x"));
+        assertArrayEquals(results, session.getResults());
+        assertArrayEquals(new int[] { 0 }, session.update("y", new BigDecimal("2")));
+        assertEquals(new BigDecimal("6"), session.getResult(0));
+
+        assertThrows(IllegalArgumentException.class, () -> session.update("z", BigDecimal.ONE));
+        assertThrows(IndexOutOfBoundsException.class, () -> session.update(2, BigDecimal.ONE));
+        assertThrows(IllegalArgumentException.class, () -> FormulaSession.of(formulaSet, BigDecimal.ONE));
+    }
+}
@@ -0,0 +1,94 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.thinkit.neumann.catalog.NumericMode;
+
+public class FormulaSetTest {
+
+    @Test
+    void testEvaluate() {
+        String[] expressions = { "price * qty", "price * qty * (1 - rate)", "avg(a, b, c) + price * qty",
+                "sqrt(avg(a, b, c)) - qty / 4", "price * qty" };
+        Evaluator[] evaluators = new Evaluator[expressions.length];
+
+        for (int i = 0; i < expressions.length; i++) {
+            evaluators[i] = Neumann.input(expressions[i]);
+        }
+
+        FormulaSet formulaSet = FormulaSet.of(evaluators);
+
+        assertEquals(5, formulaSet.size());
+        assertEquals(List.of(expressions), formulaSet.getExpressions());
+        assertEquals(List.of("price", "qty", "rate", "a", "b", "c"), formulaSet.getVariables());
+        assertEquals(3, formulaSet.getSlot("a"));
+        assertThrows(IllegalArgumentException.class, () -> formulaSet.getSlot("unknown"));
+
+        int nodeCount = 0;
+        int separateNodeCount = 0;
+
+        for (String expression : expressions) {
+            CompiledExpression compiled = Neumann.compile(expression);
+            nodeCount += compiled.getOptimizationReport().getNodeCountAfter();
+            separateNodeCount += compiled.getOptimizationReport().getNodeCountAfter() - compiled.getSharedNodeCount();
+        }
+
+        assertEquals(nodeCount, formulaSet.getNodeCount() + formulaSet.getSharedNodeCount());
+        assertEquals(separateNodeCount - 17, formulaSet.getNodeCount());
+
+        BigDecimal[] values = { new BigDecimal("12.5"), new BigDecimal("8"), new BigDecimal("0.2"),
+                new BigDecimal("2"), new BigDecimal("3"), new BigDecimal("4") };
+        BigDecimal[] results = formulaSet.evaluate(values);
+
+        for (int i = 0; i < expressions.length; i++) {
+            CompiledExpression compiled = Neumann.compile(expressions[i]);
+            BigDecimal[] slots = new BigDecimal[compiled.getVariables().size()];
+
+            for (String variable : compiled.getVariables()) {
+                slots[compiled.getSlot(variable)] = values[formulaSet.getSlot(variable)];
+            }
+
+            assertEquals(compiled.evaluate(slots), results[i]);
+        }
+
+        assertEquals(new BigDecimal("100.0"), results[0]);
+        assertEquals(new BigDecimal("103.0"), results[2]);
+        assertEquals(results[0], results[4]);
+    }
+
+    @Test
+    void testEvaluateDouble() {
+        FormulaSet formulaSet = FormulaSet.of(Neumann.input("x * y + 1"), Neumann.input("x ^ 3 - x * y"),
+                Neumann.input("max(x * y, z) / 8"));
+        double[] results = formulaSet.evaluateDouble(1.5, -2.0, 0.25);
+
+        assertArrayEquals(new double[] { Neumann.compile("x * y + 1").evaluateDouble(1.5, -2.0),
+                Neumann.compile("x ^ 3 - x * y").evaluateDouble(1.5, -2.0),
+                Neumann.compile("max(x * y, z) / 8").evaluateDouble(1.5, -2.0, 0.25) }, results);
+        assertEquals(new BigDecimal("6.375"), formulaSet.evaluate(1.5, -2.0, 0.25)[1]);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> FormulaSet.of());
+        assertThrows(IllegalArgumentException.class,
+                () -> FormulaSet.of(Neumann.input("x + 1"), Neumann.input("x +")));
+        assertThrows(IllegalArgumentException.class, () -> FormulaSet.of(Neumann.input("x + 1"),
+                Neumann.input("x + 2").withMathContext(new MathContext(8))));
+        assertThrows(IllegalArgumentException.class, () -> FormulaSet.of(Neumann.input("x + 1"),
+                Neumann.input("x + 2").withNumericMode(NumericMode.DOUBLE)));
+        assertThrows(IllegalArgumentException.class, () -> FormulaSet.of(Neumann.input("x + 1"),
+                Neumann.input("x + 2").withFunctionCache(FunctionCache.of(10))));
+        assertThrows(IllegalArgumentException.class,
+                () -> FormulaSet.of(Neumann.input("x + y"), Neumann.input("z")).evaluate(BigDecimal.ONE));
+        assertThrows(ArithmeticException.class,
+                () -> FormulaSet.of(Neumann.input("x + 1"), Neumann.input("1 / x")).evaluate(BigDecimal.ZERO));
+    }
+}
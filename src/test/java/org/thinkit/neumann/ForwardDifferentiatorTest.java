@@ -0,0 +1,79 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ForwardDifferentiatorTest {
+
+    @Test
+    void testGradient() {
+        CompiledExpression expression = Neumann.compile("x * y ^ 2 + x / 4 - max(x, 2) + abs(!y) + floor(x)");
+        Gradient gradient = expression.gradient(new BigDecimal("3"), new BigDecimal("2"));
+
+        assertEquals(List.of("x", "y"), gradient.getVariables());
+        assertEquals(expression.evaluate(new BigDecimal("3"), new BigDecimal("2")), gradient.getValue());
+        assertEquals(0, new BigDecimal("3.25").compareTo(gradient.getPartial("x")));
+        assertEquals(0, new BigDecimal("13").compareTo(gradient.getPartial(1)));
+        assertEquals(Neumann.compile("2 * pi").evaluate(), Neumann.compile("2 * pi").gradient().getValue());
+        assertThrows(IllegalArgumentException.class, () -> gradient.getPartial("z"));
+    }
+
+    @Test
+    void testGradientDouble() {
+        CompiledExpression expression = Neumann.compile("sin(x) * log(y) + sqrt(x * y) + avg(x, y) + y % x");
+        double x = 0.7;
+        double y = 2.5;
+        DoubleGradient gradient = expression.gradientDouble(x, y);
+
+        assertEquals(expression.evaluateDouble(x, y), gradient.getValue());
+        assertEquals(Math.cos(x) * Math.log(y) + 0.5 * y / Math.sqrt(x * y) + 0.5 - Math.floor(y / x),
+                gradient.getPartial("x"), 1e-12);
+        assertEquals(Math.sin(x) / y + 0.5 * x / Math.sqrt(x * y) + 0.5 + 1, gradient.getPartial("y"), 1e-12);
+    }
+
+    @Test
+    void testGradientMatchesDecimal() {
+        CompiledExpression expression = Neumann.compile("cosh(a) / b + atan(a * b) - tanh(b) + b ^ a");
+        Gradient gradient = expression.gradient(new BigDecimal("0.5"), new BigDecimal("2.5"));
+        DoubleGradient doubleGradient = expression.gradientDouble(0.5, 2.5);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(doubleGradient.getPartial(i), gradient.getPartial(i).doubleValue(), 1e-12);
+        }
+    }
+
+    @Test
+    void testGradientDoubleConstantDivisor() {
+        CompiledExpression expression = Neumann.compile("x / 3 + y / 0.1");
+        DoubleGradient gradient = expression.gradientDouble(7, 0.3);
+
+        assertEquals(expression.evaluateDouble(7, 0.3), gradient.getValue());
+        assertEquals(1.0 / 3, gradient.getPartial("x"));
+        assertEquals(2.333333333333333, Neumann.compile("x / 3").gradientDouble(7).getValue());
+    }
+
+    @Test
+    void testGradientDoubleMinMax() {
+        CompiledExpression minimum = Neumann.compile("min(2 * x, y)");
+        CompiledExpression maximum = Neumann.compile("max(2 * x, y)");
+
+        assertEquals(Double.NaN, minimum.gradientDouble(0.5, Double.NaN).getValue());
+        assertEquals(Double.NaN, maximum.gradientDouble(Double.NaN, 1).getValue());
+        assertEquals(1.0, minimum.gradientDouble(0.5, Double.NaN).getPartial("y"));
+        assertEquals(0.0, minimum.gradientDouble(0.5, Double.NaN).getPartial("x"));
+        assertEquals(-0.0, minimum.gradientDouble(0, -0.0).getValue());
+        assertEquals(1.0, minimum.gradientDouble(0, -0.0).getPartial("y"));
+        assertEquals(0.0, maximum.gradientDouble(-0.0, 0).getValue());
+        assertEquals(1.0, maximum.gradientDouble(-0.0, 0).getPartial("y"));
+
+        for (double[] values : new double[][] { { 0.5, Double.NaN }, { 0, -0.0 }, { -0.0, 0 }, { 1, 1.5 } }) {
+            assertEquals(minimum.evaluateDouble(values), minimum.gradientDouble(values).getValue());
+            assertEquals(maximum.evaluateDouble(values), maximum.gradientDouble(values).getValue());
+        }
+    }
+}
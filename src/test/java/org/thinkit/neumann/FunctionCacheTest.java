@@ -0,0 +1,48 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import org.junit.jupiter.api.Test;
+
+public class FunctionCacheTest {
+
+    @Test
+    void testHitAndMiss() {
+        FunctionCache cache = FunctionCache.of(100);
+        CompiledExpression expression = CompiledExpression
+                .of(Neumann.input("sin(x) + sqrt(x) + x ^ 1.5 + abs(x)").withFunctionCache(cache));
+
+        BigDecimal expected = Neumann.compile("sin(x) + sqrt(x) + x ^ 1.5 + abs(x)").evaluate(new BigDecimal("0.5"));
+
+        assertEquals(expected, expression.evaluate(new BigDecimal("0.5")));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(expected, expression.evaluate(new BigDecimal("0.5")));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(3, cache.size());
+        assertEquals(0.5, cache.getHitRate());
+
+        CompiledExpression.of(Neumann.input("sin(x)").withFunctionCache(cache).withMathContext(new MathContext(10)))
+                .evaluate(new BigDecimal("0.5"));
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    void testEviction() {
+        FunctionCache cache = FunctionCache.of(2);
+        CompiledExpression expression = CompiledExpression.of(Neumann.input("log(x)").withFunctionCache(cache));
+
+        for (int i = 1; i <= 5; i++) {
+            expression.evaluate(new BigDecimal(i));
+        }
+
+        assertTrue(cache.size() <= 2);
+        assertEquals(5, cache.size() + cache.getEvictionCount());
+        assertThrows(IllegalArgumentException.class, () -> FunctionCache.of(-1));
+    }
+}
@@ -0,0 +1,108 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class MappedFileEvaluatorTest {
+
+    @Test
+    void testEvaluateCsv() throws IOException {
+        MappedFileEvaluator evaluator = MappedFileEvaluator.of(Neumann.input("price * qty"),
+                Neumann.input("sqrt(qty) + rate"));
+        Path input = Files.createTempFile("neumann", ".csv");
+        Path output = Files.createTempFile("neumann", ".bin");
+
+        try {
+            Files.write(input, ("id,qty, price ,rate\r\n1,4,12.5,0.1\r\n\r\n2, 9 ,-3e2,1E-3\n3,2.25,.5,-0\n")
+                    .getBytes(StandardCharsets.UTF_8));
+
+            assertEquals(List.of("price", "qty", "rate"), evaluator.getVariables());
+            assertEquals(3, evaluator.evaluateCsv(input, true, output));
+
+            DoubleBuffer results = read(output);
+
+            assertEquals(6, results.remaining());
+            assertEquals(List.of(50.0, -2700.0, 1.125, 2.1, 3.001, 1.5), List.of(results.get(0), results.get(1),
+                    results.get(2), results.get(3), results.get(4), results.get(5)));
+
+            Files.write(input, "1,2\n3".getBytes(StandardCharsets.UTF_8));
+            assertThrows(IllegalArgumentException.class, () -> evaluator.evaluateCsv(input, false, output));
+            Files.write(input, "qty,rate\n1,2".getBytes(StandardCharsets.UTF_8));
+            assertThrows(IllegalArgumentException.class, () -> evaluator.evaluateCsv(input, true, output));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    void testEvaluateBinary() throws IOException {
+        MappedFileEvaluator evaluator = MappedFileEvaluator.of(Neumann.input("x / 4 - max(x, y)"));
+        CompiledExpression expression = evaluator.getExpressions().get(0);
+        Path input = Files.createTempFile("neumann", ".bin");
+        Path output = Files.createTempFile("neumann", ".bin");
+        int rows = 100000;
+        ByteBuffer buffer = ByteBuffer.allocate(rows * 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; i < rows; i++) {
+            buffer.putDouble(i * 8, i * 0.75);
+            buffer.putDouble((rows + i) * 8, rows - i * 1.5);
+        }
+
+        try {
+            Files.write(input, buffer.array());
+            assertEquals(rows, evaluator.evaluateBinary(input, output));
+
+            DoubleBuffer results = read(output);
+
+            for (int i = 0; i < rows; i++) {
+                assertEquals(expression.evaluateDouble(i * 0.75, rows - i * 1.5), results.get(i));
+            }
+
+            Files.write(input, new byte[12]);
+            assertThrows(IllegalArgumentException.class, () -> evaluator.evaluateBinary(input, output));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    void testParseDouble() {
+        Random random = new Random(7);
+
+        for (int i = 0; i < 20000; i++) {
+            String text = switch (i % 4) {
+                case 0 -> Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+                case 1 -> Long.toString(random.nextLong());
+                case 2 -> (random.nextInt(2000000) - 1000000) + "." + random.nextInt(1000000) + "e"
+                        + (random.nextInt(60) - 30);
+                default -> String.format(Locale.ROOT, "%.12f", random.nextGaussian() * 1000);
+            };
+            byte[] bytes = (" " + text + " ").getBytes(StandardCharsets.ISO_8859_1);
+
+            assertEquals(Double.parseDouble(text), MappedFileEvaluator.parseDouble(ByteBuffer.wrap(bytes), 0,
+                    bytes.length));
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> MappedFileEvaluator.parseDouble(ByteBuffer.wrap("1.2.3".getBytes()), 0, 5));
+    }
+
+    private static DoubleBuffer read(Path file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+}
@@ -2,8 +2,16 @@ package org.thinkit.neumann;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
 
 import org.junit.jupiter.api.Test;
+import org.thinkit.neumann.catalog.MathematicalConstant;
+import org.thinkit.neumann.catalog.NumericMode;
 
 public class NeumannTest {
 
@@ -14,4 +22,48 @@ public class NeumannTest {
         assertNotNull(result);
         assertEquals("-5", result);
     }
+
+    @Test
+    void testDoubleNumericMode() {
+        Evaluator evaluator = Neumann.input("1/4 + max(2, 3) * e").withNumericMode(NumericMode.DOUBLE);
+
+        assertEquals(NumericMode.DOUBLE, evaluator.getNumericMode());
+        assertEquals(String.valueOf(0.25 + 3 * Math.E), evaluator.evaluate());
+        assertEquals("8.4048454853771357062", evaluator.withNumericMode(NumericMode.DECIMAL).evaluate());
+        assertEquals(String.valueOf(0.1 + 0.2),
+                Neumann.input("0.1 + 0.2").withNumericMode(NumericMode.DOUBLE).evaluate());
+        assertEquals("0.3", Neumann.input("0.1 + 0.2").evaluate());
+        assertEquals(String.valueOf(Math.sqrt(2) * Math.PI),
+                Neumann.input("sqrt(2) * pi").withNumericMode(NumericMode.DOUBLE).evaluate());
+    }
+
+    @Test
+    void testMathContext() {
+        Evaluator evaluator = Neumann.input("pi * 2").withMathContext(new MathContext(5));
+
+        assertEquals(new MathContext(5), evaluator.getMathContext());
+        assertEquals("6.2832", evaluator.evaluate());
+        assertEquals("6.2831853071795864770", Neumann.input("pi * 2").evaluate());
+        assertEquals("3.1415926535897932384626433832795",
+                Neumann.input("pi").withMathContext(new MathContext(32)).evaluate());
+        assertEquals(new BigDecimal("1.41"),
+                Neumann.compile("sqrt(x)", new MathContext(3, RoundingMode.DOWN)).evaluate(new BigDecimal("2")));
+        assertSame(ConstantCache.get(MathematicalConstant.PI, new MathContext(5)),
+                ConstantCache.get(MathematicalConstant.PI, new MathContext(5)));
+        assertThrows(IllegalArgumentException.class, () -> Neumann.input("pi").withMathContext(MathContext.UNLIMITED));
+    }
+
+    @Test
+    void testTypedResult() {
+        assertEquals(new BigDecimal("3.75"), Neumann.input("1/4 + max(2, 3) + 0.5").evaluateToBigDecimal());
+        assertEquals(3.75, Neumann.input("1/4 + max(2, 3) + 0.5").evaluateToDouble());
+        assertEquals(12345678901234567L, Neumann.input("12345678901234566 + 1.0").evaluateToLong());
+        assertThrows(ArithmeticException.class, () -> Neumann.input("1/4").evaluateToLong());
+
+        Evaluator evaluator = Neumann.input("2 ^ 10 / 4").withNumericMode(NumericMode.DOUBLE);
+        assertEquals(256L, evaluator.evaluateToLong());
+        assertEquals(new BigDecimal("256.0"), evaluator.evaluateToBigDecimal());
+        assertThrows(ArithmeticException.class,
+                () -> Neumann.input("2 ^ 70").withNumericMode(NumericMode.DOUBLE).evaluateToLong());
+    }
 }
@@ -0,0 +1,38 @@
+package org.thinkit.neumann;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+import org.thinkit.neumann.catalog.CloseBracket;
+import org.thinkit.neumann.catalog.LexemePattern;
+import org.thinkit.neumann.catalog.MathematicalConstant;
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+import org.thinkit.neumann.catalog.OpenBracket;
+
+public class TokenTableTest {
+
+    @Test
+    void testSymbols() {
+        assertEquals(LexemePattern.OPERATOR, TokenTable.getSymbolPattern('^'));
+        assertEquals(LexemePattern.FUNCTION_ARGUMENT_SEPARATOR, TokenTable.getSymbolPattern(','));
+        assertEquals(MathematicalOperator.MODULO, TokenTable.getOperator('%'));
+        assertEquals(OpenBracket.CURLY, TokenTable.getOpenBracket('{'));
+        assertEquals(CloseBracket.ANGLE, TokenTable.getCloseBracket('>'));
+        assertNull(TokenTable.getSymbolPattern('$'));
+        assertNull(TokenTable.getSymbolPattern('あ'));
+    }
+
+    @Test
+    void testNames() {
+        assertEquals(MathematicalFunction.MIN, TokenTable.getFunction("min", 0, 3));
+        assertEquals(MathematicalFunction.MAX, TokenTable.getFunction("max", 0, 3));
+        assertEquals(MathematicalFunction.ARC_SINE, TokenTable.getFunction("x+asin", 2, 6));
+        assertEquals(MathematicalFunction.HYPERBOLIC_SINE, TokenTable.getFunction("sinh", 0, 4));
+        assertEquals(MathematicalConstant.PI, TokenTable.getConstant("pi", 0, 2));
+        assertNull(TokenTable.getFunction("si", 0, 2));
+        assertNull(TokenTable.getFunction("sinhx", 0, 5));
+        assertNull(TokenTable.getConstant("pi", 0, 0));
+    }
+}
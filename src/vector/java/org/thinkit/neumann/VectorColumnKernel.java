@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 Kato Shinya.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.thinkit.neumann;
+
+import org.thinkit.neumann.catalog.MathematicalFunction;
+import org.thinkit.neumann.catalog.MathematicalOperator;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@code jdk.incubator.vector} モジュールにより {@code double} 型の列の複数の行を一度に演算するループを提供するクラスです。
+ * <p>
+ * 四則演算、符号反転、 {@code abs} 、 {@code sqrt} 、 {@code min} 、 {@code max} は実行環境で推奨されるレーン数ずつ演算され、
+ * レーン数に満たない区間の端数の行は一行ずつ演算されます。これらの演算は IEEE 754 の規則で正しく丸められるため、各行の評価結果は一行ずつ演算するループと一致します。
+ * 累乗、剰余、 {@code floor} 、 {@code ceil} 、三角関数や対数のような関数は {@link ColumnKernel} の一行ずつ演算するループで評価されます。
+ * <p>
+ * このクラスは {@code jdk.incubator.vector} モジュールを必要とするため {@link ColumnKernel#of} メソッドからのみ読み込まれます。
+ *
+ * @author Kato Shinya
+ * @since 1.0
+ * @version 1.0
+ */
+final class VectorColumnKernel extends ColumnKernel {
+
+    /**
+     * 実行環境で推奨されるレーン数の種別
+     */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * コンストラクタ
+     */
+    VectorColumnKernel() {
+    }
+
+    @Override
+    void apply(MathematicalOperator operator, double[] target, double[] left, double[] right, int size) {
+
+        final int bound = SPECIES.loopBound(size);
+
+        switch (operator) {
+            case NEGATE -> {
+                for (int i = 0; i < bound; i += SPECIES.length()) {
+                    DoubleVector.fromArray(SPECIES, left, i).neg().intoArray(target, i);
+                }
+            }
+            case MINUS -> {
+                for (int i = 0; i < bound; i += SPECIES.length()) {
+                    DoubleVector.fromArray(SPECIES, left, i).sub(DoubleVector.fromArray(SPECIES, right, i))
+                            .intoArray(target, i);
+                }
+            }
+            case PLUS -> {
+                for (int i = 0; i < bound; i += SPECIES.length()) {
+                    DoubleVector.fromArray(SPECIES, left, i).add(DoubleVector.fromArray(SPECIES, right, i))
+                            .intoArray(target, i);
+                }
+            }
+            case MULTIPLY -> {
+                for (int i = 0; i < bound; i += SPECIES.length()) {
+                    DoubleVector.fromArray(SPECIES, left, i).mul(DoubleVector.fromArray(SPECIES, right, i))
+                            .intoArray(target, i);
+                }
+            }
+            case DIVIDE -> {
+                for (int i = 0; i < bound; i += SPECIES.length()) {
+                    DoubleVector.fromArray(SPECIES, left, i).div(DoubleVector.fromArray(SPECIES, right, i))
+                            .intoArray(target, i);
+                }
+            }
+            default -> {
+                super.apply(operator, target, left, right, size);
+                return;
+            }
+        }
+
+        this.applyRemainder(operator, target, left, right, bound, size);
+    }
+
+    @Override
+    void multiply(double[] target, double[] left, double factor, int size) {
+
+        final int bound = SPECIES.loopBound(size);
+
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, left, i).mul(factor).intoArray(target, i);
+        }
+
+        for (int i = bound; i < size; i++) {
+            target[i] = left[i] * factor;
+        }
+    }
+
+    @Override
+    boolean apply(MathematicalFunction function, double[] target, double[] left, double[] right, int size) {
+
+        final int bound = SPECIES.loopBound(size);
+
+        switch (function) {
+            case ABS -> {
+                for (int i = 0; i < bound; i += SPECIES.length()) {
+                    DoubleVector.fromArray(SPECIES, left, i).abs().intoArray(target, i);
+                }
+            }
+            case SQRT -> {
+                for (int i = 0; i < bound; i += SPECIES.length()) {
+                    DoubleVector.fromArray(SPECIES, left, i).lanewise(VectorOperators.SQRT).intoArray(target, i);
+                }
+            }
+            case MIN -> {
+                for (int i = 0; i < bound; i += SPECIES.length()) {
+                    DoubleVector.fromArray(SPECIES, left, i).min(DoubleVector.fromArray(SPECIES, right, i))
+                            .intoArray(target, i);
+                }
+            }
+            case MAX -> {
+                for (int i = 0; i < bound; i += SPECIES.length()) {
+                    DoubleVector.fromArray(SPECIES, left, i).max(DoubleVector.fromArray(SPECIES, right, i))
+                            .intoArray(target, i);
+                }
+            }
+            default -> {
+                return super.apply(function, target, left, right, size);
+            }
+        }
+
+        this.applyRemainder(function, target, left, right, bound, size);
+        return true;
+    }
+
+    /**
+     * レーン数に満たない端数の行へ演算子を一行ずつ適用します。
+     *
+     * @param operator 演算子
+     * @param target   評価結果を格納する列
+     * @param left     左辺の列
+     * @param right    右辺の列、単項演算子の場合は {@code null}
+     * @param from     端数の最初の行
+     * @param size     評価する行の数
+     */
+    private void applyRemainder(MathematicalOperator operator, double[] target, double[] left, double[] right,
+            int from, int size) {
+        for (int i = from; i < size; i++) {
+            target[i] = switch (operator) {
+                case NEGATE -> -left[i];
+                case MINUS -> left[i] - right[i];
+                case PLUS -> left[i] + right[i];
+                case MULTIPLY -> left[i] * right[i];
+                default -> left[i] / right[i];
+            };
+        }
+    }
+
+    /**
+     * レーン数に満たない端数の行へ関数を一行ずつ適用します。
+     *
+     * @param function 関数
+     * @param target   評価結果を格納する列
+     * @param left     左辺の列
+     * @param right    右辺の列、引数を一つ取る関数の場合は {@code null}
+     * @param from     端数の最初の行
+     * @param size     評価する行の数
+     */
+    private void applyRemainder(MathematicalFunction function, double[] target, double[] left, double[] right,
+            int from, int size) {
+        for (int i = from; i < size; i++) {
+            target[i] = switch (function) {
+                case ABS -> Math.abs(left[i]);
+                case SQRT -> Math.sqrt(left[i]);
+                case MIN -> Math.min(left[i], right[i]);
+                default -> Math.max(left[i], right[i]);
+            };
+        }
+    }
+}